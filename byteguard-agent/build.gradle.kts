@@ -0,0 +1,76 @@
+plugins {
+    java
+}
+
+description = "ByteGuard Agent - JavaAgent with the runtime decrypt and license verification path"
+
+dependencies {
+    implementation(project(":byteguard-core"))
+    
+    testImplementation("org.junit.jupiter:junit-jupiter:6.0.0")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher:1.10.0")
+}
+
+tasks.jar {
+    manifest {
+        attributes(
+            "Premain-Class" to "io.github.ygqygq2.byteguard.agent.ByteGuardAgent",
+            "Agent-Class" to "io.github.ygqygq2.byteguard.agent.ByteGuardAgent",
+            "Can-Redefine-Classes" to "false",
+            "Can-Retransform-Classes" to "true",
+            "Implementation-Title" to project.name,
+            "Implementation-Version" to project.version
+        )
+    }
+    
+    // Create fat JAR with all dependencies
+    from(configurations.runtimeClasspath.get().map { if (it.isDirectory) it else zipTree(it) })
+    duplicatesStrategy = DuplicatesStrategy.EXCLUDE
+    
+    // 排除签名文件以避免签名冲突（Bouncy Castle 等库会有签名）
+    exclude("META-INF/*.SF")
+    exclude("META-INF/*.DSA")
+    exclude("META-INF/*.RSA")
+    exclude("META-INF/LICENSE*")
+    exclude("META-INF/NOTICE*")
+    
+    // byteguard-core 中只在构建侧（CLI、构建插件）和服务端使用的部分：加密流水线、选择规则、
+    // 归档原地改写、License 签发、租约/密钥服务器。AgentJarTest 检查这些类不在 JAR 中
+    exclude("io/github/ygqygq2/byteguard/core/encrypt/JarEncryptor*")
+    exclude("io/github/ygqygq2/byteguard/core/encrypt/OrderedPipeline*")
+    exclude("io/github/ygqygq2/byteguard/core/encrypt/ProgressListener*")
+    exclude("io/github/ygqygq2/byteguard/core/encrypt/HashManifest*")
+    exclude("io/github/ygqygq2/byteguard/core/encrypt/SelectionRules*")
+    exclude("io/github/ygqygq2/byteguard/core/encrypt/EntrySelector*")
+    exclude("io/github/ygqygq2/byteguard/core/encrypt/GlobAutomaton*")
+    exclude("io/github/ygqygq2/byteguard/core/encrypt/ClassAnnotations*")
+    exclude("io/github/ygqygq2/byteguard/core/archive/ZipEntryReplacer*")
+    exclude("io/github/ygqygq2/byteguard/core/license/LicenseIssuer*")
+    exclude("io/github/ygqygq2/byteguard/core/license/lease/LeaseServer*")
+    exclude("io/github/ygqygq2/byteguard/core/crypto/keyserver/KeyServer.class")
+    exclude("io/github/ygqygq2/byteguard/core/crypto/keyserver/KeyServer$*")
+    exclude("io/github/ygqygq2/byteguard/core/loader/DecryptingClassLoader*")
+    
+    // License 验证只用 Bouncy Castle 轻量级 API（不注册 JCA Provider），
+    // 排除 JCA Provider、后量子算法等运行时用不到的部分，减少 JAR 条目数和打开开销
+    exclude("org/bouncycastle/jcajce/**")
+    exclude("org/bouncycastle/jce/**")
+    exclude("org/bouncycastle/pqc/**")
+    exclude("org/bouncycastle/x509/**")
+    exclude("org/bouncycastle/i18n/**")
+    exclude("org/bouncycastle/iana/**")
+    exclude("org/bouncycastle/openpgp/jcajce/**")
+    exclude("org/bouncycastle/openpgp/operator/jcajce/**")
+    exclude("org/bouncycastle/openpgp/examples/**")
+    exclude("org/bouncycastle/gpg/keybox/jcajce/**")
+    // 对应的 Provider 类已排除，保留注册文件会让应用的 ServiceLoader 遍历失败
+    exclude("META-INF/services/java.security.Provider")
+    // 非 Multi-Release JAR，版本化目录不会被使用
+    exclude("META-INF/versions/**")
+}
+
+tasks.test {
+    // AgentJarTest 检查打包后的 JAR
+    dependsOn(tasks.jar)
+    systemProperty("byteguard.agentJar", tasks.jar.get().archiveFile.get().asFile.absolutePath)
+}
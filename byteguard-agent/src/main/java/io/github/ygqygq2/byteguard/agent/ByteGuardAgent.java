@@ -0,0 +1,538 @@
+package io.github.ygqygq2.byteguard.agent;
+
+import io.github.ygqygq2.byteguard.core.archive.DeltaPatch;
+import io.github.ygqygq2.byteguard.core.crypto.CipherSuite;
+import io.github.ygqygq2.byteguard.core.crypto.CipherSuites;
+import io.github.ygqygq2.byteguard.core.crypto.KeyDerivation;
+import io.github.ygqygq2.byteguard.core.crypto.KeyEnvelope;
+import io.github.ygqygq2.byteguard.core.crypto.KeyProvider;
+import io.github.ygqygq2.byteguard.core.crypto.KeyProviders;
+import io.github.ygqygq2.byteguard.core.crypto.keyserver.KeyServerKeyProvider;
+import io.github.ygqygq2.byteguard.core.license.License;
+import io.github.ygqygq2.byteguard.core.license.LicenseException;
+import io.github.ygqygq2.byteguard.core.license.LicenseSerializer;
+import io.github.ygqygq2.byteguard.core.license.LicenseValidator;
+import io.github.ygqygq2.byteguard.core.license.LicenseVerificationCache;
+import io.github.ygqygq2.byteguard.core.license.GPGLicenseValidator;
+import io.github.ygqygq2.byteguard.core.license.MachineFingerprint;
+import io.github.ygqygq2.byteguard.core.license.PublicKeyLoader;
+import io.github.ygqygq2.byteguard.core.license.RevocationList;
+import io.github.ygqygq2.byteguard.core.license.lease.LeaseClient;
+import io.github.ygqygq2.byteguard.core.loader.ClassDecryptor;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadata;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadataSerializer;
+
+import java.io.*;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.ProtectionDomain;
+import java.security.PublicKey;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * ByteGuard JavaAgent 入口
+ * 
+ * <p>用法: java -javaagent:byteguard.jar=password=yourpassword -jar app.jar
+ * 
+ * <p>密码也可来自文件（{@code keyFile=/run/secrets/byteguard}）或密钥服务器
+ * （本机替身，{@code keyServer=unix:/run/byteguard/key.sock,keyId=app}，协议不加密，只接受本机地址），参见 {@link KeyProviders}
+ * 
+ * <p>{@code patch=app.patch}（或 -Dbyteguard.patch）把 diff 命令生成的增量补丁叠加到加密 JAR 上，
+ * 不需要先用 apply 合成新 JAR，参见 {@link DeltaPatch}
+ * 
+ * @author ygqygq2
+ */
+public class ByteGuardAgent {
+    
+    private static ClassDecryptor decryptor;
+    private static License license;
+    
+    /**
+     * Agent 入口（VM 启动时）
+     */
+    public static void premain(String agentArgs, Instrumentation inst) {
+        System.out.println("[ByteGuard] Starting ByteGuard Agent...");
+        
+        try {
+            // 1. 解析参数，立即开始获取密钥（远程来源在后台进行，与 License 验证重叠）
+            AgentConfig config = parseAgentArgs(agentArgs);
+            config.keyProvider.prefetch();
+            
+            // 2. 查找并验证 License
+            license = loadAndValidateLicense(config);
+            System.out.println("[ByteGuard] License validated successfully");
+            System.out.println("  - License ID: " + license.getLicenseId());
+            System.out.println("  - Issued to: " + license.getIssuedTo());
+            System.out.println("  - Type: " + license.getLicenseType());
+            if (license.getExpireAt() != null) {
+                System.out.println("  - Expires at: " + license.getExpireAt());
+            }
+            acquireInstanceLease(license);
+            
+            // 3. 查找加密的 JAR 并读取元数据
+            byte[] metadataJson = loadMetadata();
+            EncryptionMetadata metadata = metadataJson != null
+                ? new EncryptionMetadataSerializer().fromJson(new String(metadataJson, StandardCharsets.UTF_8))
+                : null;
+            if (metadata != null) {
+                System.out.println("[ByteGuard] Found encrypted JAR with " + metadata.getTotalClasses() + " classes");
+            }
+            
+            // 叠加增量补丁：之后按补丁中的新元数据解密
+            DeltaPatch patch = openPatch(config.patchPath, metadataJson, inst);
+            if (patch != null) {
+                metadata = patch.readMetadata();
+            }
+            
+            // 4. 初始化解密器（按元数据记录的套件解密，2.0 格式用密码解开密钥槽）
+            String password = config.keyProvider.getPassword();
+            KeyDerivation keyDerivation = new KeyDerivation();
+            byte[] masterKey = metadata != null
+                ? KeyEnvelope.open(metadata, password)
+                : keyDerivation.deriveMasterKey(password, keyDerivation.generateSalt());
+            
+            CipherSuite cipher = CipherSuites.forName(metadata != null ? metadata.getAlgorithm() : null);
+            decryptor = new ClassDecryptor(masterKey, cipher, 1000, metadata != null && metadata.hasEntryHeaders());
+            System.out.println("[ByteGuard] Decryption engine initialized (" + cipher.getName() + ")");
+            
+            // 5. 注册 ClassFileTransformer
+            if (metadata != null && (!metadata.getEncryptedClasses().isEmpty() || patch != null)) {
+                ByteGuardTransformer transformer = new ByteGuardTransformer(
+                    decryptor, 
+                    metadata.getEncryptedClasses(),
+                    patch
+                );
+                inst.addTransformer(transformer);
+                System.out.println("[ByteGuard] ClassFileTransformer registered");
+            }
+            
+            System.out.println("[ByteGuard] Agent initialized successfully");
+        
+        } catch (Exception e) {
+            System.err.println("[ByteGuard] Failed to initialize agent: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Agent 入口（运行时附加）
+     */
+    public static void agentmain(String agentArgs, Instrumentation inst) {
+        premain(agentArgs, inst);
+    }
+    
+    /**
+     * 解析 Agent 参数
+     * 
+     * <p>格式: password=xxx,license=/path/to/license.lic
+     */
+    private static AgentConfig parseAgentArgs(String agentArgs) {
+        AgentConfig config = new AgentConfig();
+        
+        Map<String, String> keyOptions = new HashMap<>();
+        
+        String[] pairs = agentArgs != null ? agentArgs.split(",") : new String[0];
+        for (String pair : pairs) {
+            String[] kv = pair.split("=", 2);
+            if (kv.length == 2) {
+                String key = kv[0].trim();
+                String value = kv[1].trim();
+                
+                switch (key) {
+                    case "license":
+                        config.licensePath = value;
+                        break;
+                    case "patch":
+                        config.patchPath = value;
+                        break;
+                    default:
+                        // password / keyFile / keyServer / keyId / keyProvider
+                        keyOptions.put(key, value);
+                        break;
+                }
+            }
+        }
+        
+        // 密钥服务器地址和令牌也可来自系统属性/环境变量，避免出现在命令行
+        keyOptions.putIfAbsent("keyServer", System.getProperty("byteguard.keyServer", System.getenv("BYTEGUARD_KEY_SERVER")));
+        keyOptions.putIfAbsent("keyServerToken", System.getenv("BYTEGUARD_KEY_SERVER_TOKEN"));
+        keyOptions.values().removeIf(Objects::isNull);
+        if (config.patchPath == null) {
+            config.patchPath = System.getProperty("byteguard.patch");
+        }
+        
+        // 没有任何密钥来源时抛出 IllegalArgumentException
+        config.keyProvider = KeyProviders.fromOptions(keyOptions);
+        if (config.keyProvider instanceof KeyServerKeyProvider) {
+            ((KeyServerKeyProvider) config.keyProvider).timeouts(
+                Long.getLong("byteguard.keyServer.timeoutMillis", KeyServerKeyProvider.DEFAULT_TIMEOUT_MILLIS),
+                Long.getLong("byteguard.keyServer.attemptTimeoutMillis", KeyServerKeyProvider.DEFAULT_ATTEMPT_TIMEOUT_MILLIS),
+                Integer.getInteger("byteguard.keyServer.maxAttempts", KeyServerKeyProvider.DEFAULT_MAX_ATTEMPTS)
+            );
+        }
+        
+        return config;
+    }
+    
+    /**
+     * 加载并验证 License
+     */
+    private static License loadAndValidateLicense(AgentConfig config) throws Exception {
+        // 查找 License 文件
+        File licenseFile = findLicenseFile(config.licensePath);
+        
+        if (licenseFile == null || !licenseFile.exists()) {
+            throw new LicenseException(
+                "License file not found. Please place license.lic in the current directory " +
+                "or specify path with -Dbyteguard.license=/path/to/license.lic"
+            );
+        }
+        
+        // 加载 License
+        String licenseContent = Files.readString(licenseFile.toPath());
+        
+        // 1. GPG 验证并提取 JSON（内容未变时命中本地缓存，跳过整个 PGP 验证栈）
+        LicenseVerificationCache cache = isLicenseCacheEnabled()
+            ? new LicenseVerificationCache(GPGLicenseValidator.TRUSTED_GPG_FINGERPRINT)
+            : null;
+        String jsonContent = cache != null ? cache.lookup(licenseContent) : null;
+        
+        if (jsonContent != null) {
+            System.out.println("[ByteGuard] GPG signature verification: CACHED");
+        } else {
+            System.out.println("[ByteGuard] Verifying GPG signature...");
+            jsonContent = GPGLicenseValidator.verifyAndExtract(licenseContent);
+            System.out.println("[ByteGuard] GPG signature verification: PASSED");
+            if (cache != null) {
+                cache.store(licenseContent, jsonContent);
+            }
+        }
+        
+        // 2. 解析 License JSON
+        LicenseSerializer serializer = new LicenseSerializer();
+        License license = serializer.fromJson(jsonContent);
+        
+        // 需要机器绑定时才计算指纹（后台进行，与下面的检查并行）
+        if (LicenseValidator.isMachineBound(license)) {
+            MachineFingerprint.prefetch();
+        }
+        
+        // 3. GPG 已验证，无需 RSA 签名验证
+        // GPG clearsign 已提供完整性和真实性保证
+        
+        // 4. 检查有效期并打印 License 信息
+        PublicKey publicKey = PublicKeyLoader.loadEmbeddedPublicKey();
+        LicenseValidator validator = new LicenseValidator(publicKey);
+        validator.verifyExpiration(license);
+        validator.verifyMachineBinding(license);
+        System.out.println("[ByteGuard] " + validator.getLicenseInfo(license));
+        
+        // 5. 吊销检查（存在吊销列表时）
+        checkRevocation(license, licenseFile);
+        
+        return license;
+    }
+    
+    /**
+     * 检查 License 是否已被吊销
+     * 
+     * <p>吊销列表默认为 License 文件旁的 revoked.brl，可用 -Dbyteguard.revocation 指定。
+     * 未命中时只是几次内存映射上的位测试；命中后才验证列表的 GPG 签名，签名无效的列表被忽略
+     */
+    private static void checkRevocation(License license, File licenseFile) throws LicenseException {
+        String configured = System.getProperty("byteguard.revocation");
+        File listFile = configured != null
+            ? new File(configured)
+            : new File(licenseFile.getAbsoluteFile().getParentFile(), RevocationList.DEFAULT_FILE_NAME);
+        if (!listFile.isFile()) {
+            return;
+        }
+        
+        RevocationList revocationList;
+        try {
+            revocationList = RevocationList.open(listFile.toPath());
+        } catch (IOException | LicenseException e) {
+            System.err.println("[ByteGuard] Warning: Failed to read revocation list: " + e.getMessage());
+            return;
+        }
+        
+        if (!revocationList.isRevoked(license.getLicenseId())) {
+            return;
+        }
+        
+        try {
+            revocationList.verifySignature();
+        } catch (LicenseException e) {
+            System.err.println("[ByteGuard] Warning: Ignoring revocation list with invalid signature: " + e.getMessage());
+            return;
+        }
+        
+        throw new LicenseException("License " + license.getLicenseId() + " has been revoked");
+    }
+    
+    /**
+     * 申请实例租约（License 限制了 maxInstances 时）
+     * 
+     * <p>租约服务器优先取 License 中签名的 leaseServer；License 未指定时由 -Dbyteguard.lease.server
+     * 或 BYTEGUARD_LEASE_SERVER 指定，两者都没有时启动失败（否则实例数限制形同虚设）。
+     * 最多等待 -Dbyteguard.lease.timeoutMillis（默认 2000），超时则放行并在后台继续申请；
+     * 服务器明确拒绝（实例数已满）时启动失败。放行之后才到达的拒绝（后台申请或租约丢失后重新申请）
+     * 同样终止进程，除非显式设置 -Dbyteguard.lease.failOpen=true（只输出告警，实例数限制不再严格）
+     */
+    private static void acquireInstanceLease(License license) throws LicenseException {
+        int maxInstances = license.getAuthorization() != null ? license.getAuthorization().getMaxInstances() : 0;
+        if (maxInstances <= 0) {
+            return;
+        }
+        
+        String server = license.getAuthorization().getLeaseServer();
+        if (server == null || server.isEmpty()) {
+            server = System.getProperty("byteguard.lease.server", System.getenv("BYTEGUARD_LEASE_SERVER"));
+        }
+        if (server == null || server.isEmpty()) {
+            throw new LicenseException("License allows " + maxInstances
+                + " instances but no lease server is configured (-Dbyteguard.lease.server)");
+        }
+        
+        long timeoutMillis = Long.getLong("byteguard.lease.timeoutMillis", 2000);
+        long attemptTimeoutMillis = Long.getLong("byteguard.lease.attemptTimeoutMillis",
+            LeaseClient.DEFAULT_ATTEMPT_TIMEOUT_MILLIS);
+        boolean failOpen = Boolean.getBoolean("byteguard.lease.failOpen");
+        LeaseClient client = new LeaseClient(server, attemptTimeoutMillis).setDeniedHandler(e -> {
+            if (failOpen) {
+                System.err.println("[ByteGuard] Warning: " + e.getMessage() + " (byteguard.lease.failOpen, continuing)");
+                return;
+            }
+            System.err.println("[ByteGuard] License error: " + e.getMessage());
+            System.exit(1);
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(client::close, "byteguard-lease-release"));
+        
+        if (client.acquire(license.getLicenseId(), timeoutMillis)) {
+            System.out.println("[ByteGuard] Instance lease acquired from " + server);
+        } else {
+            System.err.println("[ByteGuard] Warning: lease server " + server + " did not respond within "
+                + timeoutMillis + " ms, continuing without a lease");
+        }
+    }
+    
+    /**
+     * 查找 License 文件
+     * 
+     * <p>优先级：
+     * <ol>
+     *   <li>命令行参数指定的路径</li>
+     *   <li>系统属性 -Dbyteguard.license</li>
+     *   <li>环境变量 BYTEGUARD_LICENSE</li>
+     *   <li>当前目录 ./license.lic</li>
+     *   <li>用户目录 ~/.byteguard/license.lic</li>
+     * </ol>
+     */
+    private static File findLicenseFile(String configPath) {
+        // 1. 命令行参数
+        if (configPath != null && !configPath.isEmpty()) {
+            File f = new File(configPath);
+            if (f.exists()) return f;
+        }
+        
+        // 2. 系统属性
+        String sysProp = System.getProperty("byteguard.license");
+        if (sysProp != null) {
+            File f = new File(sysProp);
+            if (f.exists()) return f;
+        }
+        
+        // 3. 环境变量
+        String envVar = System.getenv("BYTEGUARD_LICENSE");
+        if (envVar != null) {
+            File f = new File(envVar);
+            if (f.exists()) return f;
+        }
+        
+        // 4. 当前目录
+        File current = new File("license.lic");
+        if (current.exists()) return current;
+        
+        // 5. 用户目录
+        String home = System.getProperty("user.home");
+        File userDir = new File(home, ".byteguard/license.lic");
+        if (userDir.exists()) return userDir;
+        
+        return null;
+    }
+    
+    /**
+     * License 验证缓存开关（默认关闭，-Dbyteguard.license.cache=true 开启；信任边界见 {@link LicenseVerificationCache}）
+     */
+    private static boolean isLicenseCacheEnabled() {
+        return Boolean.getBoolean("byteguard.license.cache");
+    }
+    
+    /**
+     * Agent 配置
+     */
+    private static class AgentConfig {
+        KeyProvider keyProvider;
+        String licensePath;
+        String patchPath;
+    }
+    
+    /**
+     * 获取解密器（供其他类使用）
+     */
+    public static ClassDecryptor getDecryptor() {
+        return decryptor;
+    }
+    
+    /**
+     * 获取 License（供其他类使用）
+     */
+    public static License getLicense() {
+        return license;
+    }
+    
+    /**
+     * 打开增量补丁并叠加到类路径上
+     * 
+     * <p>补丁追加到系统类加载器的搜索路径末尾，新增的类从补丁中加载；变化的类仍从加密 JAR 中找到，
+     * 由 {@link ByteGuardTransformer} 换成补丁中的版本。变化的资源文件无法叠加（仍读到旧版本），
+     * 需要时用 apply 命令合成新 JAR。删除的条目同样无法从 JAR 中隐藏（删除的类会按新元数据当作明文加载），
+     * 因此删除了条目的补丁拒绝叠加，必须用 apply 命令。
+     * 
+     * @return 补丁，未指定时为 null
+     */
+    private static DeltaPatch openPatch(String patchPath, byte[] baseMetadataJson, Instrumentation inst)
+            throws IOException {
+        if (patchPath == null || patchPath.isEmpty()) {
+            return null;
+        }
+        if (baseMetadataJson == null) {
+            throw new IOException("Patch " + patchPath + " given but no encrypted JAR found on the classpath");
+        }
+        
+        DeltaPatch patch = DeltaPatch.open(new File(patchPath).toPath());
+        patch.verifyBase(baseMetadataJson);
+        if (!patch.getRemoved().isEmpty()) {
+            int removed = patch.getRemoved().size();
+            patch.close();
+            throw new IOException("Patch " + patchPath + " removes " + removed
+                + " entries, which an overlay cannot hide; use 'byteguard apply' to rebuild the JAR");
+        }
+        inst.appendToSystemClassLoaderSearch(new JarFile(patchPath));
+        
+        int resources = 0;
+        for (String name : patch.getEntries()) {
+            if (!name.endsWith(".class") && !name.endsWith("/") && !name.startsWith("META-INF/.byteguard/")) {
+                resources++;
+            }
+        }
+        System.out.println("[ByteGuard] Patch overlay: " + patch.getEntries().size() + " entries (" + patchPath + ")");
+        if (resources > 0) {
+            System.err.println("[ByteGuard] Warning: patch changes " + resources
+                + " resources that an overlay cannot replace; use 'byteguard apply' to rebuild the JAR");
+        }
+        return patch;
+    }
+    
+    /**
+     * 加载加密元数据（原始字节，叠加补丁时用于校验补丁属于该 JAR）
+     */
+    private static byte[] loadMetadata() {
+        try {
+            // 查找包含加密元数据的 JAR 或类目录
+            String classpath = System.getProperty("java.class.path");
+            String[] jars = classpath.split(File.pathSeparator);
+            
+            for (String jarPath : jars) {
+                File jarFile = new File(jarPath);
+                if (jarFile.isDirectory()) {
+                    // 展开的类目录（encrypt --exploded）：元数据是目录下的普通文件
+                    File metadataFile = new File(jarFile, EncryptionMetadata.METADATA_PATH);
+                    if (metadataFile.isFile()) {
+                        return Files.readAllBytes(metadataFile.toPath());
+                    }
+                    continue;
+                }
+                if (!jarFile.exists() || !jarFile.getName().endsWith(".jar")) {
+                    continue;
+                }
+                
+                try (JarFile jar = new JarFile(jarFile)) {
+                    JarEntry metadataEntry = jar.getJarEntry(EncryptionMetadata.METADATA_PATH);
+                    if (metadataEntry == null) {
+                        continue;
+                    }
+                    
+                    // 读取元数据
+                    try (InputStream is = jar.getInputStream(metadataEntry)) {
+                        return is.readAllBytes();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("[ByteGuard] Warning: Failed to load metadata: " + e.getMessage());
+        }
+        
+        return null;
+    }
+    
+    /**
+     * ClassFileTransformer - 拦截类加载并解密
+     */
+    private static class ByteGuardTransformer implements ClassFileTransformer {
+        
+        private final ClassDecryptor decryptor;
+        private final Map<String, EncryptionMetadata.ClassInfo> encryptedClasses;
+        private final DeltaPatch patch; // 叠加的增量补丁，可为 null
+        
+        ByteGuardTransformer(ClassDecryptor decryptor, Map<String, EncryptionMetadata.ClassInfo> encryptedClasses,
+                             DeltaPatch patch) {
+            this.decryptor = decryptor;
+            this.encryptedClasses = encryptedClasses;
+            this.patch = patch;
+        }
+        
+        @Override
+        public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                                ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+            
+            // 转换类名格式: com/example/MyClass -> com.example.MyClass
+            String dottedClassName = className != null ? className.replace('/', '.') : null;
+            
+            if (dottedClassName == null) {
+                return null;
+            }
+            
+            try {
+                // 补丁中有新版本时替换从 JAR 读到的旧字节码
+                byte[] classBytes = classfileBuffer;
+                boolean patched = false;
+                if (patch != null && patch.contains(className + ".class")) {
+                    classBytes = patch.read(className + ".class");
+                    patched = true;
+                }
+                
+                // 检查是否是加密的类
+                if (!encryptedClasses.containsKey(dottedClassName)) {
+                    return patched ? classBytes : null; // 不修改
+                }
+                
+                // classfileBuffer 本身就是加密的字节码（因为我们把加密数据写到原始位置）
+                // 直接解密即可
+                byte[] decrypted = decryptor.decrypt(dottedClassName, classBytes);
+                System.out.println("[ByteGuard] Decrypted class: " + dottedClassName);
+                return decrypted;
+            
+            } catch (Exception e) {
+                System.err.println("[ByteGuard] Failed to decrypt class " + dottedClassName + ": " + e.getMessage());
+                e.printStackTrace();
+                return null;
+            }
+        }
+    }
+}
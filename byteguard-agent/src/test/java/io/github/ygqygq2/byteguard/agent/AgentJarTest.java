@@ -0,0 +1,91 @@
+package io.github.ygqygq2.byteguard.agent;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.security.Security;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 打包后的 Agent JAR 测试
+ * 
+ * @author ygqygq2
+ */
+class AgentJarTest {
+    
+    private static final String CORE = "io/github/ygqygq2/byteguard/core/";
+    
+    @Test
+    void testJarContainsRuntimePathOnly() throws Exception {
+        try (ZipFile jar = new ZipFile(agentJar())) {
+            for (String name : List.of(
+                    "io/github/ygqygq2/byteguard/agent/ByteGuardAgent.class",
+                    CORE + "loader/ClassDecryptor.class",
+                    CORE + "crypto/KeyEnvelope.class",
+                    CORE + "crypto/keyserver/KeyServerKeyProvider.class",
+                    CORE + "license/GPGLicenseValidator.class",
+                    CORE + "license/lease/LeaseClient.class",
+                    CORE + "archive/DeltaPatch.class",
+                    "org/bouncycastle/openpgp/PGPSignature.class")) {
+                assertNotNull(jar.getEntry(name), name);
+            }
+            for (String name : List.of(
+                    CORE + "encrypt/JarEncryptor.class",
+                    CORE + "encrypt/SelectionRules.class",
+                    CORE + "archive/ZipEntryReplacer.class",
+                    CORE + "license/LicenseIssuer.class",
+                    CORE + "license/lease/LeaseServer.class",
+                    CORE + "crypto/keyserver/KeyServer.class",
+                    "org/bouncycastle/jce/provider/BouncyCastleProvider.class",
+                    "META-INF/services/java.security.Provider")) {
+                assertNull(jar.getEntry(name), name);
+            }
+        }
+    }
+    
+    @Test
+    void testLicenseCacheHitLoadsNoBouncyCastle(@TempDir Path dir) throws Exception {
+        Set<String> loaded = ConcurrentHashMap.newKeySet();
+        // 父加载器是平台加载器：JAR 中的类都由这里加载并记录
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {agentJar().toURI().toURL()},
+                ClassLoader.getPlatformClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                loaded.add(name);
+                return super.findClass(name);
+            }
+        }) {
+            // Agent 类本身以及缓存命中路径（查缓存、解析 JSON、检查有效期）
+            Class.forName("io.github.ygqygq2.byteguard.agent.ByteGuardAgent", true, loader);
+            Class<?> cacheClass = Class.forName("io.github.ygqygq2.byteguard.core.license.LicenseVerificationCache", true, loader);
+            Object cache = cacheClass.getConstructor(File.class, String.class).newInstance(dir.toFile(), "0000");
+            cacheClass.getMethod("store", String.class, String.class).invoke(cache, "license", "{}");
+            assertEquals("{}", cacheClass.getMethod("lookup", String.class).invoke(cache, "license"));
+            Class.forName("io.github.ygqygq2.byteguard.core.license.LicenseSerializer", true, loader);
+            Class.forName("io.github.ygqygq2.byteguard.core.license.LicenseValidator", true, loader);
+            
+            assertTrue(loaded.contains("io.github.ygqygq2.byteguard.agent.ByteGuardAgent"));
+            assertTrue(loaded.stream().noneMatch(name -> name.startsWith("org.bouncycastle.")),
+                () -> "Bouncy Castle loaded eagerly: " + loaded.stream().filter(n -> n.startsWith("org.bouncycastle.")).toList());
+            
+            // 初始化 GPG 验证器也不注册 JCA Provider
+            Class.forName("io.github.ygqygq2.byteguard.core.license.GPGLicenseValidator", true, loader);
+            assertNull(Security.getProvider("BC"));
+        }
+    }
+    
+    private static File agentJar() {
+        String path = System.getProperty("byteguard.agentJar");
+        assertNotNull(path, "byteguard.agentJar not set (run through gradle test)");
+        return new File(path);
+    }
+}
@@ -11,6 +11,8 @@ application {
 
 dependencies {
     implementation(project(":byteguard-core"))
+    // CLI JAR 同时可作为 -javaagent 使用（兼容旧用法）
+    implementation(project(":byteguard-agent"))
     
     // 零外部依赖 - 纯手工参数解析
 }
@@ -1,7 +1,14 @@
 package io.github.ygqygq2.byteguard.cli;
 
+import io.github.ygqygq2.byteguard.cli.command.ApplyCommand;
+import io.github.ygqygq2.byteguard.cli.command.BenchmarkCommand;
+import io.github.ygqygq2.byteguard.cli.command.CalibrateCommand;
+import io.github.ygqygq2.byteguard.cli.command.DiffCommand;
 import io.github.ygqygq2.byteguard.cli.command.EncryptCommand;
+import io.github.ygqygq2.byteguard.cli.command.KeyServerCommand;
+import io.github.ygqygq2.byteguard.cli.command.LeaseServerCommand;
 import io.github.ygqygq2.byteguard.cli.command.LicenseCommand;
+import io.github.ygqygq2.byteguard.cli.command.RekeyCommand;
 
 /**
  * CLI 主入口
@@ -25,17 +32,45 @@ public class Main {
                 case "encrypt":
                     new EncryptCommand().execute(commandArgs);
                     break;
-                    
+                
+                case "rekey":
+                    new RekeyCommand().execute(commandArgs);
+                    break;
+                
+                case "diff":
+                    new DiffCommand().execute(commandArgs);
+                    break;
+                
+                case "apply":
+                    new ApplyCommand().execute(commandArgs);
+                    break;
+                
                 case "license":
                     new LicenseCommand().execute(commandArgs);
                     break;
-                    
+                
+                case "benchmark":
+                    new BenchmarkCommand().execute(commandArgs);
+                    break;
+                
+                case "calibrate":
+                    new CalibrateCommand().execute(commandArgs);
+                    break;
+                
+                case "lease-server":
+                    new LeaseServerCommand().execute(commandArgs);
+                    break;
+                
+                case "key-server":
+                    new KeyServerCommand().execute(commandArgs);
+                    break;
+                
                 case "help":
                 case "--help":
                 case "-h":
                     printUsage();
                     break;
-                    
+                
                 default:
                     System.err.println("Unknown command: " + command);
                     printUsage();
@@ -54,9 +89,16 @@ public class Main {
         System.out.println("Usage: java -jar byteguard.jar <command> [options]");
         System.out.println();
         System.out.println("Commands:");
-        System.out.println("  encrypt    Encrypt a JAR file");
-        System.out.println("  license    Generate or manage licenses");
-        System.out.println("  help       Show this help message");
+        System.out.println("  encrypt       Encrypt a JAR file");
+        System.out.println("  rekey         Change the password of an encrypted JAR without re-encrypting");
+        System.out.println("  diff          Create a patch with only the entries changed between two encrypted JARs");
+        System.out.println("  apply         Apply a patch to an encrypted JAR");
+        System.out.println("  license       Generate or manage licenses");
+        System.out.println("  benchmark     Measure cipher suites on this host and recommend one");
+        System.out.println("  calibrate     Pick key derivation parameters for a startup time budget");
+        System.out.println("  lease-server  Run the instance lease server enforcing maxInstances");
+        System.out.println("  key-server    Run a local key server that agents fetch the password from");
+        System.out.println("  help          Show this help message");
         System.out.println();
         System.out.println("Examples:");
         System.out.println("  # Encrypt a JAR");
@@ -65,6 +107,18 @@ public class Main {
         System.out.println("    --output app-encrypted.jar \\");
         System.out.println("    --password mypassword");
         System.out.println();
+        System.out.println("  # Change the password");
+        System.out.println("  java -jar byteguard.jar rekey \\");
+        System.out.println("    --input app-encrypted.jar \\");
+        System.out.println("    --password mypassword \\");
+        System.out.println("    --new-password newpassword");
+        System.out.println();
+        System.out.println("  # Ship only what changed");
+        System.out.println("  java -jar byteguard.jar diff \\");
+        System.out.println("    --base app-v1.jar \\");
+        System.out.println("    --target app-v2.jar \\");
+        System.out.println("    --output app-v2.patch");
+        System.out.println();
         System.out.println("  # Generate a license");
         System.out.println("  java -jar byteguard.jar license generate \\");
         System.out.println("    --issued-to \"Company ABC\" \\");
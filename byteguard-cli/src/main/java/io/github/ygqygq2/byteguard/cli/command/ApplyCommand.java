@@ -0,0 +1,63 @@
+package io.github.ygqygq2.byteguard.cli.command;
+
+import io.github.ygqygq2.byteguard.core.archive.DeltaPatch;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Apply 命令 - 把 diff 生成的补丁应用到旧的加密 JAR，合成新的加密 JAR
+ * 
+ * <p>不需要密码，只复制密文；补丁记录了旧 JAR 元数据的摘要，用在其他 JAR 上时拒绝执行。
+ * 不想改动部署的 JAR 时也可以让 Agent 直接叠加补丁（{@code -javaagent:byteguard-agent.jar=...,patch=app.patch}）。
+ * 
+ * @author ygqygq2
+ */
+public class ApplyCommand {
+    
+    public void execute(String[] args) throws Exception {
+        System.out.println("[ByteGuard] Apply patch");
+        
+        // 解析参数
+        String baseJar = null;
+        String patchFile = null;
+        String outputJar = null;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--base":
+                    baseJar = args[++i];
+                    break;
+                case "--patch":
+                    patchFile = args[++i];
+                    break;
+                case "--output":
+                case "-o":
+                    outputJar = args[++i];
+                    break;
+            }
+        }
+        
+        if (baseJar == null || patchFile == null) {
+            throw new IllegalArgumentException("Missing required arguments: --base, --patch");
+        }
+        if (!Files.exists(Path.of(baseJar))) {
+            throw new FileNotFoundException("Input JAR not found: " + baseJar);
+        }
+        if (!Files.exists(Path.of(patchFile))) {
+            throw new FileNotFoundException("Patch not found: " + patchFile);
+        }
+        
+        // 未指定输出时原地更新
+        Path output = Path.of(outputJar != null ? outputJar : baseJar);
+        DeltaPatch.Result result = DeltaPatch.apply(Path.of(baseJar), Path.of(patchFile), output);
+        
+        System.out.println();
+        System.out.println("✓ Patch applied in " + result.getElapsedMillis() + " ms");
+        System.out.println("  - Replaced entries: " + result.getChangedCount() + " (including metadata)");
+        System.out.println("  - Added entries: " + result.getAddedCount());
+        System.out.println("  - Removed entries: " + result.getRemovedCount());
+        System.out.println("  - Output: " + output.toAbsolutePath());
+    }
+}
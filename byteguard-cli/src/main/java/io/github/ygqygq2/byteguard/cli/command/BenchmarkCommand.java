@@ -0,0 +1,44 @@
+package io.github.ygqygq2.byteguard.cli.command;
+
+import io.github.ygqygq2.byteguard.core.crypto.CipherSuites;
+
+import java.util.List;
+
+/**
+ * Benchmark 命令 - 测量本机各加密套件的解密吞吐量并给出推荐
+ * 
+ * <p>在目标机（运行 Agent 的机器）上运行，将推荐结果用于构建时的 encrypt --cipher
+ * 
+ * @author ygqygq2
+ */
+public class BenchmarkCommand {
+    
+    public void execute(String[] args) throws Exception {
+        System.out.println("[ByteGuard] Cipher Benchmark");
+        
+        // 解析参数
+        long durationMillis = 500;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--duration":
+                    durationMillis = Long.parseLong(args[++i]);
+                    break;
+            }
+        }
+        
+        System.out.println("Host: " + System.getProperty("os.arch") + ", "
+            + Runtime.getRuntime().availableProcessors() + " cores, Java " + System.getProperty("java.version"));
+        System.out.println();
+        
+        List<CipherSuites.BenchmarkResult> results = CipherSuites.benchmark(durationMillis);
+        for (CipherSuites.BenchmarkResult result : results) {
+            System.out.printf("  %-20s %10.1f MB/s%n", result.getSuiteName(), result.getMbPerSecond());
+        }
+        
+        String recommended = CipherSuites.recommend(results);
+        System.out.println();
+        System.out.println("✓ Recommended cipher: " + recommended);
+        System.out.println("  java -jar byteguard.jar encrypt ... --cipher " + recommended);
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.ygqygq2.byteguard.cli.command;
+
+import io.github.ygqygq2.byteguard.core.crypto.KdfParams;
+import io.github.ygqygq2.byteguard.core.crypto.KeyDerivation;
+
+/**
+ * Calibrate 命令 - 在目标机上测量口令派生速度，选出满足启动时间预算的 KDF 参数
+ * 
+ * <p>在运行 Agent 的机器上执行，将结果用于 encrypt / rekey 的 --kdf 系列参数
+ * 
+ * @author ygqygq2
+ */
+public class CalibrateCommand {
+    
+    public void execute(String[] args) throws Exception {
+        System.out.println("[ByteGuard] KDF Calibration");
+        
+        // 解析参数
+        long budgetMillis = 250;
+        String kdfName = KdfParams.PBKDF2_SHA256;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--budget-ms":
+                    budgetMillis = Long.parseLong(args[++i]);
+                    break;
+                case "--kdf":
+                    kdfName = args[++i];
+                    break;
+            }
+        }
+        
+        System.out.println("Host: " + System.getProperty("os.arch") + ", "
+            + Runtime.getRuntime().availableProcessors() + " cores, Java " + System.getProperty("java.version"));
+        System.out.println("Budget: " + budgetMillis + " ms per key derivation");
+        System.out.println();
+        
+        KdfParams params = KeyDerivation.calibrate(kdfName, budgetMillis);
+        
+        // 按选定参数实际派生一次，核对耗时
+        KeyDerivation kd = new KeyDerivation();
+        long start = System.nanoTime();
+        kd.deriveMasterKey("calibrate", kd.generateSalt(), params);
+        long actualMillis = (System.nanoTime() - start) / 1_000_000;
+        
+        System.out.println("  " + params + ": " + actualMillis + " ms");
+        if (actualMillis > budgetMillis * 3 / 2) {
+            System.out.println("  Warning: the minimum parameters already exceed the budget on this host");
+        }
+        
+        String options = "--kdf " + params.getAlgorithm() + " --kdf-iterations " + params.getIterations();
+        if (KdfParams.ARGON2ID.equals(params.getAlgorithm())) {
+            // lane 数决定 Agent 最多能用几个核，应不超过目标机核数
+            options += " --kdf-memory " + params.getMemoryKiB() + " --kdf-lanes " + params.getParallelism();
+        }
+        
+        System.out.println();
+        System.out.println("✓ Recommended: " + options);
+        System.out.println("  java -jar byteguard.jar encrypt ... " + options);
+        System.out.println("  Unlocking costs one derivation per key slot tried");
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.ygqygq2.byteguard.cli.command;
+
+import io.github.ygqygq2.byteguard.core.archive.DeltaPatch;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Diff 命令 - 比较两个加密 JAR，生成只含变化密文的补丁
+ * 
+ * <p>不需要密码：按条目内容比较，变化和新增的条目原样（仍是密文）放进补丁，
+ * 连同新的加密元数据和删除的条目列表。新 JAR 用 {@code encrypt --previous} 增量加密时，
+ * 未变化的类密文与旧 JAR 相同，补丁只含改动的类。
+ * 
+ * @author ygqygq2
+ */
+public class DiffCommand {
+    
+    public void execute(String[] args) throws Exception {
+        System.out.println("[ByteGuard] Diff encrypted JARs");
+        
+        // 解析参数
+        String baseJar = null;
+        String targetJar = null;
+        String outputPatch = null;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--base":
+                    baseJar = args[++i];
+                    break;
+                case "--target":
+                    targetJar = args[++i];
+                    break;
+                case "--output":
+                case "-o":
+                    outputPatch = args[++i];
+                    break;
+            }
+        }
+        
+        if (baseJar == null || targetJar == null || outputPatch == null) {
+            throw new IllegalArgumentException("Missing required arguments: --base, --target, --output");
+        }
+        for (String jar : new String[] { baseJar, targetJar }) {
+            if (!Files.exists(Path.of(jar))) {
+                throw new FileNotFoundException("Input JAR not found: " + jar);
+            }
+        }
+        
+        DeltaPatch.Result result = DeltaPatch.diff(Path.of(baseJar), Path.of(targetJar), Path.of(outputPatch));
+        
+        System.out.println();
+        System.out.println("✓ Patch created in " + result.getElapsedMillis() + " ms");
+        System.out.println("  - Changed entries: " + result.getChangedCount() + " (including metadata)");
+        System.out.println("  - Added entries: " + result.getAddedCount());
+        System.out.println("  - Removed entries: " + result.getRemovedCount());
+        System.out.println("  - Patch size: " + result.getSize() + " bytes (target "
+            + Files.size(Path.of(targetJar)) + " bytes)");
+        System.out.println("  - Output: " + Path.of(outputPatch).toAbsolutePath());
+        if (!result.isSameKey()) {
+            System.out.println("  ! The JARs use different data keys, so every encrypted class is in the patch;");
+            System.out.println("    encrypt the new version with --previous to keep unchanged classes out of it");
+        }
+    }
+}
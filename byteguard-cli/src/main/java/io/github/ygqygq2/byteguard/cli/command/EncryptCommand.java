@@ -1,14 +1,31 @@
 package io.github.ygqygq2.byteguard.cli.command;
 
-import io.github.ygqygq2.byteguard.core.crypto.AESGCMCipher;
-import io.github.ygqygq2.byteguard.core.crypto.KeyDerivation;
+import io.github.ygqygq2.byteguard.core.crypto.CipherSuite;
+import io.github.ygqygq2.byteguard.core.crypto.CipherSuites;
+import io.github.ygqygq2.byteguard.core.crypto.KdfParams;
+import io.github.ygqygq2.byteguard.core.crypto.NonceStrategy;
+import io.github.ygqygq2.byteguard.core.encrypt.EntrySelector;
+import io.github.ygqygq2.byteguard.core.encrypt.HashManifest;
+import io.github.ygqygq2.byteguard.core.encrypt.JarEncryptor;
+import io.github.ygqygq2.byteguard.core.encrypt.JarSink;
+import io.github.ygqygq2.byteguard.core.encrypt.SelectionRules;
 
-import java.io.*;
-import java.util.*;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-import java.util.jar.JarOutputStream;
-import java.util.zip.ZipEntry;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Encrypt 命令 - JAR 文件加密
@@ -17,17 +34,34 @@ import java.util.zip.ZipEntry;
  */
 public class EncryptCommand {
     
-    private final AESGCMCipher cipher = new AESGCMCipher();
-    private final KeyDerivation kd = new KeyDerivation();
+    /** 表示标准输入/输出的路径 */
+    private static final String STDIO = "-";
     
     public void execute(String[] args) throws Exception {
-        System.out.println("[ByteGuard] Encrypt JAR");
-        
         // 解析参数
         String inputJar = null;
         String outputJar = null;
         String password = null;
+        String cipherName = CipherSuites.DEFAULT;
+        String[] packages = new String[0];
         String[] excludePatterns = new String[0];
+        String[] excludePackages = new String[0];
+        String[] annotations = new String[0];
+        String[] excludeAnnotations = new String[0];
+        int minClassSize = 0;
+        int maxClassSize = Integer.MAX_VALUE;
+        boolean dryRun = false;
+        String kdfName = KdfParams.PBKDF2_SHA256;
+        int kdfIterations = 0;
+        int kdfMemory = 0;
+        int kdfLanes = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String nonceName = NonceStrategy.COUNTER.getName();
+        boolean legacyLayout = false;
+        boolean exploded = false;
+        String previousJar = null;
+        String manifestFile = null;
+        int compressionLevel = JarEncryptor.DEFAULT_COMPRESSION_LEVEL;
         
         for (int i = 0; i < args.length; i++) {
             switch (args[i]) {
@@ -40,194 +74,306 @@ public class EncryptCommand {
                 case "--password":
                     password = args[++i];
                     break;
+                case "--packages":
+                    packages = args[++i].split(",");
+                    break;
                 case "--exclude":
                     excludePatterns = args[++i].split(",");
                     break;
+                case "--exclude-packages":
+                    excludePackages = args[++i].split(",");
+                    break;
+                case "--annotations":
+                    annotations = args[++i].split(",");
+                    break;
+                case "--exclude-annotations":
+                    excludeAnnotations = args[++i].split(",");
+                    break;
+                case "--min-class-size":
+                    minClassSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-class-size":
+                    maxClassSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--dry-run":
+                    dryRun = true;
+                    break;
+                case "--cipher":
+                    cipherName = args[++i];
+                    break;
+                case "--kdf":
+                    kdfName = args[++i];
+                    break;
+                case "--kdf-iterations":
+                    kdfIterations = Integer.parseInt(args[++i]);
+                    break;
+                case "--kdf-memory":
+                    kdfMemory = Integer.parseInt(args[++i]);
+                    break;
+                case "--kdf-lanes":
+                    kdfLanes = Integer.parseInt(args[++i]);
+                    break;
+                case "--nonce":
+                    nonceName = args[++i];
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--compression-level":
+                    compressionLevel = Integer.parseInt(args[++i]);
+                    break;
+                case "--previous":
+                    previousJar = args[++i];
+                    break;
+                case "--manifest":
+                    manifestFile = args[++i];
+                    break;
+                case "--legacy-layout":
+                    legacyLayout = true;
+                    break;
+                case "--exploded":
+                    exploded = true;
+                    break;
             }
         }
         
+        // 加密范围：包前缀树 + 排除模式自动机，注解和类大小在读入类后判断
+        EntrySelector selector = SelectionRules.builder()
+            .includePackages(Arrays.asList(packages))
+            .excludePackages(Arrays.asList(excludePackages))
+            .exclude(Arrays.asList(excludePatterns))
+            .includeAnnotations(Arrays.asList(annotations))
+            .excludeAnnotations(Arrays.asList(excludeAnnotations))
+            .minClassSize(minClassSize)
+            .maxClassSize(maxClassSize)
+            .build();
+        if (dryRun) {
+            if (inputJar == null) {
+                throw new IllegalArgumentException("Missing required argument: --input");
+            }
+            printPreview(JarEncryptor.preview(Path.of(inputJar), selector));
+            return;
+        }
+        
         if (inputJar == null || outputJar == null || password == null) {
             throw new IllegalArgumentException(
                 "Missing required arguments: --input, --output, --password"
             );
         }
         
+        // "-" 表示标准输入/输出；JAR 写到标准输出时日志改写到标准错误
+        boolean fromStdin = STDIO.equals(inputJar);
+        boolean toStdout = STDIO.equals(outputJar);
+        PrintStream log = toStdout ? System.err : System.out;
+        log.println("[ByteGuard] Encrypt JAR");
+        
         File input = new File(inputJar);
         File output = new File(outputJar);
         
-        if (!input.exists()) {
+        // 展开的类目录不能走标准输入/输出
+        if (exploded && (fromStdin || toStdout || !input.isDirectory())) {
+            throw new IllegalArgumentException("--exploded requires --input to be a class directory: " + inputJar);
+        }
+        
+        // 批量：--input 为目录或通配符（如 lib/*.jar），--output 为输出目录
+        List<Path> batchInputs = fromStdin || exploded ? null : resolveBatch(inputJar);
+        if (batchInputs != null && (toStdout || previousJar != null)) {
+            throw new IllegalArgumentException("Batch mode cannot write to stdout or use --previous");
+        }
+        
+        if (!fromStdin && batchInputs == null && !input.exists()) {
             throw new FileNotFoundException("Input JAR not found: " + inputJar);
         }
         
-        System.out.println("Input:  " + inputJar);
-        System.out.println("Output: " + outputJar);
-        System.out.println("Password: ****");
+        log.println("Input:  " + inputJar);
+        log.println("Output: " + outputJar);
+        log.println("Password: ****");
         
-        // 派生主密钥
-        byte[] salt = kd.generateSalt();
-        byte[] masterKey = kd.deriveMasterKey(password, salt);
+        // 选择加密套件：吞吐量取决于运行 Agent 的目标机，在构建机上测量没有意义
+        if ("auto".equalsIgnoreCase(cipherName)) {
+            throw new IllegalArgumentException(
+                "--cipher auto is not supported: run 'benchmark' on the target host and pass the recommended cipher"
+            );
+        }
+        CipherSuite cipher = CipherSuites.forName(cipherName, NonceStrategy.forName(nonceName));
+        log.println("Cipher: " + cipher.getName());
         
-        // 加密 JAR
-        int classCount = encryptJar(input, output, masterKey, salt, excludePatterns);
+        // KDF 参数记录在元数据中，Agent 按相同参数派生（用 calibrate 命令在目标机上选定）
+        KdfParams kdf = KdfParams.of(kdfName, kdfIterations, kdfMemory, kdfLanes);
+        log.println("KDF: " + kdf);
         
-        System.out.println();
-        System.out.println("✓ Encryption completed!");
-        System.out.println("  - Classes encrypted: " + classCount);
-        System.out.println("  - Output: " + output.getAbsolutePath());
-    }
-    
-    /**
-     * 加密 JAR 文件
-     */
-    private int encryptJar(File input, File output, byte[] masterKey, byte[] salt,
-                           String[] excludePatterns) throws Exception {
-        
-        int encryptedCount = 0;
-        Map<String, ClassInfo> encryptedClasses = new HashMap<>();
-        
-        try (JarFile jarFile = new JarFile(input);
-             JarOutputStream jos = new JarOutputStream(new FileOutputStream(output))) {
-            
-            Enumeration<JarEntry> entries = jarFile.entries();
-            
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-                String name = entry.getName();
-                
-                // 跳过目录
-                if (entry.isDirectory()) {
-                    jos.putNextEntry(new ZipEntry(name));
-                    jos.closeEntry();
-                    continue;
-                }
-                
-                // 判断是否加密
-                boolean shouldEncrypt = name.endsWith(".class") 
-                    && !name.startsWith("META-INF/")
-                    && !isExcluded(name, excludePatterns);
-                
-                if (shouldEncrypt) {
-                    // 读取原始类字节码
-                    byte[] classBytes = readEntryBytes(jarFile, entry);
-                    
-                    // 获取类名
-                    String className = name.substring(0, name.length() - 6) // 去掉 .class
-                                          .replace('/', '.');
-                    
-                    // 派生类专用密钥
-                    byte[] classKey = kd.deriveClassKey(masterKey, className);
-                    
-                    // 加密
-                    byte[] encrypted = cipher.encrypt(classBytes, classKey);
-                    
-                    // 关键改动：将加密后的字节码写到原始位置
-                    // 这样 JVM 可以找到类，Transformer 会拦截并解密
-                    jos.putNextEntry(new ZipEntry(name));
-                    jos.write(encrypted);
-                    jos.closeEntry();
-                    
-                    // 同时保存一份到加密目录（用于元数据记录）
-                    String encryptedPath = "META-INF/.encrypted/" + name;
-                    jos.putNextEntry(new ZipEntry(encryptedPath));
-                    jos.write(encrypted);
-                    jos.closeEntry();
-                    
-                    // 记录元数据
-                    ClassInfo info = new ClassInfo(name, encryptedPath, className);
-                    encryptedClasses.put(className, info);
-                    
-                    encryptedCount++;
-                    
-                } else {
-                    // 非加密文件：直接复制
-                    jos.putNextEntry(new ZipEntry(name));
-                    byte[] bytes = readEntryBytes(jarFile, entry);
-                    jos.write(bytes);
-                    jos.closeEntry();
-                }
+        // 增量加密：上次的输出 + 它的清单，明文未变的类直接复制原密文
+        HashManifest previousManifest = null;
+        if (previousJar != null) {
+            if (manifestFile == null) {
+                throw new IllegalArgumentException("--previous requires --manifest");
+            }
+            if (Files.exists(Path.of(previousJar)) && Files.exists(Path.of(manifestFile))) {
+                previousManifest = HashManifest.read(Path.of(manifestFile));
+                log.println("Previous: " + previousJar);
+            } else {
+                log.println("Previous output or manifest not found, encrypting all classes");
             }
-            
-            // 写入元数据文件
-            writeMetadata(jos, salt, encryptedClasses);
         }
         
-        return encryptedCount;
+        // 加密 JAR
+        JarEncryptor.Builder builder = JarEncryptor.builder()
+            .password(password)
+            .cipher(cipher)
+            .kdf(kdf)
+            .threads(threads)
+            .singleCopy(!legacyLayout)
+            .compressionLevel(compressionLevel)
+            .selector(selector)
+            .hashManifest(manifestFile != null);
+        if (previousManifest != null) {
+            builder.previous(Path.of(previousJar), previousManifest);
+        }
+        JarEncryptor encryptor = builder.build();
+        if (batchInputs != null) {
+            encryptBatch(encryptor, batchInputs, output.toPath(), manifestFile == null ? null : Path.of(manifestFile), log);
+            return;
+        }
+        JarEncryptor.Result result;
+        if (exploded) {
+            // 展开目录：--output 与 --input 相同时就地加密，否则镜像到输出目录（未变文件不重写）
+            result = encryptor.encryptDirectory(input.toPath(), output.toPath());
+        } else if (fromStdin || toStdout) {
+            // 流式：类逐个加密，大资源直接从输入复制到输出，不落临时文件
+            JarSink sink = toStdout
+                ? JarSink.toStream(new FileOutputStream(FileDescriptor.out))
+                : JarSink.toFile(output.toPath());
+            result = fromStdin ? encryptor.encrypt(System.in, sink) : encryptor.encrypt(input.toPath(), sink);
+        } else {
+            result = encryptor.encrypt(input.toPath(), output.toPath());
+        }
+        if (manifestFile != null) {
+            result.getManifest().write(Path.of(manifestFile));
+        }
+        
+        log.println();
+        log.println("✓ Encryption completed!");
+        log.println("  - Classes encrypted: " + result.getEncryptedCount());
+        if (previousManifest != null) {
+            log.println("  - Classes reused: " + result.getReusedCount());
+        }
+        log.println("  - Time: " + result.getElapsedMillis() + " ms");
+        log.println("  - Output: " + (toStdout ? "<stdout>" : output.getAbsolutePath()));
     }
     
     /**
-     * 类信息
+     * 输出加密范围预览，不写任何文件
      */
-    private static class ClassInfo {
-        final String originalPath;
-        final String encryptedPath;
-        final String className;
-        
-        ClassInfo(String originalPath, String encryptedPath, String className) {
-            this.originalPath = originalPath;
-            this.encryptedPath = encryptedPath;
-            this.className = className;
+    private void printPreview(JarEncryptor.Preview preview) {
+        System.out.println("[ByteGuard] Dry run: nothing will be written");
+        for (Map.Entry<String, Long> entry : preview.getEncrypted().entrySet()) {
+            System.out.println("  + " + entry.getKey() + " (" + entry.getValue() + " bytes)");
         }
+        for (String name : preview.getSkipped()) {
+            System.out.println("  - " + name);
+        }
+        int total = preview.getEncrypted().size() + preview.getSkipped().size();
+        System.out.println();
+        System.out.printf("✓ %d of %d classes would be encrypted (%.1f KB)%n",
+            preview.getEncrypted().size(), total, preview.getEncryptedBytes() / 1024.0);
     }
     
     /**
-     * 读取 JAR Entry 的字节
+     * 批量加密：整个批次只派生一次 KEK，多个归档共用工作线程池同时加密，输出到目录（文件名不变）
+     * 
+     * @param manifestDir 清单目录，每个 JAR 写一份 {@code <JAR 文件名>.manifest}；null 表示不写清单
      */
-    private byte[] readEntryBytes(JarFile jarFile, JarEntry entry) throws IOException {
-        try (InputStream is = jarFile.getInputStream(entry)) {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = is.read(buffer)) != -1) {
-                baos.write(buffer, 0, bytesRead);
+    private void encryptBatch(JarEncryptor encryptor, List<Path> inputs, Path outputDir, Path manifestDir,
+            PrintStream log) throws Exception {
+        Files.createDirectories(outputDir);
+        if (manifestDir != null) {
+            if (Files.exists(manifestDir) && !Files.isDirectory(manifestDir)) {
+                throw new IllegalArgumentException("In batch mode --manifest must be a directory: " + manifestDir);
             }
-            return baos.toByteArray();
+            Files.createDirectories(manifestDir);
+        }
+        Map<Path, Path> jobs = new LinkedHashMap<>();
+        for (Path jar : inputs) {
+            Path target = outputDir.resolve(jar.getFileName().toString());
+            if (Files.exists(target) && Files.isSameFile(jar, target)) {
+                throw new IllegalArgumentException("Output directory must differ from the input directory: " + outputDir);
+            }
+            if (jobs.containsValue(target)) {
+                throw new IllegalArgumentException("Duplicate JAR name in batch: " + jar.getFileName());
+            }
+            jobs.put(jar, target);
+        }
+        log.println("Archives: " + jobs.size());
+        
+        JarEncryptor.BatchResult batch = encryptor.encryptAll(jobs);
+        
+        log.println();
+        long totalBytes = 0;
+        for (Map.Entry<Path, JarEncryptor.Result> entry : batch.getResults().entrySet()) {
+            long bytes = Files.size(entry.getKey());
+            totalBytes += bytes;
+            JarEncryptor.Result result = entry.getValue();
+            if (manifestDir != null) {
+                result.getManifest().write(manifestDir.resolve(entry.getKey().getFileName() + ".manifest"));
+            }
+            log.printf("✓ %s: %d classes, %.1f MB in %d ms (%.1f MB/s)%n", entry.getKey().getFileName(),
+                result.getEncryptedCount(), bytes / 1e6, result.getElapsedMillis(), mbPerSecond(bytes, result.getElapsedMillis()));
+        }
+        log.println();
+        log.println("✓ Batch encryption completed!");
+        log.println("  - Archives: " + jobs.size());
+        log.println("  - Classes encrypted: " + batch.getEncryptedCount());
+        log.printf("  - Time: %d ms (%.1f MB, %.1f MB/s)%n", batch.getElapsedMillis(), totalBytes / 1e6,
+            mbPerSecond(totalBytes, batch.getElapsedMillis()));
+        log.println("  - Output: " + outputDir.toAbsolutePath());
+        if (manifestDir != null) {
+            log.println("  - Manifests: " + manifestDir.toAbsolutePath());
         }
     }
     
     /**
-     * 判断文件是否应该排除
+     * 解析批量输入：目录取其中的 *.jar，带通配符时按 glob 匹配（相对于第一个通配符之前的目录，可含 **）
+     * 
+     * @return 按路径排序的 JAR 列表；输入是普通文件时返回 null
      */
-    private boolean isExcluded(String path, String[] excludePatterns) {
-        for (String pattern : excludePatterns) {
-            if (path.contains(pattern.trim())) {
-                return true;
+    private static List<Path> resolveBatch(String input) throws IOException {
+        int glob = -1;
+        for (int i = 0; i < input.length() && glob < 0; i++) {
+            if ("*?[{".indexOf(input.charAt(i)) >= 0) {
+                glob = i;
             }
         }
-        return false;
+        
+        Path dir;
+        PathMatcher matcher;
+        int depth;
+        if (glob >= 0) {
+            int slash = input.lastIndexOf('/', glob);
+            dir = Path.of(slash >= 0 ? input.substring(0, slash + 1) : ".");
+            matcher = FileSystems.getDefault().getPathMatcher("glob:" + input.substring(slash + 1));
+            depth = Integer.MAX_VALUE;
+        } else if (Files.isDirectory(Path.of(input))) {
+            dir = Path.of(input);
+            matcher = FileSystems.getDefault().getPathMatcher("glob:*.jar");
+            depth = 1;
+        } else {
+            return null;
+        }
+        
+        try (Stream<Path> files = Files.walk(dir, depth)) {
+            List<Path> jars = files
+                .filter(Files::isRegularFile)
+                .filter(file -> matcher.matches(dir.relativize(file)))
+                .sorted()
+                .collect(Collectors.toList());
+            if (jars.isEmpty()) {
+                throw new FileNotFoundException("No JAR files match: " + input);
+            }
+            return jars;
+        }
     }
     
-    /**
-     * 写入加密元数据
-     */
-    private void writeMetadata(JarOutputStream jos, byte[] salt, Map<String, ClassInfo> encryptedClasses) 
-            throws IOException {
-        jos.putNextEntry(new ZipEntry("META-INF/.byteguard/metadata.json"));
-        
-        // 简单 JSON 序列化
-        StringBuilder json = new StringBuilder();
-        json.append("{\n");
-        json.append("  \"version\": \"1.0\",\n");
-        json.append("  \"algorithm\": \"AES-256-GCM\",\n");
-        json.append("  \"salt\": \"").append(Base64.getEncoder().encodeToString(salt)).append("\",\n");
-        json.append("  \"totalClasses\": ").append(encryptedClasses.size()).append(",\n");
-        json.append("  \"encryptedAt\": ").append(System.currentTimeMillis()).append(",\n");
-        json.append("  \"encryptedClasses\": {\n");
-        
-        int count = 0;
-        for (Map.Entry<String, ClassInfo> entry : encryptedClasses.entrySet()) {
-            if (count++ > 0) json.append(",\n");
-            ClassInfo info = entry.getValue();
-            json.append("    \"").append(entry.getKey()).append("\": {\n");
-            json.append("      \"originalPath\": \"").append(info.originalPath).append("\",\n");
-            json.append("      \"encryptedPath\": \"").append(info.encryptedPath).append("\",\n");
-            json.append("      \"className\": \"").append(info.className).append("\"\n");
-            json.append("    }");
-        }
-        
-        json.append("\n  }\n");
-        json.append("}\n");
-        
-        jos.write(json.toString().getBytes("UTF-8"));
-        jos.closeEntry();
+    private static double mbPerSecond(long bytes, long millis) {
+        return bytes / 1e6 / Math.max(millis, 1) * 1000;
     }
 }
@@ -0,0 +1,93 @@
+package io.github.ygqygq2.byteguard.cli.command;
+
+import io.github.ygqygq2.byteguard.core.crypto.KeyProviders;
+import io.github.ygqygq2.byteguard.core.crypto.keyserver.KeyServer;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Key Server 命令 - 运行本地密钥服务器（密钥服务的替身，用于离线测试和小规模部署）
+ * 
+ * <p>口令用 {@code --key id=secret} 直接指定，或用 {@code --key-file id=path} 从文件读取
+ * 
+ * @author ygqygq2
+ */
+public class KeyServerCommand {
+    
+    public void execute(String[] args) throws Exception {
+        System.out.println("[ByteGuard] Key Server");
+        
+        // 解析参数
+        String listen = "127.0.0.1:7071";
+        long ttlMillis = KeyServer.DEFAULT_TTL_MILLIS;
+        String token = System.getenv("BYTEGUARD_KEY_SERVER_TOKEN");
+        List<String[]> entries = new ArrayList<>();
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--listen":
+                    listen = args[++i];
+                    break;
+                case "--ttl":
+                    ttlMillis = Long.parseLong(args[++i]);
+                    break;
+                case "--token":
+                    token = args[++i];
+                    break;
+                case "--key":
+                    entries.add(split(args[++i]));
+                    break;
+                case "--key-file": {
+                    String[] kv = split(args[++i]);
+                    String secret = new String(Files.readAllBytes(Path.of(kv[1])), StandardCharsets.UTF_8).trim();
+                    entries.add(new String[] { kv[0], secret });
+                    break;
+                }
+            }
+        }
+        
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("At least one --key or --key-file is required");
+        }
+        
+        KeyServer server = new KeyServer(ttlMillis).token(token);
+        StringBuilder keys = new StringBuilder();
+        for (String[] kv : entries) {
+            server.put(kv[0], kv[1]);
+            keys.append("  - ").append(kv[0]).append('\n');
+        }
+        
+        server.start(listen);
+        System.out.println("✓ Listening on " + server.getAddress() + " (client cache TTL " + ttlMillis + " ms"
+            + (token != null && !token.isEmpty() ? ", token required" : "") + ")");
+        System.out.print(keys);
+        System.out.println("  Agents: -javaagent:byteguard-agent.jar=keyServer=" + server.getAddress()
+            + ",keyId=" + entries.get(0)[0]);
+        
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (Exception e) {
+                // 进程退出中，忽略
+            }
+        }));
+        
+        // 阻塞直到进程被终止
+        new CountDownLatch(1).await();
+    }
+    
+    /**
+     * id=value（省略 id 时使用默认密钥 ID）
+     */
+    private static String[] split(String arg) {
+        int eq = arg.indexOf('=');
+        return eq > 0
+            ? new String[] { arg.substring(0, eq), arg.substring(eq + 1) }
+            : new String[] { KeyProviders.DEFAULT_KEY_ID, arg };
+    }
+}
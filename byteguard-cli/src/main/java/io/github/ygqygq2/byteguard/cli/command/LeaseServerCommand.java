@@ -0,0 +1,89 @@
+package io.github.ygqygq2.byteguard.cli.command;
+
+import io.github.ygqygq2.byteguard.core.license.GPGLicenseValidator;
+import io.github.ygqygq2.byteguard.core.license.License;
+import io.github.ygqygq2.byteguard.core.license.LicenseSerializer;
+import io.github.ygqygq2.byteguard.core.license.lease.LeaseServer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Lease Server 命令 - 运行实例租约服务器，控制 License 的 maxInstances
+ * 
+ * <p>实例数上限取自经过 GPG 验证的 License 文件（可多次指定 --license），
+ * 本地测试时也可用 --limit 直接指定
+ * 
+ * @author ygqygq2
+ */
+public class LeaseServerCommand {
+    
+    public void execute(String[] args) throws Exception {
+        System.out.println("[ByteGuard] Lease Server");
+        
+        // 解析参数
+        String listen = "127.0.0.1:7070";
+        long ttlMillis = LeaseServer.DEFAULT_TTL_MILLIS;
+        List<String> licenseFiles = new ArrayList<>();
+        List<String> limitArgs = new ArrayList<>();
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--listen":
+                    listen = args[++i];
+                    break;
+                case "--ttl":
+                    ttlMillis = Long.parseLong(args[++i]);
+                    break;
+                case "--license":
+                    licenseFiles.add(args[++i]);
+                    break;
+                case "--limit":
+                    limitArgs.add(args[++i]);
+                    break;
+            }
+        }
+        
+        LeaseServer server = new LeaseServer(ttlMillis);
+        StringBuilder limits = new StringBuilder();
+        
+        for (String file : licenseFiles) {
+            String content = Files.readString(Path.of(file));
+            License license = new LicenseSerializer().fromJson(GPGLicenseValidator.verifyAndExtract(content));
+            int max = license.getAuthorization() != null ? license.getAuthorization().getMaxInstances() : 0;
+            server.limit(license.getLicenseId(), max > 0 ? max : Integer.MAX_VALUE);
+            limits.append("  - ").append(license.getLicenseId()).append(": ")
+                .append(max > 0 ? String.valueOf(max) : "Unlimited").append('\n');
+        }
+        
+        for (String limit : limitArgs) {
+            // LIC-XXXX=10
+            String[] kv = limit.split("=", 2);
+            server.limit(kv[0], Integer.parseInt(kv[1]));
+            limits.append("  - ").append(kv[0]).append(": ").append(kv[1]).append('\n');
+        }
+        
+        if (limits.length() == 0) {
+            throw new IllegalArgumentException("At least one --license or --limit is required");
+        }
+        
+        server.start(listen);
+        System.out.println("✓ Listening on " + server.getAddress() + " (lease TTL " + ttlMillis + " ms)");
+        System.out.print(limits);
+        System.out.println("  Agents: -Dbyteguard.lease.server=" + server.getAddress());
+        
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (Exception e) {
+                // 进程退出中，忽略
+            }
+        }));
+        
+        // 阻塞直到进程被终止
+        new CountDownLatch(1).await();
+    }
+}
@@ -1,17 +1,40 @@
 package io.github.ygqygq2.byteguard.cli.command;
 
 import io.github.ygqygq2.byteguard.core.license.License;
-import io.github.ygqygq2.byteguard.core.license.LicenseSerializer;
+import io.github.ygqygq2.byteguard.core.license.LicenseIssuer;
+import io.github.ygqygq2.byteguard.core.license.MachineFingerprint;
 import io.github.ygqygq2.byteguard.core.license.RSASignature;
+import io.github.ygqygq2.byteguard.core.license.RevocationList;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * License 命令
@@ -20,6 +43,13 @@ import java.util.UUID;
  */
 public class LicenseCommand {
     
+    // JSONL 字段: "key": "string" 或 "key": 123
+    private static final Pattern JSON_FIELD_PATTERN =
+        Pattern.compile("\"(\\w+)\"\\s*:\\s*(?:\"((?:[^\"\\\\]|\\\\.)*)\"|(-?\\d+))");
+    
+    // 批量签发时 licenseId 用作文件名，只允许这些字符（不能含路径分隔符）
+    private static final Pattern LICENSE_ID_PATTERN = Pattern.compile("[A-Za-z0-9._-]+");
+    
     public void execute(String[] args) throws Exception {
         if (args.length == 0) {
             printUsage();
@@ -30,6 +60,13 @@ public class LicenseCommand {
         
         if ("generate".equals(subCommand)) {
             generateLicense(args);
+        } else if ("batch".equals(subCommand)) {
+            batchLicenses(args);
+        } else if ("revoke".equals(subCommand)) {
+            buildRevocationList(args);
+        } else if ("machine-id".equals(subCommand)) {
+            // 在目标机上运行，结果填入 License 的 allowedMachineIds
+            System.out.println(MachineFingerprint.getMachineId());
         } else {
             System.err.println("Unknown subcommand: " + subCommand);
             printUsage();
@@ -43,8 +80,10 @@ public class LicenseCommand {
         String issuedTo = "Unknown";
         String expireDate = null;
         String output = "license.lic";
+        String privateKeyFile = null;
         License.LicenseType type = License.LicenseType.STANDARD;
         int maxInstances = 0;
+        String leaseServer = null;
         
         for (int i = 1; i < args.length; i++) {
             switch (args[i]) {
@@ -63,66 +102,379 @@ public class LicenseCommand {
                 case "--max-instances":
                     maxInstances = Integer.parseInt(args[++i]);
                     break;
+                case "--lease-server":
+                    leaseServer = args[++i];
+                    break;
+                case "--private-key":
+                    privateKeyFile = args[++i];
+                    break;
             }
         }
         
         // 创建 License
+        License license = createLicense(null, issuedTo, expireDate, type, maxInstances, null, leaseServer);
+        
+        // 签名
+        File outputFile = new File(output);
+        LicenseIssuer issuer = new LicenseIssuer(loadPrivateKey(privateKeyFile, outputFile.getAbsoluteFile().getParentFile()));
+        String json = issuer.issue(license);
+        
+        // 打印信息
+        System.out.println("✓ License generated:");
+        System.out.println("  - License ID: " + license.getLicenseId());
+        System.out.println("  - Type: " + license.getLicenseType());
+        System.out.println("  - Issued to: " + license.getIssuedTo());
+        System.out.println("  - Expires at: " + license.getExpireAt());
+        System.out.println("  - Max instances: " + (maxInstances == 0 ? "Unlimited" : maxInstances));
+        if (leaseServer != null) {
+            System.out.println("  - Lease server: " + leaseServer);
+        }
+        System.out.println();
+        
+        // 保存到文件
+        Files.writeString(outputFile.toPath(), json, StandardCharsets.UTF_8);
+        
+        System.out.println("✓ License saved to: " + outputFile.getAbsolutePath());
+    }
+    
+    /**
+     * 批量签发：逐行读取客户列表（CSV 或 JSONL），多线程签名，签完一个写一个
+     * 
+     * <p>CSV 首行为表头，列名与 JSONL 字段相同：
+     * issuedTo（必需）、expire、type、maxInstances、machineIds（分号分隔）、leaseServer、licenseId
+     * 
+     * <p>licenseId 只能由字母、数字、{@code .}、{@code _}、{@code -} 组成且不能重复（不区分大小写），
+     * 否则该行记为失败，不写文件
+     */
+    private void batchLicenses(String[] args) throws Exception {
+        System.out.println("[ByteGuard] Batch Generate Licenses");
+        
+        // 解析参数
+        String input = null;
+        String outputDir = "licenses";
+        String privateKeyFile = null;
+        String defaultExpire = null;
+        License.LicenseType defaultType = License.LicenseType.STANDARD;
+        int threads = Runtime.getRuntime().availableProcessors();
+        
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--input":
+                    input = args[++i];
+                    break;
+                case "--output-dir":
+                    outputDir = args[++i];
+                    break;
+                case "--private-key":
+                    privateKeyFile = args[++i];
+                    break;
+                case "--expire":
+                    defaultExpire = args[++i];
+                    break;
+                case "--type":
+                    defaultType = License.LicenseType.valueOf(args[++i].toUpperCase());
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+            }
+        }
+        
+        if (input == null) {
+            throw new IllegalArgumentException("Input file is required (--input customers.csv|customers.jsonl)");
+        }
+        
+        File dir = new File(outputDir);
+        Files.createDirectories(dir.toPath());
+        LicenseIssuer issuer = new LicenseIssuer(loadPrivateKey(privateKeyFile, dir));
+        boolean jsonl = input.endsWith(".jsonl") || input.endsWith(".ndjson");
+        
+        // 有界队列 + 调用方执行：读文件的速度不会超过签名速度太多，内存占用与输入规模无关
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(threads * 64), new ThreadPoolExecutor.CallerRunsPolicy());
+        
+        AtomicInteger issued = new AtomicInteger();
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        Set<String> licenseIds = ConcurrentHashMap.newKeySet();
+        long start = System.nanoTime();
+        
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(input), StandardCharsets.UTF_8);
+             BufferedWriter index = Files.newBufferedWriter(dir.toPath().resolve("index.csv"), StandardCharsets.UTF_8)) {
+            
+            index.write("licenseId,issuedTo,file\n");
+            
+            try {
+                String[] header = null;
+                String line;
+                int lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    if (!jsonl && header == null) {
+                        header = splitCsv(line);
+                        continue;
+                    }
+                    
+                    String row = line;
+                    String[] columns = header;
+                    int rowNumber = lineNumber;
+                    License.LicenseType type = defaultType;
+                    String expire = defaultExpire;
+                    
+                    executor.execute(() -> {
+                        try {
+                            Map<String, String> fields = jsonl ? parseJsonLine(row) : parseCsvLine(columns, row);
+                            License license = createLicense(
+                                fields.get("licenseId"),
+                                require(fields, "issuedTo"),
+                                fields.getOrDefault("expire", expire),
+                                fields.containsKey("type") ? License.LicenseType.valueOf(fields.get("type").toUpperCase()) : type,
+                                fields.containsKey("maxInstances") ? Integer.parseInt(fields.get("maxInstances")) : 0,
+                                fields.get("machineIds"),
+                                fields.get("leaseServer")
+                            );
+                            
+                            String licenseId = license.getLicenseId();
+                            if (!LICENSE_ID_PATTERN.matcher(licenseId).matches()) {
+                                throw new IllegalArgumentException("Invalid licenseId (allowed: A-Z a-z 0-9 . _ -): " + licenseId);
+                            }
+                            // 不区分大小写：大小写不敏感的文件系统上会写到同一个文件
+                            if (!licenseIds.add(licenseId.toLowerCase(Locale.ROOT))) {
+                                throw new IllegalArgumentException("Duplicate licenseId: " + licenseId);
+                            }
+                            
+                            String fileName = license.getLicenseId() + ".lic";
+                            Files.writeString(dir.toPath().resolve(fileName), issuer.issue(license), StandardCharsets.UTF_8);
+                            synchronized (index) {
+                                index.write(license.getLicenseId() + "," + csvQuote(license.getIssuedTo()) + "," + fileName + "\n");
+                            }
+                            
+                            int count = issued.incrementAndGet();
+                            if (count % 1000 == 0) {
+                                System.out.println("  ... " + count + " licenses issued");
+                            }
+                        } catch (Exception e) {
+                            failures.add("line " + rowNumber + ": " + e.getMessage());
+                        }
+                    });
+                }
+            } finally {
+                // 读取或提交失败时也要等已提交的任务写完（索引文件在此之后才关闭），并释放线程
+                executor.shutdown();
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
+        }
+        
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("✓ Issued %d licenses in %.2f s (%.0f licenses/s, %d threads)%n",
+            issued.get(), seconds, issued.get() / Math.max(seconds, 1e-9), threads);
+        System.out.println("  - Output: " + dir.getAbsolutePath());
+        
+        if (!failures.isEmpty()) {
+            System.err.println("✗ " + failures.size() + " entries failed:");
+            failures.stream().limit(20).forEach(f -> System.err.println("  - " + f));
+            throw new IllegalStateException(failures.size() + " licenses could not be issued");
+        }
+    }
+    
+    /**
+     * 生成吊销列表（每行一个 License ID，# 开头为注释）
+     */
+    private void buildRevocationList(String[] args) throws Exception {
+        System.out.println("[ByteGuard] Build Revocation List");
+        
+        // 解析参数
+        String input = null;
+        String output = RevocationList.DEFAULT_FILE_NAME;
+        double falsePositiveRate = 0.001;
+        
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--input":
+                    input = args[++i];
+                    break;
+                case "--output":
+                    output = args[++i];
+                    break;
+                case "--fp-rate":
+                    falsePositiveRate = Double.parseDouble(args[++i]);
+                    break;
+            }
+        }
+        
+        if (input == null) {
+            throw new IllegalArgumentException("Input file is required (--input revoked-ids.txt)");
+        }
+        
+        List<String> ids = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(input), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    ids.add(line);
+                }
+            }
+        }
+        
+        File outputFile = new File(output);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(outputFile.toPath()))) {
+            RevocationList.write(ids, falsePositiveRate, out);
+        }
+        
+        RevocationList written = RevocationList.open(outputFile.toPath());
+        System.out.println("✓ Revocation list saved to: " + outputFile.getAbsolutePath());
+        System.out.println("  - Revoked licenses: " + written.size());
+        System.out.println("  - Size: " + outputFile.length() + " bytes");
+        System.out.println();
+        System.out.println("Sign it with the license key and ship both files beside license.lic:");
+        System.out.println("  gpg --detach-sign --armor " + outputFile.getName());
+    }
+    
+    private License createLicense(String licenseId, String issuedTo, String expireDate,
+                                  License.LicenseType type, int maxInstances, String machineIds,
+                                  String leaseServer) {
         License license = new License();
-        license.setLicenseId("LIC-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
+        license.setLicenseId(licenseId != null && !licenseId.isEmpty()
+            ? licenseId
+            : "LIC-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
         license.setLicenseType(type);
         license.setIssuedTo(issuedTo);
         license.setIssuedAt(Instant.now());
         
-        if (expireDate != null) {
+        if (expireDate != null && !expireDate.isEmpty()) {
             LocalDate date = LocalDate.parse(expireDate);
             license.setExpireAt(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
         }
         
         License.Authorization auth = new License.Authorization();
         auth.setMaxInstances(maxInstances);
+        if (leaseServer != null && !leaseServer.isBlank()) {
+            auth.setLeaseServer(leaseServer.trim());
+        }
         auth.setFeatures(new ArrayList<>());
         auth.getFeatures().add("FULL");
+        if (machineIds != null && !machineIds.isBlank()) {
+            auth.setAllowedMachineIds(new ArrayList<>(Arrays.asList(machineIds.trim().split("\\s*;\\s*"))));
+            auth.setBindingMode(License.BindingMode.STRICT);
+        }
         license.setAuthorization(auth);
         
-        // TODO: 生成 RSA 签名
-        System.out.println("TODO: Generate RSA signature");
-        
-        // 生成签名（临时：需要加载私钥）
+        return license;
+    }
+    
+    /**
+     * 加载签名私钥（Base64 PKCS#8，可带 PEM 头尾）
+     * 
+     * <p>未指定时生成临时密钥对，并把公钥写到输出目录，便于验证
+     */
+    private PrivateKey loadPrivateKey(String privateKeyFile, File outputDir) throws Exception {
         RSASignature rsaSignature = new RSASignature();
-        KeyPair keyPair = rsaSignature.generateKeyPair();
-        PrivateKey privateKey = keyPair.getPrivate();
-        
-        String dataToSign = license.toSignatureData();
-        String signature = rsaSignature.sign(dataToSign, privateKey);
-        license.setSignature(signature);
-        
-        // 打印信息
-        System.out.println("✓ License generated:");
-        System.out.println("  - License ID: " + license.getLicenseId());
-        System.out.println("  - Type: " + license.getLicenseType());
-        System.out.println("  - Issued to: " + license.getIssuedTo());
-        System.out.println("  - Expires at: " + license.getExpireAt());
-        System.out.println("  - Max instances: " + (maxInstances == 0 ? "Unlimited" : maxInstances));
-        System.out.println();
-        
-        // 保存到文件
-        LicenseSerializer serializer = new LicenseSerializer();
-        File outputFile = new File(output);
-        serializer.saveToFile(license, outputFile);
+        if (privateKeyFile != null) {
+            String pem = Files.readString(Path.of(privateKeyFile), StandardCharsets.US_ASCII);
+            String base64 = pem.replaceAll("-----[A-Z ]+-----", "").replaceAll("\\s", "");
+            return rsaSignature.base64ToPrivateKey(base64);
+        }
         
-        System.out.println("✓ License saved to: " + outputFile.getAbsolutePath());
+        KeyPair keyPair = rsaSignature.generateKeyPair();
+        File publicKeyFile = new File(outputDir, "license-public.key");
+        Files.writeString(publicKeyFile.toPath(), rsaSignature.publicKeyToBase64(keyPair.getPublic()));
+        System.out.println("⚠ No --private-key given, signed with a temporary key pair");
+        System.out.println("  - Public key: " + publicKeyFile.getAbsolutePath());
+        return keyPair.getPrivate();
+    }
+    
+    // 输入解析
+    
+    private static Map<String, String> parseJsonLine(String line) {
+        Map<String, String> fields = new HashMap<>();
+        Matcher m = JSON_FIELD_PATTERN.matcher(line);
+        while (m.find()) {
+            String value = m.group(2) != null ? m.group(2).replaceAll("\\\\(.)", "$1") : m.group(3);
+            fields.put(m.group(1), value);
+        }
+        return fields;
+    }
+    
+    private static Map<String, String> parseCsvLine(String[] header, String line) {
+        String[] values = splitCsv(line);
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.length && i < values.length; i++) {
+            if (!values[i].isEmpty()) {
+                fields.put(header[i], values[i]);
+            }
+        }
+        return fields;
+    }
+    
+    /**
+     * 拆分 CSV 行（支持双引号包围和 "" 转义）
+     */
+    private static String[] splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString().trim());
+        return values.toArray(new String[0]);
+    }
+    
+    private static String csvQuote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+    
+    private static String require(Map<String, String> fields, String key) {
+        String value = fields.get(key);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing " + key);
+        }
+        return value;
     }
     
     private void printUsage() {
         System.out.println("License Command Usage:");
         System.out.println();
         System.out.println("  license generate [options]");
+        System.out.println("  license batch --input <file> [options]");
+        System.out.println("  license revoke --input <ids.txt> [--output revoked.brl] [--fp-rate 0.001]");
+        System.out.println("  license machine-id     Print this host's machine ID for license binding");
         System.out.println();
         System.out.println("Options:");
         System.out.println("  --issued-to <name>     Company or person name");
         System.out.println("  --expire <date>        Expiration date (YYYY-MM-DD)");
         System.out.println("  --type <type>          TRIAL, STANDARD, or ENTERPRISE");
         System.out.println("  --max-instances <n>    Maximum concurrent instances (0=unlimited)");
+        System.out.println("  --lease-server <addr>  Lease server the agent must use (host:port or unix:/path)");
+        System.out.println("  --private-key <file>   RSA private key (Base64 PKCS#8 or PEM)");
         System.out.println("  --output <file>        Output file path");
+        System.out.println();
+        System.out.println("Batch options:");
+        System.out.println("  --input <file>         Customers as CSV (with header) or JSONL; fields:");
+        System.out.println("                         issuedTo, expire, type, maxInstances, machineIds, leaseServer,");
+        System.out.println("                         licenseId ([A-Za-z0-9._-]+, unique)");
+        System.out.println("  --output-dir <dir>     Directory for <licenseId>.lic files and index.csv");
+        System.out.println("  --threads <n>          Signing threads (default: CPU cores)");
+        System.out.println("  --expire, --type       Defaults for entries that omit them");
     }
 }
@@ -0,0 +1,150 @@
+package io.github.ygqygq2.byteguard.cli.command;
+
+import io.github.ygqygq2.byteguard.core.archive.ZipEntryReplacer;
+import io.github.ygqygq2.byteguard.core.crypto.CipherSuite;
+import io.github.ygqygq2.byteguard.core.crypto.CipherSuites;
+import io.github.ygqygq2.byteguard.core.crypto.KdfParams;
+import io.github.ygqygq2.byteguard.core.crypto.KeyEnvelope;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadata;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadataSerializer;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Rekey 命令 - 更换加密 JAR 的密码
+ * 
+ * <p>只重新包装元数据里的数据密钥并改写元数据条目，类字节码保持不变，
+ * 耗时与 JAR 大小、类数量无关。1.0 格式的 JAR 会把原派生密钥作为数据密钥升级到 2.0。
+ * 
+ * @author ygqygq2
+ */
+public class RekeyCommand {
+    
+    public void execute(String[] args) throws Exception {
+        System.out.println("[ByteGuard] Rekey JAR");
+        
+        // 解析参数
+        String inputJar = null;
+        String outputJar = null;
+        String password = null;
+        String newPassword = null;
+        boolean addSlot = false;
+        String kdfName = null;
+        int kdfIterations = 0;
+        int kdfMemory = 0;
+        int kdfLanes = 0;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--input":
+                    inputJar = args[++i];
+                    break;
+                case "--output":
+                    outputJar = args[++i];
+                    break;
+                case "--password":
+                    password = args[++i];
+                    break;
+                case "--new-password":
+                    newPassword = args[++i];
+                    break;
+                case "--add":
+                    addSlot = true;
+                    break;
+                case "--kdf":
+                    kdfName = args[++i];
+                    break;
+                case "--kdf-iterations":
+                    kdfIterations = Integer.parseInt(args[++i]);
+                    break;
+                case "--kdf-memory":
+                    kdfMemory = Integer.parseInt(args[++i]);
+                    break;
+                case "--kdf-lanes":
+                    kdfLanes = Integer.parseInt(args[++i]);
+                    break;
+            }
+        }
+        
+        if (inputJar == null || password == null || newPassword == null) {
+            throw new IllegalArgumentException(
+                "Missing required arguments: --input, --password, --new-password"
+            );
+        }
+        boolean changeKdf = kdfName != null || kdfIterations > 0 || kdfMemory > 0 || kdfLanes > 0;
+        if (addSlot && changeKdf) {
+            // 所有槽位共用元数据中的 KDF 参数，保留旧槽时不能更改
+            throw new IllegalArgumentException("--kdf options cannot be combined with --add");
+        }
+        
+        Path input = Path.of(inputJar);
+        Path output = Path.of(outputJar != null ? outputJar : inputJar);
+        if (!Files.exists(input)) {
+            throw new FileNotFoundException("Input JAR not found: " + inputJar);
+        }
+        
+        long start = System.nanoTime();
+        EncryptionMetadataSerializer serializer = new EncryptionMetadataSerializer();
+        EncryptionMetadata metadata = serializer.fromJson(readMetadata(input));
+        
+        // 用旧密码解开数据密钥（密码错误时抛出）
+        byte[] dataKey = KeyEnvelope.open(metadata, password);
+        CipherSuite cipher = CipherSuites.forName(metadata.getAlgorithm());
+        
+        // 替换全部槽位时可重新设定 KDF（如按 calibrate 结果调整），未指定的参数沿用当前值
+        KdfParams kdf = metadata.getKdf();
+        if (changeKdf) {
+            boolean sameAlgorithm = kdfName == null || KdfParams.of(kdfName, 0).getAlgorithm().equals(kdf.getAlgorithm());
+            kdf = KdfParams.of(
+                kdfName != null ? kdfName : kdf.getAlgorithm(),
+                kdfIterations > 0 || !sameAlgorithm ? kdfIterations : kdf.getIterations(),
+                kdfMemory > 0 || !sameAlgorithm ? kdfMemory : kdf.getMemoryKiB(),
+                kdfLanes > 0 || !sameAlgorithm ? kdfLanes : kdf.getParallelism());
+        }
+        
+        boolean legacy = metadata.getKeySlots().isEmpty();
+        List<EncryptionMetadata.KeySlot> slots = addSlot ? new ArrayList<>(metadata.getKeySlots()) : new ArrayList<>();
+        if (addSlot && legacy) {
+            // 1.0 格式没有槽位，保留旧密码需要先为它建一个
+            slots.add(KeyEnvelope.seal(dataKey, password, cipher, kdf));
+        }
+        slots.add(KeyEnvelope.seal(dataKey, newPassword, cipher, kdf));
+        
+        if (legacy) {
+            metadata.setVersion(EncryptionMetadata.VERSION_ENVELOPE);
+        }
+        metadata.setKdf(kdf);
+        metadata.setSalt(null);
+        metadata.setKeySlots(slots);
+        
+        boolean inPlace = ZipEntryReplacer.replace(input, output, EncryptionMetadata.METADATA_PATH,
+            serializer.toJson(metadata).getBytes(StandardCharsets.UTF_8));
+        
+        System.out.println();
+        System.out.println("✓ Password " + (addSlot ? "added" : "changed") + " in "
+            + (System.nanoTime() - start) / 1_000_000 + " ms (" + (inPlace ? "in place" : "copied") + ")");
+        System.out.println("  - Key slots: " + slots.size());
+        System.out.println("  - KDF: " + kdf);
+        System.out.println("  - Output: " + output.toAbsolutePath());
+    }
+    
+    private String readMetadata(Path jar) throws Exception {
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            ZipEntry entry = zip.getEntry(EncryptionMetadata.METADATA_PATH);
+            if (entry == null) {
+                throw new IllegalArgumentException("Not a ByteGuard encrypted JAR (metadata missing): " + jar);
+            }
+            try (InputStream in = zip.getInputStream(entry)) {
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package io.github.ygqygq2.byteguard.core.archive;
+
+import io.github.ygqygq2.byteguard.core.encrypt.JarSink;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadata;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadataSerializer;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 两个加密归档之间的增量补丁：只含变化和新增的条目（密文原样）以及新的加密元数据（即使未变化）
+ * 
+ * <p>补丁本身是一个 ZIP，第一个条目是描述文件 {@value #DESCRIPTOR_PATH}：
+ * <pre>
+ * byteguard-patch 1
+ * base &lt;基础归档加密元数据的 SHA-256&gt;
+ * remove &lt;删除的条目&gt;
+ * </pre>
+ * 其余条目按新归档中的顺序存放。补丁只能用于生成它的基础归档（以元数据摘要校验），
+ * 不需要密码，也不解密任何内容。
+ * 
+ * <p>两个归档用同一个数据密钥加密（增量加密，见 {@code JarEncryptor.Builder#previous}）时，
+ * 未变化的类密文相同，补丁只含改动的类；数据密钥不同时所有加密类都会进入补丁。
+ * 
+ * <p>使用方式：{@link #apply} 合成完整的新归档；或由 Agent 直接叠加（{@link #open}），
+ * 基础归档保持不变。叠加无法隐藏基础归档中的条目，删除了条目的补丁只能用 {@link #apply}。
+ * 
+ * @author ygqygq2
+ */
+public final class DeltaPatch implements Closeable {
+    
+    /** 补丁描述文件的条目名 */
+    public static final String DESCRIPTOR_PATH = "META-INF/.byteguard/patch";
+    
+    private static final String FORMAT = "byteguard-patch 1";
+    
+    private final ZipFile zip;
+    private final String baseDigest;
+    private final List<String> removed;
+    private final Set<String> entries;
+    
+    private DeltaPatch(ZipFile zip, String baseDigest, List<String> removed, Set<String> entries) {
+        this.zip = zip;
+        this.baseDigest = baseDigest;
+        this.removed = removed;
+        this.entries = entries;
+    }
+    
+    /**
+     * 比较两个加密归档，写出补丁
+     * 
+     * @param base 基础归档（已部署的版本）
+     * @param target 新归档
+     * @param patch 补丁输出
+     * @return 统计
+     * @throws IOException 读写失败，或任一归档不是 ByteGuard 加密的
+     */
+    public static Result diff(Path base, Path target, Path patch) throws IOException {
+        long start = System.nanoTime();
+        try (ZipFile baseZip = new ZipFile(base.toFile());
+             ZipFile targetZip = new ZipFile(target.toFile())) {
+            byte[] baseMetadata = readMetadata(baseZip, base);
+            byte[] targetMetadata = readMetadata(targetZip, target);
+            
+            List<ZipEntry> changed = new ArrayList<>();
+            Set<String> targetNames = new HashSet<>();
+            int added = 0;
+            Enumeration<? extends ZipEntry> targetEntries = targetZip.entries();
+            while (targetEntries.hasMoreElements()) {
+                ZipEntry entry = targetEntries.nextElement();
+                targetNames.add(entry.getName());
+                ZipEntry previous = baseZip.getEntry(entry.getName());
+                if (previous == null) {
+                    changed.add(entry);
+                    added++;
+                } else if (!entry.isDirectory() && !sameContent(baseZip, previous, targetZip, entry)) {
+                    changed.add(entry);
+                }
+            }
+            List<String> removed = new ArrayList<>();
+            Enumeration<? extends ZipEntry> baseEntries = baseZip.entries();
+            while (baseEntries.hasMoreElements()) {
+                String name = baseEntries.nextElement().getName();
+                if (!targetNames.contains(name)) {
+                    removed.add(name);
+                }
+            }
+            
+            // 元数据相同（如比较同一个归档）时也要写入：补丁总是携带新归档的元数据，open 以此识别补丁
+            if (changed.stream().noneMatch(entry -> entry.getName().equals(EncryptionMetadata.METADATA_PATH))) {
+                changed.add(targetZip.getEntry(EncryptionMetadata.METADATA_PATH));
+            }
+            
+            StringBuilder descriptor = new StringBuilder(FORMAT).append('\n')
+                .append("base ").append(digest(baseMetadata)).append('\n');
+            for (String name : removed) {
+                descriptor.append("remove ").append(name).append('\n');
+            }
+            try (JarSink out = JarSink.toFile(patch)) {
+                out.putEntry(DESCRIPTOR_PATH, descriptor.toString().getBytes(StandardCharsets.UTF_8));
+                for (ZipEntry entry : changed) {
+                    copy(targetZip, entry, out);
+                }
+            }
+            return new Result(changed.size() - added, added, removed.size(), sameKey(baseMetadata, targetMetadata),
+                Files.size(patch), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+    
+    /**
+     * 把补丁应用到基础归档，合成完整的新归档
+     * 
+     * <p>条目保持基础归档的顺序（变化的条目原位替换），新增条目随后，加密元数据最后写入。
+     * 输出与基础归档相同时先写临时文件，完成后替换。
+     * 
+     * @param base 基础归档
+     * @param patch 补丁
+     * @param output 输出归档（可与 base 相同）
+     * @return 统计
+     * @throws IOException 读写失败，或补丁不属于该基础归档
+     */
+    public static Result apply(Path base, Path patch, Path output) throws IOException {
+        long start = System.nanoTime();
+        boolean inPlace = Files.exists(output) && Files.isSameFile(base, output);
+        Path target = inPlace ? Files.createTempFile(output.toAbsolutePath().getParent(), ".byteguard", ".tmp") : output;
+        try (DeltaPatch delta = open(patch);
+             ZipFile baseZip = new ZipFile(base.toFile())) {
+            delta.verifyBase(readMetadata(baseZip, base));
+            
+            Set<String> removed = new HashSet<>(delta.removed);
+            Set<String> pending = new LinkedHashSet<>(delta.entries);
+            int changed = 0;
+            try (JarSink out = JarSink.toFile(target)) {
+                Enumeration<? extends ZipEntry> entries = baseZip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    if (removed.contains(name) || name.equals(EncryptionMetadata.METADATA_PATH)) {
+                        continue;
+                    }
+                    if (pending.remove(name)) {
+                        copy(delta.zip, delta.zip.getEntry(name), out);
+                        changed++;
+                    } else {
+                        copy(baseZip, entry, out);
+                    }
+                }
+                pending.remove(EncryptionMetadata.METADATA_PATH);
+                for (String name : pending) {
+                    copy(delta.zip, delta.zip.getEntry(name), out);
+                }
+                out.putEntry(EncryptionMetadata.METADATA_PATH, delta.read(EncryptionMetadata.METADATA_PATH));
+            }
+            if (inPlace) {
+                Files.move(target, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new Result(changed + 1, pending.size(), removed.size(), true, Files.size(output),
+                (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            if (inPlace) {
+                Files.deleteIfExists(target);
+            }
+        }
+    }
+    
+    /**
+     * 打开补丁（供叠加使用，线程安全）
+     * 
+     * @param patch 补丁文件
+     * @return 补丁
+     * @throws IOException 读取失败或不是 ByteGuard 补丁
+     */
+    public static DeltaPatch open(Path patch) throws IOException {
+        ZipFile zip = new ZipFile(patch.toFile());
+        try {
+            ZipEntry descriptorEntry = zip.getEntry(DESCRIPTOR_PATH);
+            if (descriptorEntry == null || zip.getEntry(EncryptionMetadata.METADATA_PATH) == null) {
+                throw new IOException("Not a ByteGuard patch: " + patch);
+            }
+            String descriptor;
+            try (InputStream in = zip.getInputStream(descriptorEntry)) {
+                descriptor = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            BufferedReader reader = new BufferedReader(new StringReader(descriptor));
+            String baseLine = FORMAT.equals(reader.readLine()) ? reader.readLine() : null;
+            if (baseLine == null || !baseLine.startsWith("base ")) {
+                throw new IOException("Unsupported patch format: " + patch);
+            }
+            List<String> removed = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("remove ")) {
+                    removed.add(line.substring("remove ".length()));
+                }
+            }
+            
+            Set<String> entries = new LinkedHashSet<>();
+            Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+            while (zipEntries.hasMoreElements()) {
+                String name = zipEntries.nextElement().getName();
+                if (!name.equals(DESCRIPTOR_PATH)) {
+                    entries.add(name);
+                }
+            }
+            return new DeltaPatch(zip, baseLine.substring("base ".length()), Collections.unmodifiableList(removed),
+                Collections.unmodifiableSet(entries));
+        } catch (IOException | RuntimeException e) {
+            zip.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * 确认补丁属于该基础归档
+     * 
+     * @param baseMetadataJson 基础归档加密元数据的原始字节
+     * @throws IOException 不匹配
+     */
+    public void verifyBase(byte[] baseMetadataJson) throws IOException {
+        if (!baseDigest.equals(digest(baseMetadataJson))) {
+            throw new IOException("Patch was not created for this archive (base metadata differs)");
+        }
+    }
+    
+    /**
+     * 补丁中是否有该条目（变化或新增）
+     */
+    public boolean contains(String name) {
+        return entries.contains(name);
+    }
+    
+    /**
+     * 读取补丁中的条目
+     * 
+     * @return 内容，补丁中没有时为 null
+     */
+    public byte[] read(String name) throws IOException {
+        ZipEntry entry = entries.contains(name) ? zip.getEntry(name) : null;
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            return in.readAllBytes();
+        }
+    }
+    
+    /**
+     * 打补丁后的加密元数据
+     */
+    public EncryptionMetadata readMetadata() throws IOException {
+        return new EncryptionMetadataSerializer().fromJson(
+            new String(read(EncryptionMetadata.METADATA_PATH), StandardCharsets.UTF_8));
+    }
+    
+    /** 变化和新增的条目（含加密元数据） */
+    public Set<String> getEntries() { return entries; }
+    
+    /** 删除的条目 */
+    public List<String> getRemoved() { return removed; }
+    
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+    
+    private static byte[] readMetadata(ZipFile zip, Path file) throws IOException {
+        ZipEntry entry = zip.getEntry(EncryptionMetadata.METADATA_PATH);
+        if (entry == null) {
+            throw new IOException("Not a ByteGuard encrypted JAR (metadata missing): " + file);
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            return in.readAllBytes();
+        }
+    }
+    
+    /**
+     * 大小和 CRC 相同时再逐字节比较（流式，不整体读入内存）
+     */
+    private static boolean sameContent(ZipFile aZip, ZipEntry a, ZipFile bZip, ZipEntry b) throws IOException {
+        if (a.getSize() != b.getSize() || a.getCrc() != b.getCrc()) {
+            return false;
+        }
+        try (InputStream aIn = aZip.getInputStream(a); InputStream bIn = bZip.getInputStream(b)) {
+            byte[] aBuf = new byte[64 * 1024];
+            byte[] bBuf = new byte[64 * 1024];
+            int n;
+            while ((n = aIn.readNBytes(aBuf, 0, aBuf.length)) > 0) {
+                if (bIn.readNBytes(bBuf, 0, n) != n || !Arrays.equals(aBuf, 0, n, bBuf, 0, n)) {
+                    return false;
+                }
+            }
+            return bIn.read() < 0;
+        }
+    }
+    
+    /**
+     * 复制条目，加密类等 STORED 条目仍以 STORED 写出
+     */
+    private static void copy(ZipFile zip, ZipEntry entry, JarSink out) throws IOException {
+        if (entry.isDirectory()) {
+            out.putDirectory(entry.getName());
+            return;
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            if (entry.getMethod() == ZipEntry.STORED) {
+                out.putStoredEntry(entry.getName(), in.readAllBytes());
+            } else {
+                out.putEntry(entry.getName(), in);
+            }
+        }
+    }
+    
+    /**
+     * 两个归档是否用同一组密钥槽（同一个数据密钥）
+     */
+    private static boolean sameKey(byte[] baseJson, byte[] targetJson) throws IOException {
+        EncryptionMetadataSerializer serializer = new EncryptionMetadataSerializer();
+        List<EncryptionMetadata.KeySlot> a = serializer.fromJson(new String(baseJson, StandardCharsets.UTF_8)).getKeySlots();
+        List<EncryptionMetadata.KeySlot> b = serializer.fromJson(new String(targetJson, StandardCharsets.UTF_8)).getKeySlots();
+        if (a.isEmpty() || a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (!Arrays.equals(a.get(i).getWrappedKey(), b.get(i).getWrappedKey())) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static String digest(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    /**
+     * 生成或应用补丁的统计
+     */
+    public static final class Result {
+        private final int changed;
+        private final int added;
+        private final int removed;
+        private final boolean sameKey;
+        private final long size;
+        private final long elapsedMillis;
+        
+        Result(int changed, int added, int removed, boolean sameKey, long size, long elapsedMillis) {
+            this.changed = changed;
+            this.added = added;
+            this.removed = removed;
+            this.sameKey = sameKey;
+            this.size = size;
+            this.elapsedMillis = elapsedMillis;
+        }
+        
+        /** 变化的条目数（含加密元数据） */
+        public int getChangedCount() { return changed; }
+        
+        /** 新增的条目数 */
+        public int getAddedCount() { return added; }
+        
+        /** 删除的条目数 */
+        public int getRemovedCount() { return removed; }
+        
+        /** 两个归档是否共用数据密钥（否则所有加密类都在补丁中） */
+        public boolean isSameKey() { return sameKey; }
+        
+        /** 补丁（diff）或合成归档（apply）的字节数 */
+        public long getSize() { return size; }
+        
+        public long getElapsedMillis() { return elapsedMillis; }
+    }
+}
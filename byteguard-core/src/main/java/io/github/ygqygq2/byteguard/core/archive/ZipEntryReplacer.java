@@ -0,0 +1,403 @@
+package io.github.ygqygq2.byteguard.core.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 替换 ZIP/JAR 中的单个条目，其余条目按原始字节保留（不解压、不重新压缩）
+ * 
+ * <ul>
+ *   <li>原地替换：目标条目是归档中最后一个条目（加密元数据总是最后写入）时，
+ *       只重写尾部的该条目、中央目录和 EOCD，耗时与归档大小无关</li>
+ *   <li>复制替换：其他情况把其余条目的原始字节顺序复制到新文件，替换的条目移到末尾，
+ *       只调整中央目录里的偏移量</li>
+ * </ul>
+ * 
+ * <p>原地替换在任何一步中断（崩溃、磁盘满、被 kill）后，归档仍是完整的旧版本或新版本：
+ * <ol>
+ *   <li>把新尾部追加到旧 EOCD 之后，EOCD 最后写入；写完之前旧 EOCD 仍然有效
+ *       （ZIP 读取方和 {@link #readDirectory} 都容忍 EOCD 之后的多余字节）</li>
+ *   <li>新尾部生效后，旧条目、旧中央目录所在区间不再被引用，把新尾部再写一份到该区间</li>
+ *   <li>最后截断到这一份的末尾</li>
+ * </ol>
+ * 每步之间都 force 到磁盘。第 2 步之后中断时旧区间留作不再引用的字节，不影响读取。
+ * 新尾部放不进旧区间（如元数据增长），或追加后旧 EOCD 离文件末尾超过读取方的搜索范围
+ * （EOCD 长度加 64 KiB 注释上限；中央目录较大的归档即是如此）时，改用临时文件 + 原子替换。
+ * 
+ * <p>新条目以 STORED 方式写入。不支持 ZIP64 归档。
+ * 
+ * @author ygqygq2
+ */
+public final class ZipEntryReplacer {
+    
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+    private static final int END_SIG = 0x06054b50;
+    private static final int END_SIZE = 22;
+    /** 读取方从文件末尾向前查找 EOCD 的范围（EOCD 加最长的注释） */
+    private static final int END_SEARCH_WINDOW = END_SIZE + 0xFFFF;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int UTF8_FLAG = 0x800;
+    
+    private ZipEntryReplacer() {
+    }
+    
+    /**
+     * 替换（或追加）条目
+     * 
+     * @param source 源归档
+     * @param target 目标归档（与源相同时尽量原地修改）
+     * @param entryName 条目名称
+     * @param content 新内容
+     * @return true 原地完成；false 复制了其余条目
+     * @throws IOException 读写失败或归档格式不支持
+     */
+    public static boolean replace(Path source, Path target, String entryName, byte[] content) throws IOException {
+        boolean sameFile = Files.exists(target) && Files.isSameFile(source, target);
+        
+        try (FileChannel in = FileChannel.open(source, sameFile
+                ? new StandardOpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE }
+                : new StandardOpenOption[] { StandardOpenOption.READ })) {
+            
+            Directory dir = readDirectory(in);
+            
+            // 被替换条目占据的区间 [regionStart, regionEnd)，不存在时为空区间（追加）
+            Record replaced = null;
+            long regionEnd = dir.cdOffset;
+            for (Record record : dir.records) {
+                if (record.name.equals(entryName)) {
+                    replaced = record;
+                }
+            }
+            long regionStart = replaced != null ? replaced.localOffset : dir.cdOffset;
+            for (Record record : dir.records) {
+                if (record.localOffset > regionStart && record.localOffset < regionEnd) {
+                    regionEnd = record.localOffset;
+                }
+            }
+            long shift = regionEnd - regionStart;
+            long newEntryOffset = dir.cdOffset - shift;
+            
+            // 中央目录：后移的条目调整偏移
+            for (Record record : dir.records) {
+                if (record != replaced && record.localOffset > regionStart) {
+                    record.setLocalOffset(record.localOffset - shift);
+                }
+            }
+            Tail tail = new Tail(dir, replaced, entryName, content);
+            long size = in.size();
+            
+            // 第 1 步之后旧 EOCD 必须仍在搜索范围内，否则中断时归档无法读取
+            boolean oldEndReachable = size - dir.endOffset + tail.length() <= END_SEARCH_WINDOW;
+            if (sameFile && regionEnd == dir.cdOffset && regionStart + tail.length() <= size && oldEndReachable) {
+                // 原地（见类注释）：1. 追加到末尾；2. 复制到被替换条目处；3. 截断
+                byte[] appended = tail.at(size);
+                writeFully(in, ByteBuffer.wrap(appended, 0, appended.length - tail.endLength()), size);
+                in.force(true);
+                step(1);
+                writeFully(in, ByteBuffer.wrap(appended, appended.length - tail.endLength(), tail.endLength()),
+                    size + appended.length - tail.endLength());
+                in.force(true);
+                step(2);
+                writeFully(in, ByteBuffer.wrap(tail.at(regionStart)), regionStart);
+                in.force(true);
+                step(3);
+                in.truncate(regionStart + tail.length());
+                in.force(true);
+                return true;
+            }
+            
+            Path tmp = Files.createTempFile(target.toAbsolutePath().getParent(), ".byteguard", ".tmp");
+            try {
+                try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                    transfer(in, 0, regionStart, out);
+                    transfer(in, regionEnd, dir.cdOffset - regionEnd, out);
+                    writeFully(out, ByteBuffer.wrap(tail.at(newEntryOffset)), out.position());
+                    out.force(true);
+                }
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * 测试用：原地替换完成第 n 步后调用，抛出异常可模拟中断
+     */
+    static volatile InterruptionHook hook;
+    
+    @FunctionalInterface
+    interface InterruptionHook {
+        void afterStep(int step) throws IOException;
+    }
+    
+    private static void step(int n) throws IOException {
+        InterruptionHook h = hook;
+        if (h != null) {
+            h.afterStep(n);
+        }
+    }
+    
+    /**
+     * 新的归档尾部：被替换条目、中央目录和 EOCD，可按不同的起始偏移生成
+     */
+    private static final class Tail {
+        
+        private final Directory dir;
+        private final Record replaced;
+        private final byte[] name;
+        private final byte[] content;
+        private final CRC32 crc = new CRC32();
+        private final int[] dosTime = dosTime(LocalDateTime.now());
+        private final int flags;
+        private final int entryCount;
+        
+        Tail(Directory dir, Record replaced, String entryName, byte[] content) {
+            this.dir = dir;
+            this.replaced = replaced;
+            this.name = entryName.getBytes(StandardCharsets.UTF_8);
+            this.content = content;
+            this.crc.update(content);
+            this.flags = replaced != null ? (replaced.flags() & UTF8_FLAG) : UTF8_FLAG;
+            this.entryCount = dir.records.size() + (replaced == null ? 1 : 0);
+        }
+        
+        int length() {
+            return localLength() + content.length + centralLength() + endLength();
+        }
+        
+        int endLength() {
+            return END_SIZE + dir.comment.length;
+        }
+        
+        /**
+         * @param entryOffset 新条目本地头的偏移
+         */
+        byte[] at(long entryOffset) throws IOException {
+            long cdOffset = entryOffset + localLength() + content.length;
+            if (entryCount > 0xFFFF || cdOffset + centralLength() > 0xFFFFFFFFL) {
+                throw new IOException("Archive would require ZIP64");
+            }
+            
+            ByteArrayOutputStream cd = new ByteArrayOutputStream(centralLength());
+            for (Record record : dir.records) {
+                if (record != replaced) {
+                    cd.write(record.bytes);
+                }
+            }
+            byte[] comment = comment();
+            ByteBuffer central = le(CENTRAL_HEADER_SIZE + name.length + comment.length)
+                .putInt(CENTRAL_HEADER_SIG).putShort((short) 20).putShort((short) 20)
+                .putShort((short) flags).putShort((short) 0)
+                .putShort((short) dosTime[0]).putShort((short) dosTime[1])
+                .putInt((int) crc.getValue()).putInt(content.length).putInt(content.length)
+                .putShort((short) name.length).putShort((short) 0).putShort((short) comment.length)
+                .putShort((short) 0).putShort((short) 0).putInt(replaced != null ? replaced.externalAttributes() : 0)
+                .putInt((int) entryOffset);
+            central.put(name).put(comment);
+            cd.write(central.array());
+            
+            ByteBuffer local = le(localLength())
+                .putInt(LOCAL_HEADER_SIG).putShort((short) 20).putShort((short) flags).putShort((short) 0)
+                .putShort((short) dosTime[0]).putShort((short) dosTime[1])
+                .putInt((int) crc.getValue()).putInt(content.length).putInt(content.length)
+                .putShort((short) name.length).putShort((short) 0);
+            local.put(name);
+            
+            ByteBuffer end = le(endLength())
+                .putInt(END_SIG).putShort((short) 0).putShort((short) 0)
+                .putShort((short) entryCount).putShort((short) entryCount)
+                .putInt(cd.size()).putInt((int) cdOffset).putShort((short) dir.comment.length);
+            end.put(dir.comment);
+            
+            return concat(local.array(), content, cd.toByteArray(), end.array());
+        }
+        
+        private int localLength() {
+            return 30 + name.length;
+        }
+        
+        private int centralLength() {
+            int length = CENTRAL_HEADER_SIZE + name.length + comment().length;
+            for (Record record : dir.records) {
+                if (record != replaced) {
+                    length += record.bytes.length;
+                }
+            }
+            return length;
+        }
+        
+        private byte[] comment() {
+            return replaced != null ? replaced.comment() : new byte[0];
+        }
+    }
+    
+    private static Directory readDirectory(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int tailLength = (int) Math.min(size, END_SEARCH_WINDOW);
+        ByteBuffer tail = read(channel, size - tailLength, tailLength);
+        
+        // 从后向前找 EOCD。原地替换中断时 EOCD 之后可能有多余字节，此时要求它指向的位置确实是中央目录
+        int endPos = -1;
+        for (int i = tailLength - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) != END_SIG) {
+                continue;
+            }
+            if (i + END_SIZE + (tail.getShort(i + 20) & 0xFFFF) == tailLength
+                    || pointsToCentralDirectory(channel, tail, i, size - tailLength + i)) {
+                endPos = i;
+                break;
+            }
+        }
+        if (endPos < 0) {
+            throw new IOException("Not a ZIP archive (end of central directory not found)");
+        }
+        
+        int entries = tail.getShort(endPos + 10) & 0xFFFF;
+        long cdSize = tail.getInt(endPos + 12) & 0xFFFFFFFFL;
+        long cdOffset = tail.getInt(endPos + 16) & 0xFFFFFFFFL;
+        if (entries == 0xFFFF || cdSize == 0xFFFFFFFFL || cdOffset == 0xFFFFFFFFL) {
+            throw new IOException("ZIP64 archives are not supported");
+        }
+        
+        Directory dir = new Directory();
+        dir.cdOffset = cdOffset;
+        dir.endOffset = size - tailLength + endPos;
+        dir.comment = new byte[tail.getShort(endPos + 20) & 0xFFFF];
+        tail.get(endPos + END_SIZE, dir.comment);
+        
+        ByteBuffer cd = read(channel, cdOffset, (int) cdSize);
+        int pos = 0;
+        for (int i = 0; i < entries; i++) {
+            if (cd.getInt(pos) != CENTRAL_HEADER_SIG) {
+                throw new IOException("Corrupted central directory");
+            }
+            int length = CENTRAL_HEADER_SIZE + (cd.getShort(pos + 28) & 0xFFFF)
+                + (cd.getShort(pos + 30) & 0xFFFF) + (cd.getShort(pos + 32) & 0xFFFF);
+            byte[] bytes = new byte[length];
+            cd.get(pos, bytes);
+            Record record = new Record(bytes);
+            if (record.localOffset == 0xFFFFFFFFL) {
+                throw new IOException("ZIP64 archives are not supported");
+            }
+            dir.records.add(record);
+            pos += length;
+        }
+        return dir;
+    }
+    
+    private static boolean pointsToCentralDirectory(FileChannel channel, ByteBuffer tail, int i, long endOffset)
+            throws IOException {
+        long cdSize = tail.getInt(i + 12) & 0xFFFFFFFFL;
+        long cdOffset = tail.getInt(i + 16) & 0xFFFFFFFFL;
+        if (cdOffset + cdSize != endOffset) {
+            return false;
+        }
+        return cdSize == 0 || read(channel, cdOffset, 4).getInt(0) == CENTRAL_HEADER_SIG;
+    }
+    
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = le(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of archive");
+            }
+        }
+        return buffer.flip().order(ByteOrder.LITTLE_ENDIAN);
+    }
+    
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+    
+    private static void transfer(FileChannel in, long position, long count, FileChannel out) throws IOException {
+        long done = 0;
+        while (done < count) {
+            done += in.transferTo(position + done, count - done, out);
+        }
+    }
+    
+    private static ByteBuffer le(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        byte[] result = new byte[length];
+        int pos = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, result, pos, part.length);
+            pos += part.length;
+        }
+        return result;
+    }
+    
+    private static int[] dosTime(LocalDateTime t) {
+        int time = (t.getHour() << 11) | (t.getMinute() << 5) | (t.getSecond() / 2);
+        int date = ((Math.max(t.getYear(), 1980) - 1980) << 9) | (t.getMonthValue() << 5) | t.getDayOfMonth();
+        return new int[] { time, date };
+    }
+    
+    private static class Directory {
+        long cdOffset;
+        long endOffset;
+        byte[] comment;
+        final List<Record> records = new ArrayList<>();
+    }
+    
+    /**
+     * 中央目录记录（原始字节，仅解析需要的字段）
+     */
+    private static class Record {
+        final byte[] bytes;
+        final String name;
+        long localOffset;
+        
+        Record(byte[] bytes) {
+            this.bytes = bytes;
+            ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            int nameLength = buffer.getShort(28) & 0xFFFF;
+            this.name = new String(bytes, CENTRAL_HEADER_SIZE, nameLength, StandardCharsets.UTF_8);
+            this.localOffset = buffer.getInt(42) & 0xFFFFFFFFL;
+        }
+        
+        int flags() {
+            return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getShort(8) & 0xFFFF;
+        }
+        
+        int externalAttributes() {
+            return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getInt(38);
+        }
+        
+        byte[] comment() {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            int start = CENTRAL_HEADER_SIZE + (buffer.getShort(28) & 0xFFFF) + (buffer.getShort(30) & 0xFFFF);
+            return Arrays.copyOfRange(bytes, start, bytes.length);
+        }
+        
+        void setLocalOffset(long offset) {
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(42, (int) offset);
+            this.localOffset = offset;
+        }
+    }
+}
@@ -15,7 +15,10 @@ import java.security.SecureRandom;
  * 
  * @author ygqygq2
  */
-public class AESGCMCipher {
+public class AESGCMCipher implements CipherSuite {
+    
+    /** 套件名称 */
+    public static final String NAME = "AES-256-GCM";
     
     private static final String ALGORITHM = "AES/GCM/NoPadding";
     private static final int GCM_IV_LENGTH = 12; // 推荐的 GCM IV 长度
@@ -23,9 +26,25 @@ public class AESGCMCipher {
     private static final int AES_KEY_SIZE = 256 / 8; // 32 bytes
     
     private final SecureRandom secureRandom;
+    private final NonceStrategy nonceStrategy;
     
     public AESGCMCipher() {
+        this(NonceStrategy.RANDOM);
+    }
+    
+    public AESGCMCipher(NonceStrategy nonceStrategy) {
         this.secureRandom = new SecureRandom();
+        this.nonceStrategy = nonceStrategy;
+    }
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public NonceStrategy getNonceStrategy() {
+        return nonceStrategy;
     }
     
     /**
@@ -36,13 +55,14 @@ public class AESGCMCipher {
      * @return 密文 (IV + Ciphertext + Tag)
      * @throws CryptoException 加密失败
      */
+    @Override
     public byte[] encrypt(byte[] plaintext, byte[] key) throws CryptoException {
         validateKey(key);
         
         try {
-            // 生成随机 IV
+            // 按策略生成 Nonce（随密文保存）
             byte[] iv = new byte[GCM_IV_LENGTH];
-            secureRandom.nextBytes(iv);
+            nonceStrategy.fill(iv, key, plaintext);
             
             // 初始化 Cipher
             Cipher cipher = Cipher.getInstance(ALGORITHM);
@@ -73,6 +93,7 @@ public class AESGCMCipher {
      * @return 明文
      * @throws CryptoException 解密失败（密钥错误、数据被篡改等）
      */
+    @Override
     public byte[] decrypt(byte[] encrypted, byte[] key) throws CryptoException {
         validateKey(key);
         
@@ -109,6 +130,7 @@ public class AESGCMCipher {
      * 
      * @return 32字节的随机密钥
      */
+    @Override
     public byte[] generateKey() {
         byte[] key = new byte[AES_KEY_SIZE];
         secureRandom.nextBytes(key);
@@ -0,0 +1,379 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+import org.bouncycastle.crypto.digests.Blake2bDigest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Argon2id（RFC 9106，版本 0x13），各 lane 并行填充
+ * 
+ * <p>Argon2 把内存分成 p 个 lane，每一轮又分成 4 个 slice；同一 slice 内各 lane 只引用
+ * 已完成 slice 的块（或自身 lane 的块），因此可以并行计算，只在 slice 边界同步。
+ * BouncyCastle 的 {@code Argon2BytesGenerator} 逐个 lane 顺序计算，p 条 lane 也只用一个核；
+ * 这里用 BouncyCastle 的 BLAKE2b 做初始/最终哈希，块填充按 lane 分给线程，输出与其一致。
+ * 
+ * @author ygqygq2
+ */
+final class Argon2id {
+    
+    private static final int VERSION = 0x13;
+    private static final int TYPE_ID = 2;
+    private static final int SYNC_POINTS = 4;
+    private static final int BLOCK_SIZE = 1024;
+    private static final int BLOCK_WORDS = BLOCK_SIZE / 8;
+    private static final int PREHASH_LENGTH = 64;
+    
+    private final int iterations;
+    private final int lanes;
+    private final int laneLength;
+    private final int segmentLength;
+    private final int totalBlocks;
+    private final long[] memory;
+    
+    private Argon2id(int iterations, int memoryKiB, int lanes) {
+        this.iterations = iterations;
+        this.lanes = lanes;
+        // 向下取整到 4 × lanes 的倍数
+        this.segmentLength = memoryKiB / (SYNC_POINTS * lanes);
+        this.laneLength = segmentLength * SYNC_POINTS;
+        this.totalBlocks = laneLength * lanes;
+        this.memory = new long[totalBlocks * BLOCK_WORDS];
+    }
+    
+    /**
+     * 派生
+     * 
+     * @param password 口令
+     * @param salt 盐值
+     * @param iterations 轮数 t
+     * @param memoryKiB 内存 m（KiB，至少 8 × lanes）
+     * @param lanes 并行度 p
+     * @param threads 计算线程数（不影响结果，1 表示在调用线程中顺序计算）
+     * @param outLength 输出长度（字节）
+     * @return 派生结果
+     */
+    static byte[] derive(byte[] password, byte[] salt, int iterations, int memoryKiB, int lanes,
+                         int threads, int outLength) {
+        if (iterations < 1 || lanes < 1 || memoryKiB < 8 * lanes) {
+            throw new IllegalArgumentException("Invalid Argon2 parameters: t=" + iterations + ", m=" + memoryKiB + ", p=" + lanes);
+        }
+        Argon2id argon = new Argon2id(iterations, memoryKiB, lanes);
+        argon.initialize(password, salt, memoryKiB, outLength);
+        argon.fill(Math.max(1, Math.min(threads, lanes)));
+        return argon.finish(outLength);
+    }
+    
+    private void initialize(byte[] password, byte[] salt, int memoryKiB, int outLength) {
+        Blake2bDigest h0 = new Blake2bDigest(PREHASH_LENGTH * 8);
+        for (int value : new int[] { lanes, outLength, memoryKiB, iterations, VERSION, TYPE_ID }) {
+            updateInt(h0, value);
+        }
+        updateBytes(h0, password);
+        updateBytes(h0, salt);
+        updateBytes(h0, new byte[0]); // secret
+        updateBytes(h0, new byte[0]); // associated data
+        
+        byte[] seed = new byte[PREHASH_LENGTH + 8];
+        h0.doFinal(seed, 0);
+        
+        // 每个 lane 的前两个块: H'(H0 || column || lane)
+        byte[] block = new byte[BLOCK_SIZE];
+        for (int lane = 0; lane < lanes; lane++) {
+            putInt(seed, PREHASH_LENGTH + 4, lane);
+            for (int column = 0; column < 2; column++) {
+                putInt(seed, PREHASH_LENGTH, column);
+                hashLong(seed, block);
+                int offset = (lane * laneLength + column) * BLOCK_WORDS;
+                for (int i = 0; i < BLOCK_WORDS; i++) {
+                    memory[offset + i] = getLong(block, i * 8);
+                }
+            }
+        }
+    }
+    
+    private void fill(int threads) {
+        if (threads == 1) {
+            for (int pass = 0; pass < iterations; pass++) {
+                for (int slice = 0; slice < SYNC_POINTS; slice++) {
+                    for (int lane = 0; lane < lanes; lane++) {
+                        fillSegment(pass, lane, slice);
+                    }
+                }
+            }
+            return;
+        }
+        
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "byteguard-argon2");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int pass = 0; pass < iterations; pass++) {
+                for (int slice = 0; slice < SYNC_POINTS; slice++) {
+                    // slice 边界即同步点：全部 lane 完成后才能进入下一个 slice
+                    List<Callable<Void>> segments = new ArrayList<>(lanes);
+                    for (int lane = 0; lane < lanes; lane++) {
+                        int p = pass;
+                        int l = lane;
+                        int s = slice;
+                        segments.add(() -> {
+                            fillSegment(p, l, s);
+                            return null;
+                        });
+                    }
+                    for (Future<Void> future : pool.invokeAll(segments)) {
+                        future.get();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Argon2 derivation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Argon2 derivation failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    private void fillSegment(int pass, int lane, int slice) {
+        boolean dataIndependent = pass == 0 && slice < SYNC_POINTS / 2;
+        long[] zero = null;
+        long[] input = null;
+        long[] addresses = null;
+        if (dataIndependent) {
+            zero = new long[BLOCK_WORDS];
+            input = new long[BLOCK_WORDS];
+            addresses = new long[BLOCK_WORDS];
+            input[0] = pass;
+            input[1] = lane;
+            input[2] = slice;
+            input[3] = totalBlocks;
+            input[4] = iterations;
+            input[5] = TYPE_ID;
+        }
+        
+        long[][] work = { new long[BLOCK_WORDS], new long[BLOCK_WORDS] };
+        int start = 0;
+        if (pass == 0 && slice == 0) {
+            // 前两个块已在初始化时生成
+            start = 2;
+            if (dataIndependent) {
+                nextAddresses(zero, input, addresses, work);
+            }
+        }
+        
+        int current = lane * laneLength + slice * segmentLength + start;
+        int previous = current % laneLength == 0 ? current + laneLength - 1 : current - 1;
+        
+        for (int index = start; index < segmentLength; index++, current++, previous++) {
+            if (current % laneLength == 1) {
+                previous = current - 1;
+            }
+            
+            long pseudoRandom;
+            if (dataIndependent) {
+                if (index % BLOCK_WORDS == 0) {
+                    nextAddresses(zero, input, addresses, work);
+                }
+                pseudoRandom = addresses[index % BLOCK_WORDS];
+            } else {
+                pseudoRandom = memory[previous * BLOCK_WORDS];
+            }
+            
+            int refLane = pass == 0 && slice == 0 ? lane : (int) ((pseudoRandom >>> 32) % lanes);
+            int refIndex = referenceIndex(pass, slice, index, pseudoRandom & 0xFFFFFFFFL, refLane == lane);
+            int reference = refLane * laneLength + refIndex;
+            
+            // 版本 0x13: 第二轮起与旧块异或
+            fillBlock(previous * BLOCK_WORDS, reference * BLOCK_WORDS, current * BLOCK_WORDS, pass > 0, work);
+        }
+    }
+    
+    private int referenceIndex(int pass, int slice, int index, long j1, boolean sameLane) {
+        long areaSize;
+        if (pass == 0) {
+            if (slice == 0) {
+                areaSize = index - 1;
+            } else if (sameLane) {
+                areaSize = (long) slice * segmentLength + index - 1;
+            } else {
+                areaSize = (long) slice * segmentLength + (index == 0 ? -1 : 0);
+            }
+        } else if (sameLane) {
+            areaSize = laneLength - segmentLength + index - 1;
+        } else {
+            areaSize = laneLength - segmentLength + (index == 0 ? -1 : 0);
+        }
+        
+        long relative = (j1 * j1) >>> 32;
+        relative = areaSize - 1 - ((areaSize * relative) >>> 32);
+        long startPosition = pass != 0 && slice != SYNC_POINTS - 1 ? (long) (slice + 1) * segmentLength : 0;
+        return (int) ((startPosition + relative) % laneLength);
+    }
+    
+    private static void nextAddresses(long[] zero, long[] input, long[] addresses, long[][] work) {
+        input[6]++;
+        compress(zero, 0, input, 0, addresses, 0, false, work);
+        compress(zero, 0, addresses, 0, addresses, 0, false, work);
+    }
+    
+    private void fillBlock(int prevOffset, int refOffset, int nextOffset, boolean withXor, long[][] work) {
+        compress(memory, prevOffset, memory, refOffset, memory, nextOffset, withXor, work);
+    }
+    
+    /**
+     * 压缩函数 G: next = P(X ⊕ Y) ⊕ (X ⊕ Y) [⊕ next]
+     */
+    private static void compress(long[] x, int xOff, long[] y, int yOff, long[] next, int nextOff,
+                                 boolean withXor, long[][] work) {
+        long[] r = work[0];
+        long[] tmp = work[1];
+        for (int i = 0; i < BLOCK_WORDS; i++) {
+            r[i] = x[xOff + i] ^ y[yOff + i];
+            tmp[i] = withXor ? r[i] ^ next[nextOff + i] : r[i];
+        }
+        
+        // 按行（16 个字）
+        for (int i = 0; i < 8; i++) {
+            int b = 16 * i;
+            permute(r, b, b + 1, b + 2, b + 3, b + 4, b + 5, b + 6, b + 7,
+                b + 8, b + 9, b + 10, b + 11, b + 12, b + 13, b + 14, b + 15);
+        }
+        // 按列（每行取 2 个字）
+        for (int i = 0; i < 8; i++) {
+            int b = 2 * i;
+            permute(r, b, b + 1, b + 16, b + 17, b + 32, b + 33, b + 48, b + 49,
+                b + 64, b + 65, b + 80, b + 81, b + 96, b + 97, b + 112, b + 113);
+        }
+        
+        for (int i = 0; i < BLOCK_WORDS; i++) {
+            next[nextOff + i] = tmp[i] ^ r[i];
+        }
+    }
+    
+    private static void permute(long[] v, int v0, int v1, int v2, int v3, int v4, int v5, int v6, int v7,
+                                int v8, int v9, int v10, int v11, int v12, int v13, int v14, int v15) {
+        mix(v, v0, v4, v8, v12);
+        mix(v, v1, v5, v9, v13);
+        mix(v, v2, v6, v10, v14);
+        mix(v, v3, v7, v11, v15);
+        mix(v, v0, v5, v10, v15);
+        mix(v, v1, v6, v11, v12);
+        mix(v, v2, v7, v8, v13);
+        mix(v, v3, v4, v9, v14);
+    }
+    
+    /**
+     * BlaMka: BLAKE2b 的 G 函数，加法换成 a + b + 2·lo(a)·lo(b)
+     */
+    private static void mix(long[] v, int a, int b, int c, int d) {
+        v[a] = fBlaMka(v[a], v[b]);
+        v[d] = Long.rotateRight(v[d] ^ v[a], 32);
+        v[c] = fBlaMka(v[c], v[d]);
+        v[b] = Long.rotateRight(v[b] ^ v[c], 24);
+        v[a] = fBlaMka(v[a], v[b]);
+        v[d] = Long.rotateRight(v[d] ^ v[a], 16);
+        v[c] = fBlaMka(v[c], v[d]);
+        v[b] = Long.rotateRight(v[b] ^ v[c], 63);
+    }
+    
+    private static long fBlaMka(long x, long y) {
+        return x + y + 2 * (x & 0xFFFFFFFFL) * (y & 0xFFFFFFFFL);
+    }
+    
+    private byte[] finish(int outLength) {
+        // 各 lane 最后一块异或
+        long[] last = new long[BLOCK_WORDS];
+        for (int lane = 0; lane < lanes; lane++) {
+            int offset = (lane * laneLength + laneLength - 1) * BLOCK_WORDS;
+            for (int i = 0; i < BLOCK_WORDS; i++) {
+                last[i] ^= memory[offset + i];
+            }
+        }
+        byte[] block = new byte[BLOCK_SIZE];
+        for (int i = 0; i < BLOCK_WORDS; i++) {
+            putLong(block, i * 8, last[i]);
+        }
+        
+        byte[] out = new byte[outLength];
+        hashLong(block, out);
+        return out;
+    }
+    
+    /**
+     * 变长哈希 H'
+     */
+    private static void hashLong(byte[] input, byte[] out) {
+        byte[] lengthPrefix = new byte[4];
+        putInt(lengthPrefix, 0, out.length);
+        
+        if (out.length <= PREHASH_LENGTH) {
+            Blake2bDigest digest = new Blake2bDigest(out.length * 8);
+            digest.update(lengthPrefix, 0, 4);
+            digest.update(input, 0, input.length);
+            digest.doFinal(out, 0);
+            return;
+        }
+        
+        byte[] v = new byte[PREHASH_LENGTH];
+        Blake2bDigest digest = new Blake2bDigest(PREHASH_LENGTH * 8);
+        digest.update(lengthPrefix, 0, 4);
+        digest.update(input, 0, input.length);
+        digest.doFinal(v, 0);
+        
+        // 每次输出前 32 字节，最后一段输出剩余长度
+        int pos = 0;
+        int remaining = out.length;
+        while (remaining > PREHASH_LENGTH) {
+            System.arraycopy(v, 0, out, pos, PREHASH_LENGTH / 2);
+            pos += PREHASH_LENGTH / 2;
+            remaining -= PREHASH_LENGTH / 2;
+            
+            int next = remaining > PREHASH_LENGTH ? PREHASH_LENGTH : remaining;
+            Blake2bDigest d = new Blake2bDigest(next * 8);
+            d.update(v, 0, PREHASH_LENGTH);
+            v = new byte[next];
+            d.doFinal(v, 0);
+        }
+        System.arraycopy(v, 0, out, pos, remaining);
+    }
+    
+    private static void updateInt(Blake2bDigest digest, int value) {
+        byte[] bytes = new byte[4];
+        putInt(bytes, 0, value);
+        digest.update(bytes, 0, 4);
+    }
+    
+    private static void updateBytes(Blake2bDigest digest, byte[] value) {
+        updateInt(digest, value.length);
+        digest.update(value, 0, value.length);
+    }
+    
+    private static void putInt(byte[] buffer, int offset, int value) {
+        for (int i = 0; i < 4; i++) {
+            buffer[offset + i] = (byte) (value >>> (8 * i));
+        }
+    }
+    
+    private static void putLong(byte[] buffer, int offset, long value) {
+        for (int i = 0; i < 8; i++) {
+            buffer[offset + i] = (byte) (value >>> (8 * i));
+        }
+    }
+    
+    private static long getLong(byte[] buffer, int offset) {
+        long value = 0;
+        for (int i = 7; i >= 0; i--) {
+            value = (value << 8) | (buffer[offset + i] & 0xFF);
+        }
+        return value;
+    }
+}
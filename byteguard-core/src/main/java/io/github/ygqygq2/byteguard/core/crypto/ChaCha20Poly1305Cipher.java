@@ -0,0 +1,113 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.SecureRandom;
+
+/**
+ * ChaCha20-Poly1305 加密/解密实现（RFC 8439）
+ * 
+ * <p>纯软件实现的 AEAD，不依赖 AES-NI/CLMUL 等硬件指令，
+ * 在缺少硬件加速的主机（老旧 CPU、部分虚拟化环境）上比 AES-GCM 快数倍。
+ * 
+ * <p>密文格式: [Nonce(12 bytes)] + [Ciphertext] + [Auth Tag(16 bytes)]
+ * 
+ * @author ygqygq2
+ */
+public class ChaCha20Poly1305Cipher implements CipherSuite {
+    
+    /** 套件名称 */
+    public static final String NAME = "CHACHA20-POLY1305";
+    
+    private static final String ALGORITHM = "ChaCha20-Poly1305";
+    private static final int NONCE_LENGTH = 12;
+    private static final int TAG_LENGTH = 16;
+    private static final int KEY_SIZE = 256 / 8; // 32 bytes
+    
+    private final SecureRandom secureRandom;
+    private final NonceStrategy nonceStrategy;
+    
+    public ChaCha20Poly1305Cipher() {
+        this(NonceStrategy.RANDOM);
+    }
+    
+    public ChaCha20Poly1305Cipher(NonceStrategy nonceStrategy) {
+        this.secureRandom = new SecureRandom();
+        this.nonceStrategy = nonceStrategy;
+    }
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public NonceStrategy getNonceStrategy() {
+        return nonceStrategy;
+    }
+    
+    @Override
+    public byte[] encrypt(byte[] plaintext, byte[] key) throws CryptoException {
+        validateKey(key);
+        
+        try {
+            // 按策略生成 Nonce（随密文保存）
+            byte[] nonce = new byte[NONCE_LENGTH];
+            nonceStrategy.fill(nonce, key, plaintext);
+            
+            Cipher cipher = Cipher.getInstance(ALGORITHM);
+            SecretKey secretKey = new SecretKeySpec(key, "ChaCha20");
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new IvParameterSpec(nonce));
+            
+            // 直接输出到结果数组，避免额外拷贝
+            byte[] result = new byte[NONCE_LENGTH + cipher.getOutputSize(plaintext.length)];
+            System.arraycopy(nonce, 0, result, 0, NONCE_LENGTH);
+            cipher.doFinal(plaintext, 0, plaintext.length, result, NONCE_LENGTH);
+            
+            return result;
+        
+        } catch (Exception e) {
+            throw new CryptoException("Encryption failed", e);
+        }
+    }
+    
+    @Override
+    public byte[] decrypt(byte[] encrypted, byte[] key) throws CryptoException {
+        validateKey(key);
+        
+        if (encrypted.length < NONCE_LENGTH + TAG_LENGTH) {
+            throw new CryptoException("Invalid encrypted data: too short");
+        }
+        
+        try {
+            Cipher cipher = Cipher.getInstance(ALGORITHM);
+            SecretKey secretKey = new SecretKeySpec(key, "ChaCha20");
+            cipher.init(Cipher.DECRYPT_MODE, secretKey,
+                new IvParameterSpec(encrypted, 0, NONCE_LENGTH));
+            
+            // 解密（自动验证 Tag）
+            return cipher.doFinal(encrypted, NONCE_LENGTH, encrypted.length - NONCE_LENGTH);
+        
+        } catch (Exception e) {
+            throw new CryptoException("Decryption failed: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public byte[] generateKey() {
+        byte[] key = new byte[KEY_SIZE];
+        secureRandom.nextBytes(key);
+        return key;
+    }
+    
+    private void validateKey(byte[] key) throws CryptoException {
+        if (key == null || key.length != KEY_SIZE) {
+            throw new CryptoException(
+                "Invalid key size: expected " + KEY_SIZE + " bytes, got " +
+                (key == null ? "null" : key.length)
+            );
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+/**
+ * 认证加密套件 SPI
+ * 
+ * <p>所有实现都使用 256 位密钥，密文格式为 [Nonce] + [Ciphertext] + [Auth Tag]，
+ * 套件名称记录在加密元数据中，运行时据此选择对应实现。
+ * 
+ * <p>自定义实现通过 {@link java.util.ServiceLoader} 注册
+ * （{@code META-INF/services/io.github.ygqygq2.byteguard.core.crypto.CipherSuite}），
+ * 名称不能与内置套件重复。
+ * 
+ * @author ygqygq2
+ * @see CipherSuites
+ */
+public interface CipherSuite {
+    
+    /**
+     * 套件名称（写入元数据的 algorithm 字段）
+     * 
+     * @return 如 AES-256-GCM、CHACHA20-POLY1305
+     */
+    String getName();
+    
+    /**
+     * 加密时使用的 Nonce 生成策略
+     * 
+     * @return 策略（默认随机）
+     */
+    default NonceStrategy getNonceStrategy() {
+        return NonceStrategy.RANDOM;
+    }
+    
+    /**
+     * 加密字节数组
+     * 
+     * @param plaintext 明文
+     * @param key 32字节密钥
+     * @return 密文 (Nonce + Ciphertext + Tag)
+     * @throws CryptoException 加密失败
+     */
+    byte[] encrypt(byte[] plaintext, byte[] key) throws CryptoException;
+    
+    /**
+     * 解密字节数组
+     * 
+     * @param encrypted 密文 (Nonce + Ciphertext + Tag)
+     * @param key 32字节密钥
+     * @return 明文
+     * @throws CryptoException 解密失败（密钥错误、数据被篡改等）
+     */
+    byte[] decrypt(byte[] encrypted, byte[] key) throws CryptoException;
+    
+    /**
+     * 生成随机密钥
+     * 
+     * @return 32字节的随机密钥
+     */
+    byte[] generateKey();
+}
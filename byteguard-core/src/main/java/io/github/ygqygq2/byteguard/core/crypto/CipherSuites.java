@@ -0,0 +1,176 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.ServiceLoader;
+
+/**
+ * 加密套件注册表与微基准
+ * 
+ * <p>按名称查找 {@link CipherSuite} 实现，并可在当前主机上测量各套件的解密吞吐量，
+ * 推荐最快的套件。没有 AES-NI/CLMUL 的主机上通常会推荐 ChaCha20-Poly1305。
+ * 
+ * <p>内置 AES-256-GCM 与 CHACHA20-POLY1305，其他名称通过 {@link ServiceLoader} 查找
+ * （{@code META-INF/services/io.github.ygqygq2.byteguard.core.crypto.CipherSuite}），
+ * 实现类需要公开的无参构造器；运行时其 JAR 须在 Agent 可见的类路径上（如 {@code -cp}）。
+ * 
+ * @author ygqygq2
+ */
+public final class CipherSuites {
+    
+    /** 默认套件（兼容旧版元数据） */
+    public static final String DEFAULT = AESGCMCipher.NAME;
+    
+    /** 基准测试的明文大小，接近典型 class 文件大小 */
+    private static final int SAMPLE_SIZE = 8 * 1024;
+    
+    private CipherSuites() {
+    }
+    
+    /**
+     * 按名称创建套件（不区分大小写，元数据缺省时返回默认套件）
+     * 
+     * @param name 套件名称，如 AES-256-GCM、CHACHA20-POLY1305
+     * @return 套件实例
+     * @throws CryptoException 不支持的套件
+     */
+    public static CipherSuite forName(String name) throws CryptoException {
+        return forName(name, NonceStrategy.RANDOM);
+    }
+    
+    /**
+     * 按名称创建使用指定 Nonce 策略的套件（加密端；解密与策略无关）
+     * 
+     * <p>通过 SPI 注册的套件自行管理 Nonce，返回的实例按其 {@link CipherSuite#getNonceStrategy()} 记录策略。
+     * 
+     * @param name 套件名称
+     * @param nonceStrategy Nonce 生成策略
+     * @return 套件实例
+     * @throws CryptoException 不支持的套件
+     */
+    public static CipherSuite forName(String name, NonceStrategy nonceStrategy) throws CryptoException {
+        if (name == null || name.isEmpty()) {
+            return new AESGCMCipher(nonceStrategy);
+        }
+        
+        switch (name.toUpperCase(Locale.ROOT)) {
+            case AESGCMCipher.NAME:
+            case "AES-GCM":
+            case "AES":
+                return new AESGCMCipher(nonceStrategy);
+            case ChaCha20Poly1305Cipher.NAME:
+            case "CHACHA20":
+                return new ChaCha20Poly1305Cipher(nonceStrategy);
+            default:
+                for (CipherSuite suite : ServiceLoader.load(CipherSuite.class)) {
+                    if (suite.getName().equalsIgnoreCase(name)) {
+                        return suite;
+                    }
+                }
+                throw new CryptoException("Unsupported cipher suite: " + name);
+        }
+    }
+    
+    /**
+     * 所有可用的套件（内置套件在前，随后是 SPI 注册的套件；与内置同名的忽略）
+     * 
+     * @return 套件列表
+     */
+    public static List<CipherSuite> available() {
+        List<CipherSuite> suites = new ArrayList<>();
+        suites.add(new AESGCMCipher());
+        suites.add(new ChaCha20Poly1305Cipher());
+        for (CipherSuite suite : ServiceLoader.load(CipherSuite.class)) {
+            if (suites.stream().noneMatch(known -> known.getName().equalsIgnoreCase(suite.getName()))) {
+                suites.add(suite);
+            }
+        }
+        return suites;
+    }
+    
+    /**
+     * 在当前主机上测量所有套件
+     * 
+     * @param durationMillis 每个套件的测量时长（不含预热）
+     * @return 测量结果，与 {@link #available()} 顺序一致
+     * @throws CryptoException 加解密失败
+     */
+    public static List<BenchmarkResult> benchmark(long durationMillis) throws CryptoException {
+        List<BenchmarkResult> results = new ArrayList<>();
+        for (CipherSuite suite : available()) {
+            results.add(benchmark(suite, durationMillis));
+        }
+        return results;
+    }
+    
+    /**
+     * 测量单个套件的解密吞吐量（运行时路径只做解密）
+     * 
+     * @param suite 套件
+     * @param durationMillis 测量时长（不含预热）
+     * @return 测量结果
+     * @throws CryptoException 加解密失败
+     */
+    public static BenchmarkResult benchmark(CipherSuite suite, long durationMillis) throws CryptoException {
+        byte[] key = suite.generateKey();
+        byte[] sample = new byte[SAMPLE_SIZE];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = (byte) (i * 31);
+        }
+        byte[] encrypted = suite.encrypt(sample, key);
+        
+        // 预热，让 JIT 编译热点路径（含 intrinsic）
+        long warmupEnd = System.nanoTime() + durationMillis * 1_000_000L / 2;
+        while (System.nanoTime() < warmupEnd) {
+            suite.decrypt(encrypted, key);
+        }
+        
+        long ops = 0;
+        long start = System.nanoTime();
+        long end = start + durationMillis * 1_000_000L;
+        long now;
+        do {
+            suite.decrypt(encrypted, key);
+            ops++;
+            now = System.nanoTime();
+        } while (now < end);
+        
+        double seconds = (now - start) / 1_000_000_000.0;
+        double mbPerSecond = ops * (double) SAMPLE_SIZE / (1024 * 1024) / seconds;
+        return new BenchmarkResult(suite.getName(), mbPerSecond);
+    }
+    
+    /**
+     * 从测量结果中选出吞吐量最高的套件
+     * 
+     * @param results 测量结果
+     * @return 推荐的套件名称
+     */
+    public static String recommend(List<BenchmarkResult> results) {
+        BenchmarkResult best = null;
+        for (BenchmarkResult result : results) {
+            if (best == null || result.getMbPerSecond() > best.getMbPerSecond()) {
+                best = result;
+            }
+        }
+        return best != null ? best.getSuiteName() : DEFAULT;
+    }
+    
+    /**
+     * 单个套件的测量结果
+     */
+    public static class BenchmarkResult {
+        private final String suiteName;
+        private final double mbPerSecond;
+        
+        public BenchmarkResult(String suiteName, double mbPerSecond) {
+            this.suiteName = suiteName;
+            this.mbPerSecond = mbPerSecond;
+        }
+        
+        public String getSuiteName() { return suiteName; }
+        
+        public double getMbPerSecond() { return mbPerSecond; }
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 加密条目格式（元数据 2.3 起）：先压缩明文再加密，条目头标明是否压缩
+ * 
+ * <pre>
+ * [flags u8][原始长度 i32，仅 FLAG_DEFLATED 时][Nonce + Ciphertext + Tag]
+ * </pre>
+ * 
+ * <p>密文不可压缩，加密条目因此在 JAR 中以 STORED 方式存放：构建时不再白白尝试压缩密文，
+ * 运行时 JVM 也不必先解压再交给 Transformer。压缩不能缩小明文时（或级别为 0）按原样加密，不置标志。
+ * 条目头本身不受 AEAD 保护，篡改只会导致解压失败或类格式错误，不会泄露明文。
+ * 
+ * @author ygqygq2
+ */
+public final class EncryptedEntry {
+    
+    /** 明文经过 raw DEFLATE 压缩 */
+    public static final int FLAG_DEFLATED = 0x01;
+    
+    /** 不压缩 */
+    public static final int NO_COMPRESSION = 0;
+    
+    // Deflater/Inflater 持有本地内存，每个线程复用一个
+    private static final ThreadLocal<Deflater> DEFLATERS =
+        ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(() -> new Inflater(true));
+    
+    private EncryptedEntry() {
+    }
+    
+    /**
+     * 压缩（可选）并加密
+     * 
+     * @param plaintext 明文
+     * @param key 32 字节密钥
+     * @param cipher 加密套件
+     * @param level 压缩级别 0-9，0 表示不压缩
+     * @return 带条目头的加密条目
+     * @throws CryptoException 加密失败
+     */
+    public static byte[] seal(byte[] plaintext, byte[] key, CipherSuite cipher, int level) throws CryptoException {
+        byte[] compressed = level > NO_COMPRESSION ? deflate(plaintext, level) : null;
+        if (compressed == null) {
+            byte[] encrypted = cipher.encrypt(plaintext, key);
+            byte[] entry = new byte[1 + encrypted.length];
+            System.arraycopy(encrypted, 0, entry, 1, encrypted.length);
+            return entry;
+        }
+        
+        byte[] encrypted = cipher.encrypt(compressed, key);
+        return ByteBuffer.allocate(5 + encrypted.length)
+            .put((byte) FLAG_DEFLATED).putInt(plaintext.length).put(encrypted)
+            .array();
+    }
+    
+    /**
+     * 解密并解压
+     * 
+     * @param entry 带条目头的加密条目
+     * @param key 32 字节密钥
+     * @param cipher 加密套件
+     * @return 明文
+     * @throws CryptoException 解密失败或条目头无效
+     */
+    public static byte[] open(byte[] entry, byte[] key, CipherSuite cipher) throws CryptoException {
+        if (entry.length < 1 || (entry[0] & ~FLAG_DEFLATED) != 0) {
+            throw new CryptoException("Invalid encrypted entry header");
+        }
+        if (!isDeflated(entry)) {
+            return cipher.decrypt(Arrays.copyOfRange(entry, 1, entry.length), key);
+        }
+        
+        if (entry.length < 5) {
+            throw new CryptoException("Invalid encrypted entry header");
+        }
+        int length = ByteBuffer.wrap(entry, 1, 4).getInt();
+        byte[] compressed = cipher.decrypt(Arrays.copyOfRange(entry, 5, entry.length), key);
+        if (length < 0 || length > compressed.length * 1032L + 8) {
+            // DEFLATE 最大压缩比约 1032:1，超过说明长度被篡改
+            throw new CryptoException("Invalid encrypted entry length: " + length);
+        }
+        return inflate(compressed, length);
+    }
+    
+    /**
+     * 条目头是否标明明文经过压缩
+     */
+    public static boolean isDeflated(byte[] entry) {
+        return entry.length > 0 && (entry[0] & FLAG_DEFLATED) != 0;
+    }
+    
+    /**
+     * 压缩到不超过原长度的缓冲区，放不下（压缩无收益）时返回 null
+     */
+    private static byte[] deflate(byte[] data, int level) {
+        Deflater deflater = DEFLATERS.get();
+        try {
+            deflater.setLevel(level);
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] buffer = new byte[data.length];
+            int length = 0;
+            while (!deflater.finished() && length < buffer.length) {
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return deflater.finished() && length < data.length ? Arrays.copyOf(buffer, length) : null;
+        } finally {
+            deflater.reset();
+        }
+    }
+    
+    private static byte[] inflate(byte[] data, int length) throws CryptoException {
+        Inflater inflater = INFLATERS.get();
+        try {
+            inflater.setInput(data);
+            byte[] result = new byte[length];
+            int done = 0;
+            while (done < length) {
+                int n = inflater.inflate(result, done, length - done);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                done += n;
+            }
+            if (done == length && !inflater.finished() && inflater.inflate(new byte[1]) > 0) {
+                done++;
+            }
+            if (done != length || !inflater.finished()) {
+                throw new CryptoException("Corrupted encrypted entry: length mismatch");
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new CryptoException("Corrupted encrypted entry", e);
+        } finally {
+            inflater.reset();
+        }
+    }
+}
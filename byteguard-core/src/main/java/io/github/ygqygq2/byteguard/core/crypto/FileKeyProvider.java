@@ -0,0 +1,44 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 从文件读取密码（首行，去掉行尾换行）
+ * 
+ * <p>密码不出现在进程参数中，适合挂载的 Secret 文件。
+ * 
+ * @author ygqygq2
+ */
+public class FileKeyProvider implements KeyProvider {
+    
+    public static final String NAME = "file";
+    
+    private final Path file;
+    
+    public FileKeyProvider(Path file) {
+        this.file = file;
+    }
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public String getPassword() throws CryptoException {
+        try {
+            String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            int newline = content.indexOf('\n');
+            String password = (newline >= 0 ? content.substring(0, newline) : content).replace("\r", "");
+            if (password.isEmpty()) {
+                throw new CryptoException("Key file is empty: " + file);
+            }
+            return password;
+        } catch (IOException e) {
+            throw new CryptoException("Failed to read key file: " + file, e);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+import java.util.Locale;
+
+/**
+ * 口令派生函数（KDF）及其参数，随每个归档记录在元数据中
+ * 
+ * <p>加密时按目标机的启动时间预算选定（见 {@link KeyDerivation#calibrate}），
+ * Agent 读取元数据后按相同参数派生，不同归档可以使用不同强度。
+ * 
+ * <p>PBKDF2 只能单线程顺序计算；Argon2id 的 lane 可以分给多个核并行填充，
+ * 多核服务器上以更短的启动耗时获得同等或更高的抗暴力破解强度（内存困难）。
+ * 
+ * @author ygqygq2
+ */
+public final class KdfParams {
+    
+    public static final String PBKDF2_SHA256 = "PBKDF2-SHA256";
+    public static final String ARGON2ID = "Argon2id";
+    
+    /** 旧版元数据（未记录 kdf）使用的迭代次数 */
+    public static final int DEFAULT_ITERATIONS = 100_000;
+    
+    /** PBKDF2 迭代次数下限，低于此值视为配置错误 */
+    public static final int MIN_PBKDF2_ITERATIONS = 10_000;
+    
+    /** Argon2id 默认参数（RFC 9106 第二推荐：t=3、64 MiB、4 lane） */
+    public static final int DEFAULT_ARGON2_ITERATIONS = 3;
+    public static final int DEFAULT_ARGON2_MEMORY_KIB = 64 * 1024;
+    public static final int DEFAULT_ARGON2_PARALLELISM = 4;
+    
+    /** Argon2id 内存范围（KiB） */
+    public static final int MIN_ARGON2_MEMORY_KIB = 8 * 1024;
+    public static final int MAX_ARGON2_MEMORY_KIB = 4 * 1024 * 1024;
+    
+    /** Argon2id lane 数上限 */
+    public static final int MAX_ARGON2_PARALLELISM = 255;
+    
+    /** 旧版元数据的默认参数 */
+    public static final KdfParams DEFAULT = pbkdf2(DEFAULT_ITERATIONS);
+    
+    private final String algorithm;
+    private final int iterations;
+    private final int memoryKiB;
+    private final int parallelism;
+    
+    private KdfParams(String algorithm, int iterations, int memoryKiB, int parallelism) {
+        this.algorithm = algorithm;
+        this.iterations = iterations;
+        this.memoryKiB = memoryKiB;
+        this.parallelism = parallelism;
+    }
+    
+    /**
+     * PBKDF2-HMAC-SHA256
+     * 
+     * @param iterations 迭代次数
+     * @return 参数
+     */
+    public static KdfParams pbkdf2(int iterations) {
+        if (iterations < MIN_PBKDF2_ITERATIONS) {
+            throw new IllegalArgumentException("PBKDF2 iterations must be at least " + MIN_PBKDF2_ITERATIONS + ": " + iterations);
+        }
+        return new KdfParams(PBKDF2_SHA256, iterations, 0, 0);
+    }
+    
+    /**
+     * Argon2id（RFC 9106，版本 0x13）
+     * 
+     * @param iterations 轮数 t
+     * @param memoryKiB 内存（KiB）
+     * @param parallelism lane 数 p（派生时最多使用 p 个线程）
+     * @return 参数
+     */
+    public static KdfParams argon2id(int iterations, int memoryKiB, int parallelism) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Argon2 iterations must be at least 1: " + iterations);
+        }
+        if (parallelism < 1 || parallelism > MAX_ARGON2_PARALLELISM) {
+            throw new IllegalArgumentException("Argon2 lanes must be between 1 and " + MAX_ARGON2_PARALLELISM + ": " + parallelism);
+        }
+        if (memoryKiB < Math.max(MIN_ARGON2_MEMORY_KIB, 8 * parallelism) || memoryKiB > MAX_ARGON2_MEMORY_KIB) {
+            throw new IllegalArgumentException("Argon2 memory must be between " + MIN_ARGON2_MEMORY_KIB + " and "
+                + MAX_ARGON2_MEMORY_KIB + " KiB: " + memoryKiB);
+        }
+        return new KdfParams(ARGON2ID, iterations, memoryKiB, parallelism);
+    }
+    
+    /**
+     * 按名称和迭代次数创建（其余参数取默认值）
+     * 
+     * @param algorithm KDF 名称（不区分大小写）
+     * @param iterations 迭代次数
+     * @return 参数
+     * @throws CryptoException 不支持的 KDF 或参数不合法
+     */
+    public static KdfParams of(String algorithm, int iterations) throws CryptoException {
+        return of(algorithm, iterations, 0, 0);
+    }
+    
+    /**
+     * 按名称和参数创建（元数据解析、命令行参数）
+     * 
+     * @param algorithm KDF 名称（不区分大小写）
+     * @param iterations 迭代次数（0 表示默认值）
+     * @param memoryKiB 内存 KiB，仅 Argon2id（0 表示默认值）
+     * @param parallelism lane 数，仅 Argon2id（0 表示默认值）
+     * @return 参数
+     * @throws CryptoException 不支持的 KDF 或参数不合法
+     */
+    public static KdfParams of(String algorithm, int iterations, int memoryKiB, int parallelism) throws CryptoException {
+        try {
+            switch (normalize(algorithm)) {
+                case PBKDF2_SHA256:
+                    return pbkdf2(iterations > 0 ? iterations : DEFAULT_ITERATIONS);
+                case ARGON2ID:
+                    return argon2id(
+                        iterations > 0 ? iterations : DEFAULT_ARGON2_ITERATIONS,
+                        memoryKiB > 0 ? memoryKiB : DEFAULT_ARGON2_MEMORY_KIB,
+                        parallelism > 0 ? parallelism : DEFAULT_ARGON2_PARALLELISM);
+                default:
+                    throw new CryptoException("Unsupported KDF: " + algorithm);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new CryptoException(e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 名称规范化（pbkdf2 / PBKDF2-SHA256 / argon2id 等写法）
+     */
+    static String normalize(String algorithm) {
+        if (algorithm == null || algorithm.isEmpty()) {
+            return PBKDF2_SHA256;
+        }
+        switch (algorithm.toUpperCase(Locale.ROOT)) {
+            case "PBKDF2":
+            case PBKDF2_SHA256:
+            case "PBKDF2WITHHMACSHA256":
+                return PBKDF2_SHA256;
+            case "ARGON2":
+            case "ARGON2ID":
+                return ARGON2ID;
+            default:
+                return algorithm;
+        }
+    }
+    
+    public String getAlgorithm() {
+        return algorithm;
+    }
+    
+    public int getIterations() {
+        return iterations;
+    }
+    
+    /**
+     * Argon2id 内存（KiB），PBKDF2 为 0
+     */
+    public int getMemoryKiB() {
+        return memoryKiB;
+    }
+    
+    /**
+     * Argon2id lane 数，PBKDF2 为 0
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof KdfParams)) {
+            return false;
+        }
+        KdfParams other = (KdfParams) o;
+        return algorithm.equals(other.algorithm) && iterations == other.iterations
+            && memoryKiB == other.memoryKiB && parallelism == other.parallelism;
+    }
+    
+    @Override
+    public int hashCode() {
+        return ((algorithm.hashCode() * 31 + iterations) * 31 + memoryKiB) * 31 + parallelism;
+    }
+    
+    @Override
+    public String toString() {
+        if (ARGON2ID.equals(algorithm)) {
+            String memory = memoryKiB % 1024 == 0 ? memoryKiB / 1024 + " MiB" : memoryKiB + " KiB";
+            return algorithm + " (t=" + iterations + ", m=" + memory + ", p=" + parallelism + ")";
+        }
+        return algorithm + " (" + iterations + " iterations)";
+    }
+}
@@ -8,9 +8,9 @@ import java.security.spec.InvalidKeySpecException;
 import java.util.Arrays;
 
 /**
- * 密钥派生函数 - PBKDF2 + HKDF
+ * 密钥派生函数 - PBKDF2 / Argon2id + HKDF
  * 
- * <p>PBKDF2: 从用户密码派生主密钥（抗暴力破解）
+ * <p>PBKDF2 / Argon2id: 从用户密码派生主密钥（抗暴力破解），Argon2id 的 lane 按可用核数并行计算
  * <p>HKDF: 从主密钥派生每个类的独立密钥（隔离性）
  * 
  * @author ygqygq2
@@ -18,11 +18,13 @@ import java.util.Arrays;
 public class KeyDerivation {
     
     private static final String PBKDF2_ALGORITHM = "PBKDF2WithHmacSHA256";
-    private static final int PBKDF2_ITERATIONS = 100_000; // 10万次迭代
     private static final int KEY_LENGTH = 256; // bits
     
+    /** 校准时单次探测的最短耗时，太短则计时误差大 */
+    private static final long CALIBRATION_PROBE_NANOS = 50_000_000L;
+    
     /**
-     * 从密码派生主密钥（使用 PBKDF2）
+     * 从密码派生主密钥（使用默认参数 PBKDF2 10 万次迭代）
      * 
      * @param password 用户密码
      * @param salt 盐值（至少32字节）
@@ -30,6 +32,19 @@ public class KeyDerivation {
      * @throws CryptoException 密钥派生失败
      */
     public byte[] deriveMasterKey(String password, byte[] salt) throws CryptoException {
+        return deriveMasterKey(password, salt, KdfParams.DEFAULT);
+    }
+    
+    /**
+     * 从密码派生主密钥（按元数据记录的 KDF 参数）
+     * 
+     * @param password 用户密码
+     * @param salt 盐值（至少32字节）
+     * @param params KDF 参数
+     * @return 32字节的主密钥
+     * @throws CryptoException 密钥派生失败
+     */
+    public byte[] deriveMasterKey(String password, byte[] salt, KdfParams params) throws CryptoException {
         if (password == null || password.isEmpty()) {
             throw new CryptoException("Password cannot be null or empty");
         }
@@ -37,11 +52,24 @@ public class KeyDerivation {
             throw new CryptoException("Salt must be at least 16 bytes");
         }
         
+        if (KdfParams.ARGON2ID.equals(params.getAlgorithm())) {
+            int threads = Math.min(params.getParallelism(), Runtime.getRuntime().availableProcessors());
+            try {
+                return Argon2id.derive(password.getBytes(StandardCharsets.UTF_8), salt, params.getIterations(),
+                    params.getMemoryKiB(), params.getParallelism(), threads, KEY_LENGTH / 8);
+            } catch (RuntimeException | OutOfMemoryError e) {
+                throw new CryptoException("Failed to derive master key with " + params, e);
+            }
+        }
+        if (!KdfParams.PBKDF2_SHA256.equals(params.getAlgorithm())) {
+            throw new CryptoException("Unsupported KDF: " + params.getAlgorithm());
+        }
+        
         try {
             PBEKeySpec spec = new PBEKeySpec(
                 password.toCharArray(),
                 salt,
-                PBKDF2_ITERATIONS,
+                params.getIterations(),
                 KEY_LENGTH
             );
             
@@ -94,6 +122,92 @@ public class KeyDerivation {
         }
     }
     
+    /**
+     * 在当前主机上选出满足时间预算的 KDF 参数
+     * 
+     * <p>应在目标机（运行 Agent 的机器）上执行：预算对应 Agent 启动时解开一个密钥槽的耗时。
+     * 先预热，再加倍探测直到单次耗时足以测准，按线性关系换算出预算内的参数：
+     * PBKDF2 调整迭代次数；Argon2id 的 lane 数取本机核数，轮数固定为 3，调整内存，
+     * 内存达到上限（本 JVM 最大堆的 1/4）后再增加轮数。
+     * 
+     * @param algorithm KDF 名称
+     * @param budgetMillis 单次派生的时间预算
+     * @return 参数（不低于安全下限，下限超出预算时仍返回下限）
+     * @throws CryptoException 不支持的 KDF
+     */
+    public static KdfParams calibrate(String algorithm, long budgetMillis) throws CryptoException {
+        switch (KdfParams.normalize(algorithm)) {
+            case KdfParams.PBKDF2_SHA256:
+                return calibratePbkdf2(budgetMillis);
+            case KdfParams.ARGON2ID:
+                return calibrateArgon2id(budgetMillis);
+            default:
+                throw new CryptoException("Unsupported KDF: " + algorithm);
+        }
+    }
+    
+    private static KdfParams calibratePbkdf2(long budgetMillis) throws CryptoException {
+        KeyDerivation kd = new KeyDerivation();
+        byte[] salt = kd.generateSalt();
+        
+        // 预热
+        KdfParams probe = KdfParams.pbkdf2(KdfParams.MIN_PBKDF2_ITERATIONS);
+        kd.deriveMasterKey("calibrate", salt, probe);
+        
+        long elapsed;
+        while (true) {
+            elapsed = time(kd, salt, probe);
+            if (elapsed >= CALIBRATION_PROBE_NANOS || probe.getIterations() > Integer.MAX_VALUE / 2) {
+                break;
+            }
+            probe = KdfParams.pbkdf2(probe.getIterations() * 2);
+        }
+        
+        double iterationsPerMilli = probe.getIterations() / (elapsed / 1_000_000.0);
+        long iterations = (long) (iterationsPerMilli * budgetMillis) / 1000 * 1000;
+        return KdfParams.pbkdf2((int) Math.max(KdfParams.MIN_PBKDF2_ITERATIONS, Math.min(Integer.MAX_VALUE, iterations)));
+    }
+    
+    private static KdfParams calibrateArgon2id(long budgetMillis) throws CryptoException {
+        KeyDerivation kd = new KeyDerivation();
+        byte[] salt = kd.generateSalt();
+        int lanes = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), KdfParams.MAX_ARGON2_PARALLELISM));
+        int iterations = KdfParams.DEFAULT_ARGON2_ITERATIONS;
+        long memoryCap = Math.max(KdfParams.MIN_ARGON2_MEMORY_KIB,
+            Math.min(KdfParams.MAX_ARGON2_MEMORY_KIB, Runtime.getRuntime().maxMemory() / 4 / 1024));
+        
+        // 预热（块压缩函数需要多次调用才会被 JIT 编译）
+        KdfParams probe = KdfParams.argon2id(iterations, KdfParams.MIN_ARGON2_MEMORY_KIB, lanes);
+        for (int i = 0; i < 3; i++) {
+            kd.deriveMasterKey("calibrate", salt, probe);
+        }
+        
+        long elapsed;
+        while (true) {
+            elapsed = time(kd, salt, probe);
+            if (elapsed >= CALIBRATION_PROBE_NANOS || probe.getMemoryKiB() * 2L > memoryCap) {
+                break;
+            }
+            probe = KdfParams.argon2id(iterations, probe.getMemoryKiB() * 2, lanes);
+        }
+        
+        // 耗时与 内存 × 轮数 成正比
+        double memoryPerMilli = probe.getMemoryKiB() / (elapsed / 1_000_000.0);
+        long memory = (long) (memoryPerMilli * budgetMillis);
+        if (memory > memoryCap) {
+            iterations = (int) Math.min(Integer.MAX_VALUE, Math.max(iterations, iterations * memory / memoryCap));
+            memory = memoryCap;
+        }
+        memory = Math.max(KdfParams.MIN_ARGON2_MEMORY_KIB, memory / 1024 * 1024);
+        return KdfParams.argon2id(iterations, (int) memory, lanes);
+    }
+    
+    private static long time(KeyDerivation kd, byte[] salt, KdfParams params) throws CryptoException {
+        long start = System.nanoTime();
+        kd.deriveMasterKey("calibrate", salt, params);
+        return System.nanoTime() - start;
+    }
+    
     /**
      * 生成随机盐值
      * 
@@ -0,0 +1,196 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadata;
+
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 信封加密：随机数据密钥 + 密码派生的密钥加密密钥（KEK）
+ * 
+ * <p>类字节码由每个归档独立的随机数据密钥加密（再经 HKDF 派生类密钥），
+ * 数据密钥用 PBKDF2(密码, 槽位盐值) 包装后存入元数据的密钥槽。
+ * 更换密码只需重新包装 32 字节的数据密钥，不必重新加密任何类。
+ * 
+ * @author ygqygq2
+ */
+public final class KeyEnvelope {
+    
+    private static final int DATA_KEY_SIZE = 32;
+    
+    private KeyEnvelope() {
+    }
+    
+    /**
+     * 生成随机数据密钥
+     * 
+     * @return 32 字节数据密钥
+     */
+    public static byte[] generateDataKey() {
+        byte[] key = new byte[DATA_KEY_SIZE];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+    
+    /**
+     * 用密码包装数据密钥
+     * 
+     * @param dataKey 数据密钥
+     * @param password 密码
+     * @param cipher 包装使用的加密套件
+     * @param kdf 派生 KEK 的 KDF 参数（须与元数据记录的一致）
+     * @return 密钥槽
+     * @throws CryptoException 派生或加密失败
+     */
+    public static EncryptionMetadata.KeySlot seal(byte[] dataKey, String password, CipherSuite cipher, KdfParams kdf)
+            throws CryptoException {
+        return new Sealer(password, cipher, kdf).seal(dataKey);
+    }
+    
+    /**
+     * 包装器：只派生一次 KEK，包装多个数据密钥
+     * 
+     * <p>批量加密时各归档的密钥槽共用盐值和 KEK，数据密钥仍各自随机，
+     * 一次会话只付出一次 KDF 的代价。线程安全。
+     */
+    public static final class Sealer {
+        private final byte[] salt;
+        private final byte[] kek;
+        private final CipherSuite cipher;
+        
+        /**
+         * @param password 密码
+         * @param cipher 包装使用的加密套件
+         * @param kdf 派生 KEK 的 KDF 参数（须与元数据记录的一致）
+         * @throws CryptoException 派生失败
+         */
+        public Sealer(String password, CipherSuite cipher, KdfParams kdf) throws CryptoException {
+            KeyDerivation kd = new KeyDerivation();
+            this.salt = kd.generateSalt();
+            this.kek = kd.deriveMasterKey(password, salt, kdf);
+            this.cipher = cipher;
+        }
+        
+        /**
+         * 包装数据密钥
+         * 
+         * @param dataKey 数据密钥
+         * @return 密钥槽
+         * @throws CryptoException 加密失败
+         */
+        public EncryptionMetadata.KeySlot seal(byte[] dataKey) throws CryptoException {
+            return new EncryptionMetadata.KeySlot(salt.clone(), cipher.encrypt(dataKey, kek));
+        }
+    }
+    
+    /**
+     * 用密码取出主密钥（兼容 1.0 格式：直接由密码和 salt 派生）
+     * 
+     * @param metadata 加密元数据
+     * @param password 密码
+     * @return 32 字节主密钥
+     * @throws CryptoException 密码不匹配任何密钥槽
+     */
+    public static byte[] open(EncryptionMetadata metadata, String password) throws CryptoException {
+        return new Keyring(password).open(metadata);
+    }
+    
+    /**
+     * 密钥环：绑定一个密码，缓存由它派生的 KEK
+     * 
+     * <p>同一盐值和 KDF 参数只派生一次：包装新归档的数据密钥（每种套件和 KDF 参数一个 {@link Sealer}），
+     * 以及解开共用盐值的归档（如同一会话中加密的其他模块）都不再重复 KDF。
+     * 供一次构建会话（如整个 Maven reactor）的多个线程共用，线程安全。
+     */
+    public static final class Keyring {
+        private final String password;
+        private final ConcurrentHashMap<String, byte[]> keks = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, Sealer> sealers = new ConcurrentHashMap<>();
+        
+        public Keyring(String password) {
+            this.password = password;
+        }
+        
+        /**
+         * 包装新归档数据密钥的包装器（同一套件和 KDF 参数只派生一次）
+         * 
+         * @param cipher 包装使用的加密套件
+         * @param kdf KDF 参数
+         * @return 包装器
+         * @throws CryptoException 派生失败
+         */
+        public Sealer sealer(CipherSuite cipher, KdfParams kdf) throws CryptoException {
+            return derive(sealers, cipher.getName() + "|" + kdf, () -> {
+                Sealer sealer = new Sealer(password, cipher, kdf);
+                keks.putIfAbsent(cacheKey(sealer.salt, kdf), sealer.kek);
+                return sealer;
+            });
+        }
+        
+        /**
+         * 取出主密钥（兼容 1.0 格式）
+         * 
+         * @param metadata 加密元数据
+         * @return 32 字节主密钥
+         * @throws CryptoException 密码不匹配任何密钥槽
+         */
+        public byte[] open(EncryptionMetadata metadata) throws CryptoException {
+            if (metadata.getKeySlots().isEmpty()) {
+                return kek(metadata.getSalt(), metadata.getKdf()).clone();
+            }
+            
+            CipherSuite cipher = CipherSuites.forName(metadata.getAlgorithm());
+            for (EncryptionMetadata.KeySlot slot : metadata.getKeySlots()) {
+                byte[] kek = kek(slot.getSalt(), metadata.getKdf());
+                try {
+                    // AEAD 校验失败即密码不属于该槽
+                    return cipher.decrypt(slot.getWrappedKey(), kek);
+                } catch (CryptoException e) {
+                    // 尝试下一个槽
+                }
+            }
+            throw new CryptoException("Wrong password: no key slot could be unlocked");
+        }
+        
+        private byte[] kek(byte[] salt, KdfParams kdf) throws CryptoException {
+            return derive(keks, cacheKey(salt, kdf), () -> new KeyDerivation().deriveMasterKey(password, salt, kdf));
+        }
+        
+        private static String cacheKey(byte[] salt, KdfParams kdf) {
+            return HexFormat.of().formatHex(salt) + "|" + kdf;
+        }
+        
+        /**
+         * 缓存中没有时派生（同一个键并发请求时只派生一次，其他线程等待结果）
+         */
+        private static <T> T derive(ConcurrentHashMap<String, T> cache, String key, Derivation<T> derivation)
+                throws CryptoException {
+            try {
+                return cache.computeIfAbsent(key, k -> {
+                    try {
+                        return derivation.derive();
+                    } catch (CryptoException e) {
+                        throw new DerivationFailure(e);
+                    }
+                });
+            } catch (DerivationFailure e) {
+                throw e.cause;
+            }
+        }
+        
+        @FunctionalInterface
+        private interface Derivation<T> {
+            T derive() throws CryptoException;
+        }
+        
+        private static final class DerivationFailure extends RuntimeException {
+            final CryptoException cause;
+            
+            DerivationFailure(CryptoException cause) {
+                super(cause);
+                this.cause = cause;
+            }
+        }
+    }
+}
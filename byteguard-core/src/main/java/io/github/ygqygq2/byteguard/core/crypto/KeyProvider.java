@@ -0,0 +1,40 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+/**
+ * 密钥来源 SPI：提供解开元数据密钥槽的口令
+ * 
+ * <p>内置实现：
+ * <ul>
+ *   <li>{@link PasswordKeyProvider}：命令行/环境变量中的明文密码</li>
+ *   <li>{@link FileKeyProvider}：从文件读取（如挂载的 Kubernetes Secret）</li>
+ *   <li>{@link io.github.ygqygq2.byteguard.core.crypto.keyserver.KeyServerKeyProvider}：从密钥服务器获取</li>
+ * </ul>
+ * 
+ * <p>自定义实现通过 {@link java.util.ServiceLoader} 注册
+ * （{@code META-INF/services/io.github.ygqygq2.byteguard.core.crypto.KeyProvider}），
+ * 按 {@link #getName()} 选用，参见 {@link KeyProviders}。
+ * 
+ * @author ygqygq2
+ */
+public interface KeyProvider {
+    
+    /**
+     * 名称（日志输出和 SPI 查找）
+     */
+    String getName();
+    
+    /**
+     * 提前开始获取。远程来源应在后台进行并立即返回，
+     * 使网络往返与 License 验证等启动步骤重叠。默认无操作。
+     */
+    default void prefetch() {
+    }
+    
+    /**
+     * 获取口令（已预取时直接返回结果，否则等待获取完成）
+     * 
+     * @return 口令
+     * @throws CryptoException 获取失败或超时
+     */
+    String getPassword() throws CryptoException;
+}
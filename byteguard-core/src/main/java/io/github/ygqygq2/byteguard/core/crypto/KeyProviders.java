@@ -0,0 +1,84 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+import io.github.ygqygq2.byteguard.core.crypto.keyserver.KeyServerKeyProvider;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * 按配置选择 {@link KeyProvider}
+ * 
+ * <p>配置项（Agent 参数同名）：
+ * <ul>
+ *   <li>{@code keyProvider}：显式指定名称，内置 password / file / key-server，其他名称从 SPI 查找</li>
+ *   <li>{@code password}：明文密码</li>
+ *   <li>{@code keyFile}：密码文件</li>
+ *   <li>{@code keyServer}、{@code keyId}、{@code keyServerToken}：密钥服务器</li>
+ * </ul>
+ * 未指定 keyProvider 时按 keyServer、keyFile、password 的顺序选用第一个配置了的来源。
+ * 
+ * @author ygqygq2
+ */
+public final class KeyProviders {
+    
+    /** 未指定 keyId 时使用的密钥 ID */
+    public static final String DEFAULT_KEY_ID = "default";
+    
+    private KeyProviders() {
+    }
+    
+    /**
+     * 创建密钥来源
+     * 
+     * @param options 配置项
+     * @return 密钥来源
+     * @throws IllegalArgumentException 没有配置任何来源，或找不到指定名称的实现
+     */
+    public static KeyProvider fromOptions(Map<String, String> options) {
+        String name = options.get("keyProvider");
+        if (name == null || name.isEmpty()) {
+            if (isSet(options, "keyServer")) {
+                name = KeyServerKeyProvider.NAME;
+            } else if (isSet(options, "keyFile")) {
+                name = FileKeyProvider.NAME;
+            } else if (isSet(options, "password")) {
+                name = PasswordKeyProvider.NAME;
+            } else {
+                throw new IllegalArgumentException("Missing key source: password=, keyFile= or keyServer= is required");
+            }
+        }
+        
+        switch (name) {
+            case PasswordKeyProvider.NAME:
+                return new PasswordKeyProvider(options.get("password"));
+            case FileKeyProvider.NAME:
+                return new FileKeyProvider(Path.of(require(options, "keyFile")));
+            case KeyServerKeyProvider.NAME:
+                return new KeyServerKeyProvider(
+                    require(options, "keyServer"),
+                    options.getOrDefault("keyId", DEFAULT_KEY_ID),
+                    options.get("keyServerToken")
+                );
+            default:
+                for (KeyProvider provider : ServiceLoader.load(KeyProvider.class)) {
+                    if (provider.getName().equals(name)) {
+                        return provider;
+                    }
+                }
+                throw new IllegalArgumentException("Unknown key provider: " + name);
+        }
+    }
+    
+    private static boolean isSet(Map<String, String> options, String key) {
+        String value = options.get(key);
+        return value != null && !value.isEmpty();
+    }
+    
+    private static String require(Map<String, String> options, String key) {
+        if (!isSet(options, key)) {
+            throw new IllegalArgumentException("Missing key provider option: " + key);
+        }
+        return options.get(key);
+    }
+}
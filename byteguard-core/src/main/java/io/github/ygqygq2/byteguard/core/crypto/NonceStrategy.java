@@ -0,0 +1,141 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Locale;
+
+/**
+ * AEAD Nonce 生成策略
+ * 
+ * <p>Nonce 写在每段密文开头，解密不需要知道生成策略；策略名称记录在元数据的 nonce 字段中。
+ * <ul>
+ *   <li>{@link #RANDOM}：每次从共享的 {@link SecureRandom} 取 12 字节（旧版行为），
+ *       并行加密时所有线程在同一个实例上同步</li>
+ *   <li>{@link #COUNTER}：每个线程一个 8 字节随机前缀 + 4 字节计数器，只在线程首次使用
+ *       （和计数器用尽）时取一次随机数，线程之间没有共享状态</li>
+ *   <li>{@link #SYNTHETIC}：HMAC-SHA256(密钥, 明文) 的前 12 字节（合成 IV）。同一密钥下只有明文相同
+ *       Nonce 才相同，即使增量加密复用数据密钥也不会出现 Nonce 重用；相同输入得到相同密文</li>
+ * </ul>
+ * 
+ * @author ygqygq2
+ */
+public enum NonceStrategy {
+    
+    RANDOM("random") {
+        @Override
+        void fill(byte[] nonce, byte[] key, byte[] plaintext) {
+            SHARED_RANDOM.nextBytes(nonce);
+        }
+    },
+    
+    COUNTER("counter") {
+        @Override
+        void fill(byte[] nonce, byte[] key, byte[] plaintext) {
+            COUNTERS.get().next(nonce);
+        }
+    },
+    
+    SYNTHETIC("synthetic") {
+        @Override
+        void fill(byte[] nonce, byte[] key, byte[] plaintext) throws CryptoException {
+            try {
+                Mac mac = MACS.get();
+                mac.init(new SecretKeySpec(key, "HmacSHA256"));
+                mac.update(SYNTHETIC_DOMAIN);
+                byte[] tag = mac.doFinal(plaintext);
+                System.arraycopy(tag, 0, nonce, 0, nonce.length);
+            } catch (GeneralSecurityException e) {
+                throw new CryptoException("Failed to derive nonce", e);
+            }
+        }
+    };
+    
+    private static final SecureRandom SHARED_RANDOM = new SecureRandom();
+    
+    private static final ThreadLocal<Counter> COUNTERS = ThreadLocal.withInitial(Counter::new);
+    
+    private static final ThreadLocal<Mac> MACS = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("HmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    });
+    
+    /** 与 HKDF 派生类密钥（info 以 0x01 结尾）区分用途 */
+    private static final byte[] SYNTHETIC_DOMAIN = { 'n', 'o', 'n', 'c', 'e', 0x02 };
+    
+    private final String name;
+    
+    NonceStrategy(String name) {
+        this.name = name;
+    }
+    
+    /**
+     * 策略名称（写入元数据）
+     */
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * 生成 Nonce
+     * 
+     * @param nonce 输出（长度即 Nonce 长度，不超过 32 字节）
+     * @param key 本次加密的密钥
+     * @param plaintext 本次加密的明文
+     */
+    abstract void fill(byte[] nonce, byte[] key, byte[] plaintext) throws CryptoException;
+    
+    /**
+     * 按名称查找（不区分大小写，缺省为 RANDOM）
+     * 
+     * @param name 策略名称
+     * @return 策略
+     * @throws CryptoException 未知策略
+     */
+    public static NonceStrategy forName(String name) throws CryptoException {
+        if (name == null || name.isEmpty()) {
+            return RANDOM;
+        }
+        for (NonceStrategy strategy : values()) {
+            if (strategy.name.equals(name.toLowerCase(Locale.ROOT))) {
+                return strategy;
+            }
+        }
+        throw new CryptoException("Unsupported nonce strategy: " + name);
+    }
+    
+    /**
+     * 线程私有的前缀 + 计数器
+     */
+    private static final class Counter {
+        private final byte[] prefix = new byte[8];
+        private int count;
+        
+        Counter() {
+            refresh();
+        }
+        
+        private void refresh() {
+            SHARED_RANDOM.nextBytes(prefix);
+            count = 0;
+        }
+        
+        void next(byte[] nonce) {
+            if (count == -1) {
+                // 2^32 次后换新前缀，保证同一前缀下计数器不回绕
+                refresh();
+            }
+            int value = count++;
+            int prefixLength = nonce.length - 4;
+            System.arraycopy(prefix, 0, nonce, 0, prefixLength);
+            nonce[prefixLength] = (byte) (value >>> 24);
+            nonce[prefixLength + 1] = (byte) (value >>> 16);
+            nonce[prefixLength + 2] = (byte) (value >>> 8);
+            nonce[prefixLength + 3] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+/**
+ * 明文密码
+ * 
+ * @author ygqygq2
+ */
+public class PasswordKeyProvider implements KeyProvider {
+    
+    public static final String NAME = "password";
+    
+    private final String password;
+    
+    public PasswordKeyProvider(String password) {
+        if (password == null || password.isEmpty()) {
+            throw new IllegalArgumentException("Password is required");
+        }
+        this.password = password;
+    }
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public String getPassword() {
+        return password;
+    }
+}
@@ -0,0 +1,174 @@
+package io.github.ygqygq2.byteguard.core.crypto.keyserver;
+
+import io.github.ygqygq2.byteguard.core.net.SocketAddresses;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地密钥服务器（KMS/Vault 等密钥服务的替身）
+ * 
+ * <p>按 keyId 返回口令和缓存有效期，可选共享令牌鉴权。用于离线测试和小规模部署：
+ * <ul>
+ *   <li>可嵌入：{@code new KeyServer().put("app", secret).start("127.0.0.1:0")}</li>
+ *   <li>独立运行：{@code java -jar byteguard.jar key-server --key app=secret}</li>
+ * </ul>
+ * 
+ * <p>协议不加密，只监听 Unix Domain Socket 或回环地址。生产环境应使用专门的密钥服务，通过自定义 {@link io.github.ygqygq2.byteguard.core.crypto.KeyProvider} 接入。
+ * 
+ * @author ygqygq2
+ */
+public class KeyServer implements Closeable {
+    
+    /** 默认客户端缓存有效期 */
+    public static final long DEFAULT_TTL_MILLIS = 10 * 60 * 1000;
+    
+    private final long ttlMillis;
+    private final Map<String, String> keys = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    
+    private byte[] token;
+    private ServerSocketChannel serverChannel;
+    private SocketAddress localAddress;
+    private volatile boolean running;
+    
+    public KeyServer() {
+        this(DEFAULT_TTL_MILLIS);
+    }
+    
+    public KeyServer(long ttlMillis) {
+        if (ttlMillis <= 0 || ttlMillis > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid key TTL: " + ttlMillis);
+        }
+        this.ttlMillis = ttlMillis;
+    }
+    
+    /**
+     * 登记密钥
+     * 
+     * @param keyId 密钥 ID
+     * @param secret 口令
+     * @return this
+     */
+    public KeyServer put(String keyId, String secret) {
+        keys.put(keyId, secret);
+        return this;
+    }
+    
+    /**
+     * 要求客户端携带令牌（未设置时不鉴权）
+     * 
+     * @param token 共享令牌
+     * @return this
+     */
+    public KeyServer token(String token) {
+        this.token = token != null && !token.isEmpty() ? token.getBytes(StandardCharsets.UTF_8) : null;
+        return this;
+    }
+    
+    /**
+     * 开始监听
+     * 
+     * @param address 回环地址 {@code 127.0.0.1:port}（端口为 0 时自动分配）或 {@code unix:/path}
+     * @return this
+     * @throws IOException 绑定失败
+     * @throws IllegalArgumentException 地址不在本机
+     */
+    public KeyServer start(String address) throws IOException {
+        SocketAddress bindAddress = SocketAddresses.parse(address);
+        if (!SocketAddresses.isLocal(bindAddress)) {
+            throw new IllegalArgumentException("Key server protocol is not encrypted, only unix:/path or "
+                + "loopback addresses are allowed: " + address);
+        }
+        serverChannel = SocketAddresses.bind(bindAddress, 128);
+        localAddress = serverChannel.getLocalAddress();
+        running = true;
+        
+        Thread acceptor = new Thread(this::acceptLoop, "byteguard-key-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return this;
+    }
+    
+    /**
+     * 实际监听地址（可直接传给 {@link KeyServerKeyProvider}）
+     */
+    public String getAddress() {
+        return SocketAddresses.format(localAddress);
+    }
+    
+    /**
+     * 已处理的请求数
+     */
+    public long requestCount() {
+        return requests.get();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (serverChannel != null) {
+            serverChannel.close();
+            SocketAddresses.deleteSocketFile(localAddress);
+        }
+    }
+    
+    private void acceptLoop() {
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                Thread.ofVirtual().name("byteguard-key-conn").start(() -> serve(channel));
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("[ByteGuard] Key server accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            
+            if (in.readInt() != KeyServerProtocol.MAGIC || in.readByte() != KeyServerProtocol.OP_FETCH) {
+                return;
+            }
+            String keyId = in.readUTF();
+            byte[] presented = in.readUTF().getBytes(StandardCharsets.UTF_8);
+            requests.incrementAndGet();
+            
+            String secret = keys.get(keyId);
+            if (token != null && !MessageDigest.isEqual(token, presented)) {
+                out.writeByte(KeyServerProtocol.STATUS_DENIED);
+            } else if (secret == null) {
+                out.writeByte(KeyServerProtocol.STATUS_NOT_FOUND);
+            } else {
+                out.writeByte(KeyServerProtocol.STATUS_OK);
+                out.writeUTF(secret);
+                out.writeInt((int) ttlMillis);
+            }
+            out.flush();
+        } catch (EOFException e) {
+            // 客户端断开
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("[ByteGuard] Key server connection error: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package io.github.ygqygq2.byteguard.core.crypto.keyserver;
+
+import io.github.ygqygq2.byteguard.core.crypto.CryptoException;
+import io.github.ygqygq2.byteguard.core.crypto.KeyProvider;
+import io.github.ygqygq2.byteguard.core.net.SocketAddresses;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 从密钥服务器获取口令
+ * 
+ * <p>启动不会被网络往返拖住：
+ * <ul>
+ *   <li>{@link #prefetch()} 在后台线程发起请求并立即返回，Agent 在 premain 一开始调用</li>
+ *   <li>每次尝试有独立超时（连接和读取都受看门狗限制），失败后指数退避重试，次数有上限</li>
+ *   <li>{@link #getPassword()} 最多等待总超时；结果按服务器返回的 TTL 在进程内缓存</li>
+ *   <li>缓存过期后刷新失败时沿用旧值并告警，不因密钥服务短暂故障拒绝启动</li>
+ * </ul>
+ * 
+ * <p>协议不加密，令牌和返回的口令都是明文，因此只用于连接本机的 {@link KeyServer} 替身：
+ * 地址只能是 {@code unix:/path} 或回环地址。远程密钥服务应通过自定义 {@link KeyProvider} 接入。
+ * 
+ * @author ygqygq2
+ */
+public class KeyServerKeyProvider implements KeyProvider {
+    
+    public static final String NAME = "key-server";
+    
+    /** getPassword 的默认最长等待 */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+    /** 单次尝试（连接 + 请求）的默认超时 */
+    public static final long DEFAULT_ATTEMPT_TIMEOUT_MILLIS = 1000;
+    /** 默认最多尝试次数 */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    
+    private static final long INITIAL_BACKOFF_MILLIS = 100;
+    
+    // address|keyId -> 缓存条目（进程内共享）
+    private static final Map<String, Cached> CACHE = new ConcurrentHashMap<>();
+    
+    private static final Executor FETCH_EXECUTOR = task -> {
+        Thread thread = new Thread(task, "byteguard-key-fetch");
+        thread.setDaemon(true);
+        thread.start();
+    };
+    
+    private final String addressText;
+    private final SocketAddress address;
+    private final String keyId;
+    private final String token;
+    
+    private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    private long attemptTimeoutMillis = DEFAULT_ATTEMPT_TIMEOUT_MILLIS;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    
+    private CompletableFuture<String> pending;
+    
+    /**
+     * @param address {@code unix:/path} 或回环地址 {@code 127.0.0.1:port}
+     * @param keyId 密钥 ID
+     * @param token 访问令牌（服务器未启用鉴权时可为 null）
+     * @throws IllegalArgumentException 地址不在本机
+     */
+    public KeyServerKeyProvider(String address, String keyId, String token) {
+        this.addressText = address;
+        this.address = SocketAddresses.parse(address);
+        if (!SocketAddresses.isLocal(this.address)) {
+            throw new IllegalArgumentException("Key server protocol is not encrypted, only unix:/path or "
+                + "loopback addresses are allowed: " + address);
+        }
+        this.keyId = keyId;
+        this.token = token != null ? token : "";
+    }
+    
+    /**
+     * 设置超时与重试
+     * 
+     * @param timeoutMillis getPassword 最长等待
+     * @param attemptTimeoutMillis 单次尝试超时
+     * @param maxAttempts 最多尝试次数
+     * @return this
+     */
+    public KeyServerKeyProvider timeouts(long timeoutMillis, long attemptTimeoutMillis, int maxAttempts) {
+        this.timeoutMillis = timeoutMillis;
+        this.attemptTimeoutMillis = attemptTimeoutMillis;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        return this;
+    }
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public synchronized void prefetch() {
+        Cached cached = CACHE.get(cacheKey());
+        if (cached != null && !cached.isExpired()) {
+            return;
+        }
+        // 没有进行中的请求（或上次结果已失败/过期）时发起新请求
+        if (pending == null || pending.isDone()) {
+            pending = CompletableFuture.supplyAsync(this::fetchWithRetry, FETCH_EXECUTOR);
+        }
+    }
+    
+    @Override
+    public String getPassword() throws CryptoException {
+        Cached cached = CACHE.get(cacheKey());
+        if (cached != null && !cached.isExpired()) {
+            return cached.secret;
+        }
+        
+        prefetch();
+        CompletableFuture<String> attempt;
+        synchronized (this) {
+            attempt = pending;
+        }
+        
+        try {
+            return attempt.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return stale(cached, "did not respond within " + timeoutMillis + " ms", null);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CryptoException) {
+                // 服务器明确拒绝，不使用旧值
+                throw (CryptoException) e.getCause();
+            }
+            return stale(cached, "unavailable: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CryptoException("Interrupted while fetching key from " + addressText, e);
+        }
+    }
+    
+    private String stale(Cached cached, String reason, Throwable cause) throws CryptoException {
+        if (cached != null) {
+            System.err.println("[ByteGuard] Warning: key server " + addressText + " " + reason + ", using cached key");
+            return cached.secret;
+        }
+        throw new CryptoException("Key server " + addressText + " " + reason, cause);
+    }
+    
+    private String fetchWithRetry() {
+        IOException last = null;
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                return fetchOnce();
+            } catch (IOException e) {
+                last = e;
+            }
+            if (attempt < maxAttempts) {
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoff *= 2;
+            }
+        }
+        throw new CompletionException(new IOException(last.getMessage() + " (" + maxAttempts + " attempts)", last));
+    }
+    
+    private String fetchOnce() throws IOException {
+        SocketChannel channel = SocketAddresses.open(address);
+        
+        // 看门狗：超时关闭通道，中断阻塞中的 connect/read
+        CompletableFuture<Void> watchdog = CompletableFuture.runAsync(() -> {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+        }, CompletableFuture.delayedExecutor(attemptTimeoutMillis, TimeUnit.MILLISECONDS));
+        
+        try (channel) {
+            SocketAddresses.connect(channel, address);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            
+            out.writeInt(KeyServerProtocol.MAGIC);
+            out.writeByte(KeyServerProtocol.OP_FETCH);
+            out.writeUTF(keyId);
+            out.writeUTF(token);
+            out.flush();
+            
+            switch (in.readByte()) {
+                case KeyServerProtocol.STATUS_OK:
+                    String secret = in.readUTF();
+                    long ttlMillis = in.readInt();
+                    CACHE.put(cacheKey(), new Cached(secret, System.currentTimeMillis() + ttlMillis));
+                    return secret;
+                case KeyServerProtocol.STATUS_NOT_FOUND:
+                    throw new CompletionException(new CryptoException("Key not found on key server: " + keyId));
+                case KeyServerProtocol.STATUS_DENIED:
+                    throw new CompletionException(new CryptoException("Key server rejected the access token for key: " + keyId));
+                default:
+                    throw new IOException("Unexpected key server response");
+            }
+        } catch (AsynchronousCloseException e) {
+            throw new IOException("Key server " + addressText + " timed out after " + attemptTimeoutMillis + " ms", e);
+        } finally {
+            watchdog.cancel(false);
+        }
+    }
+    
+    private String cacheKey() {
+        return addressText + "|" + keyId;
+    }
+    
+    /**
+     * 清空进程内缓存（测试用）
+     */
+    static void clearCache() {
+        CACHE.clear();
+    }
+    
+    private static class Cached {
+        final String secret;
+        final long expireAt;
+        
+        Cached(String secret, long expireAt) {
+            this.secret = secret;
+            this.expireAt = expireAt;
+        }
+        
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expireAt;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package io.github.ygqygq2.byteguard.core.crypto.keyserver;
+
+/**
+ * 密钥服务器协议常量
+ * 
+ * <p>每个连接一次请求/响应（大端序），客户端先发送 4 字节魔数：
+ * <pre>
+ * FETCH: [1][keyId: UTF][token: UTF]  -> [OK][secret: UTF][ttlMillis: i32]
+ *                                      | [NOT_FOUND] | [DENIED]
+ * </pre>
+ * 
+ * <p>地址格式见 {@link io.github.ygqygq2.byteguard.core.net.SocketAddresses}
+ * 
+ * @author ygqygq2
+ */
+final class KeyServerProtocol {
+    
+    static final int MAGIC = 0x42474B31; // "BGK1"
+    
+    static final byte OP_FETCH = 1;
+    
+    static final byte STATUS_OK = 0;
+    static final byte STATUS_NOT_FOUND = 1;
+    static final byte STATUS_DENIED = 2;
+    
+    private KeyServerProtocol() {
+    }
+}
@@ -0,0 +1,143 @@
+package io.github.ygqygq2.byteguard.core.encrypt;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 从类文件中读取类级别的注解（RuntimeVisible / RuntimeInvisible，含 CLASS 保留策略的注解）
+ * 
+ * <p>只解析常量池和属性表，不加载类，也不依赖字节码库。
+ * 
+ * @author ygqygq2
+ */
+final class ClassAnnotations {
+    
+    private static final int MAGIC = 0xCAFEBABE;
+    
+    private ClassAnnotations() {
+    }
+    
+    /**
+     * 读取类上的注解
+     * 
+     * @param classBytes 类字节码
+     * @return 注解类名（如 com.example.Protected）
+     * @throws IOException 类文件格式错误
+     */
+    static Set<String> read(byte[] classBytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(classBytes));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        in.skipBytes(4); // minor_version, major_version
+        
+        // 常量池：只保留 UTF8 常量
+        int count = in.readUnsignedShort();
+        String[] utf8 = new String[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    utf8[i] = in.readUTF();
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.skipBytes(8);
+                    i++;
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.skipBytes(4);
+                    break;
+                case 15: // MethodHandle
+                    in.skipBytes(3);
+                    break;
+                case 7: // Class
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.skipBytes(2);
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag: " + tag);
+            }
+        }
+        
+        in.skipBytes(6); // access_flags, this_class, super_class
+        in.skipBytes(2 * in.readUnsignedShort()); // interfaces
+        skipMembers(in); // fields
+        skipMembers(in); // methods
+        
+        Set<String> annotations = new HashSet<>();
+        int attributes = in.readUnsignedShort();
+        for (int i = 0; i < attributes; i++) {
+            String name = utf8[in.readUnsignedShort()];
+            int length = in.readInt();
+            if ("RuntimeVisibleAnnotations".equals(name) || "RuntimeInvisibleAnnotations".equals(name)) {
+                int n = in.readUnsignedShort();
+                for (int j = 0; j < n; j++) {
+                    String descriptor = utf8[in.readUnsignedShort()];
+                    if (descriptor != null && descriptor.startsWith("L") && descriptor.endsWith(";")) {
+                        annotations.add(descriptor.substring(1, descriptor.length() - 1).replace('/', '.'));
+                    }
+                    skipElementValuePairs(in);
+                }
+            } else {
+                in.skipBytes(length);
+            }
+        }
+        return annotations;
+    }
+    
+    private static void skipMembers(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            in.skipBytes(6); // access_flags, name_index, descriptor_index
+            int attributes = in.readUnsignedShort();
+            for (int j = 0; j < attributes; j++) {
+                in.skipBytes(2);
+                in.skipBytes(in.readInt());
+            }
+        }
+    }
+    
+    private static void skipElementValuePairs(DataInputStream in) throws IOException {
+        int pairs = in.readUnsignedShort();
+        for (int i = 0; i < pairs; i++) {
+            in.skipBytes(2); // element_name_index
+            skipElementValue(in);
+        }
+    }
+    
+    private static void skipElementValue(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case 'e': // 枚举：类型名 + 常量名
+                in.skipBytes(4);
+                break;
+            case '@': // 嵌套注解
+                in.skipBytes(2);
+                skipElementValuePairs(in);
+                break;
+            case '[':
+                int n = in.readUnsignedShort();
+                for (int i = 0; i < n; i++) {
+                    skipElementValue(in);
+                }
+                break;
+            default: // 基本类型、字符串、类：一个常量池索引
+                in.skipBytes(2);
+                break;
+        }
+    }
+}
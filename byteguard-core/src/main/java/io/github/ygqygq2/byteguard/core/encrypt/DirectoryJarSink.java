@@ -0,0 +1,79 @@
+package io.github.ygqygq2.byteguard.core.encrypt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * 展开输出到目录（每个条目一个文件）
+ * 
+ * <p>保留未变文件时，内容与已有文件相同的条目不重写（修改时间和容器镜像层摘要保持不变）。
+ * 
+ * @author ygqygq2
+ */
+class DirectoryJarSink implements JarSink {
+    
+    private final Path root;
+    private final boolean keepUnchanged;
+    
+    DirectoryJarSink(Path root) throws IOException {
+        this(root, false);
+    }
+    
+    DirectoryJarSink(Path root, boolean keepUnchanged) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.keepUnchanged = keepUnchanged;
+        Files.createDirectories(this.root);
+    }
+    
+    @Override
+    public void putDirectory(String name) throws IOException {
+        Files.createDirectories(resolve(name));
+    }
+    
+    @Override
+    public void putEntry(String name, byte[] content) throws IOException {
+        Path file = resolve(name);
+        if (keepUnchanged && Files.isRegularFile(file) && Files.size(file) == content.length
+                && Arrays.equals(Files.readAllBytes(file), content)) {
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        Files.write(file, content);
+    }
+    
+    @Override
+    public void putEntry(String name, InputStream content) throws IOException {
+        Path file = resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.copy(content, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    @Override
+    public void putFile(String name, Path source) throws IOException {
+        Path file = resolve(name);
+        if (Files.exists(file) && (Files.isSameFile(source, file) || keepUnchanged && Files.mismatch(source, file) == -1)) {
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        Files.copy(source, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    /**
+     * 解析条目路径，拒绝指向目录之外的条目（如 ../../etc/passwd）
+     */
+    private Path resolve(String name) throws IOException {
+        Path path = root.resolve(name).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IOException("Entry outside of output directory: " + name);
+        }
+        return path;
+    }
+    
+    @Override
+    public void close() {
+    }
+}
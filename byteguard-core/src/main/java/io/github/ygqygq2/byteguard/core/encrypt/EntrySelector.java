@@ -0,0 +1,154 @@
+package io.github.ygqygq2.byteguard.core.encrypt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiPredicate;
+
+/**
+ * 加密范围选择规则：决定 JAR 中哪些条目需要加密
+ * 
+ * <p>规则可以组合，例如只加密指定包下的类并排除测试类：
+ * <pre>
+ * EntrySelector.classes()
+ *     .and(EntrySelector.packages(List.of("com.example")))
+ *     .and(EntrySelector.excluding(List.of("Test")))
+ * </pre>
+ * 
+ * <p>按注解、类大小等需要字节码的规则分两步判断：{@link #shouldEncrypt(String)} 按名称初筛，
+ * 选中的类读入后再由 {@link #shouldEncrypt(String, byte[])} 决定（在工作线程上调用）。
+ * 规则较多时使用预先编译的 {@link SelectionRules}。
+ * 
+ * @author ygqygq2
+ */
+@FunctionalInterface
+public interface EntrySelector {
+    
+    /**
+     * 是否加密该条目
+     * 
+     * @param entryName JAR 条目名称（如 com/example/App.class）
+     * @return true 加密；false 原样复制
+     */
+    boolean shouldEncrypt(String entryName);
+    
+    /**
+     * 读入类字节码后的最终判断（只对名称初筛选中的类调用，可能在多个线程中并发调用）
+     * 
+     * @param entryName JAR 条目名称
+     * @param classBytes 类字节码
+     * @return true 加密；false 原样复制
+     */
+    default boolean shouldEncrypt(String entryName, byte[] classBytes) {
+        return shouldEncrypt(entryName);
+    }
+    
+    /**
+     * 是否需要字节码才能判断；为 true 时 {@link #shouldEncrypt(String)} 只是初筛
+     */
+    default boolean needsContent() {
+        return false;
+    }
+    
+    default EntrySelector and(EntrySelector other) {
+        EntrySelector self = this;
+        return twoPhase(name -> self.shouldEncrypt(name) && other.shouldEncrypt(name),
+            (name, bytes) -> self.shouldEncrypt(name, bytes) && other.shouldEncrypt(name, bytes),
+            self.needsContent() || other.needsContent());
+    }
+    
+    default EntrySelector or(EntrySelector other) {
+        EntrySelector self = this;
+        return twoPhase(name -> self.shouldEncrypt(name) || other.shouldEncrypt(name),
+            (name, bytes) -> self.shouldEncrypt(name, bytes) || other.shouldEncrypt(name, bytes),
+            self.needsContent() || other.needsContent());
+    }
+    
+    default EntrySelector negate() {
+        EntrySelector self = this;
+        // 需要字节码的规则取反后，名称初筛无法排除任何类
+        return twoPhase(name -> self.needsContent() || !self.shouldEncrypt(name),
+            (name, bytes) -> !self.shouldEncrypt(name, bytes),
+            self.needsContent());
+    }
+    
+    private static EntrySelector twoPhase(EntrySelector names, BiPredicate<String, byte[]> classes, boolean needsContent) {
+        if (!needsContent) {
+            return names;
+        }
+        return new EntrySelector() {
+            @Override
+            public boolean shouldEncrypt(String entryName) {
+                return names.shouldEncrypt(entryName);
+            }
+            
+            @Override
+            public boolean shouldEncrypt(String entryName, byte[] classBytes) {
+                return classes.test(entryName, classBytes);
+            }
+            
+            @Override
+            public boolean needsContent() {
+                return true;
+            }
+        };
+    }
+    
+    /**
+     * META-INF 之外的所有 .class 文件（默认规则）
+     */
+    static EntrySelector classes() {
+        return name -> name.endsWith(".class") && !name.startsWith("META-INF/");
+    }
+    
+    /**
+     * 指定包（含子包）下的条目，包名为空时不限制
+     * 
+     * @param packages 包名，如 com.example
+     */
+    static EntrySelector packages(Collection<String> packages) {
+        if (packages == null || packages.isEmpty()) {
+            return name -> true;
+        }
+        List<String> prefixes = new ArrayList<>();
+        for (String pkg : packages) {
+            String trimmed = pkg.trim();
+            if (!trimmed.isEmpty()) {
+                prefixes.add(trimmed.replace('.', '/') + "/");
+            }
+        }
+        return name -> {
+            for (String prefix : prefixes) {
+                if (name.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return prefixes.isEmpty();
+        };
+    }
+    
+    /**
+     * 排除路径中包含任一模式的条目
+     * 
+     * @param patterns 子串模式，如 Test、/internal/
+     */
+    static EntrySelector excluding(Collection<String> patterns) {
+        if (patterns == null || patterns.isEmpty()) {
+            return name -> true;
+        }
+        List<String> trimmed = new ArrayList<>();
+        for (String pattern : patterns) {
+            if (!pattern.trim().isEmpty()) {
+                trimmed.add(pattern.trim());
+            }
+        }
+        return name -> {
+            for (String pattern : trimmed) {
+                if (name.contains(pattern)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+}
@@ -0,0 +1,196 @@
+package io.github.ygqygq2.byteguard.core.encrypt;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 多个 glob 模式合并成的一个自动机：匹配耗时只与路径长度有关，与模式数量无关
+ * 
+ * <p>所有模式先编译成一个 NFA，匹配时按需构造 DFA 状态（子集构造）并缓存转移，
+ * 同样前缀的路径之后只是查表。线程安全：并发构造同一状态时结果相同，由状态表去重。
+ * 
+ * <p>语法（匹配整个条目路径）：
+ * <ul>
+ *   <li>{@code ?} 任一字符（不含 /）</li>
+ *   <li>{@code *} 任意个字符（不含 /）</li>
+ *   <li>{@code **} 任意个字符（含 /），{@code **}{@code /} 匹配零或多级目录</li>
+ * </ul>
+ * 
+ * @author ygqygq2
+ */
+final class GlobAutomaton {
+    
+    private static final byte LITERAL = 0;
+    private static final byte ANY_CHAR = 1;
+    private static final byte STAR = 2;
+    private static final byte DOUBLE_STAR = 3;
+    private static final byte DIRS = 4;
+    private static final byte ACCEPT = 5;
+    
+    /** ASCII 字符的转移存在数组里，其他字符存在 Map 里 */
+    private static final int ASCII = 128;
+    
+    private final byte[] kinds;
+    private final char[] literals;
+    private final ConcurrentHashMap<BitSet, State> states = new ConcurrentHashMap<>();
+    private final State start;
+    
+    private GlobAutomaton(byte[] kinds, char[] literals, BitSet initial) {
+        this.kinds = kinds;
+        this.literals = literals;
+        this.start = intern(closure(initial));
+    }
+    
+    /**
+     * 编译模式
+     * 
+     * @param patterns glob 模式
+     * @return 自动机，没有模式时为 null
+     */
+    static GlobAutomaton compile(Collection<String> patterns) {
+        List<Byte> kinds = new ArrayList<>();
+        StringBuilder literals = new StringBuilder();
+        BitSet initial = new BitSet();
+        for (String pattern : patterns) {
+            initial.set(kinds.size());
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                byte kind = LITERAL;
+                if (c == '?') {
+                    kind = ANY_CHAR;
+                } else if (c == '*') {
+                    kind = STAR;
+                    if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '*') {
+                        i++;
+                        kind = DOUBLE_STAR;
+                        if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '/') {
+                            i++;
+                            kind = DIRS;
+                        }
+                    }
+                }
+                kinds.add(kind);
+                literals.append(c);
+            }
+            kinds.add(ACCEPT);
+            literals.append('\0');
+        }
+        if (initial.isEmpty()) {
+            return null;
+        }
+        
+        byte[] kindArray = new byte[kinds.size()];
+        for (int i = 0; i < kindArray.length; i++) {
+            kindArray[i] = kinds.get(i);
+        }
+        return new GlobAutomaton(kindArray, literals.toString().toCharArray(), initial);
+    }
+    
+    /**
+     * 路径是否匹配任一模式
+     */
+    boolean matches(String path) {
+        State state = start;
+        for (int i = 0; i < path.length() && !state.dead; i++) {
+            state = state.next(path.charAt(i));
+        }
+        return state.accepting;
+    }
+    
+    /**
+     * 加上可以不消耗字符到达的 NFA 状态（* 和 ** 可以匹配空串）
+     */
+    private BitSet closure(BitSet set) {
+        for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+            byte kind = kinds[s];
+            if (kind == STAR || kind == DOUBLE_STAR || kind == DIRS) {
+                set.set(s + 1); // s + 1 > s，循环会继续处理它
+            }
+        }
+        return set;
+    }
+    
+    private BitSet step(BitSet set, char c) {
+        BitSet next = new BitSet(kinds.length);
+        for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+            switch (kinds[s]) {
+                case LITERAL:
+                    if (literals[s] == c) {
+                        next.set(s + 1);
+                    }
+                    break;
+                case ANY_CHAR:
+                    if (c != '/') {
+                        next.set(s + 1);
+                    }
+                    break;
+                case STAR:
+                    if (c != '/') {
+                        next.set(s);
+                    }
+                    break;
+                case DOUBLE_STAR:
+                    next.set(s);
+                    break;
+                case DIRS:
+                    next.set(s);
+                    if (c == '/') {
+                        next.set(s + 1);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return closure(next);
+    }
+    
+    private State intern(BitSet set) {
+        State state = states.get(set);
+        if (state == null) {
+            boolean accepting = false;
+            for (int s = set.nextSetBit(0); s >= 0 && !accepting; s = set.nextSetBit(s + 1)) {
+                accepting = kinds[s] == ACCEPT;
+            }
+            State created = new State(set, accepting);
+            state = states.putIfAbsent(set, created);
+            if (state == null) {
+                state = created;
+            }
+        }
+        return state;
+    }
+    
+    /**
+     * DFA 状态：一组 NFA 状态，转移按需计算后缓存
+     */
+    private final class State {
+        final BitSet set;
+        final boolean accepting;
+        final boolean dead;
+        final AtomicReferenceArray<State> ascii = new AtomicReferenceArray<>(ASCII);
+        final ConcurrentHashMap<Character, State> other = new ConcurrentHashMap<>();
+        
+        State(BitSet set, boolean accepting) {
+            this.set = set;
+            this.accepting = accepting;
+            this.dead = set.isEmpty();
+        }
+        
+        State next(char c) {
+            if (c < ASCII) {
+                State cached = ascii.get(c);
+                if (cached == null) {
+                    cached = intern(step(set, c));
+                    ascii.set(c, cached);
+                }
+                return cached;
+            }
+            return other.computeIfAbsent(c, key -> intern(step(set, key)));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.ygqygq2.byteguard.core.encrypt;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 明文内容哈希清单（增量加密用）
+ * 
+ * <p>记录一次加密输出中每个类明文的带密钥哈希（HMAC-SHA256(由数据密钥派生的密钥, 明文) 的前 16 字节），
+ * 放在构建目录里，不随 JAR 分发。下次加密时与上次的输出一起传给 {@link JarEncryptor.Builder#previous}，
+ * 哈希相同的类直接复制上次的密文。哈希带密钥，清单泄露也无法用来比对已知明文。
+ * 
+ * <p>文本格式，首行为格式标识，第二行为对应 JAR 的加密时间戳（与元数据的 encryptedAt 一致才会被采用）：
+ * <pre>
+ * byteguard-manifest 1
+ * encryptedAt 1705593600000
+ * com.example.Main 9f86d081884c7d659a2feaa0c55ad015
+ * ...
+ * </pre>
+ * 
+ * @author ygqygq2
+ */
+public final class HashManifest {
+    
+    private static final String FORMAT = "byteguard-manifest 1";
+    private static final String ENCRYPTED_AT = "encryptedAt ";
+    
+    private final long encryptedAt;
+    private final Map<String, String> hashes;
+    
+    public HashManifest(long encryptedAt, Map<String, String> hashes) {
+        this.encryptedAt = encryptedAt;
+        this.hashes = hashes;
+    }
+    
+    /**
+     * 读取清单文件
+     * 
+     * @param file 清单文件
+     * @return 清单
+     * @throws IOException 读取失败或格式错误
+     */
+    public static HashManifest read(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            String stamp = reader.readLine();
+            if (!FORMAT.equals(header) || stamp == null || !stamp.startsWith(ENCRYPTED_AT)) {
+                throw new IOException("Not a ByteGuard hash manifest: " + file);
+            }
+            
+            Map<String, String> hashes = new LinkedHashMap<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int space = line.indexOf(' ');
+                if (space <= 0) {
+                    throw new IOException("Corrupted hash manifest: " + file);
+                }
+                hashes.put(line.substring(0, space), line.substring(space + 1));
+            }
+            try {
+                return new HashManifest(Long.parseLong(stamp.substring(ENCRYPTED_AT.length())), hashes);
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupted hash manifest: " + file, e);
+            }
+        }
+    }
+    
+    /**
+     * 写入清单文件
+     * 
+     * @param file 清单文件
+     * @throws IOException 写入失败
+     */
+    public void write(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(FORMAT);
+            writer.newLine();
+            writer.write(ENCRYPTED_AT + encryptedAt);
+            writer.newLine();
+            for (Map.Entry<String, String> entry : hashes.entrySet()) {
+                writer.write(entry.getKey() + " " + entry.getValue());
+                writer.newLine();
+            }
+        }
+    }
+    
+    /** 对应 JAR 的加密时间戳 */
+    public long getEncryptedAt() { return encryptedAt; }
+    
+    /** className -> 十六进制哈希 */
+    public Map<String, String> getHashes() { return hashes; }
+    
+    /**
+     * 类的明文哈希
+     * 
+     * @return 十六进制哈希，未记录时为 null
+     */
+    public String get(String className) {
+        return hashes.get(className);
+    }
+}
@@ -0,0 +1,994 @@
+package io.github.ygqygq2.byteguard.core.encrypt;
+
+import io.github.ygqygq2.byteguard.core.crypto.CipherSuite;
+import io.github.ygqygq2.byteguard.core.crypto.CipherSuites;
+import io.github.ygqygq2.byteguard.core.crypto.CryptoException;
+import io.github.ygqygq2.byteguard.core.crypto.EncryptedEntry;
+import io.github.ygqygq2.byteguard.core.crypto.KdfParams;
+import io.github.ygqygq2.byteguard.core.crypto.KeyDerivation;
+import io.github.ygqygq2.byteguard.core.crypto.KeyEnvelope;
+import io.github.ygqygq2.byteguard.core.crypto.NonceStrategy;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadata;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadataSerializer;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * JAR 加密引擎（CLI、Maven 插件等构建工具共用）
+ * 
+ * <pre>
+ * JarEncryptor encryptor = JarEncryptor.builder()
+ *     .password(password)
+ *     .cipher(CipherSuites.forName("AES-256-GCM", NonceStrategy.COUNTER))
+ *     .selector(EntrySelector.classes().and(EntrySelector.packages(List.of("com.example"))))
+ *     .progress((done, total, name, encrypted) -&gt; ...)
+ *     .build();
+ * JarEncryptor.Result result = encryptor.encrypt(input, JarSink.toFile(output));
+ * </pre>
+ * 
+ * <p>每次加密生成新的随机数据密钥并用密码包装为一个密钥槽（见 {@link KeyEnvelope}）。
+ * 同一实例只派生一次密钥加密密钥（KEK），加密多个归档时不再重复 KDF（见 {@link #encryptAll}）；
+ * 多个实例可以共用一个 {@link KeyEnvelope.Keyring} 和一个工作线程池（见 {@link Builder#keyring}、
+ * {@link Builder#workers}），如 Maven 并行构建中的各模块。
+ * 选中的类加密后写回原路径（只存一份，见 {@link Builder#singleCopy}）；其他条目原样复制，
+ * 大条目流式复制，不整体读入内存；元数据最后写入。实例不可变，可在多个线程中复用。
+ * 
+ * <p>类字节码先压缩再加密（见 {@link EncryptedEntry}），加密条目以 STORED 方式写出，
+ * 不再对不可压缩的密文做 DEFLATE。
+ * 
+ * <p>增量加密：传入上次的输出和它的 {@link HashManifest}（见 {@link Builder#previous}）后，沿用上次的数据密钥和密钥槽，
+ * 明文哈希未变的类直接复制上次的密文，只有变化和新增的类重新加密。
+ * 
+ * <p>展开的类目录（如容器镜像分层部署的 classes/）用 {@link #encryptDirectory} 就地或镜像加密，不打包成 JAR。
+ * 
+ * <p>读取、解压、HKDF 和 AEAD 加密在工作线程池中并行执行，调用线程按输入顺序写出
+ * （见 {@link OrderedPipeline}），输出条目顺序与单线程相同；未写出结果的内存占用受
+ * {@link Builder#maxInFlightBytes} 限制。
+ * 
+ * @author ygqygq2
+ */
+public final class JarEncryptor {
+    
+    /** 加密类副本所在目录（2.1 及更早的格式） */
+    public static final String ENCRYPTED_DIR = "META-INF/.encrypted/";
+    
+    /** 默认压缩级别 */
+    public static final int DEFAULT_COMPRESSION_LEVEL = 6;
+    
+    /** 默认在途字节上限 */
+    public static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 64L * 1024 * 1024;
+    
+    /** 清单哈希密钥的派生上下文（含 /，不会与类名冲突） */
+    private static final String MANIFEST_KEY_CONTEXT = "/byteguard/manifest";
+    
+    /** 清单哈希长度（字节） */
+    private static final int MANIFEST_HASH_LENGTH = 16;
+    
+    /** 不超过此大小的未加密条目由工作线程预先读入（并行解压），更大的在写出时流式复制 */
+    private static final long BUFFERED_COPY_LIMIT = 1024 * 1024;
+    
+    /** 展开目录加密的进行中标记（第一次改写前写入，元数据写入后删除；内容为要改写的类） */
+    static final String IN_PROGRESS_PATH = "META-INF/.byteguard/encrypting";
+    
+    private final KeyEnvelope.Keyring keyring; // 缓存 KEK，可由多个实例共用
+    private final CipherSuite cipher;
+    private final KdfParams kdf;
+    private final EntrySelector selector;
+    private final EntrySelector classRule; // 需要字节码的规则，读入类后在工作线程上判断
+    private final ProgressListener progress;
+    private final int threads;
+    private final ExecutorService sharedWorkers; // 外部共用的线程池，不由本实例关闭
+    private final boolean singleCopy;
+    private final int compressionLevel;
+    private final long maxInFlightBytes;
+    private final boolean hashManifest;
+    private final Path previousJar; // 上次的输出 JAR 或目录
+    private final HashManifest previousManifest;
+    private final KeyDerivation kd = new KeyDerivation();
+    
+    private JarEncryptor(Builder builder) {
+        this.keyring = builder.keyring != null ? builder.keyring : new KeyEnvelope.Keyring(builder.password);
+        this.cipher = builder.cipher;
+        this.kdf = builder.kdf;
+        EntrySelector rule = builder.selector != null ? builder.selector : EntrySelector.classes();
+        this.selector = name -> name.endsWith(".class") && rule.shouldEncrypt(name);
+        this.classRule = rule.needsContent() ? rule : null;
+        this.progress = builder.progress != null ? builder.progress : ProgressListener.NONE;
+        this.threads = builder.threads;
+        this.sharedWorkers = builder.workers;
+        this.singleCopy = builder.singleCopy;
+        this.compressionLevel = builder.compressionLevel;
+        this.maxInFlightBytes = builder.maxInFlightBytes;
+        this.hashManifest = builder.hashManifest || builder.previousJar != null;
+        this.previousJar = builder.previousJar;
+        this.previousManifest = builder.previousManifest;
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    /**
+     * 加密 JAR 文件到文件
+     * 
+     * @param input 输入 JAR
+     * @param output 输出 JAR
+     * @return 加密结果
+     */
+    public Result encrypt(Path input, Path output) throws IOException, CryptoException {
+        if (previousJar == null || !Files.exists(output) || !Files.isSameFile(previousJar, output)) {
+            return encrypt(input, JarSink.toFile(output));
+        }
+        
+        // 增量加密覆盖上次的输出：先写临时文件，完成后替换
+        Path tmp = Files.createTempFile(output.toAbsolutePath().getParent(), ".byteguard", ".tmp");
+        try {
+            Result result = encrypt(input, JarSink.toFile(tmp));
+            Files.move(tmp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return result;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+    
+    /**
+     * 加密 JAR 文件到指定输出（完成后关闭 sink）
+     * 
+     * @param input 输入 JAR
+     * @param sink 输出目标
+     * @return 加密结果
+     * @throws IOException 读写失败
+     * @throws CryptoException 密钥派生或加密失败
+     */
+    public Result encrypt(Path input, JarSink sink) throws IOException, CryptoException {
+        return encrypt(input, sink, sharedWorkers);
+    }
+    
+    /**
+     * 批量加密（如部署目录 lib/ 下的全部 JAR）
+     * 
+     * <p>整个批次只派生一次 KEK，各归档仍有独立的随机数据密钥。多个归档同时加密，
+     * 共用一个 {@link Builder#threads} 大小的工作线程池（或 {@link Builder#workers} 指定的线程池）；
+     * 每个归档在自己的线程上按顺序写出，
+     * 在途字节上限对每个归档分别生效。批量时进度回调来自多个线程。不支持增量加密。
+     * 
+     * @param jobs 输入 JAR -> 输出 JAR（按迭代顺序返回结果）
+     * @return 批量结果
+     * @throws IOException 任一归档读写失败
+     * @throws CryptoException 密钥派生或加密失败
+     */
+    public BatchResult encryptAll(Map<Path, Path> jobs) throws IOException, CryptoException {
+        if (previousJar != null) {
+            throw new IllegalStateException("Incremental encryption does not support batches");
+        }
+        long start = System.nanoTime();
+        keyring.sealer(cipher, kdf); // 先派生 KEK，避免各归档线程同时等待
+        
+        ExecutorService workers = sharedWorkers != null ? sharedWorkers : OrderedPipeline.newWorkers(threads);
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService archives = Executors.newFixedThreadPool(Math.max(1, Math.min(jobs.size(), threads)), r -> {
+            Thread thread = new Thread(r, "byteguard-archive-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<Path, Future<Result>> futures = new LinkedHashMap<>();
+            for (Map.Entry<Path, Path> job : jobs.entrySet()) {
+                futures.put(job.getKey(), archives.submit(
+                    () -> encrypt(job.getKey(), JarSink.toFile(job.getValue()), workers)));
+            }
+            Map<Path, Result> results = new LinkedHashMap<>();
+            for (Map.Entry<Path, Future<Result>> future : futures.entrySet()) {
+                try {
+                    results.put(future.getKey(), future.getValue().get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Encryption interrupted", e);
+                } catch (ExecutionException e) {
+                    // 指明出错的归档
+                    Throwable cause = e.getCause();
+                    String message = "Failed to encrypt " + future.getKey() + ": " + cause.getMessage();
+                    if (cause instanceof CryptoException) {
+                        throw new CryptoException(message, cause);
+                    }
+                    if (cause instanceof IOException) {
+                        throw new IOException(message, cause);
+                    }
+                    throw OrderedPipeline.rethrow(cause);
+                }
+            }
+            return new BatchResult(results, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            archives.shutdownNow();
+            if (workers != null && workers != sharedWorkers) {
+                workers.shutdownNow();
+            }
+        }
+    }
+    
+    private Result encrypt(Path input, JarSink sink, ExecutorService workers) throws IOException, CryptoException {
+        try (JarFile jar = new JarFile(input.toFile(), false)) {
+            return encrypt(sink, jar.size(), workers, (pipeline, session) -> {
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    long size = Math.max(entry.getSize(), 0);
+                    boolean encrypt = !entry.isDirectory() && selector.shouldEncrypt(name);
+                    
+                    if (entry.isDirectory() || (!encrypt && size > BUFFERED_COPY_LIMIT)) {
+                        // 大资源在写出时流式复制，不占在途内存
+                        pipeline.submitCompleted(new Processed(entry, null, null, () -> jar.getInputStream(entry)));
+                    } else if (encrypt) {
+                        // 明文和密文同时在内存中
+                        pipeline.submit(2 * size, () -> session.encryptClass(entry, read(jar, entry)));
+                    } else {
+                        pipeline.submit(size, () -> new Processed(entry, null, read(jar, entry)));
+                    }
+                }
+            });
+        }
+    }
+    
+    /**
+     * 从流中读取 JAR 并加密（如标准输入，完成后关闭 input 和 sink）
+     * 
+     * <p>输入只能顺序读取：类在调用线程上读出后交给工作线程加密；不超过 1 MiB 的资源读入内存随队列写出，
+     * 更大的资源等之前的结果写出后直接从输入流复制到输出，任意大小（包括需要 ZIP64 的条目）都不整体缓冲。
+     * 内存占用由 {@link Builder#maxInFlightBytes} 和单个类的大小决定，与归档大小无关。
+     * 进度回调的条目总数未知，为 -1。
+     * 
+     * @param input JAR 格式的输入流
+     * @param sink 输出目标
+     * @return 加密结果
+     * @throws IOException 读写失败
+     * @throws CryptoException 密钥派生或加密失败
+     */
+    public Result encrypt(InputStream input, JarSink sink) throws IOException, CryptoException {
+        try (ZipInputStream zip = new ZipInputStream(input)) {
+            return encrypt(sink, -1, sharedWorkers, (pipeline, session) -> {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    ZipEntry current = entry;
+                    if (entry.isDirectory()) {
+                        pipeline.submitCompleted(new Processed(entry, null, null));
+                    } else if (selector.shouldEncrypt(entry.getName())) {
+                        byte[] classBytes = zip.readAllBytes();
+                        pipeline.submit(2L * classBytes.length, () -> session.encryptClass(current, classBytes));
+                    } else {
+                        byte[] head = zip.readNBytes((int) BUFFERED_COPY_LIMIT + 1);
+                        if (head.length <= BUFFERED_COPY_LIMIT) {
+                            pipeline.submit(head.length, () -> new Processed(current, null, head));
+                        } else {
+                            // 先写出排在前面的结果，再从输入流直接复制（输出顺序不变）
+                            pipeline.finish();
+                            InputStream rest = new SequenceInputStream(new ByteArrayInputStream(head), new FilterInputStream(zip) {
+                                @Override
+                                public void close() {
+                                    // 由 getNextEntry 结束当前条目，不关闭输入流
+                                }
+                            });
+                            pipeline.submitCompleted(new Processed(current, null, null, () -> rest));
+                        }
+                    }
+                }
+            });
+        }
+    }
+    
+    /**
+     * 加密展开的类目录（如 target/classes，完成后元数据写在输出目录的 META-INF/.byteguard/ 下）
+     * 
+     * <p>输出目录与输入相同（或为 null）时就地加密：只改写选中的类文件，其他文件不动。
+     * 第一次改写前先写入进行中标记（列出要改写的类），元数据写入后才删除；中断后目录里有标记没有元数据，
+     * 再次运行会拒绝，而不是把已经加密的类再加密一遍（从构建重新生成类目录后重试）。
+     * 
+     * <p>否则镜像到输出目录：内容与目标文件相同的不重写，增量加密（{@link Builder#previous} 指向上次的输出目录）时
+     * 未变的类和资源保持原文件，容器镜像层的摘要因此不变。输入中已不存在的文件（如删除的类）从输出中删除，
+     * 否则残留的密文会在运行时被当作类加载。输出目录归 ByteGuard 所有：必须为空或是上次的输出。
+     * 
+     * <p>文件按路径顺序处理，读取和加密在工作线程上并行。
+     * 运行时用 Agent（类目录在 classpath 上）或 {@code DecryptingClassLoader.forDirectory} 加载。
+     * 
+     * @param input 类目录
+     * @param output 输出目录，null 表示就地加密
+     * @return 加密结果
+     * @throws IOException 读写失败，输入目录已经加密过或上次就地加密被中断，或输出目录不是 ByteGuard 的输出
+     * @throws CryptoException 密钥派生或加密失败
+     */
+    public Result encryptDirectory(Path input, Path output) throws IOException, CryptoException {
+        Path root = input.toAbsolutePath().normalize();
+        Path target = output != null ? output.toAbsolutePath().normalize() : root;
+        if (!Files.isDirectory(root)) {
+            throw new IOException("Not a directory: " + input);
+        }
+        if (Files.exists(root.resolve(IN_PROGRESS_PATH))) {
+            throw new IOException("Previous in-place encryption was interrupted, regenerate the class directory and retry: " + input);
+        }
+        if (Files.exists(root.resolve(EncryptionMetadata.METADATA_PATH))) {
+            throw new IOException("Directory is already encrypted: " + input);
+        }
+        boolean inPlace = target.equals(root);
+        if (!inPlace && (target.startsWith(root) || root.startsWith(target))) {
+            throw new IllegalArgumentException("Output directory must not contain or be inside the input directory: " + output);
+        }
+        if (!inPlace && !isOwnedOutput(target)) {
+            throw new IOException("Output directory is not empty and not a ByteGuard output: " + output);
+        }
+        
+        // 就地加密只处理要加密的类
+        List<Path> files;
+        try (Stream<Path> walk = Files.find(root, Integer.MAX_VALUE, (file, attrs) -> attrs.isRegularFile())) {
+            files = walk
+                .filter(file -> !inPlace || selector.shouldEncrypt(entryName(root, file)))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+        
+        Path marker = target.resolve(IN_PROGRESS_PATH);
+        Files.createDirectories(marker.getParent());
+        Files.write(marker, files.stream().map(file -> entryName(root, file)).collect(Collectors.toList()));
+        
+        Result result = encrypt(new DirectoryJarSink(target, true), files.size(), sharedWorkers, (pipeline, session) -> {
+            for (Path file : files) {
+                ZipEntry entry = new ZipEntry(entryName(root, file));
+                if (selector.shouldEncrypt(entry.getName())) {
+                    long size = Files.readAttributes(file, BasicFileAttributes.class).size();
+                    pipeline.submit(2 * size, () -> session.encryptClass(entry, Files.readAllBytes(file)));
+                } else {
+                    pipeline.submitCompleted(new Processed(entry, file));
+                }
+            }
+        });
+        Files.delete(marker);
+        if (!inPlace) {
+            removeStale(target, files.stream().map(file -> entryName(root, file)).collect(Collectors.toSet()));
+        }
+        return result;
+    }
+    
+    /**
+     * 镜像输出目录是否可以由本次加密接管：不存在、为空，或有元数据/进行中标记（上次的输出）
+     */
+    private static boolean isOwnedOutput(Path target) throws IOException {
+        if (!Files.isDirectory(target)) {
+            return !Files.exists(target);
+        }
+        if (Files.exists(target.resolve(EncryptionMetadata.METADATA_PATH)) || Files.exists(target.resolve(IN_PROGRESS_PATH))) {
+            return true;
+        }
+        try (Stream<Path> children = Files.list(target)) {
+            return children.findAny().isEmpty();
+        }
+    }
+    
+    /**
+     * 删除镜像输出中输入已不存在的文件，以及因此变空的目录
+     */
+    private static void removeStale(Path target, Set<String> current) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(target)) {
+            // 逆序：先文件后所在目录
+            paths = walk.filter(path -> !path.equals(target)).sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        for (Path path : paths) {
+            String name = entryName(target, path);
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                try (Stream<Path> children = Files.list(path)) {
+                    if (children.findAny().isEmpty()) {
+                        Files.delete(path);
+                    }
+                }
+            } else if (!current.contains(name) && !name.equals(EncryptionMetadata.METADATA_PATH)) {
+                Files.delete(path);
+            }
+        }
+    }
+    
+    /**
+     * 预览加密范围（dry run）：列出 JAR 或展开目录中会被加密和不会被加密的类，不读写任何密钥
+     * 
+     * @param input 输入 JAR 或类目录
+     * @param selector 加密范围
+     * @return 预览结果（按条目顺序）
+     * @throws IOException 读取失败
+     */
+    public static Preview preview(Path input, EntrySelector selector) throws IOException {
+        Map<String, Long> encrypted = new LinkedHashMap<>();
+        List<String> skipped = new ArrayList<>();
+        if (Files.isDirectory(input)) {
+            Path root = input.toAbsolutePath().normalize();
+            try (Stream<Path> walk = Files.find(root, Integer.MAX_VALUE, (file, attrs) -> attrs.isRegularFile())) {
+                for (Path file : (Iterable<Path>) walk.sorted()::iterator) {
+                    String name = entryName(root, file);
+                    if (name.endsWith(".class")) {
+                        preview(name, () -> Files.readAllBytes(file), selector, encrypted, skipped);
+                    }
+                }
+            }
+        } else {
+            try (JarFile jar = new JarFile(input.toFile(), false)) {
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    if (!entry.isDirectory() && entry.getName().endsWith(".class")) {
+                        preview(entry.getName(), () -> read(jar, entry), selector, encrypted, skipped);
+                    }
+                }
+            }
+        }
+        return new Preview(encrypted, skipped);
+    }
+    
+    private static void preview(String name, ClassSource source, EntrySelector selector,
+                                Map<String, Long> encrypted, List<String> skipped) throws IOException {
+        if (selector.shouldEncrypt(name)) {
+            byte[] classBytes = source.read();
+            if (!selector.needsContent() || selector.shouldEncrypt(name, classBytes)) {
+                encrypted.put(name, (long) classBytes.length);
+                return;
+            }
+        }
+        skipped.add(name);
+    }
+    
+    @FunctionalInterface
+    private interface ClassSource {
+        byte[] read() throws IOException;
+    }
+    
+    private static String entryName(Path root, Path file) {
+        return root.relativize(file).toString().replace(File.separatorChar, '/');
+    }
+    
+    /**
+     * 准备密钥和元数据，由 feeder 按条目顺序提交，最后写入元数据
+     */
+    private Result encrypt(JarSink sink, int total, ExecutorService workers, EntryFeeder feeder)
+            throws IOException, CryptoException {
+        long start = System.nanoTime();
+        String version = singleCopy ? EncryptionMetadata.VERSION_ENTRY_HEADER : EncryptionMetadata.VERSION_NONCE_STRATEGY;
+        
+        try (JarSink out = sink; PreviousOutput previous = previousJar != null ? PreviousOutput.open(previousJar) : null) {
+            EncryptionMetadata previousMetadata = previous != null ? readMetadata(previous, version) : null;
+            EncryptionMetadata metadata = new EncryptionMetadata(null, 0);
+            metadata.setVersion(version);
+            metadata.setAlgorithm(cipher.getName());
+            metadata.setNonceStrategy(cipher.getNonceStrategy().getName());
+            byte[] masterKey;
+            if (previousMetadata != null) {
+                // 增量：沿用上次的数据密钥和密钥槽，复制的密文才能用同一个密钥解密
+                masterKey = keyring.open(previousMetadata);
+                metadata.setKeySlots(new ArrayList<>(previousMetadata.getKeySlots()));
+                metadata.setKdf(previousMetadata.getKdf());
+            } else {
+                // 随机数据密钥作为主密钥，密码只用于包装（换密码见 rekey 命令）
+                masterKey = KeyEnvelope.generateDataKey();
+                metadata.setKeySlots(new ArrayList<>(List.of(keyring.sealer(cipher, kdf).seal(masterKey))));
+                metadata.setKdf(kdf);
+            }
+            
+            Session session = new Session(out, total, masterKey, previousMetadata != null ? previous : null, previousMetadata);
+            // 写出在调用线程上按条目顺序进行，元数据记录和进度回调也因此保持顺序
+            try (OrderedPipeline<Processed> pipeline = workers != null
+                    ? new OrderedPipeline<>(workers, maxInFlightBytes, session::write)
+                    : new OrderedPipeline<>(threads, maxInFlightBytes, session::write)) {
+                feeder.feed(pipeline, session);
+                pipeline.finish();
+            }
+            
+            metadata.setTotalClasses(session.encryptedClasses.size());
+            metadata.setEncryptedAt(System.currentTimeMillis());
+            metadata.setEncryptedClasses(session.encryptedClasses);
+            out.putEntry(EncryptionMetadata.METADATA_PATH,
+                new EncryptionMetadataSerializer().toJson(metadata).getBytes(StandardCharsets.UTF_8));
+            
+            HashManifest manifest = hashManifest ? new HashManifest(metadata.getEncryptedAt(), session.hashes) : null;
+            return new Result(metadata, manifest, session.processed, session.reused, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+    
+    /**
+     * 读取上次输出的元数据，格式或套件与本次不同、或清单不对应这个 JAR 时返回 null（全量加密）
+     */
+    private EncryptionMetadata readMetadata(PreviousOutput previous, String version) throws IOException {
+        byte[] json = previous.read(EncryptionMetadata.METADATA_PATH);
+        if (json == null) {
+            return null;
+        }
+        EncryptionMetadata metadata = new EncryptionMetadataSerializer().fromJson(new String(json, StandardCharsets.UTF_8));
+        boolean compatible = version.equals(metadata.getVersion())
+            && cipher.getName().equals(metadata.getAlgorithm())
+            && !metadata.getKeySlots().isEmpty()
+            && previousManifest.getEncryptedAt() == metadata.getEncryptedAt();
+        return compatible ? metadata : null;
+    }
+    
+    private static Mac newMac(byte[] key) {
+        if (key == null) {
+            return null;
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+    
+    private static byte[] read(JarFile jar, ZipEntry entry) throws IOException {
+        // ZipFile 支持多线程并发读取，解压在各调用线程上进行
+        try (InputStream in = jar.getInputStream(entry)) {
+            return in.readAllBytes();
+        }
+    }
+    
+    /**
+     * 按条目顺序向流水线提交输入（在调用线程上执行）
+     */
+    @FunctionalInterface
+    private interface EntryFeeder {
+        void feed(OrderedPipeline<Processed> pipeline, Session session) throws IOException, CryptoException;
+    }
+    
+    /**
+     * 上次的输出（JAR 或展开的目录），按条目名读取
+     */
+    private interface PreviousOutput extends Closeable {
+        
+        /**
+         * @return 条目内容，不存在时为 null（可在多个线程中并发调用）
+         */
+        byte[] read(String name) throws IOException;
+        
+        static PreviousOutput open(Path path) throws IOException {
+            if (Files.isDirectory(path)) {
+                Path root = path.toAbsolutePath().normalize();
+                return new PreviousOutput() {
+                    @Override
+                    public byte[] read(String name) throws IOException {
+                        Path file = root.resolve(name).normalize();
+                        return file.startsWith(root) && Files.isRegularFile(file) ? Files.readAllBytes(file) : null;
+                    }
+                    
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+            JarFile jar = new JarFile(path.toFile(), false);
+            return new PreviousOutput() {
+                @Override
+                public byte[] read(String name) throws IOException {
+                    JarEntry entry = jar.getJarEntry(name);
+                    return entry != null ? JarEncryptor.read(jar, entry) : null;
+                }
+                
+                @Override
+                public void close() throws IOException {
+                    jar.close();
+                }
+            };
+        }
+    }
+    
+    /**
+     * 写出时才打开的条目内容（流式复制）
+     */
+    @FunctionalInterface
+    private interface EntryStream {
+        InputStream open() throws IOException;
+    }
+    
+    /**
+     * 一次加密的状态：密钥、上次的输出，以及按写出顺序累积的元数据（只在调用线程上修改）
+     */
+    private final class Session {
+        final JarSink out;
+        final int total;
+        final byte[] masterKey;
+        final PreviousOutput previous;
+        final EncryptionMetadata previousMetadata;
+        final ThreadLocal<Mac> macs;
+        final Map<String, EncryptionMetadata.ClassInfo> encryptedClasses = new LinkedHashMap<>();
+        final Map<String, String> hashes = new LinkedHashMap<>();
+        int processed;
+        int reused;
+        
+        Session(JarSink out, int total, byte[] masterKey, PreviousOutput previous, EncryptionMetadata previousMetadata)
+                throws CryptoException {
+            this.out = out;
+            this.total = total;
+            this.masterKey = masterKey;
+            this.previous = previous;
+            this.previousMetadata = previousMetadata;
+            byte[] manifestKey = hashManifest ? kd.deriveClassKey(masterKey, MANIFEST_KEY_CONTEXT) : null;
+            this.macs = ThreadLocal.withInitial(() -> newMac(manifestKey));
+        }
+        
+        /**
+         * 加密一个类（在工作线程上执行），明文未变时复制上次的密文
+         */
+        Processed encryptClass(ZipEntry entry, byte[] classBytes) throws IOException, CryptoException {
+            String name = entry.getName();
+            if (classRule != null && !classRule.shouldEncrypt(name, classBytes)) {
+                return new Processed(entry, null, classBytes);
+            }
+            String className = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+            
+            String hash = null;
+            if (hashManifest) {
+                byte[] tag = macs.get().doFinal(classBytes);
+                hash = HexFormat.of().formatHex(tag, 0, MANIFEST_HASH_LENGTH);
+            }
+            if (previous != null && hash != null && hash.equals(previousManifest.get(className))) {
+                EncryptionMetadata.ClassInfo info = previousMetadata.getEncryptedClasses().get(className);
+                byte[] copy = info != null ? previous.read(info.getEncryptedPath()) : null;
+                if (copy != null) {
+                    return new Processed(entry, className, copy, hash, true);
+                }
+            }
+            
+            // 类专用密钥: HKDF(主密钥, 类名)
+            byte[] classKey = kd.deriveClassKey(masterKey, className);
+            byte[] encrypted = singleCopy
+                ? EncryptedEntry.seal(classBytes, classKey, cipher, compressionLevel)
+                : cipher.encrypt(classBytes, classKey);
+            return new Processed(entry, className, encrypted, hash, false);
+        }
+        
+        /**
+         * 写出一个结果（在调用线程上按条目顺序执行）
+         */
+        void write(Processed item) throws IOException {
+            if (item.entry.isDirectory()) {
+                out.putDirectory(item.name);
+            } else if (item.className != null) {
+                // 写回原始位置，JVM 照常找到类，由 Agent 的 Transformer 解密；
+                // 旧格式另在加密目录保留一份
+                String encryptedPath = item.name;
+                out.putStoredEntry(item.name, item.content);
+                if (!singleCopy) {
+                    encryptedPath = ENCRYPTED_DIR + item.name;
+                    out.putStoredEntry(encryptedPath, item.content);
+                }
+                encryptedClasses.put(item.className, new EncryptionMetadata.ClassInfo(item.name, encryptedPath));
+                if (item.hash != null) {
+                    hashes.put(item.className, item.hash);
+                }
+                if (item.reused) {
+                    reused++;
+                }
+            } else if (item.content != null) {
+                out.putEntry(item.name, item.content);
+            } else if (item.file != null) {
+                out.putFile(item.name, item.file);
+            } else {
+                try (InputStream in = item.stream.open()) {
+                    out.putEntry(item.name, in);
+                }
+            }
+            progress.onEntry(++processed, total, item.name, item.className != null);
+        }
+    }
+    
+    /**
+     * 一个条目的处理结果
+     */
+    private static final class Processed {
+        final ZipEntry entry;
+        final String name;
+        final String className; // 非 null 表示已加密
+        final byte[] content;   // null 表示写出时再流式复制
+        final EntryStream stream;
+        final Path file;        // 展开目录中的源文件（写出时复制）
+        final String hash;      // 明文哈希（记录清单时）
+        final boolean reused;   // 密文复制自上次的输出
+        
+        Processed(ZipEntry entry, String className, byte[] content) {
+            this(entry, className, content, null, false, null, null);
+        }
+        
+        Processed(ZipEntry entry, String className, byte[] content, EntryStream stream) {
+            this(entry, className, content, null, false, stream, null);
+        }
+        
+        Processed(ZipEntry entry, Path file) {
+            this(entry, null, null, null, false, null, file);
+        }
+        
+        Processed(ZipEntry entry, String className, byte[] content, String hash, boolean reused) {
+            this(entry, className, content, hash, reused, null, null);
+        }
+        
+        private Processed(ZipEntry entry, String className, byte[] content, String hash, boolean reused, EntryStream stream,
+                          Path file) {
+            this.entry = entry;
+            this.name = entry.getName();
+            this.className = className;
+            this.content = content;
+            this.stream = stream;
+            this.file = file;
+            this.hash = hash;
+            this.reused = reused;
+        }
+    }
+    
+    /**
+     * 加密结果
+     */
+    public static final class Result {
+        private final EncryptionMetadata metadata;
+        private final HashManifest manifest;
+        private final int entryCount;
+        private final int reusedCount;
+        private final long elapsedMillis;
+        
+        Result(EncryptionMetadata metadata, HashManifest manifest, int entryCount, int reusedCount, long elapsedMillis) {
+            this.metadata = metadata;
+            this.manifest = manifest;
+            this.entryCount = entryCount;
+            this.reusedCount = reusedCount;
+            this.elapsedMillis = elapsedMillis;
+        }
+        
+        /** 写入的加密元数据 */
+        public EncryptionMetadata getMetadata() { return metadata; }
+        
+        /** 加密的类数量 */
+        public int getEncryptedCount() { return metadata.getEncryptedClasses().size(); }
+        
+        /** 本次输出的明文哈希清单（未开启时为 null），供下次增量加密使用 */
+        public HashManifest getManifest() { return manifest; }
+        
+        /** 从上次输出复制密文的类数量（包含在加密数量中） */
+        public int getReusedCount() { return reusedCount; }
+        
+        /** 处理的条目数（输入 JAR 的条目总数；就地加密目录时为加密的类文件数） */
+        public int getEntryCount() { return entryCount; }
+        
+        public long getElapsedMillis() { return elapsedMillis; }
+    }
+    
+    /**
+     * 加密范围预览结果
+     */
+    public static final class Preview {
+        private final Map<String, Long> encrypted;
+        private final List<String> skipped;
+        
+        Preview(Map<String, Long> encrypted, List<String> skipped) {
+            this.encrypted = encrypted;
+            this.skipped = skipped;
+        }
+        
+        /** 会被加密的类条目 -> 明文大小 */
+        public Map<String, Long> getEncrypted() { return encrypted; }
+        
+        /** 不会被加密的类条目 */
+        public List<String> getSkipped() { return skipped; }
+        
+        /** 会被加密的明文总字节数 */
+        public long getEncryptedBytes() {
+            return encrypted.values().stream().mapToLong(Long::longValue).sum();
+        }
+    }
+    
+    /**
+     * 批量加密结果
+     */
+    public static final class BatchResult {
+        private final Map<Path, Result> results;
+        private final long elapsedMillis;
+        
+        BatchResult(Map<Path, Result> results, long elapsedMillis) {
+            this.results = results;
+            this.elapsedMillis = elapsedMillis;
+        }
+        
+        /** 输入 JAR -> 该归档的结果 */
+        public Map<Path, Result> getResults() { return results; }
+        
+        /** 加密的类总数 */
+        public int getEncryptedCount() {
+            return results.values().stream().mapToInt(Result::getEncryptedCount).sum();
+        }
+        
+        /** 整个批次的耗时（各归档并行，小于各归档耗时之和） */
+        public long getElapsedMillis() { return elapsedMillis; }
+    }
+    
+    /**
+     * 构建器（除密码外都有默认值）
+     */
+    public static final class Builder {
+        private String password;
+        private KeyEnvelope.Keyring keyring;
+        private CipherSuite cipher;
+        private NonceStrategy nonceStrategy;
+        private KdfParams kdf = KdfParams.DEFAULT;
+        private EntrySelector selector = EntrySelector.classes();
+        private ProgressListener progress = ProgressListener.NONE;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private ExecutorService workers;
+        private boolean singleCopy = true;
+        private int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+        private long maxInFlightBytes = DEFAULT_MAX_IN_FLIGHT_BYTES;
+        private boolean hashManifest;
+        private Path previousJar;
+        private HashManifest previousManifest;
+        
+        private Builder() {
+        }
+        
+        /** 加密密码（必需，除非指定了 {@link #keyring}） */
+        public Builder password(String password) {
+            this.password = password;
+            return this;
+        }
+        
+        /**
+         * 共用的密钥环（代替 {@link #password}），同一密码、套件和 KDF 参数在多个实例间只派生一次 KEK
+         */
+        public Builder keyring(KeyEnvelope.Keyring keyring) {
+            this.keyring = keyring;
+            return this;
+        }
+        
+        /**
+         * 加密套件，默认 {@link CipherSuites#DEFAULT}；传入的实例原样使用（含它自己的 Nonce 策略）
+         */
+        public Builder cipher(CipherSuite cipher) {
+            this.cipher = cipher;
+            return this;
+        }
+        
+        /**
+         * Nonce 生成策略，默认 {@link NonceStrategy#COUNTER}（并行加密时各线程不争用随机数源）
+         * 
+         * <p>只作用于按名称创建的默认套件；同时用 {@link #cipher} 传入了策略不同的实例时 {@link #build} 报错
+         */
+        public Builder nonceStrategy(NonceStrategy nonceStrategy) {
+            this.nonceStrategy = nonceStrategy;
+            return this;
+        }
+        
+        /** 口令派生参数，默认 {@link KdfParams#DEFAULT} */
+        public Builder kdf(KdfParams kdf) {
+            this.kdf = kdf;
+            return this;
+        }
+        
+        /**
+         * 加密范围，默认 {@link EntrySelector#classes()}；规则较多时用 {@link SelectionRules}
+         * 
+         * <p>只有 .class 条目可以加密，规则选中的其他条目仍原样复制。需要字节码的规则（注解、大小）
+         * 在工作线程上读入类之后判断，未选中的类原样写出
+         */
+        public Builder selector(EntrySelector selector) {
+            this.selector = selector;
+            return this;
+        }
+        
+        /** 进度回调（在调用线程上按条目顺序调用） */
+        public Builder progress(ProgressListener progress) {
+            this.progress = progress;
+            return this;
+        }
+        
+        /**
+         * 每个类只存一份密文（默认）；false 时按 2.1 格式在 META-INF/.encrypted/ 下再存一份，
+         * 供仍按固定前缀读取的旧版 DecryptingClassLoader 使用（2.1 没有条目头，不压缩）
+         */
+        public Builder singleCopy(boolean singleCopy) {
+            this.singleCopy = singleCopy;
+            return this;
+        }
+        
+        /** 类在加密前的 DEFLATE 压缩级别（0-9），默认 6；0 表示不压缩 */
+        public Builder compressionLevel(int compressionLevel) {
+            if (compressionLevel < 0 || compressionLevel > 9) {
+                throw new IllegalArgumentException("compressionLevel must be between 0 and 9: " + compressionLevel);
+            }
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+        
+        /** 记录明文哈希清单（{@link Result#getManifest()}），供下次增量加密使用 */
+        public Builder hashManifest(boolean hashManifest) {
+            this.hashManifest = hashManifest;
+            return this;
+        }
+        
+        /**
+         * 增量加密：上次的输出 JAR（展开目录加密时为上次的输出目录）及其清单（隐含 {@link #hashManifest}）
+         * 
+         * <p>沿用上次的数据密钥、密钥槽和 KDF 参数（{@link #kdf} 不生效），密码须能解开上次的密钥槽。
+         * 上次输出的格式版本或加密套件与本次不同、或清单不属于该 JAR 时自动退回全量加密。
+         */
+        public Builder previous(Path previousJar, HashManifest previousManifest) {
+            if ((previousJar == null) != (previousManifest == null)) {
+                throw new IllegalArgumentException("previous JAR and manifest must be given together");
+            }
+            this.previousJar = previousJar;
+            this.previousManifest = previousManifest;
+            return this;
+        }
+        
+        /** 工作线程数，默认为可用核数；1 表示在调用线程上顺序处理 */
+        public Builder threads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("threads must be at least 1: " + threads);
+            }
+            this.threads = threads;
+            return this;
+        }
+        
+        /**
+         * 共用的工作线程池（代替按 {@link #threads} 创建的线程池），由调用方关闭
+         * 
+         * <p>多个实例同时加密时共用一个有界线程池，总线程数不随实例数增加。
+         */
+        public Builder workers(ExecutorService workers) {
+            this.workers = workers;
+            return this;
+        }
+        
+        /** 已读入但尚未写出的字节上限，默认 64 MiB */
+        public Builder maxInFlightBytes(long maxInFlightBytes) {
+            if (maxInFlightBytes < 1) {
+                throw new IllegalArgumentException("maxInFlightBytes must be positive: " + maxInFlightBytes);
+            }
+            this.maxInFlightBytes = maxInFlightBytes;
+            return this;
+        }
+        
+        public JarEncryptor build() throws CryptoException {
+            if (keyring == null && (password == null || password.isEmpty())) {
+                throw new IllegalArgumentException("Password is required");
+            }
+            if (cipher == null) {
+                cipher = CipherSuites.forName(CipherSuites.DEFAULT, nonceStrategy != null ? nonceStrategy : NonceStrategy.COUNTER);
+            } else if (nonceStrategy != null && cipher.getNonceStrategy() != nonceStrategy) {
+                throw new IllegalArgumentException("Cipher " + cipher.getName() + " uses nonce strategy "
+                    + cipher.getNonceStrategy().getName() + ", but " + nonceStrategy.getName() + " was requested");
+            }
+            return new JarEncryptor(this);
+        }
+    }
+}
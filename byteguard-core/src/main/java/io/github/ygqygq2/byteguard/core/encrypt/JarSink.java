@@ -0,0 +1,84 @@
+package io.github.ygqygq2.byteguard.core.encrypt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 加密结果的输出目标
+ * 
+ * <p>条目按 {@link JarEncryptor} 给出的顺序写入，加密元数据总是最后一个条目。
+ * 
+ * @author ygqygq2
+ */
+public interface JarSink extends Closeable {
+    
+    /**
+     * 写入目录条目
+     * 
+     * @param name 目录名（以 / 结尾）
+     */
+    void putDirectory(String name) throws IOException;
+    
+    /**
+     * 写入内存中的条目（加密后的类、元数据）
+     * 
+     * @param name 条目名称
+     * @param content 内容
+     */
+    void putEntry(String name, byte[] content) throws IOException;
+    
+    /**
+     * 写入不再压缩的条目（加密后的类：密文不可压缩，STORED 存放）
+     * 
+     * @param name 条目名称
+     * @param content 内容
+     */
+    default void putStoredEntry(String name, byte[] content) throws IOException {
+        putEntry(name, content);
+    }
+    
+    /**
+     * 流式写入条目（原样复制的资源，不整体读入内存）
+     * 
+     * @param name 条目名称
+     * @param content 内容流（由调用方关闭）
+     */
+    void putEntry(String name, InputStream content) throws IOException;
+    
+    /**
+     * 写入文件内容（加密展开目录时原样复制的资源）
+     * 
+     * @param name 条目名称
+     * @param source 源文件
+     */
+    default void putFile(String name, Path source) throws IOException {
+        try (InputStream in = Files.newInputStream(source)) {
+            putEntry(name, in);
+        }
+    }
+    
+    /**
+     * 写入 JAR 文件
+     */
+    static JarSink toFile(Path jar) throws IOException {
+        return ZipJarSink.toFile(jar);
+    }
+    
+    /**
+     * 以 JAR 格式写入流（关闭 sink 时不关闭该流）
+     */
+    static JarSink toStream(OutputStream out) throws IOException {
+        return ZipJarSink.toStream(out);
+    }
+    
+    /**
+     * 展开写入目录（每个条目一个文件）
+     */
+    static JarSink toDirectory(Path directory) throws IOException {
+        return new DirectoryJarSink(directory);
+    }
+}
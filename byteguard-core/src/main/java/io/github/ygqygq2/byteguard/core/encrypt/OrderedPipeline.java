@@ -0,0 +1,187 @@
+package io.github.ygqygq2.byteguard.core.encrypt;
+
+import io.github.ygqygq2.byteguard.core.crypto.CryptoException;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并行处理、按提交顺序写出的流水线
+ * 
+ * <p>任务在工作线程池中并行执行（读取、派生密钥、加密），结果由提交线程按提交顺序交给写出方，
+ * 因此输出顺序与线程调度无关。未写出结果的估算字节数超过上限时，提交线程先写出队首结果再继续提交，
+ * 内存占用与 JAR 大小无关。提交和写出都在调用线程上进行，不需要额外的写线程和锁。
+ * 
+ * <p>批量加密时多条流水线（各自在自己的调用线程上写出）可以共用一个工作线程池。
+ * 
+ * @param <T> 任务结果
+ * @author ygqygq2
+ */
+final class OrderedPipeline<T> implements AutoCloseable {
+    
+    /**
+     * 结果写出方（只在提交线程上调用）
+     */
+    @FunctionalInterface
+    interface Writer<T> {
+        void write(T result) throws IOException, CryptoException;
+    }
+    
+    private final ExecutorService workers;
+    private final boolean ownsWorkers;
+    private final long maxInFlightBytes;
+    private final Writer<T> writer;
+    private final ArrayDeque<Pending<T>> queue = new ArrayDeque<>();
+    private long inFlightBytes;
+    
+    /**
+     * @param threads 工作线程数（1 表示在调用线程上顺序执行）
+     * @param maxInFlightBytes 未写出结果的估算字节数上限
+     * @param writer 写出方
+     */
+    OrderedPipeline(int threads, long maxInFlightBytes, Writer<T> writer) {
+        this(newWorkers(threads), true, maxInFlightBytes, writer);
+    }
+    
+    /**
+     * @param workers 共用的工作线程池（null 表示在调用线程上顺序执行），关闭流水线时不关闭
+     * @param maxInFlightBytes 未写出结果的估算字节数上限
+     * @param writer 写出方
+     */
+    OrderedPipeline(ExecutorService workers, long maxInFlightBytes, Writer<T> writer) {
+        this(workers, false, maxInFlightBytes, writer);
+    }
+    
+    private OrderedPipeline(ExecutorService workers, boolean ownsWorkers, long maxInFlightBytes, Writer<T> writer) {
+        this.workers = workers;
+        this.ownsWorkers = ownsWorkers;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.writer = writer;
+    }
+    
+    /**
+     * 创建工作线程池
+     * 
+     * @param threads 线程数
+     * @return 线程池，threads 为 1 时返回 null（顺序执行）
+     */
+    static ExecutorService newWorkers(int threads) {
+        if (threads <= 1) {
+            return null;
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "byteguard-encrypt-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * 提交任务
+     * 
+     * @param bytes 结果的估算字节数（计入在途上限）
+     * @param task 任务
+     */
+    void submit(long bytes, Callable<T> task) throws IOException, CryptoException {
+        if (workers == null) {
+            writer.write(call(task));
+            return;
+        }
+        
+        // 在途字节超限时先写出队首（单个超大任务在队列清空后照常提交）
+        while (!queue.isEmpty() && inFlightBytes + bytes > maxInFlightBytes) {
+            writeHead();
+        }
+        inFlightBytes += bytes;
+        queue.add(new Pending<>(workers.submit(task), bytes));
+    }
+    
+    /**
+     * 提交已有结果（不需要工作线程处理，但仍按顺序写出）
+     */
+    void submitCompleted(T result) throws IOException, CryptoException {
+        if (workers == null || queue.isEmpty()) {
+            writer.write(result);
+            return;
+        }
+        queue.add(new Pending<>(CompletableFuture.completedFuture(result), 0));
+    }
+    
+    /**
+     * 写出全部剩余结果
+     */
+    void finish() throws IOException, CryptoException {
+        while (!queue.isEmpty()) {
+            writeHead();
+        }
+    }
+    
+    private void writeHead() throws IOException, CryptoException {
+        Pending<T> head = queue.poll();
+        T result;
+        try {
+            result = head.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Encryption interrupted", e);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+        inFlightBytes -= head.bytes;
+        writer.write(result);
+    }
+    
+    private static <T> T call(Callable<T> task) throws IOException, CryptoException {
+        try {
+            return task.call();
+        } catch (Exception e) {
+            throw rethrow(e);
+        }
+    }
+    
+    static IOException rethrow(Throwable cause) throws IOException, CryptoException {
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if (cause instanceof CryptoException) {
+            throw (CryptoException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause);
+    }
+    
+    @Override
+    public void close() {
+        // 出错时放弃尚未完成的任务（共用的线程池只取消本流水线的任务）
+        if (workers != null && ownsWorkers) {
+            workers.shutdownNow();
+        } else {
+            for (Pending<T> pending : queue) {
+                pending.future.cancel(true);
+            }
+        }
+    }
+    
+    private static final class Pending<T> {
+        final Future<T> future;
+        final long bytes;
+        
+        Pending(Future<T> future, long bytes) {
+            this.future = future;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package io.github.ygqygq2.byteguard.core.encrypt;
+
+/**
+ * 加密进度回调（在调用 encrypt 的线程上按条目顺序调用，应尽快返回）
+ * 
+ * @author ygqygq2
+ */
+@FunctionalInterface
+public interface ProgressListener {
+    
+    /** 不报告进度 */
+    ProgressListener NONE = (processed, total, entryName, encrypted) -> { };
+    
+    /**
+     * 一个条目处理完成
+     * 
+     * @param processed 已处理条目数
+     * @param total 条目总数（从流读取时未知，为 -1）
+     * @param entryName 条目名称
+     * @param encrypted 该条目是否被加密
+     */
+    void onEntry(int processed, int total, String entryName, boolean encrypted);
+}
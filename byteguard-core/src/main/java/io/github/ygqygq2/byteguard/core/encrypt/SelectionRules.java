@@ -0,0 +1,242 @@
+package io.github.ygqygq2.byteguard.core.encrypt;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 预先编译的加密范围规则：包含/排除包、排除模式、注解、类大小
+ * 
+ * <pre>
+ * EntrySelector rules = SelectionRules.builder()
+ *     .includePackages(List.of("com.example"))
+ *     .excludePackages(List.of("com.example.api"))
+ *     .exclude(List.of("**&#47;*Test.class", "generated"))
+ *     .excludeAnnotations(List.of("org.springframework.stereotype.Component"))
+ *     .minClassSize(256)
+ *     .build();
+ * </pre>
+ * 
+ * <p>包规则编译成一棵按包名分段的前缀树，离类最近（最长）的规则生效，例如包含 com.example、
+ * 排除 com.example.internal 时 com.example.internal.Foo 不加密；没有包含规则时默认包含所有包。
+ * 排除模式合并成一个 glob 自动机（见 {@link GlobAutomaton}），不含通配符的模式按子串匹配
+ * （与 {@link EntrySelector#excluding} 相同）。名称判断只遍历一次条目路径，与规则数量无关。
+ * 
+ * <p>注解和类大小规则需要字节码，在 {@link #shouldEncrypt(String, byte[])} 中判断（由工作线程并行执行）。
+ * 注解只看类本身（含 CLASS 保留策略），不看父类和包注解；无法解析的类文件视为没有注解。
+ * 实例不可变，线程安全。
+ * 
+ * @author ygqygq2
+ */
+public final class SelectionRules implements EntrySelector {
+    
+    private final PackageNode packages;
+    private final boolean includeByDefault;
+    private final GlobAutomaton excludes;
+    private final Set<String> includeAnnotations;
+    private final Set<String> excludeAnnotations;
+    private final int minClassSize;
+    private final int maxClassSize;
+    
+    private SelectionRules(Builder builder) {
+        this.packages = new PackageNode();
+        for (String pkg : builder.includePackages) {
+            packages.insert(pkg, Boolean.TRUE);
+        }
+        for (String pkg : builder.excludePackages) {
+            packages.insert(pkg, Boolean.FALSE);
+        }
+        this.includeByDefault = builder.includePackages.isEmpty();
+        this.excludes = GlobAutomaton.compile(builder.excludes);
+        this.includeAnnotations = builder.includeAnnotations;
+        this.excludeAnnotations = builder.excludeAnnotations;
+        this.minClassSize = builder.minClassSize;
+        this.maxClassSize = builder.maxClassSize;
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    @Override
+    public boolean shouldEncrypt(String entryName) {
+        if (!entryName.endsWith(".class") || entryName.startsWith("META-INF/")) {
+            return false;
+        }
+        if (!packages.select(entryName, includeByDefault)) {
+            return false;
+        }
+        return excludes == null || !excludes.matches(entryName);
+    }
+    
+    @Override
+    public boolean shouldEncrypt(String entryName, byte[] classBytes) {
+        if (!shouldEncrypt(entryName)) {
+            return false;
+        }
+        if (classBytes.length < minClassSize || classBytes.length > maxClassSize) {
+            return false;
+        }
+        if (includeAnnotations.isEmpty() && excludeAnnotations.isEmpty()) {
+            return true;
+        }
+        
+        Set<String> annotations;
+        try {
+            annotations = ClassAnnotations.read(classBytes);
+        } catch (IOException e) {
+            annotations = Set.of();
+        }
+        for (String annotation : annotations) {
+            if (excludeAnnotations.contains(annotation)) {
+                return false;
+            }
+        }
+        if (includeAnnotations.isEmpty()) {
+            return true;
+        }
+        for (String annotation : annotations) {
+            if (includeAnnotations.contains(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public boolean needsContent() {
+        return !includeAnnotations.isEmpty() || !excludeAnnotations.isEmpty()
+            || minClassSize > 0 || maxClassSize < Integer.MAX_VALUE;
+    }
+    
+    /**
+     * 包前缀树的节点：一个包名分段，verdict 为该包（含子包）的规则，null 表示沿用上级
+     */
+    private static final class PackageNode {
+        final Map<String, PackageNode> children = new HashMap<>();
+        Boolean verdict;
+        
+        void insert(String pkg, Boolean value) {
+            PackageNode node = this;
+            for (String segment : pkg.split("\\.")) {
+                node = node.children.computeIfAbsent(segment, key -> new PackageNode());
+            }
+            node.verdict = value;
+        }
+        
+        /**
+         * 沿条目的目录逐段下行，返回最深一条规则的结果
+         */
+        boolean select(String entryName, boolean fallback) {
+            boolean result = fallback;
+            PackageNode node = this;
+            int start = 0;
+            int slash;
+            while ((slash = entryName.indexOf('/', start)) >= 0) {
+                node = node.children.get(entryName.substring(start, slash));
+                if (node == null) {
+                    break;
+                }
+                if (node.verdict != null) {
+                    result = node.verdict;
+                }
+                start = slash + 1;
+            }
+            return result;
+        }
+    }
+    
+    /**
+     * 构建器（所有规则默认为空，即加密 META-INF 之外的全部类）
+     */
+    public static final class Builder {
+        private final List<String> includePackages = new ArrayList<>();
+        private final List<String> excludePackages = new ArrayList<>();
+        private final List<String> excludes = new ArrayList<>();
+        private final Set<String> includeAnnotations = new LinkedHashSet<>();
+        private final Set<String> excludeAnnotations = new LinkedHashSet<>();
+        private int minClassSize;
+        private int maxClassSize = Integer.MAX_VALUE;
+        
+        private Builder() {
+        }
+        
+        /** 只加密这些包（含子包）下的类，如 com.example */
+        public Builder includePackages(Collection<String> packages) {
+            addTrimmed(packages, includePackages);
+            return this;
+        }
+        
+        /** 不加密这些包（含子包）下的类，比包含规则更具体时优先 */
+        public Builder excludePackages(Collection<String> packages) {
+            addTrimmed(packages, excludePackages);
+            return this;
+        }
+        
+        /**
+         * 排除路径匹配的条目：含 * ? 的按 glob 匹配整个路径（如 **&#47;*Test.class），否则按子串匹配
+         */
+        public Builder exclude(Collection<String> patterns) {
+            List<String> trimmed = new ArrayList<>();
+            addTrimmed(patterns, trimmed);
+            for (String pattern : trimmed) {
+                boolean glob = pattern.indexOf('*') >= 0 || pattern.indexOf('?') >= 0;
+                excludes.add(glob ? pattern : "**" + pattern + "**");
+            }
+            return this;
+        }
+        
+        /** 只加密带有任一注解的类（注解类名，如 com.example.Protected） */
+        public Builder includeAnnotations(Collection<String> annotations) {
+            addTrimmed(annotations, includeAnnotations);
+            return this;
+        }
+        
+        /** 不加密带有任一注解的类（如会被框架按字节码扫描的组件） */
+        public Builder excludeAnnotations(Collection<String> annotations) {
+            addTrimmed(annotations, excludeAnnotations);
+            return this;
+        }
+        
+        /** 小于此字节数的类不加密（如只有常量的小类） */
+        public Builder minClassSize(int bytes) {
+            if (bytes < 0) {
+                throw new IllegalArgumentException("minClassSize must not be negative: " + bytes);
+            }
+            this.minClassSize = bytes;
+            return this;
+        }
+        
+        /** 大于此字节数的类不加密（如生成的大类） */
+        public Builder maxClassSize(int bytes) {
+            if (bytes < 1) {
+                throw new IllegalArgumentException("maxClassSize must be positive: " + bytes);
+            }
+            this.maxClassSize = bytes;
+            return this;
+        }
+        
+        public SelectionRules build() {
+            if (minClassSize > maxClassSize) {
+                throw new IllegalArgumentException("minClassSize is larger than maxClassSize");
+            }
+            return new SelectionRules(this);
+        }
+        
+        private static void addTrimmed(Collection<String> values, Collection<String> target) {
+            if (values == null) {
+                return;
+            }
+            for (String value : values) {
+                if (value != null && !value.trim().isEmpty()) {
+                    target.add(value.trim());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.ygqygq2.byteguard.core.encrypt;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+/**
+ * 以 JAR 格式输出到文件或流
+ * 
+ * @author ygqygq2
+ */
+class ZipJarSink implements JarSink {
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private final JarOutputStream jar;
+    
+    private ZipJarSink(OutputStream out) throws IOException {
+        this.jar = new JarOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+    }
+    
+    static ZipJarSink toFile(Path file) throws IOException {
+        return new ZipJarSink(Files.newOutputStream(file));
+    }
+    
+    static ZipJarSink toStream(OutputStream out) throws IOException {
+        // 只结束 ZIP 结构，不关闭调用方的流
+        return new ZipJarSink(new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+            
+            @Override
+            public void close() throws IOException {
+                out.flush();
+            }
+        });
+    }
+    
+    @Override
+    public void putDirectory(String name) throws IOException {
+        jar.putNextEntry(new ZipEntry(name));
+        jar.closeEntry();
+    }
+    
+    @Override
+    public void putEntry(String name, byte[] content) throws IOException {
+        jar.putNextEntry(new ZipEntry(name));
+        jar.write(content);
+        jar.closeEntry();
+    }
+    
+    @Override
+    public void putStoredEntry(String name, byte[] content) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCompressedSize(content.length);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        entry.setCrc(crc.getValue());
+        jar.putNextEntry(entry);
+        jar.write(content);
+        jar.closeEntry();
+    }
+    
+    @Override
+    public void putEntry(String name, InputStream content) throws IOException {
+        jar.putNextEntry(new ZipEntry(name));
+        content.transferTo(jar);
+        jar.closeEntry();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        jar.close();
+    }
+}
@@ -2,22 +2,27 @@ package io.github.ygqygq2.byteguard.core.license;
 
 import org.bouncycastle.bcpg.ArmoredInputStream;
 import org.bouncycastle.openpgp.*;
-import org.bouncycastle.openpgp.jcajce.JcaPGPObjectFactory;
-import org.bouncycastle.openpgp.operator.jcajce.JcaPGPContentVerifierBuilderProvider;
+import org.bouncycastle.openpgp.bc.BcPGPObjectFactory;
+import org.bouncycastle.openpgp.operator.bc.BcKeyFingerprintCalculator;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentVerifierBuilderProvider;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.security.Security;
 import java.util.Base64;
 import java.util.Iterator;
 
+/**
+ * GPG clearsign License 验证
+ * 
+ * <p>只使用 Bouncy Castle 轻量级 API，不向 {@link java.security.Security} 注册 Provider，
+ * 不影响应用后续的 JCA 查找；PGP 相关类在首次调用 {@link #verifyAndExtract} 时才加载。
+ * 
+ * @author ygqygq2
+ */
 public class GPGLicenseValidator {
     
-    private static final String TRUSTED_GPG_FINGERPRINT = "54446D97EAD0EAF000830AC0276B25461FCE9C7C";
-    
-    static {
-        Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
-    }
+    /** 受信任的 GPG 公钥指纹（编译期常量，引用时不会触发本类及 BouncyCastle 加载） */
+    public static final String TRUSTED_GPG_FINGERPRINT = "54446D97EAD0EAF000830AC0276B25461FCE9C7C";
     
     public static String verifyAndExtract(String licenseContent) throws LicenseException {
         try {
@@ -39,23 +44,15 @@ public class GPGLicenseValidator {
                 aIn.read();
             }
             
-            JcaPGPObjectFactory pgpFact = new JcaPGPObjectFactory(aIn);
+            BcPGPObjectFactory pgpFact = new BcPGPObjectFactory(aIn);
             PGPSignatureList p3 = (PGPSignatureList) pgpFact.nextObject();
             PGPSignature sig = p3.get(0);
             
             // 4. 加载公钥
-            PGPPublicKey publicKey = loadEmbeddedPublicKey();
-            String keyFingerprint = bytesToHex(publicKey.getFingerprint());
-            
-            if (!TRUSTED_GPG_FINGERPRINT.equalsIgnoreCase(keyFingerprint)) {
-                throw new LicenseException(
-                    "GPG key fingerprint mismatch. Expected: " + TRUSTED_GPG_FINGERPRINT +
-                    ", Got: " + keyFingerprint
-                );
-            }
+            PGPPublicKey publicKey = loadTrustedPublicKey();
             
             // 5. 验证签名（保持原始格式 - LF 或 CRLF）
-            sig.init(new JcaPGPContentVerifierBuilderProvider().setProvider("BC"), publicKey);
+            sig.init(new BcPGPContentVerifierBuilderProvider(), publicKey);
             
             // 直接用 clearText，不修改行尾
             byte[] clearBytes = clearText.getBytes(StandardCharsets.UTF_8);
@@ -76,6 +73,35 @@ public class GPGLicenseValidator {
         }
     }
     
+    /**
+     * 验证 GPG 分离签名（gpg --detach-sign --armor）
+     * 
+     * @param data 被签名的原始数据
+     * @param armoredSignature ASCII Armor 格式的签名
+     * @throws LicenseException 签名无效或不是受信任密钥签发
+     */
+    public static void verifyDetached(byte[] data, InputStream armoredSignature) throws LicenseException {
+        try {
+            BcPGPObjectFactory pgpFact = new BcPGPObjectFactory(new ArmoredInputStream(armoredSignature));
+            Object object = pgpFact.nextObject();
+            if (!(object instanceof PGPSignatureList)) {
+                throw new LicenseException("Invalid detached signature");
+            }
+            PGPSignature sig = ((PGPSignatureList) object).get(0);
+            
+            sig.init(new BcPGPContentVerifierBuilderProvider(), loadTrustedPublicKey());
+            sig.update(data);
+            
+            if (!sig.verify()) {
+                throw new LicenseException("GPG signature verification failed");
+            }
+        } catch (LicenseException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new LicenseException("Failed to verify GPG signature: " + e.getMessage(), e);
+        }
+    }
+    
     private static String extractClearText(String licenseContent) throws LicenseException {
         String[] lines = licenseContent.split("\\r?\\n");
         StringBuilder clearText = new StringBuilder();
@@ -142,6 +168,19 @@ public class GPGLicenseValidator {
         return base64.length() > 0 ? base64.toString() : null;
     }
 
+    private static PGPPublicKey loadTrustedPublicKey() throws Exception {
+        PGPPublicKey publicKey = loadEmbeddedPublicKey();
+        String keyFingerprint = bytesToHex(publicKey.getFingerprint());
+        
+        if (!TRUSTED_GPG_FINGERPRINT.equalsIgnoreCase(keyFingerprint)) {
+            throw new LicenseException(
+                "GPG key fingerprint mismatch. Expected: " + TRUSTED_GPG_FINGERPRINT +
+                ", Got: " + keyFingerprint
+            );
+        }
+        return publicKey;
+    }
+    
     private static PGPPublicKey loadEmbeddedPublicKey() throws Exception {
         try (InputStream keyStream = GPGLicenseValidator.class
                 .getResourceAsStream("/keys/gpg_public_key.asc")) {
@@ -153,7 +192,7 @@ public class GPGLicenseValidator {
             ArmoredInputStream armoredIn = new ArmoredInputStream(keyStream);
             PGPPublicKeyRingCollection keyRingCollection = new PGPPublicKeyRingCollection(
                 armoredIn,
-                new org.bouncycastle.openpgp.operator.jcajce.JcaKeyFingerprintCalculator()
+                new BcKeyFingerprintCalculator()
             );
             
             Iterator<PGPPublicKeyRing> keyRings = keyRingCollection.getKeyRings();
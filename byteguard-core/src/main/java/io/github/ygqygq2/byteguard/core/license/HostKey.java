@@ -0,0 +1,99 @@
+package io.github.ygqygq2.byteguard.core.license;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * 本机缓存文件的 HMAC 密钥（License 验证缓存、机器指纹缓存共用）
+ * 
+ * <p>密钥 = SHA-256(本机随机密钥 || 主机名/用户/系统信息)。本机随机密钥存放在缓存目录的
+ * {@code .host-key}（权限 600），缓存文件因此无法复制到其他主机或被其他用户改写后使用。
+ * 能读取该文件的用户仍可伪造条目，缓存内容不能作为唯一的安全依据。
+ * 
+ * @author ygqygq2
+ */
+final class HostKey {
+    
+    private static final String HOST_KEY_FILE = ".host-key";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    
+    private HostKey() {
+    }
+    
+    /**
+     * 计算 HMAC-SHA256
+     * 
+     * @param cacheDir 缓存目录（本机随机密钥所在目录，不存在时创建）
+     * @param parts 依次参与计算的数据
+     * @return HMAC 值
+     */
+    static byte[] mac(Path cacheDir, byte[]... parts) throws IOException, GeneralSecurityException {
+        Mac hmac = Mac.getInstance(HMAC_ALGORITHM);
+        hmac.init(new SecretKeySpec(derive(cacheDir), HMAC_ALGORITHM));
+        for (byte[] part : parts) {
+            hmac.update(part);
+        }
+        return hmac.doFinal();
+    }
+    
+    private static byte[] derive(Path cacheDir) throws IOException, GeneralSecurityException {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        sha256.update(loadOrCreateHostSecret(cacheDir));
+        sha256.update(hostIdentity().getBytes(StandardCharsets.UTF_8));
+        return sha256.digest();
+    }
+    
+    private static byte[] loadOrCreateHostSecret(Path cacheDir) throws IOException {
+        Path secretFile = cacheDir.resolve(HOST_KEY_FILE);
+        if (Files.isRegularFile(secretFile)) {
+            return Files.readAllBytes(secretFile);
+        }
+        
+        Files.createDirectories(cacheDir);
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        
+        Path tmp = Files.createTempFile(cacheDir, "host", ".tmp");
+        try {
+            Files.setPosixFilePermissions(tmp, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            // 非 POSIX 文件系统（Windows）
+        }
+        Files.write(tmp, secret);
+        
+        try {
+            // 不覆盖：并发创建时以先写入的为准
+            Files.move(tmp, secretFile);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+        }
+        return Files.readAllBytes(secretFile);
+    }
+    
+    /**
+     * 主机标识（不做 DNS 查询，避免拖慢启动）
+     */
+    private static String hostIdentity() {
+        // 优先读 /etc/hostname：HOSTNAME 环境变量并不总会导出给子进程
+        String host;
+        try {
+            host = Files.readString(Path.of("/etc/hostname")).trim();
+        } catch (Exception e) {
+            host = System.getenv("HOSTNAME");
+            if (host == null) {
+                host = System.getenv("COMPUTERNAME");
+            }
+        }
+        return host + "|" + System.getProperty("user.name")
+            + "|" + System.getProperty("os.name")
+            + "|" + System.getProperty("os.arch");
+    }
+}
@@ -38,6 +38,7 @@ public class License {
         private List<String> features;         // 功能列表
         private BindingMode bindingMode;
         private List<String> allowedMachineIds;
+        private String leaseServer;            // 租约服务器地址（maxInstances > 0 时使用，随 License 签名）
         
         public Authorization() {
             this.features = new ArrayList<>();
@@ -59,6 +60,9 @@ public class License {
         public void setAllowedMachineIds(List<String> allowedMachineIds) { 
             this.allowedMachineIds = allowedMachineIds; 
         }
+        
+        public String getLeaseServer() { return leaseServer; }
+        public void setLeaseServer(String leaseServer) { this.leaseServer = leaseServer; }
     }
     
     // Getters and Setters
@@ -105,6 +109,10 @@ public class License {
             sb.append("features=").append(String.join(",", authorization.features)).append("|");
             sb.append("bindingMode=").append(authorization.bindingMode).append("|");
             sb.append("allowedMachineIds=").append(String.join(",", authorization.allowedMachineIds));
+            // 未设置时不参与，旧 License 的签名数据保持不变
+            if (authorization.leaseServer != null) {
+                sb.append("|leaseServer=").append(authorization.leaseServer);
+            }
         }
         
         return sb.toString();
@@ -0,0 +1,65 @@
+package io.github.ygqygq2.byteguard.core.license;
+
+import java.nio.charset.StandardCharsets;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Base64;
+
+/**
+ * License 签发器（线程安全）
+ * 
+ * <p>{@link RSASignature#sign} 每次调用都会 {@code Signature.getInstance} 并重新初始化私钥，
+ * 批量签发时这部分开销远大于签名本身。签发器为每个线程缓存一个已初始化的 {@link Signature}，
+ * {@code sign()} 之后实例自动回到初始状态，可直接复用。
+ * 
+ * @author ygqygq2
+ */
+public class LicenseIssuer {
+    
+    private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+    
+    private final LicenseSerializer serializer = new LicenseSerializer();
+    private final ThreadLocal<Signature> signatures;
+    
+    public LicenseIssuer(PrivateKey privateKey) {
+        this.signatures = ThreadLocal.withInitial(() -> {
+            try {
+                Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
+                signature.initSign(privateKey);
+                return signature;
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to initialize signer", e);
+            }
+        });
+    }
+    
+    /**
+     * 签名 License（写入 signature 字段）
+     * 
+     * @param license License 对象
+     * @throws LicenseException 签名失败
+     */
+    public void sign(License license) throws LicenseException {
+        try {
+            Signature signature = signatures.get();
+            signature.update(license.toSignatureData().getBytes(StandardCharsets.UTF_8));
+            license.setSignature(Base64.getEncoder().encodeToString(signature.sign()));
+        } catch (Exception e) {
+            // 出错后实例状态未知，下次重新创建
+            signatures.remove();
+            throw new LicenseException("Failed to sign license " + license.getLicenseId(), e);
+        }
+    }
+    
+    /**
+     * 签名并序列化为 JSON
+     * 
+     * @param license License 对象
+     * @return License JSON
+     * @throws LicenseException 签名失败
+     */
+    public String issue(License license) throws LicenseException {
+        sign(license);
+        return serializer.toJson(license);
+    }
+}
@@ -18,7 +18,7 @@ public class LicenseSerializer {
      * 序列化 License 为 JSON
      */
     public String toJson(License license) {
-        StringBuilder json = new StringBuilder();
+        StringBuilder json = new StringBuilder(1024);
         json.append("{\n");
         json.append("  \"version\": \"").append(escape(license.getVersion())).append("\",\n");
         json.append("  \"licenseId\": \"").append(escape(license.getLicenseId())).append("\",\n");
@@ -38,6 +38,9 @@ public class LicenseSerializer {
             json.append("    \"maxInstances\": ").append(auth.getMaxInstances()).append(",\n");
             json.append("    \"features\": ").append(listToJson(auth.getFeatures())).append(",\n");
             json.append("    \"bindingMode\": \"").append(auth.getBindingMode()).append("\",\n");
+            if (auth.getLeaseServer() != null) {
+                json.append("    \"leaseServer\": \"").append(escape(auth.getLeaseServer())).append("\",\n");
+            }
             json.append("    \"allowedMachineIds\": ").append(listToJson(auth.getAllowedMachineIds())).append("\n");
             json.append("  },\n");
         }
@@ -75,6 +78,7 @@ public class LicenseSerializer {
                 auth.setFeatures(extractStringList(authBlock, "features"));
                 auth.setBindingMode(License.BindingMode.valueOf(extractString(authBlock, "bindingMode")));
                 auth.setAllowedMachineIds(extractStringList(authBlock, "allowedMachineIds"));
+                auth.setLeaseServer(extractString(authBlock, "leaseServer"));
                 
                 license.setAuthorization(auth);
             }
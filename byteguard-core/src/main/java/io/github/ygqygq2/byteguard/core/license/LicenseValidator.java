@@ -2,6 +2,8 @@ package io.github.ygqygq2.byteguard.core.license;
 
 import java.security.PublicKey;
 import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
 
 /**
  * License 验证器
@@ -18,6 +20,9 @@ import java.time.Instant;
  */
 public class LicenseValidator {
     
+    /** STRICT 模式下等待机器指纹的最长时间 */
+    private static final long BINDING_TIMEOUT_MILLIS = 5_000;
+    
     private final RSASignature rsaSignature;
     private final PublicKey publicKey;
     
@@ -43,8 +48,7 @@ public class LicenseValidator {
         // 2. 验证有效期
         verifyExpiration(license);
         
-        // 3. 验证实例数（TODO: 需要分布式锁或本地计数）
-        // verifyInstances(license);
+        // 3. 实例数由租约服务器在运行时控制（见 lease.LeaseServer）
         
         // 4. 验证机器绑定（如果启用）
         verifyMachineBinding(license);
@@ -70,8 +74,11 @@ public class LicenseValidator {
     
     /**
      * 验证有效期
+     * 
+     * @param license License 对象
+     * @throws LicenseException 已过期
      */
-    private void verifyExpiration(License license) throws LicenseException {
+    public void verifyExpiration(License license) throws LicenseException {
         Instant now = Instant.now();
         
         if (license.getExpireAt() == null) {
@@ -89,30 +96,73 @@ public class LicenseValidator {
     
     /**
      * 验证机器绑定
+     * 
+     * <p>机器指纹在后台计算（见 {@link MachineFingerprint#prefetch()}），本方法不会额外增加启动延迟：
+     * <ul>
+     *   <li>STRICT: 指纹通常已就绪；未就绪时最多等待 5 秒，不匹配则拒绝</li>
+     *   <li>OPTIONAL: 从不阻塞；指纹未就绪时在计算完成后再检查，不匹配只输出警告</li>
+     * </ul>
+     * 
+     * @param license License 对象
+     * @throws LicenseException STRICT 模式下机器未授权
      */
-    private void verifyMachineBinding(License license) throws LicenseException {
-        License.Authorization auth = license.getAuthorization();
-        if (auth == null) {
+    public void verifyMachineBinding(License license) throws LicenseException {
+        if (!isMachineBound(license)) {
             return;
         }
         
-        if (auth.getBindingMode() == License.BindingMode.NONE) {
-            // 不需要绑定
-            return;
-        }
+        License.Authorization auth = license.getAuthorization();
+        List<String> allowed = auth.getAllowedMachineIds();
         
-        if (auth.getAllowedMachineIds() == null || auth.getAllowedMachineIds().isEmpty()) {
-            // 没有指定允许的机器，跳过验证
+        if (auth.getBindingMode() == License.BindingMode.STRICT) {
+            String currentMachineId = MachineFingerprint.getMachineId(BINDING_TIMEOUT_MILLIS);
+            if (currentMachineId == null) {
+                throw new LicenseException("Timed out computing machine fingerprint");
+            }
+            if (!isAllowed(allowed, currentMachineId)) {
+                throw new LicenseException(
+                    "Machine not authorized. Current: " + currentMachineId
+                );
+            }
             return;
         }
         
-        // TODO: 获取当前机器 ID 并验证
-        // String currentMachineId = MachineFingerprint.getMachineId();
-        // if (!auth.getAllowedMachineIds().contains(currentMachineId)) {
-        //     throw new LicenseException(
-        //         "Machine not authorized. Current: " + currentMachineId
-        //     );
-        // }
+        // OPTIONAL: 不阻塞启动
+        String currentMachineId = MachineFingerprint.peekMachineId();
+        if (currentMachineId != null) {
+            warnIfNotAllowed(allowed, currentMachineId);
+        } else {
+            MachineFingerprint.whenReady().thenAccept(id -> warnIfNotAllowed(allowed, id));
+        }
+    }
+    
+    /**
+     * License 是否需要检查机器指纹
+     * 
+     * @param license License 对象
+     * @return 绑定模式不是 NONE 且指定了允许的机器时返回 true
+     */
+    public static boolean isMachineBound(License license) {
+        License.Authorization auth = license.getAuthorization();
+        return auth != null
+            && auth.getBindingMode() != License.BindingMode.NONE
+            && auth.getAllowedMachineIds() != null
+            && !auth.getAllowedMachineIds().isEmpty();
+    }
+    
+    private static boolean isAllowed(List<String> allowed, String machineId) {
+        for (String id : allowed) {
+            if (id.trim().toUpperCase(Locale.ROOT).equals(machineId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static void warnIfNotAllowed(List<String> allowed, String machineId) {
+        if (!isAllowed(allowed, machineId)) {
+            System.err.println("[ByteGuard] Warning: machine " + machineId + " is not in the license's allowed list");
+        }
     }
     
     /**
@@ -0,0 +1,126 @@
+package io.github.ygqygq2.byteguard.core.license;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * 已验证 License 的本地缓存
+ * 
+ * <p>GPG 验证需要注册 BouncyCastle、解析公钥环并校验签名，是 Agent 启动的主要开销之一。
+ * License 文件内容和受信任公钥不变时验证结果也不会变，因此缓存提取出的 License JSON：
+ * <ul>
+ *   <li>缓存键: SHA-256(License 文件内容) + 受信任公钥指纹</li>
+ *   <li>缓存内容: 提取出的 License JSON + HMAC-SHA256</li>
+ *   <li>HMAC 密钥: 本机随机密钥 + 主机名/用户/系统信息（见 {@link HostKey}），缓存文件无法在主机间复制使用</li>
+ * </ul>
+ * 
+ * <p>缓存只是加速手段，读写失败时静默回退到完整的 GPG 验证；有效期仍需每次检查。
+ * 
+ * <p>信任边界：HMAC 只能防止缓存文件被复制到其他主机，或被其他用户篡改。本机随机密钥以明文存放在
+ * {@code ~/.byteguard/cache/.host-key}，主机标识也能直接读到，能读取该目录的用户（包括被授权方自己）
+ * 可以为修改过的 License JSON 伪造缓存条目，之后的启动就跳过了 GPG 验证。
+ * 因此缓存默认关闭，只应在运行环境受发行方控制（或被授权方本身可信）时通过
+ * {@code -Dbyteguard.license.cache=true} 开启。
+ * 
+ * @author ygqygq2
+ */
+public class LicenseVerificationCache {
+    
+    private static final String FORMAT = "BGLC1";
+    
+    private final File cacheDir;
+    private final String trustedFingerprint;
+    
+    /**
+     * 使用默认缓存目录 ~/.byteguard/cache
+     * 
+     * @param trustedFingerprint 受信任公钥指纹
+     */
+    public LicenseVerificationCache(String trustedFingerprint) {
+        this(new File(System.getProperty("user.home"), ".byteguard/cache"), trustedFingerprint);
+    }
+    
+    public LicenseVerificationCache(File cacheDir, String trustedFingerprint) {
+        this.cacheDir = cacheDir;
+        this.trustedFingerprint = trustedFingerprint;
+    }
+    
+    /**
+     * 查找已验证的 License
+     * 
+     * @param licenseContent License 文件原始内容
+     * @return 验证时提取的 License JSON，未命中或校验失败返回 null
+     */
+    public String lookup(String licenseContent) {
+        try {
+            Path entry = entryFile(licenseContent);
+            if (!Files.isRegularFile(entry)) {
+                return null;
+            }
+            
+            String[] lines = Files.readString(entry, StandardCharsets.US_ASCII).split("\n");
+            if (lines.length != 3 || !FORMAT.equals(lines[0])) {
+                return null;
+            }
+            
+            byte[] json = Base64.getDecoder().decode(lines[1]);
+            byte[] mac = Base64.getDecoder().decode(lines[2]);
+            
+            // 常量时间比较，防止计时侧信道
+            if (!MessageDigest.isEqual(mac, mac(licenseContent, json))) {
+                return null;
+            }
+            
+            return new String(json, StandardCharsets.UTF_8);
+        
+        } catch (Exception e) {
+            return null;
+        }
+    }
+    
+    /**
+     * 记录验证通过的 License
+     * 
+     * @param licenseContent License 文件原始内容
+     * @param licenseJson 验证时提取的 License JSON
+     */
+    public void store(String licenseContent, String licenseJson) {
+        try {
+            byte[] json = licenseJson.getBytes(StandardCharsets.UTF_8);
+            String content = FORMAT + "\n"
+                + Base64.getEncoder().encodeToString(json) + "\n"
+                + Base64.getEncoder().encodeToString(mac(licenseContent, json));
+            
+            // 先写临时文件再原子替换，并发启动的多个进程不会读到半个文件
+            Path entry = entryFile(licenseContent);
+            Path tmp = Files.createTempFile(cacheDir.toPath(), "license", ".tmp");
+            Files.writeString(tmp, content, StandardCharsets.US_ASCII);
+            Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        
+        } catch (Exception e) {
+            // 缓存不可写（只读文件系统等）时忽略
+        }
+    }
+    
+    private Path entryFile(String licenseContent) throws Exception {
+        return cacheDir.toPath().resolve("license-" + HexFormat.of().formatHex(cacheKey(licenseContent)) + ".verified");
+    }
+    
+    private byte[] cacheKey(String licenseContent) throws Exception {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        sha256.update(licenseContent.getBytes(StandardCharsets.UTF_8));
+        sha256.update((byte) 0);
+        sha256.update(trustedFingerprint.getBytes(StandardCharsets.US_ASCII));
+        return sha256.digest();
+    }
+    
+    private byte[] mac(String licenseContent, byte[] json) throws Exception {
+        return HostKey.mac(cacheDir.toPath(), cacheKey(licenseContent), json);
+    }
+}
@@ -0,0 +1,255 @@
+package io.github.ygqygq2.byteguard.core.license;
+
+import java.io.File;
+import java.net.NetworkInterface;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 机器指纹（用于 License 机器绑定）
+ * 
+ * <p>指纹 = SHA-256(machine-id || 主机名 || 物理网卡 MAC)，取前 16 字节的十六进制。
+ * DMI product_uuid 通常只有 root 可读，不同用户运行会得到不同结果，因此不参与计算。
+ * 枚举网卡在繁忙主机上可能要几十毫秒，因此：
+ * <ul>
+ *   <li>{@link #prefetch()} 在 premain 开始时启动后台计算，与密钥派生等并行</li>
+ *   <li>网卡枚举结果缓存在 ~/.byteguard/cache/machine-id，默认有效期 24 小时
+ *       （-Dbyteguard.machineId.ttlHours 调整），时间戳在未来的缓存视为无效</li>
+ *   <li>缓存带 HMAC（密钥见 {@link HostKey}），并记录 machine-id 和主机名这两个廉价信号的摘要，
+ *       复制到其他主机或被其他用户改写的缓存不会生效</li>
+ * </ul>
+ * 
+ * <p>缓存中不保存指纹本身：每次都由本机的廉价信号和缓存的网卡列表重新计算。即使能伪造缓存，
+ * 也只能伪造网卡列表，要让指纹等于 License 中的某个值就需要求 SHA-256 原像。
+ * 
+ * @author ygqygq2
+ */
+public final class MachineFingerprint {
+    
+    private static final String FORMAT = "BGMID2";
+    private static final long DEFAULT_TTL_HOURS = 24;
+    private static final long MAX_CLOCK_SKEW_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    
+    private static volatile CompletableFuture<String> future;
+    
+    private MachineFingerprint() {
+    }
+    
+    /**
+     * 启动后台计算（可重复调用，只计算一次）
+     */
+    public static void prefetch() {
+        start();
+    }
+    
+    /**
+     * 获取当前机器 ID（必要时阻塞等待计算完成）
+     * 
+     * @return 机器 ID
+     * @throws LicenseException 计算失败
+     */
+    public static String getMachineId() throws LicenseException {
+        try {
+            return start().join();
+        } catch (Exception e) {
+            throw new LicenseException("Failed to compute machine fingerprint", e);
+        }
+    }
+    
+    /**
+     * 获取当前机器 ID，最多等待指定时间
+     * 
+     * @param timeoutMillis 最长等待时间
+     * @return 机器 ID，超时返回 null
+     * @throws LicenseException 计算失败
+     */
+    public static String getMachineId(long timeoutMillis) throws LicenseException {
+        try {
+            return start().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (Exception e) {
+            throw new LicenseException("Failed to compute machine fingerprint", e);
+        }
+    }
+    
+    /**
+     * 非阻塞获取机器 ID
+     * 
+     * @return 已计算完成的机器 ID，尚未完成或失败返回 null
+     */
+    public static String peekMachineId() {
+        CompletableFuture<String> f = start();
+        return f.isDone() && !f.isCompletedExceptionally() ? f.join() : null;
+    }
+    
+    /**
+     * 计算任务，可用于注册完成回调
+     * 
+     * @return 计算任务
+     */
+    public static CompletableFuture<String> whenReady() {
+        return start();
+    }
+    
+    private static CompletableFuture<String> start() {
+        CompletableFuture<String> f = future;
+        if (f == null) {
+            synchronized (MachineFingerprint.class) {
+                f = future;
+                if (f == null) {
+                    f = new CompletableFuture<>();
+                    future = f;
+                    CompletableFuture<String> target = f;
+                    Thread thread = new Thread(() -> {
+                        try {
+                            target.complete(loadOrCompute());
+                        } catch (Throwable t) {
+                            target.completeExceptionally(t);
+                        }
+                    }, "byteguard-fingerprint");
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+            }
+        }
+        return f;
+    }
+    
+    private static String loadOrCompute() throws Exception {
+        return loadOrCompute(new File(System.getProperty("user.home"), ".byteguard/cache/machine-id").toPath());
+    }
+    
+    static String loadOrCompute(Path cacheFile) throws Exception {
+        String cheapSignals = cheapSignals();
+        long now = System.currentTimeMillis();
+        
+        // 缓存的是网卡枚举结果而不是指纹本身：指纹总是用本机的廉价信号重新计算
+        String macs = readCache(cacheFile, cheapSignals, now);
+        if (macs == null) {
+            macs = macAddresses();
+            writeCache(cacheFile, cheapSignals, macs, now);
+        }
+        return sha256Hex(cheapSignals + "|" + macs).substring(0, 32);
+    }
+    
+    /**
+     * 读缓存的网卡列表
+     * 
+     * @return 未过期、廉价信号一致且 HMAC 校验通过时返回网卡列表，否则返回 null
+     */
+    static String readCache(Path cacheFile, String cheapSignals, long now) {
+        try {
+            String[] lines = Files.readString(cacheFile, StandardCharsets.US_ASCII).split("\n", -1);
+            if (lines.length != 5 || !FORMAT.equals(lines[0])) {
+                return null;
+            }
+            long timestamp = Long.parseLong(lines[1]);
+            // 未来的时间戳（时钟回拨或伪造）一律视为过期
+            if (timestamp > now + MAX_CLOCK_SKEW_MILLIS || now - timestamp >= ttlMillis()) {
+                return null;
+            }
+            if (!lines[2].equals(sha256Hex(cheapSignals))) {
+                return null;
+            }
+            byte[] expected = mac(cacheFile, lines[0], lines[1], lines[2], lines[3]);
+            if (!MessageDigest.isEqual(expected, HexFormat.of().parseHex(lines[4]))) {
+                return null;
+            }
+            return lines[3];
+        } catch (Exception e) {
+            // 缓存不存在或损坏，重新计算
+            return null;
+        }
+    }
+    
+    /**
+     * 写缓存（失败忽略）
+     */
+    static void writeCache(Path cacheFile, String cheapSignals, String macs, long timestamp) {
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            String[] fields = {FORMAT, Long.toString(timestamp), sha256Hex(cheapSignals), macs};
+            String content = String.join("\n", fields) + "\n"
+                + HexFormat.of().formatHex(mac(cacheFile, fields));
+            Path tmp = Files.createTempFile(cacheFile.getParent(), "machine-id", ".tmp");
+            Files.writeString(tmp, content, StandardCharsets.US_ASCII);
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            // 只读文件系统等
+        }
+    }
+    
+    private static byte[] mac(Path cacheFile, String... fields) throws Exception {
+        return HostKey.mac(cacheFile.getParent(), String.join("\n", fields).getBytes(StandardCharsets.US_ASCII));
+    }
+    
+    /**
+     * 读几个小文件即可得到的信号
+     */
+    static String cheapSignals() {
+        String machineId = readFirst("/etc/machine-id", "/var/lib/dbus/machine-id");
+        String hostname = readFirst("/etc/hostname");
+        if (hostname.isEmpty()) {
+            String env = System.getenv("COMPUTERNAME");
+            hostname = env != null ? env : "";
+        }
+        return machineId + "|" + hostname;
+    }
+    
+    /**
+     * 物理网卡 MAC（排序后拼接，排除回环、虚拟和未启用的网卡）
+     */
+    private static String macAddresses() throws Exception {
+        List<String> macs = new ArrayList<>();
+        Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+        if (interfaces != null) {
+            for (NetworkInterface ni : Collections.list(interfaces)) {
+                if (ni.isLoopback() || ni.isVirtual() || !ni.isUp()) {
+                    continue;
+                }
+                byte[] mac = ni.getHardwareAddress();
+                if (mac != null && mac.length > 0) {
+                    macs.add(HexFormat.of().formatHex(mac));
+                }
+            }
+        }
+        Collections.sort(macs);
+        return String.join(",", macs);
+    }
+    
+    private static String readFirst(String... paths) {
+        for (String path : paths) {
+            try {
+                String value = Files.readString(Path.of(path)).trim();
+                if (!value.isEmpty()) {
+                    return value;
+                }
+            } catch (Exception e) {
+                // 不存在或无权限
+            }
+        }
+        return "";
+    }
+    
+    private static long ttlMillis() {
+        long hours = Long.getLong("byteguard.machineId.ttlHours", DEFAULT_TTL_HOURS);
+        return TimeUnit.HOURS.toMillis(hours);
+    }
+    
+    private static String sha256Hex(String value) throws Exception {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().withUpperCase().formatHex(sha256.digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,250 @@
+package io.github.ygqygq2.byteguard.core.license;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * License 吊销列表（离线分发，放在 License 文件旁边）
+ * 
+ * <p>文件格式（大端序），整个文件通过 mmap 只读映射，打开时只校验头部和偏移表（不复制内容）：
+ * <pre>
+ * [magic "BGRL"][version u8][k u8][reserved u16][bloomBits i64][count i32][reserved i32][issuedAt i64]
+ * [Bloom filter: bloomBits / 8 bytes]
+ * [offsets: (count + 1) × i32]                 按 UTF-8 字节序排序的 ID 在字符串区的偏移
+ * [ID 字符串区: UTF-8]
+ * </pre>
+ * 
+ * <p>查询时先查 Bloom filter（k 次位测试，绝大多数未吊销的 License 到此为止），
+ * 命中后再在排序 ID 上二分查找，排除误判。百万级 ID 的列表也只需几十 MB 映射，不占堆内存。
+ * 
+ * <p>签名：列表用受信任的 GPG 密钥做分离签名（{@code gpg --detach-sign --armor revoked.brl}，
+ * 生成 revoked.brl.asc）。删除列表本身就能绕过吊销，因此签名只用于防止伪造吊销，
+ * 只在确认命中时才验证，未命中不会加载 PGP 验证栈。
+ * 
+ * @author ygqygq2
+ */
+public class RevocationList {
+    
+    /** 默认文件名（与 License 文件放在同一目录） */
+    public static final String DEFAULT_FILE_NAME = "revoked.brl";
+    
+    private static final int MAGIC = 0x4247524C; // "BGRL"
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final int k;
+    private final long bloomBits;
+    private final int count;
+    private final long issuedAt;
+    private final int offsetsStart;
+    private final int stringsStart;
+    
+    private RevocationList(Path file, ByteBuffer buffer) throws LicenseException {
+        this.file = file;
+        this.buffer = buffer;
+        
+        int size = buffer.capacity();
+        if (size < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.get(4) != VERSION) {
+            throw new LicenseException("Not a ByteGuard revocation list: " + file);
+        }
+        this.k = buffer.get(5);
+        this.bloomBits = buffer.getLong(8);
+        this.count = buffer.getInt(16);
+        this.issuedAt = buffer.getLong(24);
+        
+        if (k <= 0 || bloomBits <= 0 || bloomBits % 64 != 0 || bloomBits / 8 > size - HEADER_SIZE || count < 0) {
+            throw corrupted("invalid header");
+        }
+        long tableEnd = HEADER_SIZE + bloomBits / 8 + (count + 1L) * 4;
+        if (tableEnd > size) {
+            throw corrupted("offset table exceeds file size");
+        }
+        this.offsetsStart = HEADER_SIZE + (int) (bloomBits / 8);
+        this.stringsStart = (int) tableEnd;
+        
+        // 查询时直接按偏移读字符串区，偏移必须从 0 开始、单调不减且最后一个正好到文件末尾
+        int previous = 0;
+        for (int i = 0; i <= count; i++) {
+            int offset = buffer.getInt(offsetsStart + i * 4);
+            if (i == 0 ? offset != 0 : offset < previous || offset > size - stringsStart) {
+                throw corrupted("offset " + i + " out of order or out of bounds");
+            }
+            previous = offset;
+        }
+        if (stringsStart + previous != size) {
+            throw corrupted("string area does not end at end of file");
+        }
+    }
+    
+    /**
+     * 映射吊销列表文件
+     * 
+     * @param file 列表文件
+     * @return 吊销列表
+     * @throws IOException 读取失败
+     * @throws LicenseException 不是吊销列表或内容损坏
+     */
+    public static RevocationList open(Path file) throws IOException, LicenseException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new RevocationList(file, buffer);
+        }
+    }
+    
+    /**
+     * 生成吊销列表
+     * 
+     * @param licenseIds 吊销的 License ID
+     * @param falsePositiveRate Bloom filter 目标误判率（如 0.001）
+     * @param out 输出
+     * @throws IOException 写入失败
+     */
+    public static void write(Collection<String> licenseIds, double falsePositiveRate, OutputStream out) throws IOException {
+        byte[][] ids = licenseIds.stream()
+            .distinct()
+            .map(id -> id.getBytes(StandardCharsets.UTF_8))
+            .sorted(Arrays::compareUnsigned)
+            .toArray(byte[][]::new);
+        int n = Math.max(ids.length, 1);
+        
+        // m = -n·ln(p) / ln(2)²，k = m/n·ln(2)
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        bits = Math.max(64, (bits + 63) / 64 * 64);
+        int k = (int) Math.max(1, Math.min(30, Math.round((double) bits / n * Math.log(2))));
+        if (bits / 8 > Integer.MAX_VALUE - HEADER_SIZE) {
+            throw new IOException("Revocation list too large: " + ids.length + " IDs");
+        }
+        
+        byte[] bloom = new byte[(int) (bits / 8)];
+        int[] offsets = new int[ids.length + 1];
+        int offset = 0;
+        for (int i = 0; i < ids.length; i++) {
+            long[] h = hash(ids[i]);
+            for (int j = 0; j < k; j++) {
+                long bit = Math.floorMod(h[0] + j * h[1], bits);
+                bloom[(int) (bit >>> 3)] |= (byte) (1 << (bit & 7));
+            }
+            offsets[i] = offset;
+            offset += ids[i].length;
+        }
+        offsets[ids.length] = offset;
+        
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).put(VERSION).put((byte) k).putShort((short) 0)
+            .putLong(bits).putInt(ids.length).putInt(0).putLong(System.currentTimeMillis());
+        out.write(header.array());
+        out.write(bloom);
+        
+        ByteBuffer offsetBytes = ByteBuffer.allocate(offsets.length * 4);
+        offsetBytes.asIntBuffer().put(offsets);
+        out.write(offsetBytes.array());
+        for (byte[] id : ids) {
+            out.write(id);
+        }
+    }
+    
+    /**
+     * Bloom filter 查询（可能误判，不会漏判）
+     */
+    public boolean mightContain(String licenseId) {
+        long[] h = hash(licenseId.getBytes(StandardCharsets.UTF_8));
+        for (int j = 0; j < k; j++) {
+            long bit = Math.floorMod(h[0] + j * h[1], bloomBits);
+            if ((buffer.get(HEADER_SIZE + (int) (bit >>> 3)) & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * License 是否已被吊销（精确结果）
+     */
+    public boolean isRevoked(String licenseId) {
+        if (licenseId == null || !mightContain(licenseId)) {
+            return false;
+        }
+        
+        // 二分查找排除误判
+        byte[] target = licenseId.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareAt(mid, target);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 验证列表的 GPG 分离签名（同目录下的 .asc 文件）
+     * 
+     * @throws LicenseException 签名缺失或无效
+     */
+    public void verifySignature() throws LicenseException {
+        Path signatureFile = file.resolveSibling(file.getFileName() + ".asc");
+        try (InputStream signature = Files.newInputStream(signatureFile)) {
+            GPGLicenseValidator.verifyDetached(Files.readAllBytes(file), signature);
+        } catch (IOException e) {
+            throw new LicenseException("Revocation list signature not found: " + signatureFile, e);
+        }
+    }
+    
+    public int size() {
+        return count;
+    }
+    
+    public long getIssuedAt() {
+        return issuedAt;
+    }
+    
+    private LicenseException corrupted(String reason) {
+        return new LicenseException("Corrupted revocation list " + file + ": " + reason);
+    }
+    
+    private int compareAt(int index, byte[] target) {
+        int start = buffer.getInt(offsetsStart + index * 4);
+        int end = buffer.getInt(offsetsStart + (index + 1) * 4);
+        int length = end - start;
+        int base = stringsStart + start;
+        for (int i = 0; i < Math.min(length, target.length); i++) {
+            int cmp = Integer.compare(buffer.get(base + i) & 0xFF, target[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, target.length);
+    }
+    
+    /**
+     * 两个独立的 64 位哈希（双重哈希生成 k 个位置）
+     */
+    private static long[] hash(byte[] id) {
+        try {
+            ByteBuffer digest = ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(id));
+            return new long[] { digest.getLong(), digest.getLong() | 1 };
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
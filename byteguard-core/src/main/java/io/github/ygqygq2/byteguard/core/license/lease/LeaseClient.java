@@ -0,0 +1,342 @@
+package io.github.ygqygq2.byteguard.core.license.lease;
+
+import io.github.ygqygq2.byteguard.core.license.LicenseException;
+import io.github.ygqygq2.byteguard.core.net.SocketAddresses;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * 实例租约客户端
+ * 
+ * <p>申请租约后由后台线程定期续约（TTL 的 1/3），同一客户端持有的所有租约合并为一帧发送。
+ * 租约丢失（服务器重启、网络中断超过 TTL）时自动重新申请。
+ * 
+ * <p>启动不会被租约服务器拖住：{@link #acquire(String, long)} 最多等待给定时间，
+ * 超时后申请在后台继续，由调用方决定是否放行。之后才到达的明确拒绝（后台申请、或租约丢失后重新申请时
+ * 实例数已满）交给 {@link #setDeniedHandler} 设置的处理器，默认只输出告警；需要强制执行限制的调用方
+ * （如 Agent）应在处理器中终止进程。
+ * 
+ * <p>连接和每次请求都受看门狗限制（与 {@code KeyServerKeyProvider} 相同，超时关闭通道），
+ * 服务器无响应时心跳线程不会一直阻塞、占着客户端的锁。
+ * 
+ * @author ygqygq2
+ */
+public class LeaseClient implements Closeable {
+    
+    /** 单次连接或请求的默认超时 */
+    public static final long DEFAULT_ATTEMPT_TIMEOUT_MILLIS = 1000;
+    
+    private final SocketAddress address;
+    private final long attemptTimeoutMillis;
+    private final ScheduledExecutorService scheduler;
+    
+    // licenseId -> token
+    private final Map<String, Long> leases = new ConcurrentHashMap<>();
+    
+    private SocketChannel channel;
+    private DataInputStream in;
+    private DataOutputStream out;
+    private boolean heartbeatStarted;
+    private volatile Consumer<LicenseException> deniedHandler =
+        e -> System.err.println("[ByteGuard] Warning: " + e.getMessage());
+    
+    /**
+     * @param address {@code host:port} 或 {@code unix:/path}
+     */
+    public LeaseClient(String address) {
+        this(address, DEFAULT_ATTEMPT_TIMEOUT_MILLIS);
+    }
+    
+    /**
+     * @param address {@code host:port} 或 {@code unix:/path}
+     * @param attemptTimeoutMillis 单次连接或请求的超时
+     */
+    public LeaseClient(String address, long attemptTimeoutMillis) {
+        this.address = SocketAddresses.parse(address);
+        this.attemptTimeoutMillis = attemptTimeoutMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "byteguard-lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * 设置 {@link #acquire} 返回之后才到达的拒绝的处理方式（在后台线程上调用）
+     * 
+     * @param handler 处理器，参数为服务器的拒绝
+     * @return this
+     */
+    public LeaseClient setDeniedHandler(Consumer<LicenseException> handler) {
+        this.deniedHandler = handler;
+        return this;
+    }
+    
+    /**
+     * 申请租约
+     * 
+     * @param licenseId License ID
+     * @param timeoutMillis 最长等待时间
+     * @return true 已获得租约；false 服务器在超时内未响应（申请在后台继续，之后的拒绝见 {@link #setDeniedHandler}）
+     * @throws LicenseException 实例数已达上限
+     */
+    public boolean acquire(String licenseId, long timeoutMillis) throws LicenseException {
+        CompletableFuture<Void> attempt = CompletableFuture.runAsync(() -> {
+            try {
+                acquireNow(licenseId);
+            } catch (LicenseException e) {
+                throw new IllegalStateException(e);
+            } catch (IOException e) {
+                // 连不上时交给心跳重试
+                leases.putIfAbsent(licenseId, 0L);
+                startHeartbeat(LeaseServer.DEFAULT_TTL_MILLIS);
+                throw new IllegalStateException(e);
+            }
+        }, scheduler);
+        
+        try {
+            attempt.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            attempt.exceptionally(t -> {
+                if (t.getCause() != null && t.getCause().getCause() instanceof LicenseException) {
+                    deniedHandler.accept((LicenseException) t.getCause().getCause());
+                }
+                return null;
+            });
+            return false;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause().getCause();
+            if (cause instanceof LicenseException) {
+                throw (LicenseException) cause;
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    /**
+     * 是否持有有效租约
+     */
+    public boolean isHeld(String licenseId) {
+        Long token = leases.get(licenseId);
+        return token != null && token != 0L;
+    }
+    
+    /**
+     * 释放全部租约并停止心跳
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        synchronized (this) {
+            List<Long> held = heldTokens();
+            try {
+                if (!held.isEmpty() && ensureConnected()) {
+                    withDeadline(() -> {
+                        out.writeByte(LeaseProtocol.OP_RELEASE);
+                        writeTokens(held);
+                        out.flush();
+                        return in.readUnsignedShort();
+                    });
+                }
+            } catch (IOException e) {
+                // 服务器不可达：租约在 TTL 后自动过期
+            }
+            leases.clear();
+            disconnect();
+        }
+    }
+    
+    private synchronized void acquireNow(String licenseId) throws IOException, LicenseException {
+        if (!ensureConnected()) {
+            throw new IOException("Lease server unavailable: " + SocketAddresses.format(address));
+        }
+        long[] reply;
+        try {
+            reply = withDeadline(() -> {
+                out.writeByte(LeaseProtocol.OP_ACQUIRE);
+                out.writeUTF(licenseId);
+                out.flush();
+                
+                // OK: token, ttl；拒绝: active, max
+                return in.readByte() == LeaseProtocol.STATUS_OK
+                    ? new long[] {1, in.readLong(), in.readInt()}
+                    : new long[] {0, in.readInt(), in.readInt()};
+            });
+        } catch (IOException e) {
+            disconnect();
+            throw e;
+        }
+        
+        if (reply[0] == 1) {
+            leases.put(licenseId, reply[1]);
+            startHeartbeat(reply[2]);
+        } else {
+            leases.remove(licenseId);
+            throw new LicenseException(
+                "Instance limit reached for license " + licenseId + " (" + reply[1] + "/" + reply[2] + ")"
+            );
+        }
+    }
+    
+    private synchronized void startHeartbeat(long ttlMillis) {
+        if (heartbeatStarted || scheduler.isShutdown()) {
+            return;
+        }
+        heartbeatStarted = true;
+        long period = Math.max(ttlMillis / 3, 1);
+        scheduler.scheduleWithFixedDelay(this::heartbeat, period, period, TimeUnit.MILLISECONDS);
+    }
+    
+    private void heartbeat() {
+        List<String> lost = new ArrayList<>();
+        synchronized (this) {
+            List<String> ids = new ArrayList<>();
+            List<Long> tokens = new ArrayList<>();
+            for (Map.Entry<String, Long> entry : leases.entrySet()) {
+                if (entry.getValue() != 0L) {
+                    ids.add(entry.getKey());
+                    tokens.add(entry.getValue());
+                } else {
+                    lost.add(entry.getKey());
+                }
+            }
+            
+            try {
+                if (!tokens.isEmpty() && ensureConnected()) {
+                    boolean[] renewed = withDeadline(() -> {
+                        out.writeByte(LeaseProtocol.OP_RENEW);
+                        writeTokens(tokens);
+                        out.flush();
+                        
+                        boolean[] result = new boolean[in.readUnsignedShort()];
+                        for (int i = 0; i < result.length; i++) {
+                            result[i] = in.readBoolean();
+                        }
+                        return result;
+                    });
+                    for (int i = 0; i < renewed.length; i++) {
+                        if (!renewed[i]) {
+                            leases.put(ids.get(i), 0L);
+                            lost.add(ids.get(i));
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                disconnect();
+            }
+        }
+        
+        // 租约丢失或从未获得：重新申请
+        for (String licenseId : lost) {
+            try {
+                acquireNow(licenseId);
+            } catch (LicenseException e) {
+                deniedHandler.accept(e);
+            } catch (IOException e) {
+                leases.putIfAbsent(licenseId, 0L);
+            }
+        }
+    }
+    
+    private List<Long> heldTokens() {
+        List<Long> held = new ArrayList<>();
+        for (Long token : leases.values()) {
+            if (token != 0L) {
+                held.add(token);
+            }
+        }
+        return held;
+    }
+    
+    private void writeTokens(List<Long> tokens) throws IOException {
+        int n = Math.min(tokens.size(), LeaseProtocol.MAX_BATCH);
+        out.writeShort(n);
+        for (int i = 0; i < n; i++) {
+            out.writeLong(tokens.get(i));
+        }
+    }
+    
+    private boolean ensureConnected() {
+        if (channel != null && channel.isOpen()) {
+            return true;
+        }
+        try {
+            channel = SocketAddresses.open(address);
+            withDeadline(() -> {
+                SocketAddresses.connect(channel, address);
+                in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+                out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                out.writeInt(LeaseProtocol.MAGIC);
+                out.flush();
+                return null;
+            });
+            return true;
+        } catch (IOException e) {
+            disconnect();
+            return false;
+        }
+    }
+    
+    /**
+     * 在看门狗限制下执行一次请求：超时关闭当前通道，中断阻塞中的 connect/read
+     */
+    private <T> T withDeadline(Exchange<T> exchange) throws IOException {
+        SocketChannel current = channel;
+        CompletableFuture<Void> watchdog = CompletableFuture.runAsync(() -> {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+        }, CompletableFuture.delayedExecutor(attemptTimeoutMillis, TimeUnit.MILLISECONDS));
+        
+        try {
+            return exchange.run();
+        } catch (AsynchronousCloseException e) {
+            throw new IOException("Lease server " + SocketAddresses.format(address)
+                + " timed out after " + attemptTimeoutMillis + " ms", e);
+        } finally {
+            watchdog.cancel(false);
+        }
+    }
+    
+    @FunctionalInterface
+    private interface Exchange<T> {
+        T run() throws IOException;
+    }
+    
+    private void disconnect() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package io.github.ygqygq2.byteguard.core.license.lease;
+
+/**
+ * 租约协议常量
+ * 
+ * <p>长连接上的二进制请求/响应（大端序），连接建立后客户端先发送 4 字节魔数：
+ * <pre>
+ * ACQUIRE: [1][licenseId: UTF]            -> [OK][token: i64][ttlMillis: i32]
+ *                                          | [DENIED][active: i32][max: i32]
+ * RENEW:   [2][n: u16][token: i64 × n]    -> [n: u16][alive: u8 × n]
+ * RELEASE: [3][n: u16][token: i64 × n]    -> [released: u16]
+ * </pre>
+ * 
+ * <p>RENEW/RELEASE 一帧可携带多个租约，同一进程持有的所有租约只需一次往返。
+ * 
+ * <p>地址格式见 {@link io.github.ygqygq2.byteguard.core.net.SocketAddresses}
+ * 
+ * @author ygqygq2
+ */
+final class LeaseProtocol {
+    
+    static final int MAGIC = 0x42474C31; // "BGL1"
+    
+    static final byte OP_ACQUIRE = 1;
+    static final byte OP_RENEW = 2;
+    static final byte OP_RELEASE = 3;
+    
+    static final byte STATUS_OK = 0;
+    static final byte STATUS_DENIED = 1;
+    
+    /** 单帧最多携带的租约数 */
+    static final int MAX_BATCH = 0xFFFF;
+    
+    private LeaseProtocol() {
+    }
+}
@@ -0,0 +1,271 @@
+package io.github.ygqygq2.byteguard.core.license.lease;
+
+import io.github.ygqygq2.byteguard.core.net.SocketAddresses;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 实例租约服务器（License maxInstances 控制）
+ * 
+ * <p>每个运行中的实例持有一个租约，服务器按 License ID 计数，超过 maxInstances 时拒绝。
+ * 实例异常退出时租约在 TTL 后自动过期，无需人工清理。
+ * <ul>
+ *   <li>可嵌入：{@code new LeaseServer(ttl).limit(id, n).start("127.0.0.1:7070")}</li>
+ *   <li>独立运行：{@code java -jar byteguard.jar lease-server --license license.lic}</li>
+ *   <li>监听 TCP 或 Unix Domain Socket（同一主机的多个实例）</li>
+ * </ul>
+ * 
+ * <p>每个连接一个虚拟线程，续约只是一次哈希表更新，数千实例的心跳不需要额外调优。
+ * 状态只在内存中，服务器重启后实例在下一次心跳时重新申请。
+ * 
+ * @author ygqygq2
+ */
+public class LeaseServer implements Closeable {
+    
+    /** 默认租约有效期 */
+    public static final long DEFAULT_TTL_MILLIS = 30_000;
+    
+    private final long ttlMillis;
+    private final SecureRandom random = new SecureRandom();
+    
+    // licenseId -> 租约池
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+    // token -> 租约池
+    private final Map<Long, Pool> owners = new ConcurrentHashMap<>();
+    
+    private ServerSocketChannel serverChannel;
+    private SocketAddress localAddress;
+    private volatile boolean running;
+    
+    public LeaseServer() {
+        this(DEFAULT_TTL_MILLIS);
+    }
+    
+    public LeaseServer(long ttlMillis) {
+        if (ttlMillis <= 0 || ttlMillis > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid lease TTL: " + ttlMillis);
+        }
+        this.ttlMillis = ttlMillis;
+    }
+    
+    /**
+     * 设置 License 的最大实例数（未设置的 License 一律拒绝）
+     * 
+     * @param licenseId License ID
+     * @param maxInstances 最大实例数
+     * @return this
+     */
+    public LeaseServer limit(String licenseId, int maxInstances) {
+        pools.computeIfAbsent(licenseId, id -> new Pool()).max = maxInstances;
+        return this;
+    }
+    
+    /**
+     * 开始监听
+     * 
+     * @param address {@code host:port}（端口为 0 时自动分配）或 {@code unix:/path}
+     * @return this
+     * @throws IOException 绑定失败
+     */
+    public LeaseServer start(String address) throws IOException {
+        serverChannel = SocketAddresses.bind(SocketAddresses.parse(address), 1024);
+        localAddress = serverChannel.getLocalAddress();
+        running = true;
+        
+        Thread acceptor = new Thread(this::acceptLoop, "byteguard-lease-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return this;
+    }
+    
+    /**
+     * 实际监听地址（格式同 {@link #start(String)}，可直接传给 {@link LeaseClient}）
+     */
+    public String getAddress() {
+        return SocketAddresses.format(localAddress);
+    }
+    
+    /**
+     * 当前有效的租约数
+     */
+    public int activeLeases(String licenseId) {
+        Pool pool = pools.get(licenseId);
+        if (pool == null) {
+            return 0;
+        }
+        synchronized (pool) {
+            pool.purge(System.currentTimeMillis());
+            return pool.leases.size();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (serverChannel != null) {
+            serverChannel.close();
+            SocketAddresses.deleteSocketFile(localAddress);
+        }
+    }
+    
+    private void acceptLoop() {
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                Thread.ofVirtual().name("byteguard-lease-conn").start(() -> serve(channel));
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("[ByteGuard] Lease server accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            
+            if (in.readInt() != LeaseProtocol.MAGIC) {
+                return;
+            }
+            
+            while (running) {
+                byte op = in.readByte();
+                switch (op) {
+                    case LeaseProtocol.OP_ACQUIRE:
+                        acquire(in.readUTF(), out);
+                        break;
+                    case LeaseProtocol.OP_RENEW:
+                        renew(readTokens(in), out);
+                        break;
+                    case LeaseProtocol.OP_RELEASE:
+                        out.writeShort(release(readTokens(in)));
+                        break;
+                    default:
+                        // 未知操作，断开连接
+                        return;
+                }
+                out.flush();
+            }
+        } catch (EOFException e) {
+            // 客户端断开
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("[ByteGuard] Lease connection error: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void acquire(String licenseId, DataOutputStream out) throws IOException {
+        Pool pool = pools.get(licenseId);
+        if (pool == null) {
+            out.writeByte(LeaseProtocol.STATUS_DENIED);
+            out.writeInt(0);
+            out.writeInt(0);
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        long token;
+        synchronized (pool) {
+            pool.purge(now);
+            if (pool.leases.size() >= pool.max) {
+                out.writeByte(LeaseProtocol.STATUS_DENIED);
+                out.writeInt(pool.leases.size());
+                out.writeInt(pool.max);
+                return;
+            }
+            do {
+                token = random.nextLong();
+            } while (owners.putIfAbsent(token, pool) != null);
+            pool.leases.put(token, now + ttlMillis);
+        }
+        
+        out.writeByte(LeaseProtocol.STATUS_OK);
+        out.writeLong(token);
+        out.writeInt((int) ttlMillis);
+    }
+    
+    private void renew(long[] tokens, DataOutputStream out) throws IOException {
+        long expireAt = System.currentTimeMillis() + ttlMillis;
+        out.writeShort(tokens.length);
+        for (long token : tokens) {
+            out.writeBoolean(touch(token, expireAt));
+        }
+    }
+    
+    private boolean touch(long token, long expireAt) {
+        Pool pool = owners.get(token);
+        if (pool == null) {
+            return false;
+        }
+        synchronized (pool) {
+            Long current = pool.leases.get(token);
+            if (current == null || current < System.currentTimeMillis()) {
+                // 已过期：由下次 purge 回收，客户端需重新申请
+                return false;
+            }
+            pool.leases.put(token, expireAt);
+            return true;
+        }
+    }
+    
+    private int release(long[] tokens) {
+        int released = 0;
+        for (long token : tokens) {
+            Pool pool = owners.remove(token);
+            if (pool != null) {
+                synchronized (pool) {
+                    if (pool.leases.remove(token) != null) {
+                        released++;
+                    }
+                }
+            }
+        }
+        return released;
+    }
+    
+    private static long[] readTokens(DataInputStream in) throws IOException {
+        long[] tokens = new long[in.readUnsignedShort()];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = in.readLong();
+        }
+        return tokens;
+    }
+    
+    /**
+     * 单个 License 的租约池（访问时对自身加锁）
+     */
+    private class Pool {
+        volatile int max;
+        // token -> 过期时间
+        final Map<Long, Long> leases = new HashMap<>();
+        
+        void purge(long now) {
+            Iterator<Map.Entry<Long, Long>> it = leases.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Long, Long> entry = it.next();
+                if (entry.getValue() < now) {
+                    owners.remove(entry.getKey());
+                    it.remove();
+                }
+            }
+        }
+    }
+}
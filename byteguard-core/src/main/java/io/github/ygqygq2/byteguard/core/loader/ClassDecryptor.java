@@ -1,8 +1,11 @@
 package io.github.ygqygq2.byteguard.core.loader;
 
 import io.github.ygqygq2.byteguard.core.crypto.AESGCMCipher;
+import io.github.ygqygq2.byteguard.core.crypto.CipherSuite;
 import io.github.ygqygq2.byteguard.core.crypto.CryptoException;
+import io.github.ygqygq2.byteguard.core.crypto.EncryptedEntry;
 import io.github.ygqygq2.byteguard.core.crypto.KeyDerivation;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadata;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -18,7 +21,8 @@ public class ClassDecryptor {
     
     private final byte[] masterKey;
     private final KeyDerivation keyDerivation;
-    private final AESGCMCipher cipher;
+    private final CipherSuite cipher;
+    private final boolean entryHeaders; // 2.3 格式：条目头 + 可能压缩的明文
     
     // 缓存：className -> 解密后的字节码
     private final Map<String, byte[]> cache;
@@ -29,9 +33,25 @@ public class ClassDecryptor {
     }
     
     public ClassDecryptor(byte[] masterKey, int maxCacheSize) {
+        this(masterKey, new AESGCMCipher(), maxCacheSize);
+    }
+    
+    public ClassDecryptor(byte[] masterKey, CipherSuite cipher) {
+        this(masterKey, cipher, 1000);
+    }
+    
+    public ClassDecryptor(byte[] masterKey, CipherSuite cipher, int maxCacheSize) {
+        this(masterKey, cipher, maxCacheSize, false);
+    }
+    
+    /**
+     * @param entryHeaders 加密条目是否带条目头（见 {@link EncryptionMetadata#hasEntryHeaders()}）
+     */
+    public ClassDecryptor(byte[] masterKey, CipherSuite cipher, int maxCacheSize, boolean entryHeaders) {
         this.masterKey = masterKey;
         this.keyDerivation = new KeyDerivation();
-        this.cipher = new AESGCMCipher();
+        this.cipher = cipher;
+        this.entryHeaders = entryHeaders;
         this.cache = new ConcurrentHashMap<>();
         this.maxCacheSize = maxCacheSize;
     }
@@ -55,7 +75,9 @@ public class ClassDecryptor {
         byte[] classKey = keyDerivation.deriveClassKey(masterKey, className);
         
         // 解密
-        byte[] decrypted = cipher.decrypt(encryptedBytes, classKey);
+        byte[] decrypted = entryHeaders
+            ? EncryptedEntry.open(encryptedBytes, classKey, cipher)
+            : cipher.decrypt(encryptedBytes, classKey);
         
         // 缓存（LRU 简化版：满了就清空）
         if (cache.size() >= maxCacheSize) {
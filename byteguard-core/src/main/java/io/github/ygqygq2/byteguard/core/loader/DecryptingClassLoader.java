@@ -1,18 +1,32 @@
 package io.github.ygqygq2.byteguard.core.loader;
 
+import io.github.ygqygq2.byteguard.core.crypto.CipherSuites;
 import io.github.ygqygq2.byteguard.core.crypto.CryptoException;
+import io.github.ygqygq2.byteguard.core.crypto.KeyEnvelope;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadata;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadataSerializer;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
 
 /**
  * 解密 ClassLoader
  * 
  * <p>在加载类时自动解密，支持所有 Java 特性（Lambda、Method Reference 等）
  * 
+ * <p>传入加密元数据时按元数据记录的路径读取密文（单副本格式 2.2 中即类的原路径），
+ * 元数据之外的类按普通类加载；未传入时按旧格式从 META-INF/.encrypted/ 查找。
+ * 
+ * <p>展开的类目录用 {@link #forDirectory} 创建：元数据文件作为索引，密文直接按文件路径读取。
+ * 
  * @author ygqygq2
  */
 public class DecryptingClassLoader extends URLClassLoader {
@@ -20,16 +34,72 @@ public class DecryptingClassLoader extends URLClassLoader {
     private static final String ENCRYPTED_PREFIX = "META-INF/.encrypted/";
     
     private final ClassDecryptor decryptor;
+    private final Map<String, EncryptionMetadata.ClassInfo> encryptedClasses; // null: 旧格式，按固定前缀查找
+    private final Path directory; // 非 null: 从展开的类目录读取密文
     
     public DecryptingClassLoader(URL[] urls, ClassLoader parent, ClassDecryptor decryptor) {
         super(urls, parent);
         this.decryptor = decryptor;
+        this.encryptedClasses = null;
+        this.directory = null;
+    }
+    
+    public DecryptingClassLoader(URL[] urls, ClassLoader parent, ClassDecryptor decryptor, EncryptionMetadata metadata) {
+        this(urls, parent, decryptor, metadata, null);
+    }
+    
+    private DecryptingClassLoader(URL[] urls, ClassLoader parent, ClassDecryptor decryptor, EncryptionMetadata metadata,
+                                  Path directory) {
+        super(urls, parent);
+        this.decryptor = decryptor;
+        this.encryptedClasses = metadata.getEncryptedClasses();
+        this.directory = directory;
+    }
+    
+    /**
+     * 从加密后的展开类目录加载（见 JarEncryptor#encryptDirectory）
+     * 
+     * <p>读取目录下的元数据，用密码解开数据密钥；资源和未加密的类照常从该目录加载。
+     * 
+     * @param directory 类目录
+     * @param parent 父 ClassLoader
+     * @param password 密码
+     * @return ClassLoader
+     * @throws IOException 目录中没有加密元数据或读取失败
+     * @throws CryptoException 密码错误
+     */
+    public static DecryptingClassLoader forDirectory(Path directory, ClassLoader parent, String password)
+            throws IOException, CryptoException {
+        Path root = directory.toAbsolutePath().normalize();
+        Path index = root.resolve(EncryptionMetadata.METADATA_PATH);
+        if (!Files.isRegularFile(index)) {
+            throw new IOException("Not a ByteGuard encrypted directory (metadata missing): " + directory);
+        }
+        EncryptionMetadata metadata = new EncryptionMetadataSerializer()
+            .fromJson(new String(Files.readAllBytes(index), StandardCharsets.UTF_8));
+        
+        ClassDecryptor decryptor = new ClassDecryptor(KeyEnvelope.open(metadata, password),
+            CipherSuites.forName(metadata.getAlgorithm()), 1000, metadata.hasEntryHeaders());
+        return new DecryptingClassLoader(new URL[] { root.toUri().toURL() }, parent, decryptor, metadata, root);
     }
     
     @Override
     protected Class<?> findClass(String name) throws ClassNotFoundException {
-        // 尝试从加密目录加载
-        String encryptedPath = ENCRYPTED_PREFIX + name.replace('.', '/') + ".class";
+        String encryptedPath;
+        if (encryptedClasses != null) {
+            EncryptionMetadata.ClassInfo info = encryptedClasses.get(name);
+            if (info == null) {
+                return super.findClass(name);
+            }
+            encryptedPath = info.getEncryptedPath();
+        } else {
+            // 尝试从加密目录加载
+            encryptedPath = ENCRYPTED_PREFIX + name.replace('.', '/') + ".class";
+        }
+        
+        if (directory != null) {
+            return defineFromFile(name, encryptedPath);
+        }
         
         try (InputStream is = getResourceAsStream(encryptedPath)) {
             if (is != null) {
@@ -52,6 +122,26 @@ public class DecryptingClassLoader extends URLClassLoader {
         return super.findClass(name);
     }
     
+    /**
+     * 按元数据记录的相对路径从类目录读取密文并定义类
+     */
+    private Class<?> defineFromFile(String name, String encryptedPath) throws ClassNotFoundException {
+        Path file = directory.resolve(encryptedPath).normalize();
+        if (!file.startsWith(directory)) {
+            throw new ClassNotFoundException("Encrypted class outside of directory: " + name);
+        }
+        try {
+            byte[] decryptedBytes = decryptor.decrypt(name, Files.readAllBytes(file));
+            return defineClass(name, decryptedBytes, 0, decryptedBytes.length);
+        } catch (NoSuchFileException e) {
+            return super.findClass(name);
+        } catch (IOException e) {
+            throw new ClassNotFoundException("Failed to load encrypted class: " + name, e);
+        } catch (CryptoException e) {
+            throw new ClassNotFoundException("Failed to decrypt class: " + name, e);
+        }
+    }
+    
     /**
      * 读取 InputStream 的所有字节
      */
@@ -1,20 +1,60 @@
 package io.github.ygqygq2.byteguard.core.model;
 
+import io.github.ygqygq2.byteguard.core.crypto.CipherSuites;
+import io.github.ygqygq2.byteguard.core.crypto.KdfParams;
+import io.github.ygqygq2.byteguard.core.crypto.NonceStrategy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * 加密元数据
  * 
- * <p>存储在 JAR 的 META-INF/byteguard-metadata.json 中
+ * <p>存储在 JAR 的 META-INF/.byteguard/metadata.json 中
+ * 
+ * <p>版本：
+ * <ul>
+ *   <li>1.0: 主密钥 = PBKDF2(密码, salt)</li>
+ *   <li>2.0: 信封加密，主密钥为随机数据密钥，由 keySlots 中的密码派生密钥包装</li>
+ *   <li>2.1: 记录 Nonce 生成策略（nonce 字段）；Nonce 仍随密文保存，2.0 的读取方可直接解密</li>
+ *   <li>2.2: 单副本，每个类的密文只存放在原路径（encryptedPath 与 originalPath 相同，元数据中省略），
+ *       不再复制到 META-INF/.encrypted/</li>
+ *   <li>2.3: 加密条目带条目头，明文先压缩再加密（见 {@link io.github.ygqygq2.byteguard.core.crypto.EncryptedEntry}）</li>
+ * </ul>
  * 
  * @author ygqygq2
  */
 public class EncryptionMetadata {
     
+    /** 元数据在 JAR 中的路径 */
+    public static final String METADATA_PATH = "META-INF/.byteguard/metadata.json";
+    
+    /** 信封加密格式版本 */
+    public static final String VERSION_ENVELOPE = "2.0";
+    
+    /** 记录 Nonce 策略的格式版本 */
+    public static final String VERSION_NONCE_STRATEGY = "2.1";
+    
+    /** 单副本格式版本 */
+    public static final String VERSION_SINGLE_COPY = "2.2";
+    
+    /** 加密条目带条目头（先压缩后加密）的格式版本 */
+    public static final String VERSION_ENTRY_HEADER = "2.3";
+    
     private String version = "1.0";
-    private String algorithm = "AES-256-GCM";
-    private byte[] salt;              // PBKDF2 盐值
+    private String algorithm = CipherSuites.DEFAULT; // 加密套件名称
+    private KdfParams kdf = KdfParams.DEFAULT; // 口令派生函数及参数
+    private String nonceStrategy = NonceStrategy.RANDOM.getName(); // Nonce 生成策略
+    private byte[] salt;              // PBKDF2 盐值（1.0 格式）
+    private List<KeySlot> keySlots = new ArrayList<>(); // 数据密钥包装（2.0 格式）
     private long encryptedAt;         // 加密时间戳
     private int totalClasses;         // 加密的类总数
     
+    // className -> 类信息
+    private Map<String, ClassInfo> encryptedClasses = new LinkedHashMap<>();
+    
     public EncryptionMetadata() {
     }
     
@@ -24,6 +64,63 @@ public class EncryptionMetadata {
         this.encryptedAt = System.currentTimeMillis();
     }
     
+    /**
+     * 加密类信息
+     */
+    public static class ClassInfo {
+        private final String originalPath;
+        private final String encryptedPath;
+        
+        public ClassInfo(String originalPath, String encryptedPath) {
+            this.originalPath = originalPath;
+            this.encryptedPath = encryptedPath;
+        }
+        
+        public String getOriginalPath() { return originalPath; }
+        
+        public String getEncryptedPath() { return encryptedPath; }
+    }
+    
+    /**
+     * 密钥槽：一个密码派生的密钥加密密钥（KEK）包装后的数据密钥
+     */
+    public static class KeySlot {
+        private final byte[] salt;
+        private final byte[] wrappedKey;
+        
+        public KeySlot(byte[] salt, byte[] wrappedKey) {
+            this.salt = salt;
+            this.wrappedKey = wrappedKey;
+        }
+        
+        public byte[] getSalt() { return salt; }
+        
+        public byte[] getWrappedKey() { return wrappedKey; }
+    }
+    
+    /**
+     * 加密条目是否带条目头（2.3 及以后）
+     */
+    public boolean hasEntryHeaders() {
+        return isAtLeast(VERSION_ENTRY_HEADER);
+    }
+    
+    /**
+     * 格式版本是否不低于给定版本（按 major.minor 数值比较）
+     */
+    public boolean isAtLeast(String other) {
+        String[] a = version.split("\\.");
+        String[] b = other.split("\\.");
+        for (int i = 0; i < Math.max(a.length, b.length); i++) {
+            int x = i < a.length ? Integer.parseInt(a[i]) : 0;
+            int y = i < b.length ? Integer.parseInt(b[i]) : 0;
+            if (x != y) {
+                return x > y;
+            }
+        }
+        return true;
+    }
+    
     // Getters and Setters
     public String getVersion() { return version; }
     public void setVersion(String version) { this.version = version; }
@@ -31,12 +128,26 @@ public class EncryptionMetadata {
     public String getAlgorithm() { return algorithm; }
     public void setAlgorithm(String algorithm) { this.algorithm = algorithm; }
     
+    public KdfParams getKdf() { return kdf; }
+    public void setKdf(KdfParams kdf) { this.kdf = kdf; }
+    
+    public String getNonceStrategy() { return nonceStrategy; }
+    public void setNonceStrategy(String nonceStrategy) { this.nonceStrategy = nonceStrategy; }
+    
     public byte[] getSalt() { return salt; }
     public void setSalt(byte[] salt) { this.salt = salt; }
     
+    public List<KeySlot> getKeySlots() { return keySlots; }
+    public void setKeySlots(List<KeySlot> keySlots) { this.keySlots = keySlots; }
+    
     public long getEncryptedAt() { return encryptedAt; }
     public void setEncryptedAt(long encryptedAt) { this.encryptedAt = encryptedAt; }
     
     public int getTotalClasses() { return totalClasses; }
     public void setTotalClasses(int totalClasses) { this.totalClasses = totalClasses; }
+    
+    public Map<String, ClassInfo> getEncryptedClasses() { return encryptedClasses; }
+    public void setEncryptedClasses(Map<String, ClassInfo> encryptedClasses) {
+        this.encryptedClasses = encryptedClasses;
+    }
 }
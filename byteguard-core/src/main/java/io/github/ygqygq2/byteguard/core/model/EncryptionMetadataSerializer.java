@@ -0,0 +1,212 @@
+package io.github.ygqygq2.byteguard.core.model;
+
+import io.github.ygqygq2.byteguard.core.crypto.CryptoException;
+import io.github.ygqygq2.byteguard.core.crypto.KdfParams;
+import io.github.ygqygq2.byteguard.core.crypto.NonceStrategy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 加密元数据序列化/反序列化（简单的 JSON 实现，无外部依赖）
+ * 
+ * <p>加密端（CLI、Maven 插件）和运行时（JavaAgent、ClassLoader）共用同一格式
+ * 
+ * @author ygqygq2
+ */
+public class EncryptionMetadataSerializer {
+    
+    private static final Pattern CLASS_ENTRY_PATTERN =
+        Pattern.compile("\"([^\"]+)\"\\s*:\\s*\\{([^}]*)\\}");
+    private static final Pattern OBJECT_PATTERN = Pattern.compile("\\{([^}]*)\\}");
+    
+    /**
+     * 序列化元数据为 JSON
+     */
+    public String toJson(EncryptionMetadata metadata) {
+        StringBuilder json = new StringBuilder(256 + metadata.getEncryptedClasses().size() * 160);
+        json.append("{\n");
+        json.append("  \"version\": \"").append(metadata.getVersion()).append("\",\n");
+        json.append("  \"algorithm\": \"").append(metadata.getAlgorithm()).append("\",\n");
+        if (!NonceStrategy.RANDOM.getName().equals(metadata.getNonceStrategy())) {
+            json.append("  \"nonce\": \"").append(metadata.getNonceStrategy()).append("\",\n");
+        }
+        if (metadata.getSalt() != null) {
+            json.append("  \"salt\": \"").append(Base64.getEncoder().encodeToString(metadata.getSalt())).append("\",\n");
+        }
+        KdfParams kdf = metadata.getKdf();
+        json.append("  \"kdf\": {\"algorithm\": \"").append(kdf.getAlgorithm())
+            .append("\", \"iterations\": ").append(kdf.getIterations());
+        if (KdfParams.ARGON2ID.equals(kdf.getAlgorithm())) {
+            json.append(", \"memoryKiB\": ").append(kdf.getMemoryKiB())
+                .append(", \"parallelism\": ").append(kdf.getParallelism());
+        }
+        json.append("},\n");
+        if (!metadata.getKeySlots().isEmpty()) {
+            json.append("  \"keySlots\": [\n");
+            for (int i = 0; i < metadata.getKeySlots().size(); i++) {
+                EncryptionMetadata.KeySlot slot = metadata.getKeySlots().get(i);
+                json.append("    {\"salt\": \"").append(Base64.getEncoder().encodeToString(slot.getSalt()))
+                    .append("\", \"wrappedKey\": \"").append(Base64.getEncoder().encodeToString(slot.getWrappedKey()))
+                    .append("\"}").append(i < metadata.getKeySlots().size() - 1 ? ",\n" : "\n");
+            }
+            json.append("  ],\n");
+        }
+        json.append("  \"totalClasses\": ").append(metadata.getTotalClasses()).append(",\n");
+        json.append("  \"encryptedAt\": ").append(metadata.getEncryptedAt()).append(",\n");
+        json.append("  \"encryptedClasses\": {\n");
+        
+        int count = 0;
+        for (Map.Entry<String, EncryptionMetadata.ClassInfo> entry : metadata.getEncryptedClasses().entrySet()) {
+            if (count++ > 0) json.append(",\n");
+            EncryptionMetadata.ClassInfo info = entry.getValue();
+            json.append("    \"").append(entry.getKey()).append("\": {\n");
+            json.append("      \"originalPath\": \"").append(info.getOriginalPath()).append("\",\n");
+            if (!info.getOriginalPath().equals(info.getEncryptedPath())) {
+                // 单副本格式中两者相同，省略
+                json.append("      \"encryptedPath\": \"").append(info.getEncryptedPath()).append("\",\n");
+            }
+            json.append("      \"className\": \"").append(entry.getKey()).append("\"\n");
+            json.append("    }");
+        }
+        
+        json.append("\n  }\n");
+        json.append("}\n");
+        
+        return json.toString();
+    }
+    
+    /**
+     * 从 JSON 反序列化元数据
+     */
+    public EncryptionMetadata fromJson(String json) throws IOException {
+        try {
+            EncryptionMetadata metadata = new EncryptionMetadata();
+            
+            // 密钥槽里也有 salt 字段，先取出再解析顶层字段
+            String slotsBlock = extractArray(json, "keySlots");
+            if (slotsBlock != null) {
+                List<EncryptionMetadata.KeySlot> slots = new ArrayList<>();
+                Matcher m = OBJECT_PATTERN.matcher(slotsBlock);
+                while (m.find()) {
+                    slots.add(new EncryptionMetadata.KeySlot(
+                        Base64.getDecoder().decode(extractString(m.group(1), "salt")),
+                        Base64.getDecoder().decode(extractString(m.group(1), "wrappedKey"))
+                    ));
+                }
+                metadata.setKeySlots(slots);
+                json = json.replace(slotsBlock, "[]");
+            }
+            
+            // kdf 里的 algorithm 与顶层加密套件同名，同样先取出（旧版元数据没有 kdf，使用默认参数）
+            String kdfBlock = extractObject(json, "kdf");
+            if (kdfBlock != null) {
+                metadata.setKdf(KdfParams.of(
+                    extractString(kdfBlock, "algorithm"),
+                    (int) extractLong(kdfBlock, "iterations"),
+                    (int) extractLong(kdfBlock, "memoryKiB"),
+                    (int) extractLong(kdfBlock, "parallelism")
+                ));
+                json = json.replace(kdfBlock, "{}");
+            }
+            
+            String version = extractString(json, "version");
+            if (version != null) {
+                metadata.setVersion(version);
+            }
+            
+            // 旧版元数据没有 algorithm 时保持默认套件
+            String algorithm = extractString(json, "algorithm");
+            if (algorithm != null) {
+                metadata.setAlgorithm(algorithm);
+            }
+            
+            String nonce = extractString(json, "nonce");
+            if (nonce != null) {
+                metadata.setNonceStrategy(nonce);
+            }
+            
+            String salt = extractString(json, "salt");
+            if (salt != null) {
+                metadata.setSalt(Base64.getDecoder().decode(salt));
+            }
+            
+            metadata.setTotalClasses((int) extractLong(json, "totalClasses"));
+            metadata.setEncryptedAt(extractLong(json, "encryptedAt"));
+            
+            // 解析加密类映射
+            Map<String, EncryptionMetadata.ClassInfo> classes = new LinkedHashMap<>();
+            String classesBlock = extractObject(json, "encryptedClasses");
+            if (classesBlock != null) {
+                // 去掉最外层花括号，只匹配每个类的对象
+                Matcher m = CLASS_ENTRY_PATTERN.matcher(classesBlock.substring(1));
+                while (m.find()) {
+                    String body = m.group(2);
+                    String originalPath = extractString(body, "originalPath");
+                    String encryptedPath = extractString(body, "encryptedPath");
+                    classes.put(m.group(1), new EncryptionMetadata.ClassInfo(
+                        originalPath,
+                        encryptedPath != null ? encryptedPath : originalPath
+                    ));
+                }
+            }
+            metadata.setEncryptedClasses(classes);
+            
+            return metadata;
+        
+        } catch (RuntimeException | CryptoException e) {
+            throw new IOException("Failed to parse encryption metadata", e);
+        }
+    }
+    
+    // 辅助方法
+    
+    private String extractString(String json, String key) {
+        Pattern p = Pattern.compile("\"" + key + "\"\\s*:\\s*\"([^\"]*)\"");
+        Matcher m = p.matcher(json);
+        return m.find() ? m.group(1) : null;
+    }
+    
+    private long extractLong(String json, String key) {
+        Pattern p = Pattern.compile("\"" + key + "\"\\s*:\\s*(\\d+)");
+        Matcher m = p.matcher(json);
+        return m.find() ? Long.parseLong(m.group(1)) : 0;
+    }
+    
+    private String extractArray(String json, String key) {
+        int start = json.indexOf("\"" + key + "\"");
+        if (start == -1) return null;
+        
+        start = json.indexOf("[", start);
+        int end = json.indexOf("]", start);
+        if (start == -1 || end == -1) return null;
+        
+        return json.substring(start, end + 1);
+    }
+    
+    private String extractObject(String json, String key) {
+        int start = json.indexOf("\"" + key + "\"");
+        if (start == -1) return null;
+        
+        start = json.indexOf("{", start);
+        if (start == -1) return null;
+        
+        int braceCount = 1;
+        int end = start + 1;
+        
+        while (braceCount > 0 && end < json.length()) {
+            char c = json.charAt(end);
+            if (c == '{') braceCount++;
+            else if (c == '}') braceCount--;
+            end++;
+        }
+        
+        return json.substring(start, end);
+    }
+}
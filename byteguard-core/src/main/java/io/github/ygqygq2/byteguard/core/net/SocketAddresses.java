@@ -0,0 +1,109 @@
+package io.github.ygqygq2.byteguard.core.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+
+/**
+ * 服务地址解析（租约服务器、密钥服务器共用）
+ * 
+ * <p>地址格式: {@code host:port} 或 {@code unix:/path/to/socket}
+ * 
+ * @author ygqygq2
+ */
+public final class SocketAddresses {
+    
+    private static final String UNIX_PREFIX = "unix:";
+    
+    private SocketAddresses() {
+    }
+    
+    public static SocketAddress parse(String address) {
+        if (address.startsWith(UNIX_PREFIX)) {
+            return UnixDomainSocketAddress.of(address.substring(UNIX_PREFIX.length()));
+        }
+        
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Invalid server address (expected host:port or unix:/path): " + address);
+        }
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+    
+    public static String format(SocketAddress address) {
+        if (address instanceof UnixDomainSocketAddress) {
+            return UNIX_PREFIX + ((UnixDomainSocketAddress) address).getPath();
+        }
+        InetSocketAddress inet = (InetSocketAddress) address;
+        return inet.getHostString() + ":" + inet.getPort();
+    }
+    
+    /**
+     * 是否为本机地址（Unix Domain Socket 或回环地址），未加密的协议只允许在本机使用
+     */
+    public static boolean isLocal(SocketAddress address) {
+        if (address instanceof UnixDomainSocketAddress) {
+            return true;
+        }
+        InetSocketAddress inet = (InetSocketAddress) address;
+        return !inet.isUnresolved() && inet.getAddress().isLoopbackAddress();
+    }
+    
+    /**
+     * 打开与地址类型匹配的未连接通道（连接前可交给超时看门狗，关闭即可中断阻塞的 connect）
+     */
+    public static SocketChannel open(SocketAddress address) throws IOException {
+        return address instanceof UnixDomainSocketAddress
+            ? SocketChannel.open(StandardProtocolFamily.UNIX)
+            : SocketChannel.open();
+    }
+    
+    /**
+     * 连接到地址（阻塞模式，TCP 关闭 Nagle）
+     */
+    public static SocketChannel connect(SocketAddress address) throws IOException {
+        return connect(open(address), address);
+    }
+    
+    public static SocketChannel connect(SocketChannel channel, SocketAddress address) throws IOException {
+        try {
+            channel.connect(address);
+            if (address instanceof InetSocketAddress) {
+                channel.socket().setTcpNoDelay(true);
+            }
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * 监听地址（Unix Domain Socket 先删除上次未正常退出时残留的 socket 文件）
+     */
+    public static ServerSocketChannel bind(SocketAddress address, int backlog) throws IOException {
+        ServerSocketChannel channel;
+        if (address instanceof UnixDomainSocketAddress) {
+            deleteSocketFile(address);
+            channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            channel = ServerSocketChannel.open();
+        }
+        channel.bind(address, backlog);
+        return channel;
+    }
+    
+    /**
+     * 删除 Unix Domain Socket 文件（TCP 地址无操作）
+     */
+    public static void deleteSocketFile(SocketAddress address) throws IOException {
+        if (address instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package io.github.ygqygq2.byteguard.core.archive;
+
+import io.github.ygqygq2.byteguard.core.crypto.KdfParams;
+import io.github.ygqygq2.byteguard.core.encrypt.JarEncryptor;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadata;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 增量补丁测试
+ * 
+ * @author ygqygq2
+ */
+class DeltaPatchTest {
+    
+    private static final KdfParams FAST_KDF = KdfParams.pbkdf2(KdfParams.MIN_PBKDF2_ITERATIONS);
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void testDiffContainsOnlyChangedEntriesAndApplyRebuildsTarget() throws Exception {
+        Path base = dir.resolve("v1.jar");
+        JarEncryptor.Result first = JarEncryptor.builder()
+            .password("secret")
+            .kdf(FAST_KDF)
+            .hashManifest(true)
+            .build()
+            .encrypt(createJar("v1.plain.jar", "App", "Util", "Old"), base);
+        
+        // App 修改，Util 不变，Old 删除，Extra 新增；沿用 v1 的数据密钥增量加密
+        Path target = dir.resolve("v2.jar");
+        JarEncryptor.builder()
+            .password("secret")
+            .previous(base, first.getManifest())
+            .build()
+            .encrypt(createJar("v2.plain.jar", "App v2", "Util", "Extra"), target);
+        
+        Path patch = dir.resolve("v2.patch");
+        DeltaPatch.Result diff = DeltaPatch.diff(base, target, patch);
+        assertTrue(diff.isSameKey());
+        assertEquals(2, diff.getChangedCount()); // App 和元数据
+        assertEquals(1, diff.getAddedCount());
+        assertEquals(1, diff.getRemovedCount());
+        
+        try (DeltaPatch delta = DeltaPatch.open(patch)) {
+            assertEquals(Set.of("com/example/App.class", "com/example/Extra.class", EncryptionMetadata.METADATA_PATH),
+                delta.getEntries());
+            assertEquals(List.of("com/example/Old.class"), delta.getRemoved());
+            assertEquals(readJar(target).get("com/example/App.class").length, delta.read("com/example/App.class").length);
+            assertNull(delta.read("com/example/util/Util.class"));
+        }
+        
+        // 合成结果与 v2 逐条目相同，加密类保持 STORED
+        Path rebuilt = dir.resolve("rebuilt.jar");
+        DeltaPatch.apply(base, patch, rebuilt);
+        Map<String, byte[]> expected = readJar(target);
+        Map<String, byte[]> actual = readJar(rebuilt);
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            assertArrayEquals(entry.getValue(), actual.get(entry.getKey()), entry.getKey());
+        }
+        List<String> names = names(rebuilt);
+        assertEquals(EncryptionMetadata.METADATA_PATH, names.get(names.size() - 1));
+        try (ZipFile zip = new ZipFile(rebuilt.toFile())) {
+            assertEquals(ZipEntry.STORED, zip.getEntry("com/example/App.class").getMethod());
+        }
+        
+        // 原地应用；补丁不能用在其他 JAR 上
+        DeltaPatch.apply(base, patch, base);
+        assertEquals(expected.keySet(), readJar(base).keySet());
+        assertThrows(IOException.class, () -> DeltaPatch.apply(target, patch, dir.resolve("wrong.jar")));
+    }
+    
+    @Test
+    void testDifferentDataKeysPutEveryEncryptedClassInPatch() throws Exception {
+        Path plain = createJar("plain.jar", "App", "Util", "Old");
+        Path a = dir.resolve("a.jar");
+        Path b = dir.resolve("b.jar");
+        JarEncryptor encryptor = JarEncryptor.builder().password("secret").kdf(FAST_KDF).build();
+        encryptor.encrypt(plain, a);
+        encryptor.encrypt(plain, b);
+        
+        DeltaPatch.Result diff = DeltaPatch.diff(a, b, dir.resolve("a-b.patch"));
+        assertFalse(diff.isSameKey());
+        assertEquals(4, diff.getChangedCount()); // 三个加密类和元数据，未加密的资源不变
+        assertThrows(IOException.class, () -> DeltaPatch.diff(plain, b, dir.resolve("plain.patch")));
+    }
+    
+    @Test
+    void testIdenticalArchivesProduceMetadataOnlyPatch() throws Exception {
+        Path jar = dir.resolve("app.jar");
+        JarEncryptor.builder().password("secret").kdf(FAST_KDF).build()
+            .encrypt(createJar("plain.jar", "App", "Util", "Old"), jar);
+        Path copy = dir.resolve("copy.jar");
+        Files.copy(jar, copy);
+        
+        // 元数据相同时补丁仍带元数据，能被打开和应用
+        Path patch = dir.resolve("same.patch");
+        DeltaPatch.Result diff = DeltaPatch.diff(jar, copy, patch);
+        assertEquals(1, diff.getChangedCount());
+        assertEquals(0, diff.getAddedCount());
+        assertEquals(0, diff.getRemovedCount());
+        try (DeltaPatch delta = DeltaPatch.open(patch)) {
+            assertEquals(Set.of(EncryptionMetadata.METADATA_PATH), delta.getEntries());
+            assertTrue(delta.getRemoved().isEmpty());
+        }
+        
+        Path rebuilt = dir.resolve("rebuilt.jar");
+        DeltaPatch.apply(jar, patch, rebuilt);
+        Map<String, byte[]> expected = readJar(jar);
+        Map<String, byte[]> actual = readJar(rebuilt);
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            assertArrayEquals(entry.getValue(), actual.get(entry.getKey()), entry.getKey());
+        }
+    }
+    
+    private Path createJar(String name, String app, String util, String extra) throws IOException {
+        Path jar = dir.resolve(name);
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+            zip.putNextEntry(new ZipEntry("com/"));
+            zip.closeEntry();
+            put(zip, "com/example/App.class", classBytes(app));
+            put(zip, "com/example/util/Util.class", classBytes(util));
+            put(zip, "com/example/" + extra + ".class", classBytes(extra));
+            put(zip, "app.properties", "key=value".getBytes(StandardCharsets.UTF_8));
+        }
+        return jar;
+    }
+    
+    private static void put(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+    
+    private static byte[] classBytes(String name) {
+        return ("Êþº¾ class " + name).getBytes(StandardCharsets.ISO_8859_1);
+    }
+    
+    private static Map<String, byte[]> readJar(Path jar) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            Enumeration<? extends ZipEntry> e = zip.entries();
+            while (e.hasMoreElements()) {
+                ZipEntry entry = e.nextElement();
+                try (InputStream in = zip.getInputStream(entry)) {
+                    entries.put(entry.getName(), in.readAllBytes());
+                }
+            }
+        }
+        return entries;
+    }
+    
+    private static List<String> names(Path jar) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            zip.stream().forEach(entry -> names.add(entry.getName()));
+        }
+        return names;
+    }
+}
@@ -0,0 +1,181 @@
+package io.github.ygqygq2.byteguard.core.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ZIP 条目替换测试
+ * 
+ * @author ygqygq2
+ */
+class ZipEntryReplacerTest {
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void testReplaceLastEntryInPlace() throws IOException {
+        Path zip = createZip("a.txt", "b/c.txt", "meta.json");
+        
+        assertTrue(ZipEntryReplacer.replace(zip, zip, "meta.json", bytes("updated")));
+        
+        assertEquals("updated", read(zip, "meta.json"));
+        assertEquals("a.txt", read(zip, "a.txt"));
+        assertEquals("b/c.txt", read(zip, "b/c.txt"));
+        assertEquals(List.of("a.txt", "b/c.txt", "meta.json"), names(zip));
+    }
+    
+    @Test
+    void testReplaceMiddleEntryCopies() throws IOException {
+        Path zip = createZip("a.txt", "meta.json", "z.txt");
+        Path out = dir.resolve("out.zip");
+        
+        assertFalse(ZipEntryReplacer.replace(zip, out, "meta.json", bytes("updated")));
+        
+        assertEquals("updated", read(out, "meta.json"));
+        assertEquals("z.txt", read(out, "z.txt"));
+        assertEquals("meta.json", read(zip, "meta.json"));
+        assertEquals(3, names(out).size());
+    }
+    
+    @Test
+    void testAppendMissingEntry() throws IOException {
+        Path zip = createZip("a.txt");
+        
+        ZipEntryReplacer.replace(zip, zip, "new.txt", bytes("added"));
+        
+        assertEquals("added", read(zip, "new.txt"));
+        assertEquals("a.txt", read(zip, "a.txt"));
+    }
+    
+    @Test
+    void testInterruptedInPlaceReplaceLeavesValidArchive() throws IOException {
+        Path clean = createZip("a.txt", "b/c.txt", "meta.json");
+        ZipEntryReplacer.replace(clean, clean, "meta.json", bytes("v3"));
+        long cleanSize = Files.size(clean);
+        
+        // 第 1 步（新尾部已追加、EOCD 未写）后中断仍是旧版本，之后的步骤中断已是新版本
+        for (int step = 1; step <= 3; step++) {
+            Path zip = createZip("a.txt", "b/c.txt", "meta.json");
+            int failAt = step;
+            ZipEntryReplacer.hook = n -> {
+                if (n == failAt) {
+                    throw new IOException("disk full");
+                }
+            };
+            try {
+                assertThrows(IOException.class, () -> ZipEntryReplacer.replace(zip, zip, "meta.json", bytes("v2")));
+            } finally {
+                ZipEntryReplacer.hook = null;
+            }
+            
+            assertEquals(step == 1 ? "meta.json" : "v2", read(zip, "meta.json"), "step " + step);
+            assertEquals("b/c.txt", read(zip, "b/c.txt"));
+            assertEquals(List.of("a.txt", "b/c.txt", "meta.json"), names(zip));
+            
+            // 重试可以完成；第 1 步中断时追加的字节在旧 EOCD 之后，重试会一并截掉
+            assertTrue(ZipEntryReplacer.replace(zip, zip, "meta.json", bytes("v3")));
+            assertEquals("v3", read(zip, "meta.json"));
+            assertEquals(List.of("a.txt", "b/c.txt", "meta.json"), names(zip));
+            if (step == 1) {
+                assertEquals(cleanSize, Files.size(zip));
+            }
+        }
+    }
+    
+    @Test
+    void testLargeCentralDirectoryCopiesAtomically() throws IOException {
+        // 中央目录超过 64 KiB：追加后旧 EOCD 会超出读取方的搜索范围，不能原地替换
+        String[] entries = new String[1501];
+        for (int i = 0; i < 1500; i++) {
+            entries[i] = String.format("com/example/generated/Entry%04d.class", i);
+        }
+        entries[1500] = "meta.json";
+        Path zip = createZip(entries);
+        
+        ZipEntryReplacer.hook = n -> {
+            throw new IOException("in-place step " + n + " must not run");
+        };
+        try {
+            assertFalse(ZipEntryReplacer.replace(zip, zip, "meta.json", bytes("v2")));
+        } finally {
+            ZipEntryReplacer.hook = null;
+        }
+        
+        assertEquals("v2", read(zip, "meta.json"));
+        assertEquals(entries[0], read(zip, entries[0]));
+        assertEquals(1501, names(zip).size());
+        assertFalse(ZipEntryReplacer.replace(zip, zip, "meta.json", bytes("v3")));
+        assertEquals("v3", read(zip, "meta.json"));
+    }
+    
+    @Test
+    void testGrowingEntryCopiesAtomically() throws IOException {
+        Path zip = createZip("a.txt", "meta.json");
+        String large = "x".repeat(4096);
+        
+        assertFalse(ZipEntryReplacer.replace(zip, zip, "meta.json", bytes(large)));
+        
+        assertEquals(large, read(zip, "meta.json"));
+        assertEquals("a.txt", read(zip, "a.txt"));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+    
+    @Test
+    void testRejectsNonZip() throws IOException {
+        Path file = dir.resolve("plain.txt");
+        Files.writeString(file, "not a zip");
+        
+        assertThrows(IOException.class, () -> ZipEntryReplacer.replace(file, file, "x", bytes("x")));
+    }
+    
+    private Path createZip(String... entries) throws IOException {
+        Path zip = dir.resolve("test.zip");
+        try (OutputStream os = Files.newOutputStream(zip); ZipOutputStream zos = new ZipOutputStream(os)) {
+            for (String name : entries) {
+                zos.putNextEntry(new ZipEntry(name));
+                // 内容可压缩，确保原条目是 DEFLATED
+                zos.write(bytes(name));
+                zos.closeEntry();
+            }
+        }
+        return zip;
+    }
+    
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static String read(Path zip, String name) throws IOException {
+        try (ZipFile file = new ZipFile(zip.toFile())) {
+            ZipEntry entry = file.getEntry(name);
+            assertNotNull(entry, name);
+            try (InputStream in = file.getInputStream(entry)) {
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+    }
+    
+    private static List<String> names(Path zip) throws IOException {
+        try (ZipFile file = new ZipFile(zip.toFile())) {
+            return Collections.list(file.entries()).stream().map(ZipEntry::getName).toList();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+import org.bouncycastle.crypto.generators.Argon2BytesGenerator;
+import org.bouncycastle.crypto.params.Argon2Parameters;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Argon2id 测试（以 BouncyCastle 的顺序实现为参照）
+ * 
+ * @author ygqygq2
+ */
+class Argon2idTest {
+    
+    private static final byte[] PASSWORD = "correct horse battery staple".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SALT = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+    
+    @Test
+    void testMatchesReferenceImplementation() {
+        int[][] cases = {
+            // t, m, p, outLength
+            { 1, 8, 1, 32 },
+            { 2, 64, 1, 32 },
+            { 3, 256, 4, 32 },
+            { 1, 1024, 2, 64 },
+            { 2, 300, 3, 100 }, // m 非 4p 整数倍、输出超过 64 字节
+        };
+        for (int[] c : cases) {
+            byte[] expected = reference(c[0], c[1], c[2], c[3]);
+            assertArrayEquals(expected, Argon2id.derive(PASSWORD, SALT, c[0], c[1], c[2], 1, c[3]),
+                "t=" + c[0] + " m=" + c[1] + " p=" + c[2]);
+        }
+    }
+    
+    @Test
+    void testThreadCountDoesNotChangeResult() {
+        byte[] sequential = Argon2id.derive(PASSWORD, SALT, 2, 4096, 4, 1, 32);
+        assertArrayEquals(sequential, Argon2id.derive(PASSWORD, SALT, 2, 4096, 4, 4, 32));
+        assertArrayEquals(sequential, Argon2id.derive(PASSWORD, SALT, 2, 4096, 4, 3, 32));
+        assertArrayEquals(reference(2, 4096, 4, 32), sequential);
+    }
+    
+    @Test
+    void testRejectsInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> Argon2id.derive(PASSWORD, SALT, 0, 64, 1, 1, 32));
+        assertThrows(IllegalArgumentException.class, () -> Argon2id.derive(PASSWORD, SALT, 1, 31, 4, 1, 32));
+    }
+    
+    private static byte[] reference(int iterations, int memoryKiB, int lanes, int outLength) {
+        Argon2Parameters params = new Argon2Parameters.Builder(Argon2Parameters.ARGON2_id)
+            .withVersion(Argon2Parameters.ARGON2_VERSION_13)
+            .withIterations(iterations)
+            .withMemoryAsKB(memoryKiB)
+            .withParallelism(lanes)
+            .withSalt(SALT)
+            .build();
+        Argon2BytesGenerator generator = new Argon2BytesGenerator();
+        generator.init(params);
+        byte[] out = new byte[outLength];
+        generator.generateBytes(PASSWORD, out);
+        return out;
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 加密套件测试
+ * 
+ * @author ygqygq2
+ */
+class CipherSuitesTest {
+    
+    @Test
+    void testForName() throws CryptoException {
+        assertEquals(AESGCMCipher.NAME, CipherSuites.forName("aes-256-gcm").getName());
+        assertEquals(ChaCha20Poly1305Cipher.NAME, CipherSuites.forName("ChaCha20-Poly1305").getName());
+        
+        // 旧版元数据没有 algorithm 字段
+        assertEquals(CipherSuites.DEFAULT, CipherSuites.forName(null).getName());
+        
+        assertThrows(CryptoException.class, () -> CipherSuites.forName("DES"));
+    }
+    
+    @Test
+    void testServiceLoaderSuite() throws CryptoException {
+        // 测试类路径下 META-INF/services 注册了 TestCipherSuite
+        CipherSuite suite = CipherSuites.forName("test-suite", NonceStrategy.COUNTER);
+        assertInstanceOf(TestCipherSuite.class, suite);
+        assertEquals(NonceStrategy.RANDOM, suite.getNonceStrategy());
+        
+        byte[] key = suite.generateKey();
+        byte[] encrypted = suite.encrypt("Hello, SPI!".getBytes(), key);
+        assertArrayEquals("Hello, SPI!".getBytes(), CipherSuites.forName(TestCipherSuite.NAME).decrypt(encrypted, key));
+        
+        List<CipherSuite> suites = CipherSuites.available();
+        assertEquals(AESGCMCipher.NAME, suites.get(0).getName());
+        assertTrue(suites.stream().anyMatch(s -> s.getName().equals(TestCipherSuite.NAME)));
+    }
+    
+    @Test
+    void testChaCha20EncryptDecrypt() throws CryptoException {
+        CipherSuite cipher = new ChaCha20Poly1305Cipher();
+        byte[] key = cipher.generateKey();
+        
+        byte[] plaintext = "Hello, ByteGuard!".getBytes();
+        byte[] encrypted = cipher.encrypt(plaintext, key);
+        assertEquals(plaintext.length + 12 + 16, encrypted.length); // Nonce + Tag
+        
+        assertArrayEquals(plaintext, cipher.decrypt(encrypted, key));
+    }
+    
+    @Test
+    void testChaCha20DecryptTamperedData() throws CryptoException {
+        CipherSuite cipher = new ChaCha20Poly1305Cipher();
+        byte[] key = cipher.generateKey();
+        
+        byte[] encrypted = cipher.encrypt("Original data".getBytes(), key);
+        encrypted[20] ^= 0xFF;
+        
+        assertThrows(CryptoException.class, () -> cipher.decrypt(encrypted, key));
+    }
+    
+    @Test
+    void testSuitesAreNotInterchangeable() throws CryptoException {
+        CipherSuite aes = new AESGCMCipher();
+        CipherSuite chacha = new ChaCha20Poly1305Cipher();
+        byte[] key = aes.generateKey();
+        
+        byte[] encrypted = aes.encrypt("Secret data".getBytes(), key);
+        
+        // 用错误的套件解密应该失败
+        assertThrows(CryptoException.class, () -> chacha.decrypt(encrypted, key));
+    }
+    
+    @Test
+    void testBenchmarkRecommendsMeasuredSuite() throws CryptoException {
+        List<CipherSuites.BenchmarkResult> results = CipherSuites.benchmark(20);
+        
+        assertEquals(CipherSuites.available().size(), results.size());
+        for (CipherSuites.BenchmarkResult result : results) {
+            assertTrue(result.getMbPerSecond() > 0);
+        }
+        
+        String recommended = CipherSuites.recommend(results);
+        assertNotNull(CipherSuites.forName(recommended));
+    }
+}
@@ -0,0 +1,64 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 加密条目格式测试
+ * 
+ * @author ygqygq2
+ */
+class EncryptedEntryTest {
+    
+    private final CipherSuite cipher = new AESGCMCipher();
+    private final byte[] key = cipher.generateKey();
+    
+    @Test
+    void testCompressibleClassIsDeflated() throws Exception {
+        byte[] plaintext = "public class Foo { void bar() {} } ".repeat(200).getBytes(StandardCharsets.UTF_8);
+        
+        byte[] entry = EncryptedEntry.seal(plaintext, key, cipher, 6);
+        
+        assertTrue(EncryptedEntry.isDeflated(entry));
+        assertTrue(entry.length < plaintext.length / 4);
+        assertArrayEquals(plaintext, EncryptedEntry.open(entry, key, cipher));
+    }
+    
+    @Test
+    void testIncompressibleOrLevelZeroIsStored() throws Exception {
+        byte[] random = new byte[4096];
+        new Random(42).nextBytes(random);
+        byte[] text = "abcabcabcabcabcabc".getBytes(StandardCharsets.UTF_8);
+        
+        for (byte[] entry : new byte[][] {
+                EncryptedEntry.seal(random, key, cipher, 9),
+                EncryptedEntry.seal(text, key, cipher, EncryptedEntry.NO_COMPRESSION),
+                EncryptedEntry.seal(new byte[0], key, cipher, 6) }) {
+            assertFalse(EncryptedEntry.isDeflated(entry));
+        }
+        assertArrayEquals(random, EncryptedEntry.open(EncryptedEntry.seal(random, key, cipher, 9), key, cipher));
+        assertArrayEquals(new byte[0], EncryptedEntry.open(EncryptedEntry.seal(new byte[0], key, cipher, 6), key, cipher));
+    }
+    
+    @Test
+    void testTamperedHeaderIsRejected() throws Exception {
+        byte[] plaintext = "x".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        byte[] entry = EncryptedEntry.seal(plaintext, key, cipher, 6);
+        
+        byte[] unknownFlag = entry.clone();
+        unknownFlag[0] |= 0x02;
+        assertThrows(CryptoException.class, () -> EncryptedEntry.open(unknownFlag, key, cipher));
+        
+        byte[] wrongLength = entry.clone();
+        wrongLength[4]++;
+        assertThrows(CryptoException.class, () -> EncryptedEntry.open(wrongLength, key, cipher));
+        
+        byte[] flagCleared = entry.clone();
+        flagCleared[0] = 0;
+        assertThrows(CryptoException.class, () -> EncryptedEntry.open(flagCleared, key, cipher));
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 密钥派生测试
+ * 
+ * @author ygqygq2
+ */
+class KeyDerivationTest {
+    
+    private final KeyDerivation kd = new KeyDerivation();
+    
+    @Test
+    void testParamsChangeKey() throws CryptoException {
+        byte[] salt = kd.generateSalt();
+        
+        // 未指定参数等同于旧版默认值
+        assertArrayEquals(kd.deriveMasterKey("secret", salt, KdfParams.DEFAULT), kd.deriveMasterKey("secret", salt));
+        assertFalse(Arrays.equals(
+            kd.deriveMasterKey("secret", salt, KdfParams.pbkdf2(20_000)),
+            kd.deriveMasterKey("secret", salt, KdfParams.pbkdf2(30_000))
+        ));
+    }
+    
+    @Test
+    void testParseParams() throws CryptoException {
+        assertEquals(KdfParams.pbkdf2(50_000), KdfParams.of("pbkdf2", 50_000));
+        assertThrows(CryptoException.class, () -> KdfParams.of("pbkdf2", 10));
+        assertThrows(CryptoException.class, () -> KdfParams.of("scrypt", 50_000));
+        
+        // 未指定的 Argon2id 参数取默认值
+        assertEquals(KdfParams.argon2id(KdfParams.DEFAULT_ARGON2_ITERATIONS, KdfParams.DEFAULT_ARGON2_MEMORY_KIB,
+            KdfParams.DEFAULT_ARGON2_PARALLELISM), KdfParams.of("argon2id", 0, 0, 0));
+        assertEquals(KdfParams.argon2id(2, 16 * 1024, 8), KdfParams.of("ARGON2ID", 2, 16 * 1024, 8));
+        assertThrows(CryptoException.class, () -> KdfParams.of("argon2id", 1, 1024, 1));
+        assertThrows(CryptoException.class, () -> KdfParams.of("argon2id", 1, 16 * 1024, 1000));
+    }
+    
+    @Test
+    void testArgon2idParamsChangeKey() throws CryptoException {
+        byte[] salt = kd.generateSalt();
+        KdfParams params = KdfParams.argon2id(1, KdfParams.MIN_ARGON2_MEMORY_KIB, 2);
+        
+        byte[] key = kd.deriveMasterKey("secret", salt, params);
+        assertEquals(32, key.length);
+        assertArrayEquals(key, kd.deriveMasterKey("secret", salt, params));
+        
+        // lane 数是派生参数的一部分，不同 lane 数得到不同密钥
+        assertFalse(Arrays.equals(key, kd.deriveMasterKey("secret", salt, KdfParams.argon2id(1, KdfParams.MIN_ARGON2_MEMORY_KIB, 4))));
+        assertFalse(Arrays.equals(key, kd.deriveMasterKey("secret", salt, KdfParams.pbkdf2(KdfParams.MIN_PBKDF2_ITERATIONS))));
+    }
+    
+    @Test
+    void testCalibrateMeetsBudget() throws CryptoException {
+        KdfParams params = KeyDerivation.calibrate("pbkdf2", 100);
+        assertTrue(params.getIterations() >= KdfParams.MIN_PBKDF2_ITERATIONS);
+        
+        long start = System.nanoTime();
+        kd.deriveMasterKey("secret", kd.generateSalt(), params);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        
+        // 共享 CI 机器上计时有抖动，只检查量级
+        assertTrue(elapsedMillis < 500, "took " + elapsedMillis + " ms");
+    }
+}
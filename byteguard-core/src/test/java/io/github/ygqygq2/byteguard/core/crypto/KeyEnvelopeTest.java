@@ -0,0 +1,134 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadata;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadataSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 信封加密测试
+ * 
+ * @author ygqygq2
+ */
+class KeyEnvelopeTest {
+    
+    private final CipherSuite cipher = new AESGCMCipher();
+    
+    @Test
+    void testSealAndOpen() throws Exception {
+        byte[] dataKey = KeyEnvelope.generateDataKey();
+        EncryptionMetadata metadata = envelope(KeyEnvelope.seal(dataKey, "secret", cipher, KdfParams.DEFAULT));
+        
+        assertArrayEquals(dataKey, KeyEnvelope.open(metadata, "secret"));
+        assertThrows(CryptoException.class, () -> KeyEnvelope.open(metadata, "wrong"));
+    }
+    
+    @Test
+    void testMultipleSlotsUnlockSameKey() throws Exception {
+        byte[] dataKey = KeyEnvelope.generateDataKey();
+        EncryptionMetadata metadata = envelope(
+            KeyEnvelope.seal(dataKey, "old", cipher, KdfParams.DEFAULT),
+            KeyEnvelope.seal(dataKey, "new", cipher, KdfParams.DEFAULT)
+        );
+        
+        assertArrayEquals(dataKey, KeyEnvelope.open(metadata, "old"));
+        assertArrayEquals(dataKey, KeyEnvelope.open(metadata, "new"));
+    }
+    
+    @Test
+    void testKeyringSharesSealerAcrossThreads() throws Exception {
+        KeyEnvelope.Keyring keyring = new KeyEnvelope.Keyring("secret");
+        KdfParams kdf = KdfParams.pbkdf2(KdfParams.MIN_PBKDF2_ITERATIONS);
+        List<KeyEnvelope.Sealer> sealers = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    sealers.add(keyring.sealer(cipher, kdf));
+                } catch (CryptoException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        // 同一套件和 KDF 参数只派生一次，各归档的数据密钥仍各自独立
+        assertEquals(8, sealers.size());
+        assertTrue(sealers.stream().allMatch(sealer -> sealer == sealers.get(0)));
+        assertNotSame(sealers.get(0), keyring.sealer(cipher, KdfParams.pbkdf2(KdfParams.MIN_PBKDF2_ITERATIONS + 1)));
+        
+        byte[] first = KeyEnvelope.generateDataKey();
+        byte[] second = KeyEnvelope.generateDataKey();
+        EncryptionMetadata a = envelope(sealers.get(0).seal(first));
+        EncryptionMetadata b = envelope(sealers.get(0).seal(second));
+        a.setKdf(kdf);
+        b.setKdf(kdf);
+        assertArrayEquals(first, keyring.open(a));
+        assertArrayEquals(second, keyring.open(b));
+        assertArrayEquals(second, KeyEnvelope.open(b, "secret"));
+        assertThrows(CryptoException.class, () -> new KeyEnvelope.Keyring("wrong").open(a));
+    }
+    
+    @Test
+    void testLegacyMetadataDerivesFromSalt() throws Exception {
+        KeyDerivation kd = new KeyDerivation();
+        byte[] salt = kd.generateSalt();
+        EncryptionMetadata metadata = new EncryptionMetadata(salt, 0);
+        
+        assertArrayEquals(kd.deriveMasterKey("secret", salt), KeyEnvelope.open(metadata, "secret"));
+    }
+    
+    @Test
+    void testKeySlotsSurviveSerialization() throws Exception {
+        byte[] dataKey = KeyEnvelope.generateDataKey();
+        KdfParams kdf = KdfParams.pbkdf2(20_000);
+        EncryptionMetadata metadata = envelope(
+            KeyEnvelope.seal(dataKey, "a", cipher, kdf),
+            KeyEnvelope.seal(dataKey, "b", cipher, kdf)
+        );
+        metadata.setKdf(kdf);
+        metadata.getEncryptedClasses().put("com.example.App",
+            new EncryptionMetadata.ClassInfo("com/example/App.class", "META-INF/.encrypted/com/example/App.class"));
+        
+        EncryptionMetadataSerializer serializer = new EncryptionMetadataSerializer();
+        EncryptionMetadata parsed = serializer.fromJson(serializer.toJson(metadata));
+        
+        assertEquals(EncryptionMetadata.VERSION_ENVELOPE, parsed.getVersion());
+        assertNull(parsed.getSalt());
+        assertEquals(kdf, parsed.getKdf());
+        assertEquals(2, parsed.getKeySlots().size());
+        assertEquals(1, parsed.getEncryptedClasses().size());
+        assertArrayEquals(dataKey, KeyEnvelope.open(parsed, "b"));
+    }
+    
+    @Test
+    void testArgon2idSlotSurvivesSerialization() throws Exception {
+        byte[] dataKey = KeyEnvelope.generateDataKey();
+        KdfParams kdf = KdfParams.argon2id(2, KdfParams.MIN_ARGON2_MEMORY_KIB, 2);
+        EncryptionMetadata metadata = envelope(KeyEnvelope.seal(dataKey, "secret", cipher, kdf));
+        metadata.setKdf(kdf);
+        
+        EncryptionMetadataSerializer serializer = new EncryptionMetadataSerializer();
+        EncryptionMetadata parsed = serializer.fromJson(serializer.toJson(metadata));
+        
+        assertEquals(kdf, parsed.getKdf());
+        assertArrayEquals(dataKey, KeyEnvelope.open(parsed, "secret"));
+    }
+    
+    private EncryptionMetadata envelope(EncryptionMetadata.KeySlot... slots) {
+        EncryptionMetadata metadata = new EncryptionMetadata(null, 0);
+        metadata.setVersion(EncryptionMetadata.VERSION_ENVELOPE);
+        metadata.setAlgorithm(cipher.getName());
+        metadata.setKeySlots(new ArrayList<>(List.of(slots)));
+        return metadata;
+    }
+}
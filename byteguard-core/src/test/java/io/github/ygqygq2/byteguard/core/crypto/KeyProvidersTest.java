@@ -0,0 +1,39 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+import io.github.ygqygq2.byteguard.core.crypto.keyserver.KeyServerKeyProvider;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 密钥来源选择测试
+ * 
+ * @author ygqygq2
+ */
+class KeyProvidersTest {
+    
+    @Test
+    void testSelection() {
+        assertEquals(PasswordKeyProvider.NAME, KeyProviders.fromOptions(Map.of("password", "p")).getName());
+        assertEquals(FileKeyProvider.NAME, KeyProviders.fromOptions(Map.of("keyFile", "/tmp/x", "password", "p")).getName());
+        assertEquals(KeyServerKeyProvider.NAME,
+            KeyProviders.fromOptions(Map.of("keyServer", "127.0.0.1:7071", "keyFile", "/tmp/x")).getName());
+        
+        assertThrows(IllegalArgumentException.class, () -> KeyProviders.fromOptions(Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> KeyProviders.fromOptions(Map.of("keyProvider", "vault")));
+    }
+    
+    @Test
+    void testFileProviderReadsFirstLine(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("secret");
+        Files.writeString(file, "s3cret\r\n");
+        assertEquals("s3cret", new FileKeyProvider(file).getPassword());
+        
+        assertThrows(CryptoException.class, () -> new FileKeyProvider(dir.resolve("missing")).getPassword());
+    }
+}
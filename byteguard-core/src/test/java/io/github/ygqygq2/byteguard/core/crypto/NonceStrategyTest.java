@@ -0,0 +1,82 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Nonce 策略测试
+ * 
+ * @author ygqygq2
+ */
+class NonceStrategyTest {
+    
+    private static final byte[] PLAINTEXT = "class bytes".getBytes(StandardCharsets.UTF_8);
+    
+    @Test
+    void testCounterNoncesAreUniquePerThread() throws Exception {
+        byte[] key = new byte[32];
+        byte[] first = new byte[12];
+        byte[] second = new byte[12];
+        NonceStrategy.COUNTER.fill(first, key, PLAINTEXT);
+        NonceStrategy.COUNTER.fill(second, key, PLAINTEXT);
+        
+        // 同一线程：前缀相同，计数器递增
+        assertArrayEquals(Arrays.copyOf(first, 8), Arrays.copyOf(second, 8));
+        assertEquals(ByteBuffer.wrap(first, 8, 4).getInt() + 1, ByteBuffer.wrap(second, 8, 4).getInt());
+        
+        // 其他线程：独立前缀
+        byte[] other = new byte[12];
+        Thread thread = new Thread(() -> {
+            try {
+                NonceStrategy.COUNTER.fill(other, key, PLAINTEXT);
+            } catch (CryptoException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.start();
+        thread.join();
+        assertFalse(Arrays.equals(Arrays.copyOf(first, 8), Arrays.copyOf(other, 8)));
+    }
+    
+    @Test
+    void testSyntheticNonceDependsOnKeyAndPlaintext() throws Exception {
+        CipherSuite cipher = CipherSuites.forName("AES-256-GCM", NonceStrategy.SYNTHETIC);
+        byte[] key = cipher.generateKey();
+        
+        assertArrayEquals(cipher.encrypt(PLAINTEXT, key), cipher.encrypt(PLAINTEXT, key));
+        assertFalse(Arrays.equals(cipher.encrypt(PLAINTEXT, key), cipher.encrypt("other".getBytes(StandardCharsets.UTF_8), key)));
+        assertFalse(Arrays.equals(cipher.encrypt(PLAINTEXT, key), cipher.encrypt(PLAINTEXT, cipher.generateKey())));
+    }
+    
+    @Test
+    void testDecryptionIgnoresStrategy() throws Exception {
+        for (String suite : new String[] { "AES-256-GCM", "CHACHA20-POLY1305" }) {
+            CipherSuite reader = CipherSuites.forName(suite);
+            Set<String> nonces = new HashSet<>();
+            for (NonceStrategy strategy : NonceStrategy.values()) {
+                CipherSuite writer = CipherSuites.forName(suite, strategy);
+                assertEquals(strategy, writer.getNonceStrategy());
+                byte[] key = writer.generateKey();
+                byte[] encrypted = writer.encrypt(PLAINTEXT, key);
+                assertArrayEquals(PLAINTEXT, reader.decrypt(encrypted, key));
+                nonces.add(Arrays.toString(Arrays.copyOf(encrypted, 12)));
+            }
+            assertEquals(NonceStrategy.values().length, nonces.size());
+        }
+    }
+    
+    @Test
+    void testForName() throws CryptoException {
+        assertEquals(NonceStrategy.RANDOM, NonceStrategy.forName(null));
+        assertEquals(NonceStrategy.COUNTER, NonceStrategy.forName("Counter"));
+        assertEquals(NonceStrategy.SYNTHETIC, NonceStrategy.forName("synthetic"));
+        assertThrows(CryptoException.class, () -> NonceStrategy.forName("zero"));
+    }
+}
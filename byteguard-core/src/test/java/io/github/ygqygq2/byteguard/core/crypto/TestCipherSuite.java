@@ -0,0 +1,33 @@
+package io.github.ygqygq2.byteguard.core.crypto;
+
+/**
+ * 通过 SPI 注册的测试套件（委托给 AES-GCM）
+ * 
+ * @author ygqygq2
+ */
+public class TestCipherSuite implements CipherSuite {
+    
+    public static final String NAME = "TEST-SUITE";
+    
+    private final CipherSuite delegate = new AESGCMCipher();
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public byte[] encrypt(byte[] plaintext, byte[] key) throws CryptoException {
+        return delegate.encrypt(plaintext, key);
+    }
+    
+    @Override
+    public byte[] decrypt(byte[] encrypted, byte[] key) throws CryptoException {
+        return delegate.decrypt(encrypted, key);
+    }
+    
+    @Override
+    public byte[] generateKey() {
+        return delegate.generateKey();
+    }
+}
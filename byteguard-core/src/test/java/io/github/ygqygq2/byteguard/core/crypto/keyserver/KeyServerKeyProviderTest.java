@@ -0,0 +1,93 @@
+package io.github.ygqygq2.byteguard.core.crypto.keyserver;
+
+import io.github.ygqygq2.byteguard.core.crypto.CryptoException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 密钥服务器客户端测试（本地替身服务器）
+ * 
+ * @author ygqygq2
+ */
+class KeyServerKeyProviderTest {
+    
+    @BeforeEach
+    void clearCache() {
+        KeyServerKeyProvider.clearCache();
+    }
+    
+    @Test
+    void testPrefetchAndCache() throws Exception {
+        try (KeyServer server = new KeyServer().put("app", "s3cret").start("127.0.0.1:0")) {
+            KeyServerKeyProvider provider = new KeyServerKeyProvider(server.getAddress(), "app", null);
+            provider.prefetch();
+            assertEquals("s3cret", provider.getPassword());
+            
+            // TTL 内第二个实例直接命中进程内缓存
+            assertEquals("s3cret", new KeyServerKeyProvider(server.getAddress(), "app", null).getPassword());
+            assertEquals(1, server.requestCount());
+        }
+    }
+    
+    @Test
+    void testExpiredCacheRefetches() throws Exception {
+        try (KeyServer server = new KeyServer(100).put("app", "s3cret").start("127.0.0.1:0")) {
+            KeyServerKeyProvider provider = new KeyServerKeyProvider(server.getAddress(), "app", null);
+            assertEquals("s3cret", provider.getPassword());
+            Thread.sleep(200);
+            assertEquals("s3cret", provider.getPassword());
+            assertEquals(2, server.requestCount());
+        }
+    }
+    
+    @Test
+    void testTokenAndMissingKeyRejected() throws Exception {
+        try (KeyServer server = new KeyServer().put("app", "s3cret").token("t0ken").start("127.0.0.1:0")) {
+            assertThrows(CryptoException.class,
+                () -> new KeyServerKeyProvider(server.getAddress(), "app", "wrong").getPassword());
+            assertThrows(CryptoException.class,
+                () -> new KeyServerKeyProvider(server.getAddress(), "other", "t0ken").getPassword());
+            assertEquals("s3cret", new KeyServerKeyProvider(server.getAddress(), "app", "t0ken").getPassword());
+            
+            // 明确拒绝不重试
+            assertEquals(3, server.requestCount());
+        }
+    }
+    
+    @Test
+    void testUnresponsiveServerTimesOut() throws Exception {
+        // 只监听不 accept：连接成功但永远收不到响应
+        try (ServerSocketChannel silent = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0))) {
+            int port = ((InetSocketAddress) silent.getLocalAddress()).getPort();
+            KeyServerKeyProvider provider = new KeyServerKeyProvider("127.0.0.1:" + port, "app", null)
+                .timeouts(5000, 200, 2);
+            
+            long start = System.nanoTime();
+            assertThrows(CryptoException.class, provider::getPassword);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(elapsedMillis < 2000, "took " + elapsedMillis + " ms");
+        }
+    }
+    
+    @Test
+    void testRemoteAddressRefused() {
+        // 令牌和口令明文传输，只允许本机
+        assertThrows(IllegalArgumentException.class, () -> new KeyServerKeyProvider("192.0.2.1:7071", "app", null));
+        assertThrows(IllegalArgumentException.class, () -> new KeyServer().start("0.0.0.0:0"));
+        new KeyServerKeyProvider("localhost:7071", "app", null);
+    }
+    
+    @Test
+    void testUnixSocket(@TempDir Path dir) throws Exception {
+        try (KeyServer server = new KeyServer().put("app", "s3cret").start("unix:" + dir.resolve("key.sock"))) {
+            assertEquals("s3cret", new KeyServerKeyProvider(server.getAddress(), "app", null).getPassword());
+        }
+    }
+}
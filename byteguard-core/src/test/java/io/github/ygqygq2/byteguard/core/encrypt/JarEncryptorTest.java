@@ -0,0 +1,552 @@
+package io.github.ygqygq2.byteguard.core.encrypt;
+
+import io.github.ygqygq2.byteguard.core.crypto.AESGCMCipher;
+import io.github.ygqygq2.byteguard.core.crypto.CipherSuite;
+import io.github.ygqygq2.byteguard.core.crypto.CipherSuites;
+import io.github.ygqygq2.byteguard.core.crypto.CryptoException;
+import io.github.ygqygq2.byteguard.core.crypto.EncryptedEntry;
+import io.github.ygqygq2.byteguard.core.crypto.KdfParams;
+import io.github.ygqygq2.byteguard.core.crypto.KeyDerivation;
+import io.github.ygqygq2.byteguard.core.crypto.KeyEnvelope;
+import io.github.ygqygq2.byteguard.core.crypto.NonceStrategy;
+import io.github.ygqygq2.byteguard.core.loader.DecryptingClassLoader;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadata;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadataSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JAR 加密引擎测试
+ * 
+ * @author ygqygq2
+ */
+class JarEncryptorTest {
+    
+    private static final KdfParams FAST_KDF = KdfParams.pbkdf2(KdfParams.MIN_PBKDF2_ITERATIONS);
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void testEncryptToFile() throws Exception {
+        Path input = createJar();
+        Path output = dir.resolve("out.jar");
+        List<String> progress = new ArrayList<>();
+        
+        JarEncryptor.Result result = JarEncryptor.builder()
+            .password("secret")
+            .kdf(FAST_KDF)
+            .progress((done, total, name, encrypted) -> progress.add(done + "/" + total + " " + name + " " + encrypted))
+            .build()
+            .encrypt(input, output);
+        
+        assertEquals(2, result.getEncryptedCount());
+        assertEquals(5, result.getEntryCount());
+        assertEquals(List.of("1/5 com/ false", "2/5 com/example/App.class true", "3/5 com/example/util/Util.class true",
+            "4/5 app.properties false", "5/5 META-INF/Module.class false"), progress);
+        
+        Map<String, byte[]> entries = readJar(Files.newInputStream(output));
+        List<String> names = new ArrayList<>(entries.keySet());
+        assertEquals(EncryptionMetadata.METADATA_PATH, names.get(names.size() - 1));
+        assertArrayEquals("key=value".getBytes(StandardCharsets.UTF_8), entries.get("app.properties"));
+        assertFalse(entries.containsKey("META-INF/.encrypted/com/example/App.class"));
+        
+        // 用密码解开数据密钥后能还原类字节码
+        EncryptionMetadata metadata = new EncryptionMetadataSerializer()
+            .fromJson(new String(entries.get(EncryptionMetadata.METADATA_PATH), StandardCharsets.UTF_8));
+        byte[] masterKey = KeyEnvelope.open(metadata, "secret");
+        CipherSuite cipher = CipherSuites.forName(metadata.getAlgorithm());
+        byte[] classKey = new KeyDerivation().deriveClassKey(masterKey, "com.example.App");
+        assertArrayEquals(classBytes("App"), EncryptedEntry.open(entries.get("com/example/App.class"), classKey, cipher));
+        assertEquals(FAST_KDF, metadata.getKdf());
+        assertEquals(EncryptionMetadata.VERSION_ENTRY_HEADER, metadata.getVersion());
+        assertTrue(metadata.hasEntryHeaders());
+        try (ZipFile zip = new ZipFile(output.toFile())) {
+            assertEquals(ZipEntry.STORED, zip.getEntry("com/example/App.class").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zip.getEntry("app.properties").getMethod());
+        }
+        assertEquals("com/example/App.class", metadata.getEncryptedClasses().get("com.example.App").getEncryptedPath());
+        assertEquals(NonceStrategy.COUNTER.getName(), metadata.getNonceStrategy());
+    }
+    
+    @Test
+    void testSelectorLimitsScope() throws Exception {
+        Path input = createJar();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        
+        JarEncryptor.Result result = JarEncryptor.builder()
+            .password("secret")
+            .kdf(FAST_KDF)
+            .selector(EntrySelector.classes()
+                .and(EntrySelector.packages(List.of("com.example")))
+                .and(EntrySelector.excluding(List.of("/util/"))))
+            .build()
+            .encrypt(input, JarSink.toStream(buffer));
+        
+        assertEquals(List.of("com.example.App"), new ArrayList<>(result.getMetadata().getEncryptedClasses().keySet()));
+        Map<String, byte[]> entries = readJar(new ByteArrayInputStream(buffer.toByteArray()));
+        assertArrayEquals(classBytes("Util"), entries.get("com/example/util/Util.class"));
+    }
+    
+    @Test
+    void testSuppliedCipherIsUsedAsGiven() throws Exception {
+        // 第三方实现（接口默认 RANDOM 策略）原样使用，不按名称重新查找
+        AtomicInteger calls = new AtomicInteger();
+        CipherSuite delegate = new AESGCMCipher();
+        CipherSuite custom = new CipherSuite() {
+            @Override
+            public String getName() {
+                return delegate.getName();
+            }
+            
+            @Override
+            public byte[] encrypt(byte[] plaintext, byte[] key) throws CryptoException {
+                calls.incrementAndGet();
+                return delegate.encrypt(plaintext, key);
+            }
+            
+            @Override
+            public byte[] decrypt(byte[] encrypted, byte[] key) throws CryptoException {
+                return delegate.decrypt(encrypted, key);
+            }
+            
+            @Override
+            public byte[] generateKey() {
+                return delegate.generateKey();
+            }
+        };
+        JarEncryptor.Result result = JarEncryptor.builder().password("secret").kdf(FAST_KDF).cipher(custom).build()
+            .encrypt(createJar(), dir.resolve("custom.jar"));
+        assertTrue(calls.get() > 0);
+        assertEquals(NonceStrategy.RANDOM.getName(), result.getMetadata().getNonceStrategy());
+        
+        result = JarEncryptor.builder().password("secret").kdf(FAST_KDF).cipher(new AESGCMCipher()).build()
+            .encrypt(createJar(), dir.resolve("random.jar"));
+        assertEquals(NonceStrategy.RANDOM.getName(), result.getMetadata().getNonceStrategy());
+        
+        // 默认套件使用 COUNTER；显式的策略与传入的套件冲突时报错而不是替换套件
+        result = JarEncryptor.builder().password("secret").kdf(FAST_KDF).build()
+            .encrypt(createJar(), dir.resolve("default.jar"));
+        assertEquals(NonceStrategy.COUNTER.getName(), result.getMetadata().getNonceStrategy());
+        assertThrows(IllegalArgumentException.class, () -> JarEncryptor.builder().password("secret")
+            .cipher(new AESGCMCipher()).nonceStrategy(NonceStrategy.COUNTER).build());
+    }
+    
+    @Test
+    void testLegacyLayoutKeepsSecondCopy() throws Exception {
+        Path input = createJar();
+        Path output = dir.resolve("legacy.jar");
+        
+        JarEncryptor.Result result = JarEncryptor.builder()
+            .password("secret")
+            .kdf(FAST_KDF)
+            .singleCopy(false)
+            .build()
+            .encrypt(input, output);
+        
+        Map<String, byte[]> entries = readJar(Files.newInputStream(output));
+        assertArrayEquals(entries.get("com/example/App.class"), entries.get("META-INF/.encrypted/com/example/App.class"));
+        assertEquals(EncryptionMetadata.VERSION_NONCE_STRATEGY, result.getMetadata().getVersion());
+        assertEquals("META-INF/.encrypted/com/example/App.class",
+            result.getMetadata().getEncryptedClasses().get("com.example.App").getEncryptedPath());
+    }
+    
+    @Test
+    void testIncrementalReusesUnchangedCiphertext() throws Exception {
+        Path first = dir.resolve("first.jar");
+        JarEncryptor.Result previous = JarEncryptor.builder()
+            .password("secret")
+            .kdf(FAST_KDF)
+            .hashManifest(true)
+            .build()
+            .encrypt(createJar(), first);
+        Map<String, byte[]> before = readJar(Files.newInputStream(first));
+        
+        // App 修改，Util 不变，新增 Extra；输出覆盖上次的 JAR
+        Path changed = dir.resolve("changed.jar");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(changed))) {
+            put(zip, "com/example/App.class", classBytes("App v2"));
+            put(zip, "com/example/util/Util.class", classBytes("Util"));
+            put(zip, "com/example/Extra.class", classBytes("Extra"));
+        }
+        Path manifestFile = dir.resolve("classes.manifest");
+        previous.getManifest().write(manifestFile);
+        JarEncryptor.Result result = JarEncryptor.builder()
+            .password("secret")
+            .previous(first, HashManifest.read(manifestFile))
+            .build()
+            .encrypt(changed, first);
+        
+        assertEquals(3, result.getEncryptedCount());
+        assertEquals(1, result.getReusedCount());
+        Map<String, byte[]> after = readJar(Files.newInputStream(first));
+        assertArrayEquals(before.get("com/example/util/Util.class"), after.get("com/example/util/Util.class"));
+        assertFalse(Arrays.equals(before.get("com/example/App.class"), after.get("com/example/App.class")));
+        
+        // 沿用上次的数据密钥和密钥槽，复制和新加密的类都能解开
+        EncryptionMetadata metadata = result.getMetadata();
+        assertEquals(FAST_KDF, metadata.getKdf());
+        byte[] masterKey = KeyEnvelope.open(metadata, "secret");
+        CipherSuite cipher = CipherSuites.forName(metadata.getAlgorithm());
+        KeyDerivation kd = new KeyDerivation();
+        assertArrayEquals(classBytes("Util"), EncryptedEntry.open(after.get("com/example/util/Util.class"),
+            kd.deriveClassKey(masterKey, "com.example.util.Util"), cipher));
+        assertArrayEquals(classBytes("App v2"), EncryptedEntry.open(after.get("com/example/App.class"),
+            kd.deriveClassKey(masterKey, "com.example.App"), cipher));
+        assertEquals(metadata.getEncryptedAt(), result.getManifest().getEncryptedAt());
+        assertEquals(3, result.getManifest().getHashes().size());
+        
+        // 清单不属于该 JAR（已被覆盖）时退回全量加密
+        JarEncryptor.Result full = JarEncryptor.builder()
+            .password("secret")
+            .kdf(FAST_KDF)
+            .previous(first, previous.getManifest())
+            .build()
+            .encrypt(changed, dir.resolve("full.jar"));
+        assertEquals(0, full.getReusedCount());
+    }
+    
+    @Test
+    void testParallelOutputKeepsInputOrder() throws Exception {
+        Path input = dir.resolve("many.jar");
+        List<String> expected = new ArrayList<>();
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(input))) {
+            for (int i = 0; i < 300; i++) {
+                String name = "com/example/C" + i + ".class";
+                // 大小不一，工作线程完成顺序与提交顺序不同
+                put(zip, name, new byte[(i * 7919) % 5000 + 1]);
+                expected.add(name);
+                if (i % 50 == 0) {
+                    put(zip, "res/r" + i + ".txt", new byte[2 * 1024 * 1024]);
+                    expected.add("res/r" + i + ".txt");
+                }
+            }
+        }
+        
+        List<String> progress = new ArrayList<>();
+        Path output = dir.resolve("many-out.jar");
+        JarEncryptor.Result result = JarEncryptor.builder()
+            .password("secret")
+            .kdf(FAST_KDF)
+            .threads(4)
+            .maxInFlightBytes(16 * 1024)
+            .progress((done, total, name, encrypted) -> progress.add(name))
+            .build()
+            .encrypt(input, output);
+        
+        assertEquals(300, result.getEncryptedCount());
+        assertEquals(expected, progress);
+        
+        List<String> written = new ArrayList<>();
+        for (String name : readJar(Files.newInputStream(output)).keySet()) {
+            if (!name.startsWith("META-INF/")) {
+                written.add(name);
+            }
+        }
+        assertEquals(expected, written);
+        assertEquals(expected.stream().filter(n -> n.endsWith(".class")).map(n -> n.replace('/', '.').replace(".class", "")).toList(),
+            new ArrayList<>(result.getMetadata().getEncryptedClasses().keySet()));
+    }
+    
+    @Test
+    void testStreamingInputWithLargeResourceAndZip64() throws Exception {
+        // 超过 65535 个条目需要 ZIP64；大资源超过缓冲上限，从输入流直接复制
+        byte[] large = new byte[3 * 1024 * 1024];
+        new Random(7).nextBytes(large);
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        List<String> expected = new ArrayList<>();
+        try (ZipOutputStream zip = new ZipOutputStream(input)) {
+            put(zip, "com/example/App.class", classBytes("App"));
+            expected.add("com/example/App.class");
+            put(zip, "data/large.bin", large);
+            expected.add("data/large.bin");
+            for (int i = 0; i < 70_000; i++) {
+                put(zip, "res/r" + i, new byte[] { (byte) i });
+                expected.add("res/r" + i);
+            }
+            put(zip, "com/example/util/Util.class", classBytes("Util"));
+            expected.add("com/example/util/Util.class");
+        }
+        
+        Path output = dir.resolve("streamed.jar");
+        List<Integer> totals = new ArrayList<>();
+        JarEncryptor.Result result = JarEncryptor.builder()
+            .password("secret")
+            .kdf(FAST_KDF)
+            .threads(2)
+            .progress((done, total, name, encrypted) -> totals.add(total))
+            .build()
+            .encrypt(new ByteArrayInputStream(input.toByteArray()), JarSink.toFile(output));
+        
+        assertEquals(2, result.getEncryptedCount());
+        assertEquals(expected.size(), result.getEntryCount());
+        assertTrue(totals.stream().allMatch(total -> total == -1));
+        try (ZipFile zip = new ZipFile(output.toFile())) {
+            assertEquals(expected.size() + 1, zip.size());
+            try (InputStream in = zip.getInputStream(zip.getEntry("data/large.bin"))) {
+                assertArrayEquals(large, in.readAllBytes());
+            }
+        }
+        List<String> written = new ArrayList<>(readJar(Files.newInputStream(output)).keySet());
+        assertEquals(expected, written.subList(0, written.size() - 1));
+    }
+    
+    @Test
+    void testBatchSharesKekButNotDataKeys() throws Exception {
+        Path a = createJar();
+        Path b = dir.resolve("b.jar");
+        Files.copy(a, b);
+        Map<Path, Path> jobs = new LinkedHashMap<>();
+        jobs.put(a, dir.resolve("a-out.jar"));
+        jobs.put(b, dir.resolve("b-out.jar"));
+        
+        JarEncryptor.BatchResult batch = JarEncryptor.builder()
+            .password("secret")
+            .kdf(FAST_KDF)
+            .threads(3)
+            .build()
+            .encryptAll(jobs);
+        
+        assertEquals(List.of(a, b), new ArrayList<>(batch.getResults().keySet()));
+        assertEquals(4, batch.getEncryptedCount());
+        EncryptionMetadata first = batch.getResults().get(a).getMetadata();
+        EncryptionMetadata second = batch.getResults().get(b).getMetadata();
+        
+        // 同一次会话共用盐值（只派生一次 KEK），数据密钥各自独立
+        assertArrayEquals(first.getKeySlots().get(0).getSalt(), second.getKeySlots().get(0).getSalt());
+        byte[] firstKey = KeyEnvelope.open(first, "secret");
+        byte[] secondKey = KeyEnvelope.open(second, "secret");
+        assertFalse(Arrays.equals(firstKey, secondKey));
+        
+        CipherSuite cipher = CipherSuites.forName(second.getAlgorithm());
+        Map<String, byte[]> entries = readJar(Files.newInputStream(dir.resolve("b-out.jar")));
+        assertArrayEquals(classBytes("App"), EncryptedEntry.open(entries.get("com/example/App.class"),
+            new KeyDerivation().deriveClassKey(secondKey, "com.example.App"), cipher));
+    }
+    
+    @Test
+    void testDirectorySink() throws Exception {
+        Path input = createJar();
+        Path output = dir.resolve("exploded");
+        
+        JarEncryptor.builder().password("secret").kdf(FAST_KDF).build()
+            .encrypt(input, JarSink.toDirectory(output));
+        
+        assertTrue(Files.isDirectory(output.resolve("com")));
+        assertEquals("key=value", Files.readString(output.resolve("app.properties")));
+        assertTrue(Files.exists(output.resolve(EncryptionMetadata.METADATA_PATH)));
+        assertFalse(Files.readString(output.resolve("com/example/App.class"), StandardCharsets.ISO_8859_1)
+            .contains(new String(classBytes("App"), StandardCharsets.ISO_8859_1)));
+    }
+    
+    @Test
+    void testDirectorySinkRejectsEscapingEntries() throws Exception {
+        try (JarSink sink = JarSink.toDirectory(dir.resolve("exploded"))) {
+            assertThrows(IOException.class, () -> sink.putEntry("../evil.txt", new byte[1]));
+        }
+        assertFalse(Files.exists(dir.resolve("evil.txt")));
+    }
+    
+    @Test
+    void testExplodedDirectoryMirrorKeepsUnchangedFiles() throws Exception {
+        Path classes = createClassesDirectory();
+        Path output = dir.resolve("classes-encrypted");
+        Path manifestFile = dir.resolve("classes.manifest");
+        JarEncryptor.builder().password("secret").kdf(FAST_KDF).hashManifest(true).build()
+            .encryptDirectory(classes, output)
+            .getManifest().write(manifestFile);
+        
+        assertEquals("key=value", Files.readString(output.resolve("app.properties")));
+        assertTrue(Files.exists(output.resolve(EncryptionMetadata.METADATA_PATH)));
+        byte[] util = Files.readAllBytes(output.resolve("com/example/util/Util.class"));
+        FileTime old = FileTime.fromMillis(1_000_000_000_000L);
+        Files.setLastModifiedTime(output.resolve("com/example/util/Util.class"), old);
+        Files.setLastModifiedTime(output.resolve("app.properties"), old);
+        
+        // 只改 App：Util 和资源文件不重写
+        Files.write(classes.resolve("com/example/App.class"), classBytes("App v2"));
+        JarEncryptor.Result result = JarEncryptor.builder()
+            .password("secret")
+            .previous(output, HashManifest.read(manifestFile))
+            .build()
+            .encryptDirectory(classes, output);
+        
+        assertEquals(2, result.getEncryptedCount());
+        assertEquals(1, result.getReusedCount());
+        assertEquals(old, Files.getLastModifiedTime(output.resolve("com/example/util/Util.class")));
+        assertEquals(old, Files.getLastModifiedTime(output.resolve("app.properties")));
+        assertArrayEquals(util, Files.readAllBytes(output.resolve("com/example/util/Util.class")));
+        
+        byte[] masterKey = KeyEnvelope.open(result.getMetadata(), "secret");
+        assertArrayEquals(classBytes("App v2"), EncryptedEntry.open(Files.readAllBytes(output.resolve("com/example/App.class")),
+            new KeyDerivation().deriveClassKey(masterKey, "com.example.App"),
+            CipherSuites.forName(result.getMetadata().getAlgorithm())));
+    }
+    
+    @Test
+    void testExplodedDirectoryMirrorRemovesStaleFiles() throws Exception {
+        Path classes = createClassesDirectory();
+        Path output = dir.resolve("classes-encrypted");
+        JarEncryptor encryptor = JarEncryptor.builder().password("secret").kdf(FAST_KDF).build();
+        encryptor.encryptDirectory(classes, output);
+        assertTrue(Files.exists(output.resolve("com/example/util/Util.class")));
+        
+        // 删除的类不能残留在输出中（运行时会被当作类加载）
+        Files.delete(classes.resolve("com/example/util/Util.class"));
+        Files.delete(classes.resolve("com/example/util"));
+        JarEncryptor.Result result = encryptor.encryptDirectory(classes, output);
+        
+        assertEquals(1, result.getEncryptedCount());
+        assertFalse(Files.exists(output.resolve("com/example/util")));
+        assertTrue(Files.exists(output.resolve("com/example/App.class")));
+        assertTrue(Files.exists(output.resolve(EncryptionMetadata.METADATA_PATH)));
+        assertFalse(Files.exists(output.resolve(JarEncryptor.IN_PROGRESS_PATH)));
+        
+        // 不是 ByteGuard 输出的非空目录不接管
+        Path foreign = dir.resolve("foreign");
+        Files.createDirectories(foreign);
+        Files.writeString(foreign.resolve("keep.txt"), "keep");
+        assertThrows(IOException.class, () -> encryptor.encryptDirectory(classes, foreign));
+        assertEquals("keep", Files.readString(foreign.resolve("keep.txt")));
+    }
+    
+    @Test
+    void testInterruptedInPlaceEncryptionIsRefused() throws Exception {
+        Path classes = createClassesDirectory();
+        // Util 的最终判断失败：加密在改写 App 之后中断
+        EntrySelector failing = new EntrySelector() {
+            @Override
+            public boolean shouldEncrypt(String entryName) {
+                return entryName.endsWith(".class");
+            }
+            
+            @Override
+            public boolean shouldEncrypt(String entryName, byte[] classBytes) {
+                if (entryName.contains("Util")) {
+                    throw new IllegalStateException("interrupted");
+                }
+                return true;
+            }
+            
+            @Override
+            public boolean needsContent() {
+                return true;
+            }
+        };
+        assertThrows(Exception.class, () -> JarEncryptor.builder().password("secret").kdf(FAST_KDF).selector(failing).build()
+            .encryptDirectory(classes, null));
+        assertTrue(Files.exists(classes.resolve(JarEncryptor.IN_PROGRESS_PATH)));
+        assertFalse(Files.exists(classes.resolve(EncryptionMetadata.METADATA_PATH)));
+        
+        // 重新运行不会把已经改写的类再加密一遍
+        byte[] app = Files.readAllBytes(classes.resolve("com/example/App.class"));
+        IOException e = assertThrows(IOException.class, () -> JarEncryptor.builder().password("secret").kdf(FAST_KDF).build()
+            .encryptDirectory(classes, null));
+        assertTrue(e.getMessage().contains("interrupted"));
+        assertArrayEquals(app, Files.readAllBytes(classes.resolve("com/example/App.class")));
+    }
+    
+    @Test
+    void testExplodedDirectoryInPlaceLoadsWithDirectoryClassLoader() throws Exception {
+        // 真实的类文件：由无父加载器的 DecryptingClassLoader 解密定义
+        Path classes = dir.resolve("classes");
+        String path = Greeting.class.getName().replace('.', '/') + ".class";
+        try (InputStream in = Greeting.class.getClassLoader().getResourceAsStream(path)) {
+            Files.createDirectories(classes.resolve(path).getParent());
+            Files.write(classes.resolve(path), in.readAllBytes());
+        }
+        Files.writeString(classes.resolve("app.properties"), "key=value");
+        
+        JarEncryptor.Result result = JarEncryptor.builder().password("secret").kdf(FAST_KDF).build()
+            .encryptDirectory(classes, null);
+        
+        assertEquals(1, result.getEntryCount());
+        assertEquals("key=value", Files.readString(classes.resolve("app.properties")));
+        assertThrows(IOException.class, () -> JarEncryptor.builder().password("secret").kdf(FAST_KDF).build()
+            .encryptDirectory(classes, null));
+        
+        try (DecryptingClassLoader loader = DecryptingClassLoader.forDirectory(classes, null, "secret")) {
+            Class<?> type = loader.loadClass(Greeting.class.getName());
+            assertSame(loader, type.getClassLoader());
+            @SuppressWarnings("unchecked")
+            Supplier<String> greeting = (Supplier<String>) type.getDeclaredConstructor().newInstance();
+            assertEquals("hello", greeting.get());
+            assertNotNull(loader.getResource("app.properties"));
+        }
+        assertThrows(CryptoException.class, () -> DecryptingClassLoader.forDirectory(classes, null, "wrong"));
+    }
+    
+    /** 加载到独立 ClassLoader 的测试类（只依赖 java.base） */
+    public static final class Greeting implements Supplier<String> {
+        @Override
+        public String get() {
+            return "hello";
+        }
+    }
+    
+    private Path createClassesDirectory() throws IOException {
+        Path classes = dir.resolve("classes");
+        Files.createDirectories(classes.resolve("com/example/util"));
+        Files.write(classes.resolve("com/example/App.class"), classBytes("App"));
+        Files.write(classes.resolve("com/example/util/Util.class"), classBytes("Util"));
+        Files.writeString(classes.resolve("app.properties"), "key=value");
+        return classes;
+    }
+    
+    private Path createJar() throws IOException {
+        Path jar = dir.resolve("in.jar");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+            zip.putNextEntry(new ZipEntry("com/"));
+            zip.closeEntry();
+            put(zip, "com/example/App.class", classBytes("App"));
+            put(zip, "com/example/util/Util.class", classBytes("Util"));
+            put(zip, "app.properties", "key=value".getBytes(StandardCharsets.UTF_8));
+            put(zip, "META-INF/Module.class", classBytes("Module"));
+        }
+        return jar;
+    }
+    
+    private static void put(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+    
+    private static byte[] classBytes(String name) {
+        return ("Êþº¾ class " + name).getBytes(StandardCharsets.ISO_8859_1);
+    }
+    
+    private static Map<String, byte[]> readJar(InputStream in) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,199 @@
+package io.github.ygqygq2.byteguard.core.encrypt;
+
+import io.github.ygqygq2.byteguard.core.crypto.KdfParams;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 加密范围规则测试
+ * 
+ * @author ygqygq2
+ */
+class SelectionRulesTest {
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void testMostSpecificPackageRuleWins() {
+        SelectionRules rules = SelectionRules.builder()
+            .includePackages(List.of("com.example"))
+            .excludePackages(List.of("com.example.internal"))
+            .includePackages(List.of("com.example.internal.api"))
+            .build();
+        
+        assertTrue(rules.shouldEncrypt("com/example/App.class"));
+        assertTrue(rules.shouldEncrypt("com/example/util/Util.class"));
+        assertFalse(rules.shouldEncrypt("com/example/internal/Secret.class"));
+        assertTrue(rules.shouldEncrypt("com/example/internal/api/Facade.class"));
+        assertFalse(rules.shouldEncrypt("com/examples/Other.class"));
+        assertFalse(rules.shouldEncrypt("Root.class"));
+        assertFalse(rules.shouldEncrypt("com/example/app.properties"));
+        
+        SelectionRules excludeOnly = SelectionRules.builder().excludePackages(List.of("org.thirdparty")).build();
+        assertTrue(excludeOnly.shouldEncrypt("Root.class"));
+        assertFalse(excludeOnly.shouldEncrypt("org/thirdparty/Lib.class"));
+        assertFalse(excludeOnly.shouldEncrypt("META-INF/versions/11/com/example/App.class"));
+    }
+    
+    @Test
+    void testExcludeGlobsAndSubstrings() {
+        SelectionRules rules = SelectionRules.builder()
+            .exclude(List.of("**/*Test.class", "com/*/Gen?.class", "/internal/"))
+            .build();
+        
+        assertFalse(rules.shouldEncrypt("AppTest.class"));
+        assertFalse(rules.shouldEncrypt("com/example/deep/AppTest.class"));
+        assertTrue(rules.shouldEncrypt("com/example/AppTests.class"));
+        assertFalse(rules.shouldEncrypt("com/example/Gen1.class"));
+        assertTrue(rules.shouldEncrypt("com/example/sub/Gen1.class"));
+        assertTrue(rules.shouldEncrypt("com/example/Gen12.class"));
+        assertFalse(rules.shouldEncrypt("com/example/internal/Secret.class"));
+        assertTrue(rules.shouldEncrypt("com/example/internalized/Ok.class"));
+    }
+    
+    @Test
+    void testHundredsOfRulesOverManyEntries() {
+        List<String> packages = new ArrayList<>();
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            packages.add("com.vendor" + i);
+            patterns.add("**/Excluded" + i + "*.class");
+        }
+        SelectionRules rules = SelectionRules.builder()
+            .excludePackages(packages)
+            .exclude(patterns)
+            .build();
+        
+        int encrypted = 0;
+        for (int i = 0; i < 100_000; i++) {
+            String name = (i % 3 == 0 ? "com/vendor" + (i % 300) : "com/app/m" + (i % 50))
+                + (i % 7 == 0 ? "/Excluded" + (i % 300) + "Impl.class" : "/C" + i + ".class");
+            if (rules.shouldEncrypt(name)) {
+                encrypted++;
+            }
+        }
+        int expected = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (i % 3 != 0 && i % 7 != 0) {
+                expected++;
+            }
+        }
+        assertEquals(expected, encrypted);
+    }
+    
+    @Test
+    void testAnnotationAndSizeRulesUseClassBytes() throws Exception {
+        byte[] marked = classBytes(Marked.class);
+        byte[] plain = classBytes(Plain.class);
+        String markedName = Marked.class.getName().replace('.', '/') + ".class";
+        String plainName = Plain.class.getName().replace('.', '/') + ".class";
+        
+        assertEquals(Set.of(Marker.class.getName(), Visible.class.getName()), ClassAnnotations.read(marked));
+        assertTrue(ClassAnnotations.read(plain).isEmpty());
+        
+        SelectionRules include = SelectionRules.builder().includeAnnotations(List.of(Marker.class.getName())).build();
+        assertTrue(include.needsContent());
+        assertTrue(include.shouldEncrypt(plainName));
+        assertTrue(include.shouldEncrypt(markedName, marked));
+        assertFalse(include.shouldEncrypt(plainName, plain));
+        
+        SelectionRules exclude = SelectionRules.builder().excludeAnnotations(List.of(Visible.class.getName())).build();
+        assertFalse(exclude.shouldEncrypt(markedName, marked));
+        assertTrue(exclude.shouldEncrypt(plainName, plain));
+        assertTrue(exclude.shouldEncrypt(plainName, new byte[] { 1, 2, 3 })); // 无法解析时视为没有注解
+        
+        SelectionRules size = SelectionRules.builder().minClassSize(plain.length + 1).build();
+        assertFalse(size.shouldEncrypt(plainName, plain));
+        assertFalse(SelectionRules.builder().maxClassSize(plain.length - 1).build().shouldEncrypt(plainName, plain));
+        assertFalse(SelectionRules.builder().build().needsContent());
+        
+        // 组合后仍分两步判断
+        EntrySelector combined = EntrySelector.packages(List.of("io.github")).and(include);
+        assertTrue(combined.needsContent());
+        assertFalse(combined.shouldEncrypt(plainName, plain));
+        assertTrue(combined.negate().shouldEncrypt(plainName));
+        assertTrue(combined.negate().shouldEncrypt(plainName, plain));
+    }
+    
+    @Test
+    void testContentRulesInEncryptionAndPreview() throws Exception {
+        Path jar = dir.resolve("in.jar");
+        String markedName = Marked.class.getName().replace('.', '/') + ".class";
+        String plainName = Plain.class.getName().replace('.', '/') + ".class";
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+            put(zip, markedName, classBytes(Marked.class));
+            put(zip, plainName, classBytes(Plain.class));
+        }
+        SelectionRules rules = SelectionRules.builder().includeAnnotations(List.of(Marker.class.getName())).build();
+        
+        JarEncryptor.Preview preview = JarEncryptor.preview(jar, rules);
+        assertEquals(Map.of(markedName, (long) classBytes(Marked.class).length), preview.getEncrypted());
+        assertEquals(List.of(plainName), preview.getSkipped());
+        
+        Path output = dir.resolve("out.jar");
+        JarEncryptor.Result result = JarEncryptor.builder()
+            .password("secret")
+            .kdf(KdfParams.pbkdf2(KdfParams.MIN_PBKDF2_ITERATIONS))
+            .selector(rules)
+            .build()
+            .encrypt(jar, output);
+        assertEquals(List.of(Marked.class.getName()), new ArrayList<>(result.getMetadata().getEncryptedClasses().keySet()));
+        try (ZipFile zip = new ZipFile(output.toFile());
+             InputStream in = zip.getInputStream(zip.getEntry(plainName))) {
+            assertArrayEquals(classBytes(Plain.class), in.readAllBytes());
+        }
+    }
+    
+    @Retention(RetentionPolicy.CLASS)
+    @interface Marker {
+    }
+    
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Visible {
+        String[] value();
+        Thread.State state();
+        Retention nested();
+    }
+    
+    @Visible(value = { "a", "b" }, state = Thread.State.NEW, nested = @Retention(RetentionPolicy.SOURCE))
+    @Marker
+    static final class Marked {
+        int field;
+        
+        void method() {
+        }
+    }
+    
+    static final class Plain {
+    }
+    
+    private static byte[] classBytes(Class<?> type) throws IOException {
+        String path = type.getName().replace('.', '/') + ".class";
+        try (InputStream in = type.getClassLoader().getResourceAsStream(path)) {
+            return in.readAllBytes();
+        }
+    }
+    
+    private static void put(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+}
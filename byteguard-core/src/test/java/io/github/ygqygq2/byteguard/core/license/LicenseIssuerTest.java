@@ -0,0 +1,91 @@
+package io.github.ygqygq2.byteguard.core.license;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * License 签发器测试
+ * 
+ * @author ygqygq2
+ */
+class LicenseIssuerTest {
+    
+    private final RSASignature rsaSignature = new RSASignature();
+    
+    @Test
+    void testIssuedLicenseVerifies() throws Exception {
+        KeyPair keyPair = rsaSignature.generateKeyPair();
+        String json = new LicenseIssuer(keyPair.getPrivate()).issue(newLicense("LIC-0001"));
+        
+        License parsed = new LicenseSerializer().fromJson(json);
+        assertEquals("LIC-0001", parsed.getLicenseId());
+        assertTrue(rsaSignature.verify(parsed.toSignatureData(), parsed.getSignature(), keyPair.getPublic()));
+    }
+    
+    @Test
+    void testLeaseServerIsSigned() throws Exception {
+        KeyPair keyPair = rsaSignature.generateKeyPair();
+        License license = newLicense("LIC-0002");
+        license.getAuthorization().setMaxInstances(3);
+        license.getAuthorization().setLeaseServer("lease-host:7070");
+        String json = new LicenseIssuer(keyPair.getPrivate()).issue(license);
+        
+        License parsed = new LicenseSerializer().fromJson(json);
+        assertEquals("lease-host:7070", parsed.getAuthorization().getLeaseServer());
+        assertTrue(rsaSignature.verify(parsed.toSignatureData(), parsed.getSignature(), keyPair.getPublic()));
+        
+        // 改写地址后签名失效
+        License forged = new LicenseSerializer().fromJson(json.replace("lease-host:7070", "127.0.0.1:7070"));
+        assertFalse(rsaSignature.verify(forged.toSignatureData(), forged.getSignature(), keyPair.getPublic()));
+        
+        // 未设置时不出现在 JSON 中
+        assertNull(new LicenseSerializer().fromJson(new LicenseIssuer(keyPair.getPrivate()).issue(newLicense("LIC-0003")))
+            .getAuthorization().getLeaseServer());
+    }
+    
+    @Test
+    void testParallelSigningMatchesSequential() throws Exception {
+        KeyPair keyPair = rsaSignature.generateKeyPair();
+        LicenseIssuer issuer = new LicenseIssuer(keyPair.getPrivate());
+        
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<License>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                String id = String.format("LIC-%04d", i);
+                futures.add(executor.submit(() -> {
+                    License license = newLicense(id);
+                    issuer.sign(license);
+                    return license;
+                }));
+            }
+            
+            // 每个线程复用各自的 Signature 实例，结果与 RSASignature 逐个签名一致（PKCS#1 v1.5 签名是确定性的）
+            for (Future<License> future : futures) {
+                License license = future.get();
+                assertEquals(rsaSignature.sign(license.toSignatureData(), keyPair.getPrivate()), license.getSignature());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    private static License newLicense(String id) {
+        License license = new License();
+        license.setLicenseId(id);
+        license.setLicenseType(License.LicenseType.STANDARD);
+        license.setIssuedTo("Customer " + id);
+        license.setIssuedAt(Instant.parse("2026-01-01T00:00:00Z"));
+        license.setAuthorization(new License.Authorization());
+        return license;
+    }
+}
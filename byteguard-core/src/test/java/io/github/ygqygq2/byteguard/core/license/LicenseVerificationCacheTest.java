@@ -0,0 +1,76 @@
+package io.github.ygqygq2.byteguard.core.license;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * License 验证缓存测试
+ * 
+ * @author ygqygq2
+ */
+class LicenseVerificationCacheTest {
+    
+    private static final String FINGERPRINT = GPGLicenseValidator.TRUSTED_GPG_FINGERPRINT;
+    private static final String LICENSE = "-----BEGIN PGP SIGNED MESSAGE-----\nHash: SHA512\n\neyJ9\n";
+    private static final String JSON = "{\"licenseId\":\"LIC-TEST\"}";
+    
+    @Test
+    void testStoreAndLookup(@TempDir Path dir) {
+        LicenseVerificationCache cache = new LicenseVerificationCache(dir.toFile(), FINGERPRINT);
+        assertNull(cache.lookup(LICENSE));
+        
+        cache.store(LICENSE, JSON);
+        assertEquals(JSON, cache.lookup(LICENSE));
+        
+        // 新实例（模拟重启）同样命中
+        assertEquals(JSON, new LicenseVerificationCache(dir.toFile(), FINGERPRINT).lookup(LICENSE));
+    }
+    
+    @Test
+    void testChangedLicenseMisses(@TempDir Path dir) {
+        LicenseVerificationCache cache = new LicenseVerificationCache(dir.toFile(), FINGERPRINT);
+        cache.store(LICENSE, JSON);
+        
+        assertNull(cache.lookup(LICENSE + " "));
+    }
+    
+    @Test
+    void testChangedFingerprintMisses(@TempDir Path dir) {
+        new LicenseVerificationCache(dir.toFile(), FINGERPRINT).store(LICENSE, JSON);
+        
+        assertNull(new LicenseVerificationCache(dir.toFile(), "0000").lookup(LICENSE));
+    }
+    
+    @Test
+    void testTamperedEntryRejected(@TempDir Path dir) throws IOException {
+        LicenseVerificationCache cache = new LicenseVerificationCache(dir.toFile(), FINGERPRINT);
+        cache.store(LICENSE, JSON);
+        
+        Path entry;
+        try (Stream<Path> files = Files.list(dir)) {
+            entry = files.filter(p -> p.toString().endsWith(".verified")).findFirst().orElseThrow();
+        }
+        String[] lines = Files.readString(entry).split("\n");
+        String forged = java.util.Base64.getEncoder().encodeToString("{\"licenseId\":\"LIC-FORGED\"}".getBytes());
+        Files.writeString(entry, lines[0] + "\n" + forged + "\n" + lines[2]);
+        
+        assertNull(cache.lookup(LICENSE));
+    }
+    
+    @Test
+    void testOtherHostKeyRejected(@TempDir Path dir) throws IOException {
+        new LicenseVerificationCache(dir.toFile(), FINGERPRINT).store(LICENSE, JSON);
+        
+        // 更换本机密钥（模拟把缓存文件复制到另一台主机）
+        Files.write(dir.resolve(".host-key"), new byte[32]);
+        
+        assertNull(new LicenseVerificationCache(dir.toFile(), FINGERPRINT).lookup(LICENSE));
+    }
+}
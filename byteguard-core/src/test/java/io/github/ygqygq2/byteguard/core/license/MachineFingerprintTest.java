@@ -0,0 +1,81 @@
+package io.github.ygqygq2.byteguard.core.license;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 机器指纹测试
+ * 
+ * @author ygqygq2
+ */
+class MachineFingerprintTest {
+    
+    @Test
+    void testMachineIdFormat() throws Exception {
+        String machineId = MachineFingerprint.getMachineId();
+        assertTrue(machineId.matches("[0-9A-F]{32}"), machineId);
+    }
+    
+    @Test
+    void testComputedOnce() throws Exception {
+        MachineFingerprint.prefetch();
+        String first = MachineFingerprint.getMachineId();
+        assertEquals(first, MachineFingerprint.getMachineId(1000));
+        assertEquals(first, MachineFingerprint.peekMachineId());
+        assertSame(MachineFingerprint.whenReady(), MachineFingerprint.whenReady());
+    }
+    
+    @Test
+    void testCacheRoundTrip(@TempDir Path dir) throws Exception {
+        Path cacheFile = dir.resolve("machine-id");
+        String signals = MachineFingerprint.cheapSignals();
+        long now = System.currentTimeMillis();
+        
+        MachineFingerprint.writeCache(cacheFile, signals, "001122334455", now);
+        assertEquals("001122334455", MachineFingerprint.readCache(cacheFile, signals, now));
+        // 其他主机（廉价信号不同）不使用
+        assertNull(MachineFingerprint.readCache(cacheFile, signals + "x", now));
+        // 过期
+        assertNull(MachineFingerprint.readCache(cacheFile, signals, now + TimeUnit.DAYS.toMillis(2)));
+        
+        // 完整流程写入的缓存可以复用，且结果与全新计算一致
+        String machineId = MachineFingerprint.loadOrCompute(dir.resolve("full"));
+        assertEquals(machineId, MachineFingerprint.loadOrCompute(dir.resolve("full")));
+        assertEquals(MachineFingerprint.getMachineId(), machineId);
+    }
+    
+    @Test
+    void testTamperedCacheRejected(@TempDir Path dir) throws Exception {
+        Path cacheFile = dir.resolve("machine-id");
+        String signals = MachineFingerprint.cheapSignals();
+        long now = System.currentTimeMillis();
+        String machineId = MachineFingerprint.loadOrCompute(cacheFile);
+        
+        // 改写网卡列表但保留原 HMAC
+        String[] lines = Files.readString(cacheFile).split("\n");
+        lines[3] = "aabbccddeeff";
+        Files.writeString(cacheFile, String.join("\n", lines));
+        assertNull(MachineFingerprint.readCache(cacheFile, signals, now));
+        assertEquals(machineId, MachineFingerprint.loadOrCompute(cacheFile));
+        
+        // 旧格式：直接写入指纹和远期时间戳
+        Files.writeString(cacheFile, "BGMID1\n" + (now + TimeUnit.DAYS.toMillis(3650)) + "\n" + lines[2]
+            + "\n0123456789ABCDEF0123456789ABCDEF");
+        assertEquals(machineId, MachineFingerprint.loadOrCompute(cacheFile));
+        
+        // 时间戳在未来：即使 HMAC 有效也不使用
+        MachineFingerprint.writeCache(cacheFile, signals, "aabbccddeeff", now + TimeUnit.DAYS.toMillis(1));
+        assertNull(MachineFingerprint.readCache(cacheFile, signals, now));
+        
+        // 换了本机密钥（其他用户或主机写入的缓存）
+        MachineFingerprint.writeCache(cacheFile, signals, "aabbccddeeff", now);
+        Files.write(dir.resolve(".host-key"), new byte[32]);
+        assertNull(MachineFingerprint.readCache(cacheFile, signals, now));
+    }
+}
@@ -0,0 +1,126 @@
+package io.github.ygqygq2.byteguard.core.license;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * License 吊销列表测试
+ * 
+ * @author ygqygq2
+ */
+class RevocationListTest {
+    
+    @Test
+    void testRevokedAndNotRevoked(@TempDir Path dir) throws Exception {
+        RevocationList list = writeList(dir, List.of("LIC-0003", "LIC-0001", "LIC-0002", "LIC-0001"), 0.001);
+        
+        assertEquals(3, list.size());
+        assertTrue(list.isRevoked("LIC-0001"));
+        assertTrue(list.isRevoked("LIC-0002"));
+        assertTrue(list.isRevoked("LIC-0003"));
+        assertFalse(list.isRevoked("LIC-0004"));
+        assertFalse(list.isRevoked("LIC-000"));
+        assertFalse(list.isRevoked(null));
+    }
+    
+    @Test
+    void testExactLookupRejectsBloomFalsePositives(@TempDir Path dir) throws Exception {
+        // 误判率 50%：大量未吊销的 ID 会通过 Bloom filter，必须由精确查找排除
+        List<String> revoked = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            revoked.add("LIC-R" + i);
+        }
+        RevocationList list = writeList(dir, revoked, 0.5);
+        
+        int bloomHits = 0;
+        for (int i = 0; i < 1000; i++) {
+            String id = "LIC-N" + i;
+            if (list.mightContain(id)) {
+                bloomHits++;
+            }
+            assertFalse(list.isRevoked(id));
+        }
+        assertTrue(bloomHits > 0);
+        for (String id : revoked) {
+            assertTrue(list.isRevoked(id));
+        }
+    }
+    
+    @Test
+    void testEmptyList(@TempDir Path dir) throws Exception {
+        RevocationList list = writeList(dir, Set.of(), 0.001);
+        assertEquals(0, list.size());
+        assertFalse(list.isRevoked("LIC-0001"));
+    }
+    
+    @Test
+    void testCorruptedFileRejected(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve(RevocationList.DEFAULT_FILE_NAME);
+        Files.write(file, new byte[] { 'B', 'G', 'R', 'L', 1, 3, 0, 0 });
+        assertThrows(LicenseException.class, () -> RevocationList.open(file));
+        
+        writeList(dir, List.of("LIC-0001"), 0.001);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(LicenseException.class, () -> RevocationList.open(file));
+    }
+    
+    @Test
+    void testCorruptedOffsetsRejected(@TempDir Path dir) throws Exception {
+        RevocationList list = writeList(dir, List.of("LIC-0001", "LIC-0002", "LIC-0003"), 0.001);
+        Path file = dir.resolve(RevocationList.DEFAULT_FILE_NAME);
+        byte[] bytes = Files.readAllBytes(file);
+        // 偏移表紧跟 Bloom filter，最后一项（字符串区总长）正好到文件末尾
+        int offsetsStart = bytes.length - 3 * 8 - 4 * 4;
+        assertEquals(3, list.size());
+        
+        // 中间的偏移越界：只校验最后一项时查询会读到文件之外
+        byte[] outOfBounds = bytes.clone();
+        ByteBuffer.wrap(outOfBounds).putInt(offsetsStart + 4, Integer.MAX_VALUE);
+        Files.write(file, outOfBounds);
+        LicenseException e = assertThrows(LicenseException.class, () -> RevocationList.open(file));
+        assertTrue(e.getMessage().contains("offset 1"), e.getMessage());
+        
+        // 偏移不单调
+        byte[] unordered = bytes.clone();
+        ByteBuffer.wrap(unordered).putInt(offsetsStart + 4, 20);
+        Files.write(file, unordered);
+        e = assertThrows(LicenseException.class, () -> RevocationList.open(file));
+        assertTrue(e.getMessage().contains("offset 2"), e.getMessage());
+        
+        // 第一项不为 0
+        byte[] shifted = bytes.clone();
+        ByteBuffer.wrap(shifted).putInt(offsetsStart, 1);
+        Files.write(file, shifted);
+        assertThrows(LicenseException.class, () -> RevocationList.open(file));
+    }
+    
+    @Test
+    void testUnsignedListFailsVerification(@TempDir Path dir) throws Exception {
+        RevocationList list = writeList(dir, List.of("LIC-0001"), 0.001);
+        assertThrows(LicenseException.class, list::verifySignature);
+        
+        Files.writeString(dir.resolve(RevocationList.DEFAULT_FILE_NAME + ".asc"), "not a signature");
+        assertThrows(LicenseException.class, list::verifySignature);
+    }
+    
+    private static RevocationList writeList(Path dir, Collection<String> ids, double fpp) throws Exception {
+        Path file = dir.resolve(RevocationList.DEFAULT_FILE_NAME);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            RevocationList.write(ids, fpp, out);
+        }
+        return RevocationList.open(file);
+    }
+}
@@ -0,0 +1,199 @@
+package io.github.ygqygq2.byteguard.core.license.lease;
+
+import io.github.ygqygq2.byteguard.core.license.LicenseException;
+import io.github.ygqygq2.byteguard.core.net.SocketAddresses;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 实例租约服务器测试（本机 TCP / Unix Domain Socket）
+ * 
+ * @author ygqygq2
+ */
+class LeaseServerTest {
+    
+    private static final String LICENSE_ID = "LIC-TEST";
+    
+    @Test
+    void testLimitEnforced() throws Exception {
+        try (LeaseServer server = new LeaseServer().limit(LICENSE_ID, 2).start("127.0.0.1:0");
+             LeaseClient a = new LeaseClient(server.getAddress());
+             LeaseClient b = new LeaseClient(server.getAddress());
+             LeaseClient c = new LeaseClient(server.getAddress())) {
+            
+            assertTrue(a.acquire(LICENSE_ID, 2000));
+            assertTrue(b.acquire(LICENSE_ID, 2000));
+            assertThrows(LicenseException.class, () -> c.acquire(LICENSE_ID, 2000));
+            assertEquals(2, server.activeLeases(LICENSE_ID));
+            
+            // 释放后空出名额
+            a.close();
+            assertEquals(1, server.activeLeases(LICENSE_ID));
+            assertTrue(c.acquire(LICENSE_ID, 2000));
+        }
+    }
+    
+    @Test
+    void testUnknownLicenseDenied() throws Exception {
+        try (LeaseServer server = new LeaseServer().limit(LICENSE_ID, 1).start("127.0.0.1:0");
+             LeaseClient client = new LeaseClient(server.getAddress())) {
+            assertThrows(LicenseException.class, () -> client.acquire("LIC-OTHER", 2000));
+        }
+    }
+    
+    @Test
+    void testHeartbeatKeepsLease() throws Exception {
+        try (LeaseServer server = new LeaseServer(300).limit(LICENSE_ID, 1).start("127.0.0.1:0");
+             LeaseClient holder = new LeaseClient(server.getAddress())) {
+            assertTrue(holder.acquire(LICENSE_ID, 2000));
+            
+            // 续约周期 100ms，跨过多个 TTL 仍持有
+            Thread.sleep(1000);
+            assertTrue(holder.isHeld(LICENSE_ID));
+            assertEquals(1, server.activeLeases(LICENSE_ID));
+        }
+    }
+    
+    @Test
+    void testExpiredLeaseFreesSlot() throws Exception {
+        try (LeaseServer server = new LeaseServer(300).limit(LICENSE_ID, 1).start("127.0.0.1:0");
+             SocketChannel channel = SocketAddresses.connect(SocketAddresses.parse(server.getAddress()))) {
+            // 申请后不续约（模拟进程被 kill）
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            out.writeInt(LeaseProtocol.MAGIC);
+            out.writeByte(LeaseProtocol.OP_ACQUIRE);
+            out.writeUTF(LICENSE_ID);
+            assertEquals(LeaseProtocol.STATUS_OK, in.readByte());
+            assertEquals(1, server.activeLeases(LICENSE_ID));
+            
+            Thread.sleep(600);
+            assertEquals(0, server.activeLeases(LICENSE_ID));
+            try (LeaseClient client = new LeaseClient(server.getAddress())) {
+                assertTrue(client.acquire(LICENSE_ID, 2000));
+            }
+        }
+    }
+    
+    @Test
+    void testUnreachableServerDoesNotBlock() throws Exception {
+        // 绑定后立即关闭，得到一个没有监听者的地址
+        LeaseServer closed = new LeaseServer().limit(LICENSE_ID, 1).start("127.0.0.1:0");
+        String address = closed.getAddress();
+        closed.close();
+        
+        try (LeaseClient client = new LeaseClient(address)) {
+            long start = System.nanoTime();
+            assertFalse(client.acquire(LICENSE_ID, 500));
+            assertTrue((System.nanoTime() - start) / 1_000_000 < 2000);
+            assertFalse(client.isHeld(LICENSE_ID));
+        }
+    }
+    
+    @Test
+    void testStalledServerTimesOut() throws Exception {
+        // 只监听不应答：连接进入 backlog，读取永远等不到数据
+        try (ServerSocketChannel stalled = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0))) {
+            String address = "127.0.0.1:" + ((InetSocketAddress) stalled.getLocalAddress()).getPort();
+            
+            LeaseClient client = new LeaseClient(address, 200);
+            long start = System.nanoTime();
+            assertFalse(client.acquire(LICENSE_ID, 5000));
+            assertTrue((System.nanoTime() - start) / 1_000_000 < 2000);
+            
+            // 客户端的锁没有被阻塞中的读取占住
+            start = System.nanoTime();
+            client.close();
+            assertTrue((System.nanoTime() - start) / 1_000_000 < 2000);
+        }
+    }
+    
+    @Test
+    void testLateDenialReachesHandler() throws Exception {
+        try (LeaseServer server = new LeaseServer().limit(LICENSE_ID, 1).start("127.0.0.1:0");
+             LeaseClient holder = new LeaseClient(server.getAddress());
+             ServerSocketChannel proxy = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0))) {
+            assertTrue(holder.acquire(LICENSE_ID, 2000));
+            
+            // 名额已满，服务器的应答经代理延迟 500 ms：启动等待超时后拒绝才到达
+            Thread relay = new Thread(() -> delayedRelay(proxy, server.getAddress(), 500));
+            relay.setDaemon(true);
+            relay.start();
+            String address = "127.0.0.1:" + ((InetSocketAddress) proxy.getLocalAddress()).getPort();
+            
+            CompletableFuture<LicenseException> denied = new CompletableFuture<>();
+            try (LeaseClient late = new LeaseClient(address, 5000).setDeniedHandler(denied::complete)) {
+                assertFalse(late.acquire(LICENSE_ID, 100));
+                LicenseException e = denied.get(5, TimeUnit.SECONDS);
+                assertTrue(e.getMessage().contains("Instance limit reached"), e.getMessage());
+                assertFalse(late.isHeld(LICENSE_ID));
+            }
+            assertEquals(1, server.activeLeases(LICENSE_ID));
+        }
+    }
+    
+    /**
+     * 转发一个连接，服务器到客户端方向的数据延迟后才发出
+     */
+    private static void delayedRelay(ServerSocketChannel proxy, String upstreamAddress, long delayMillis) {
+        try (SocketChannel client = proxy.accept();
+             SocketChannel upstream = SocketAddresses.connect(SocketAddresses.parse(upstreamAddress))) {
+            Thread up = new Thread(() -> {
+                try {
+                    Channels.newInputStream(client).transferTo(Channels.newOutputStream(upstream));
+                } catch (IOException e) {
+                    // 连接关闭
+                }
+            });
+            up.setDaemon(true);
+            up.start();
+            InputStream in = Channels.newInputStream(upstream);
+            OutputStream out = Channels.newOutputStream(client);
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                Thread.sleep(delayMillis);
+                out.write(buffer, 0, n);
+            }
+        } catch (IOException | InterruptedException e) {
+            // 测试结束时连接关闭
+        }
+    }
+    
+    @Test
+    void testManyInstancesOverUnixSocket(@TempDir Path dir) throws Exception {
+        int instances = 500;
+        try (LeaseServer server = new LeaseServer().limit(LICENSE_ID, instances)
+                .start("unix:" + dir.resolve("lease.sock"))) {
+            List<LeaseClient> clients = new ArrayList<>();
+            try {
+                for (int i = 0; i < instances; i++) {
+                    LeaseClient client = new LeaseClient(server.getAddress());
+                    clients.add(client);
+                    assertTrue(client.acquire(LICENSE_ID, 2000));
+                }
+                assertEquals(instances, server.activeLeases(LICENSE_ID));
+            } finally {
+                clients.forEach(LeaseClient::close);
+            }
+            assertEquals(0, server.activeLeases(LICENSE_ID));
+        }
+    }
+}
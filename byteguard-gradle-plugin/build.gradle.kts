@@ -0,0 +1,37 @@
+plugins {
+    java
+    `java-gradle-plugin`
+    `maven-publish`
+}
+
+description = "ByteGuard Gradle Plugin - Gradle integration for bytecode encryption"
+
+dependencies {
+    implementation(project(":byteguard-core"))
+    
+    testImplementation("org.junit.jupiter:junit-jupiter:6.0.0")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher:1.10.0")
+}
+
+gradlePlugin {
+    // 沿用根项目统一配置的 maven 发布，不再生成 pluginMaven 发布
+    isAutomatedPublishing = false
+    
+    plugins {
+        create("byteguard") {
+            id = "io.github.ygqygq2.byteguard"
+            implementationClass = "io.github.ygqygq2.byteguard.gradle.ByteGuardPlugin"
+            displayName = "ByteGuard"
+            description = "Encrypts the project JAR with ByteGuard"
+        }
+    }
+}
+
+tasks.jar {
+    manifest {
+        attributes(
+            "Implementation-Title" to project.name,
+            "Implementation-Version" to project.version
+        )
+    }
+}
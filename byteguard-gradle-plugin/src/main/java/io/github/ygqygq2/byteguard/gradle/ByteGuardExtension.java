@@ -0,0 +1,44 @@
+package io.github.ygqygq2.byteguard.gradle;
+
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+
+/**
+ * byteguard { } 配置块（与 Maven 插件的参数对应）
+ * 
+ * <pre>
+ * byteguard {
+ *     password = providers.environmentVariable("BYTEGUARD_PASSWORD")
+ *     packages = listOf("com.example")
+ *     excludes = listOf("com.example.api", "**&#47;*Test.class")
+ * }
+ * </pre>
+ * 
+ * @author ygqygq2
+ */
+public abstract class ByteGuardExtension {
+    
+    /** 加密密码，默认取 gradle 属性 byteguard.password 或环境变量 BYTEGUARD_PASSWORD */
+    public abstract Property<String> getPassword();
+    
+    /** 要加密的包列表 */
+    public abstract ListProperty<String> getPackages();
+    
+    /** 排除的包或路径模式（含 / * ? 时按 glob 匹配） */
+    public abstract ListProperty<String> getExcludes();
+    
+    /** 只加密带有这些注解的类（注解类名） */
+    public abstract ListProperty<String> getAnnotations();
+    
+    /** 不加密带有这些注解的类（注解类名） */
+    public abstract ListProperty<String> getExcludeAnnotations();
+    
+    /** 小于此字节数的类不加密 */
+    public abstract Property<Integer> getMinClassSize();
+    
+    /** 大于此字节数的类不加密 */
+    public abstract Property<Integer> getMaxClassSize();
+    
+    /** 类在加密前的压缩级别（0-9，0 表示不压缩） */
+    public abstract Property<Integer> getCompressionLevel();
+}
@@ -0,0 +1,77 @@
+package io.github.ygqygq2.byteguard.gradle;
+
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.jvm.tasks.Jar;
+
+import java.util.List;
+
+/**
+ * ByteGuard Gradle 插件
+ * 
+ * <pre>
+ * plugins {
+ *     java
+ *     id("io.github.ygqygq2.byteguard")
+ * }
+ * </pre>
+ * 
+ * <p>注册 {@code byteguard} 配置块和 {@code encryptJar} 任务；应用了 java 插件时，任务默认加密 jar 任务的输出，
+ * 写到同一目录下的 {@code <name>-encrypted.jar}。同一次构建的所有项目共用一个 {@link EncryptionService}。
+ * 
+ * @author ygqygq2
+ */
+public class ByteGuardPlugin implements Plugin<Project> {
+    
+    /** 加密任务名 */
+    public static final String TASK_NAME = "encryptJar";
+    
+    @Override
+    public void apply(Project project) {
+        ByteGuardExtension extension = project.getExtensions().create("byteguard", ByteGuardExtension.class);
+        extension.getPassword().convention(project.getProviders().gradleProperty("byteguard.password")
+            .orElse(project.getProviders().environmentVariable("BYTEGUARD_PASSWORD")));
+        extension.getPackages().convention(List.of());
+        extension.getExcludes().convention(List.of());
+        extension.getAnnotations().convention(List.of());
+        extension.getExcludeAnnotations().convention(List.of());
+        extension.getMinClassSize().convention(0);
+        extension.getMaxClassSize().convention(Integer.MAX_VALUE);
+        extension.getCompressionLevel().convention(6);
+        
+        Provider<EncryptionService> service = project.getGradle().getSharedServices()
+            .registerIfAbsent(EncryptionService.NAME, EncryptionService.class, spec -> spec.getParameters().getThreads()
+                .convention(project.getProviders().gradleProperty("byteguard.threads").map(Integer::parseInt)
+                    .orElse(Runtime.getRuntime().availableProcessors())));
+        
+        TaskProvider<EncryptJarTask> encryptJar = project.getTasks().register(TASK_NAME, EncryptJarTask.class, task -> {
+            task.setGroup("build");
+            task.setDescription("Encrypts the project JAR with ByteGuard");
+            task.getPassword().convention(extension.getPassword());
+            task.getPasswordSalt().convention(project.getRootProject().getName() + project.getPath());
+            task.getPackages().convention(extension.getPackages());
+            task.getExcludes().convention(extension.getExcludes());
+            task.getAnnotations().convention(extension.getAnnotations());
+            task.getExcludeAnnotations().convention(extension.getExcludeAnnotations());
+            task.getMinClassSize().convention(extension.getMinClassSize());
+            task.getMaxClassSize().convention(extension.getMaxClassSize());
+            task.getCompressionLevel().convention(extension.getCompressionLevel());
+            task.getEncryptionService().convention(service);
+            task.usesService(service);
+            task.getManifestFile().convention(project.getLayout().getBuildDirectory()
+                .file("byteguard/" + TASK_NAME + ".manifest"));
+        });
+        
+        project.getPlugins().withType(JavaPlugin.class, java -> {
+            TaskProvider<Jar> jar = project.getTasks().named(JavaPlugin.JAR_TASK_NAME, Jar.class);
+            encryptJar.configure(task -> {
+                task.getInputJar().convention(jar.flatMap(Jar::getArchiveFile));
+                task.getOutputJar().convention(jar.flatMap(j -> j.getDestinationDirectory()
+                    .file(j.getArchiveFileName().map(name -> name.replaceAll("\\.jar$", "") + "-encrypted.jar"))));
+            });
+        });
+    }
+}
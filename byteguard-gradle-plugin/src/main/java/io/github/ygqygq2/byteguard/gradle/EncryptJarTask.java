@@ -0,0 +1,201 @@
+package io.github.ygqygq2.byteguard.gradle;
+
+import io.github.ygqygq2.byteguard.core.crypto.CryptoException;
+import io.github.ygqygq2.byteguard.core.crypto.KdfParams;
+import io.github.ygqygq2.byteguard.core.crypto.KeyDerivation;
+import io.github.ygqygq2.byteguard.core.encrypt.EntrySelector;
+import io.github.ygqygq2.byteguard.core.encrypt.HashManifest;
+import io.github.ygqygq2.byteguard.core.encrypt.JarEncryptor;
+import io.github.ygqygq2.byteguard.core.encrypt.SelectionRules;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * 加密 JAR 的任务（与 CLI、Maven 插件共用 byteguard-core 的 {@link JarEncryptor}）
+ * 
+ * <p>输入 JAR、加密范围和压缩级别是任务输入，加密 JAR 和明文哈希清单是任务输出：
+ * 都没变时任务是 UP-TO-DATE，其他工作区或 CI 节点加密过同样的输入时从构建缓存取出（FROM-CACHE）。
+ * 密码只以摘要参与缓存键（加盐的慢速派生，见 {@link #getPasswordDigest()}），密码不同的输出不会互相复用。
+ * 
+ * <p>只有输入 JAR 变化时增量执行：沿用上次的输出和清单，只重新加密变化的类
+ * （密码已更换、解不开上次的密钥槽时全量加密）；配置变化时 Gradle 删除旧输出后全量加密。
+ * 
+ * <p>任务只通过属性和构建服务访问状态，兼容配置缓存。
+ * 
+ * @author ygqygq2
+ */
+@CacheableTask
+public abstract class EncryptJarTask extends DefaultTask {
+    
+    /** 输入 JAR（默认为 jar 任务的输出） */
+    @InputFile
+    @Incremental
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getInputJar();
+    
+    /** 加密后的 JAR（默认在输入旁，加 -encrypted 后缀） */
+    @OutputFile
+    public abstract RegularFileProperty getOutputJar();
+    
+    /** 明文哈希清单（增量加密用，随输出一起缓存） */
+    @OutputFile
+    public abstract RegularFileProperty getManifestFile();
+    
+    /** 加密密码（不直接作为输入，见 {@link #getPasswordDigest()}） */
+    @Internal
+    public abstract Property<String> getPassword();
+    
+    /** 密码摘要的盐（默认为根项目名加项目路径：各机器相同，构建缓存才能共享） */
+    @Internal
+    public abstract Property<String> getPasswordSalt();
+    
+    @Input
+    public abstract ListProperty<String> getPackages();
+    
+    @Input
+    public abstract ListProperty<String> getExcludes();
+    
+    @Input
+    public abstract ListProperty<String> getAnnotations();
+    
+    @Input
+    public abstract ListProperty<String> getExcludeAnnotations();
+    
+    @Input
+    public abstract Property<Integer> getMinClassSize();
+    
+    @Input
+    public abstract Property<Integer> getMaxClassSize();
+    
+    @Input
+    public abstract Property<Integer> getCompressionLevel();
+    
+    /** 构建共用的加密会话 */
+    @Internal
+    public abstract Property<EncryptionService> getEncryptionService();
+    
+    private transient String passwordDigest;
+    
+    /**
+     * 密码的摘要：换密码后缓存键随之变化，而构建缓存和配置缓存中不保存密码本身
+     * 
+     * <p>缓存键对能读取构建缓存的人可见，摘要因此用 PBKDF2（与密钥槽的默认 KDF 参数相同）加盐派生，
+     * 猜测密码的代价与直接破解加密 JAR 的密钥槽相当；每个任务实例只派生一次。
+     */
+    @Input
+    public String getPasswordDigest() {
+        if (passwordDigest == null) {
+            byte[] salt = sha256("byteguard-gradle\n" + getPasswordSalt().get());
+            try {
+                passwordDigest = HexFormat.of().formatHex(new KeyDerivation().deriveMasterKey(password(), salt, KdfParams.DEFAULT));
+            } catch (CryptoException e) {
+                throw new GradleException("Failed to derive the password digest: " + e.getMessage(), e);
+            }
+        }
+        return passwordDigest;
+    }
+    
+    @TaskAction
+    public void encrypt(InputChanges changes) {
+        File input = getInputJar().get().getAsFile();
+        File output = getOutputJar().get().getAsFile();
+        File manifestFile = getManifestFile().get().getAsFile();
+        EncryptionService service = getEncryptionService().get();
+        
+        JarEncryptor.Builder builder = JarEncryptor.builder()
+            .keyring(service.keyring(password()))
+            .workers(service.workers())
+            .selector(createSelector())
+            .compressionLevel(getCompressionLevel().get())
+            .hashManifest(true);
+        // 只有输入 JAR 变化时 Gradle 才保留上次的输出
+        boolean incremental = changes.isIncremental() && output.isFile() && manifestFile.isFile();
+        try {
+            JarEncryptor.Result result;
+            if (incremental) {
+                try {
+                    result = builder.previous(output.toPath(), HashManifest.read(manifestFile.toPath())).build()
+                        .encrypt(input.toPath(), output.toPath());
+                } catch (CryptoException e) {
+                    getLogger().info("Previous output cannot be reused ({}), encrypting all classes", e.getMessage());
+                    result = builder.previous(null, null).build().encrypt(input.toPath(), output.toPath());
+                }
+            } else {
+                Files.createDirectories(output.toPath().toAbsolutePath().getParent());
+                result = builder.build().encrypt(input.toPath(), output.toPath());
+            }
+            Files.createDirectories(manifestFile.toPath().toAbsolutePath().getParent());
+            result.getManifest().write(manifestFile.toPath());
+            getLogger().lifecycle("ByteGuard: {} classes encrypted{} ({} ms) -> {}",
+                result.getEncryptedCount(), incremental ? ", " + result.getReusedCount() + " reused" : "",
+                result.getElapsedMillis(), output.getName());
+        } catch (IOException | CryptoException e) {
+            throw new GradleException("Failed to encrypt " + input + ": " + e.getMessage(), e);
+        }
+    }
+    
+    private String password() {
+        String password = getPassword().getOrNull();
+        if (password == null || password.trim().isEmpty()) {
+            throw new GradleException(
+                "ByteGuard password is required. Set via:\n" +
+                "  - Gradle property: -Pbyteguard.password=xxx\n" +
+                "  - Environment variable: export BYTEGUARD_PASSWORD=xxx\n" +
+                "  - Build script: byteguard { password = providers.environmentVariable(\"BYTEGUARD_PASSWORD\") }"
+            );
+        }
+        return password;
+    }
+    
+    /**
+     * 加密范围（与 Maven 插件相同：excludes 中含 / * ? 的是路径模式，其余是包名）
+     */
+    private EntrySelector createSelector() {
+        List<String> excludePackages = new ArrayList<>();
+        List<String> excludePatterns = new ArrayList<>();
+        for (String exclude : getExcludes().get()) {
+            boolean pattern = exclude.indexOf('/') >= 0 || exclude.indexOf('*') >= 0 || exclude.indexOf('?') >= 0;
+            (pattern ? excludePatterns : excludePackages).add(exclude);
+        }
+        return SelectionRules.builder()
+            .includePackages(getPackages().get())
+            .excludePackages(excludePackages)
+            .exclude(excludePatterns)
+            .includeAnnotations(getAnnotations().get())
+            .excludeAnnotations(getExcludeAnnotations().get())
+            .minClassSize(getMinClassSize().get())
+            .maxClassSize(getMaxClassSize().get())
+            .build();
+    }
+    
+    private static byte[] sha256(String text) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
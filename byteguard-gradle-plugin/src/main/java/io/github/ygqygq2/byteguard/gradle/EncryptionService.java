@@ -0,0 +1,72 @@
+package io.github.ygqygq2.byteguard.gradle;
+
+import io.github.ygqygq2.byteguard.core.crypto.KeyEnvelope;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一次 Gradle 构建共用的加密会话（构建服务）
+ * 
+ * <p>多项目并行构建时各项目的 {@link EncryptJarTask} 共用：每个密码一个 {@link KeyEnvelope.Keyring}
+ * （同一密码、套件和 KDF 参数只派生一次 KEK），以及一个有界的工作线程池（总线程数不随项目数增加）。
+ * 构建结束时由 Gradle 关闭。
+ * 
+ * @author ygqygq2
+ */
+public abstract class EncryptionService implements BuildService<EncryptionService.Params>, AutoCloseable {
+    
+    /** 服务注册名 */
+    static final String NAME = "byteguardEncryption";
+    
+    /**
+     * 服务参数
+     */
+    public interface Params extends BuildServiceParameters {
+        /** 工作线程数（gradle 属性 byteguard.threads，默认为可用核数） */
+        Property<Integer> getThreads();
+    }
+    
+    private final ConcurrentHashMap<String, KeyEnvelope.Keyring> keyrings = new ConcurrentHashMap<>();
+    private volatile ExecutorService workers;
+    
+    /**
+     * 共用的工作线程池（首次使用时创建，不要关闭）
+     */
+    ExecutorService workers() {
+        ExecutorService current = workers;
+        if (current == null) {
+            synchronized (this) {
+                if (workers == null) {
+                    AtomicInteger counter = new AtomicInteger();
+                    workers = Executors.newFixedThreadPool(Math.max(1, getParameters().getThreads().get()), r -> {
+                        Thread thread = new Thread(r, "byteguard-encrypt-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+                current = workers;
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * 密码对应的密钥环
+     */
+    KeyEnvelope.Keyring keyring(String password) {
+        return keyrings.computeIfAbsent(password, KeyEnvelope.Keyring::new);
+    }
+    
+    @Override
+    public void close() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.ygqygq2.byteguard.gradle;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * encryptJar 任务的 TestKit 测试（UP-TO-DATE、构建缓存、增量执行、配置缓存）
+ * 
+ * @author ygqygq2
+ */
+class EncryptJarTaskFunctionalTest {
+    
+    private static final String TASK = ":" + ByteGuardPlugin.TASK_NAME;
+    
+    @TempDir
+    Path project;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(project.resolve("settings.gradle"), String.join("\n",
+            "rootProject.name = 'app'",
+            "buildCache { local { directory = file('build-cache') } }",
+            ""));
+        Files.writeString(project.resolve("build.gradle"), String.join("\n",
+            "plugins {",
+            "    id 'java'",
+            "    id 'io.github.ygqygq2.byteguard'",
+            "}",
+            "byteguard {",
+            "    packages = ['com.example']",
+            "}",
+            ""));
+        writeClass("App", "1");
+        writeClass("Util", "1");
+    }
+    
+    @Test
+    void testSecondRunIsUpToDate() throws IOException {
+        assertEquals(TaskOutcome.SUCCESS, build().task(TASK).getOutcome());
+        Path output = project.resolve("build/libs/app-encrypted.jar");
+        byte[] encrypted = Files.readAllBytes(output);
+        
+        assertEquals(TaskOutcome.UP_TO_DATE, build().task(TASK).getOutcome());
+        assertArrayEquals(encrypted, Files.readAllBytes(output));
+        
+        // 换密码：缓存键变化，重新加密
+        assertEquals(TaskOutcome.SUCCESS, build("-Pbyteguard.password=changed").task(TASK).getOutcome());
+    }
+    
+    @Test
+    void testCleanBuildIsFromCache() {
+        assertEquals(TaskOutcome.SUCCESS, build().task(TASK).getOutcome());
+        run(List.of("clean"));
+        
+        assertEquals(TaskOutcome.FROM_CACHE, build().task(TASK).getOutcome());
+        assertTrue(Files.isRegularFile(project.resolve("build/libs/app-encrypted.jar")));
+        assertTrue(Files.isRegularFile(project.resolve("build/byteguard/encryptJar.manifest")));
+    }
+    
+    @Test
+    void testChangedClassEncryptsIncrementally() throws IOException {
+        assertEquals(TaskOutcome.SUCCESS, build().task(TASK).getOutcome());
+        
+        writeClass("App", "2");
+        BuildResult result = build();
+        
+        assertEquals(TaskOutcome.SUCCESS, result.task(TASK).getOutcome());
+        assertTrue(result.getOutput().contains("2 classes encrypted, 1 reused"), result.getOutput());
+    }
+    
+    @Test
+    void testConfigurationCache() {
+        BuildResult first = build("--configuration-cache");
+        assertEquals(TaskOutcome.SUCCESS, first.task(TASK).getOutcome());
+        assertTrue(first.getOutput().contains("Configuration cache entry stored"), first.getOutput());
+        
+        BuildResult second = build("--configuration-cache");
+        assertTrue(second.getOutput().contains("Configuration cache entry reused"), second.getOutput());
+        assertEquals(TaskOutcome.UP_TO_DATE, second.task(TASK).getOutcome());
+    }
+    
+    /**
+     * 执行 encryptJar（启用构建缓存，默认密码 secret）
+     */
+    private BuildResult build(String... extra) {
+        List<String> args = new ArrayList<>(List.of(ByteGuardPlugin.TASK_NAME, "--build-cache", "--stacktrace"));
+        args.addAll(List.of(extra));
+        if (args.stream().noneMatch(arg -> arg.startsWith("-Pbyteguard.password="))) {
+            args.add("-Pbyteguard.password=secret");
+        }
+        return run(args);
+    }
+    
+    private BuildResult run(List<String> args) {
+        return GradleRunner.create()
+            .withProjectDir(project.toFile())
+            .withPluginClasspath()
+            .withArguments(args)
+            .build();
+    }
+    
+    private void writeClass(String name, String version) throws IOException {
+        Path source = project.resolve("src/main/java/com/example/" + name + ".java");
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, "package com.example;\n\npublic class " + name
+            + " {\n    public static String version() {\n        return \"" + version + "\";\n    }\n}\n");
+    }
+}
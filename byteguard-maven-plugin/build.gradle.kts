@@ -15,6 +15,13 @@ dependencies {
     
     // For processing annotations
     annotationProcessor("org.apache.maven.plugin-tools:maven-plugin-annotations:3.11.0")
+    
+    testImplementation("org.apache.maven:maven-plugin-api:3.9.6")
+    testImplementation("org.apache.maven:maven-core:3.9.6")
+    // 编译测试时解析 EncryptMojo 上的 @Mojo(defaultPhase = LifecyclePhase.PACKAGE)
+    testCompileOnly("org.apache.maven.plugin-tools:maven-plugin-annotations:3.11.0")
+    testImplementation("org.junit.jupiter:junit-jupiter:6.0.0")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher:1.10.0")
 }
 
 tasks.jar {
@@ -0,0 +1,108 @@
+package io.github.ygqygy2.byteguard.maven;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 上次加密的摘要记录，判断输入和配置是否变化（放在 target/byteguard/ 下）
+ * 
+ * <p>文本格式：
+ * <pre>
+ * byteguard-state 1
+ * input &lt;输入 JAR 的 SHA-256&gt;
+ * config &lt;配置的 SHA-256&gt;
+ * output &lt;加密输出的 SHA-256&gt;
+ * </pre>
+ * 
+ * @author ygqygq2
+ */
+final class BuildState {
+    
+    private static final String FORMAT = "byteguard-state 1";
+    
+    final String input;
+    final String config;
+    final String output;
+    
+    BuildState(String input, String config, String output) {
+        this.input = input;
+        this.config = config;
+        this.output = output;
+    }
+    
+    /**
+     * 读取记录
+     * 
+     * @return 记录，文件不存在或格式不对时为 null（按首次构建处理）
+     */
+    static BuildState read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!FORMAT.equals(reader.readLine())) {
+                return null;
+            }
+            String input = value(reader.readLine(), "input ");
+            String config = value(reader.readLine(), "config ");
+            String output = value(reader.readLine(), "output ");
+            return input != null && config != null && output != null ? new BuildState(input, config, output) : null;
+        }
+    }
+    
+    void write(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(FORMAT);
+            writer.newLine();
+            writer.write("input " + input);
+            writer.newLine();
+            writer.write("config " + config);
+            writer.newLine();
+            writer.write("output " + output);
+            writer.newLine();
+        }
+    }
+    
+    /**
+     * 文件内容的 SHA-256（十六进制）
+     */
+    static String digest(Path file) throws IOException {
+        MessageDigest sha256 = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                sha256.update(buffer, 0, n);
+            }
+        }
+        return HexFormat.of().formatHex(sha256.digest());
+    }
+    
+    /**
+     * 文本的 SHA-256（十六进制）
+     */
+    static String digest(String text) {
+        return HexFormat.of().formatHex(sha256().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+    
+    private static String value(String line, String key) {
+        return line != null && line.startsWith(key) ? line.substring(key.length()) : null;
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,5 +1,14 @@
 package io.github.ygqygy2.byteguard.maven;
 
+import io.github.ygqygq2.byteguard.core.crypto.CryptoException;
+import io.github.ygqygq2.byteguard.core.crypto.KeyEnvelope;
+import io.github.ygqygq2.byteguard.core.encrypt.EntrySelector;
+import io.github.ygqygq2.byteguard.core.encrypt.HashManifest;
+import io.github.ygqygq2.byteguard.core.encrypt.JarEncryptor;
+import io.github.ygqygq2.byteguard.core.encrypt.SelectionRules;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadata;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadataSerializer;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -9,17 +18,32 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /**
  * ByteGuard 加密 Maven 插件
  * 
  * <p>在 package 阶段自动加密 JAR 文件
  * 
+ * <p>每次加密后在 target/byteguard/ 下记录输入、配置和输出的摘要（{@link BuildState}）：
+ * 输入 JAR 和配置都没变、输出未被改动且密码仍能解开输出时跳过加密；
+ * 输入变化时沿用上次的输出和明文哈希清单增量加密，只重新加密变化的类。
+ * 
+ * <p>支持并行构建（-T）：整个 reactor 共用一个 {@link EncryptionSession}，
+ * 同一密码只派生一次密钥，各模块的加密任务共用 {@link #threads} 个工作线程。
+ * 
  * @author ygqygq2
  */
-@Mojo(name = "encrypt", defaultPhase = LifecyclePhase.PACKAGE)
+@Mojo(name = "encrypt", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true)
 public class EncryptMojo extends AbstractMojo {
     
     /**
@@ -28,6 +52,12 @@ public class EncryptMojo extends AbstractMojo {
     @Parameter(defaultValue = "${project}", readonly = true, required = true)
     private MavenProject project;
     
+    /**
+     * Maven 会话（区分同一次构建的各模块）
+     */
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+    
     /**
      * 输入 JAR 文件
      */
@@ -53,11 +83,47 @@ public class EncryptMojo extends AbstractMojo {
     private List<String> packages;
     
     /**
-     * 排除的包列表
+     * 排除的包或路径模式（含 / * ? 时按 glob 匹配，如 **&#47;*Test.class）
      */
     @Parameter(property = "byteguard.excludes")
     private List<String> excludes;
     
+    /**
+     * 只加密带有这些注解的类（注解类名）
+     */
+    @Parameter(property = "byteguard.annotations")
+    private List<String> annotations;
+    
+    /**
+     * 不加密带有这些注解的类（注解类名）
+     */
+    @Parameter(property = "byteguard.excludeAnnotations")
+    private List<String> excludeAnnotations;
+    
+    /**
+     * 小于此字节数的类不加密
+     */
+    @Parameter(property = "byteguard.minClassSize", defaultValue = "0")
+    private int minClassSize;
+    
+    /**
+     * 大于此字节数的类不加密
+     */
+    @Parameter(property = "byteguard.maxClassSize", defaultValue = "2147483647")
+    private int maxClassSize;
+    
+    /**
+     * 只列出会被加密的类，不加密
+     */
+    @Parameter(property = "byteguard.dryRun", defaultValue = "false")
+    private boolean dryRun;
+    
+    /**
+     * 忽略上次的记录，全量重新加密
+     */
+    @Parameter(property = "byteguard.force", defaultValue = "false")
+    private boolean force;
+    
     /**
      * 是否跳过加密
      */
@@ -70,6 +136,18 @@ public class EncryptMojo extends AbstractMojo {
     @Parameter(property = "byteguard.replace", defaultValue = "false")
     private boolean replace;
     
+    /**
+     * 类在加密前的压缩级别（0-9，0 表示不压缩）
+     */
+    @Parameter(property = "byteguard.compressionLevel", defaultValue = "6")
+    private int compressionLevel;
+    
+    /**
+     * 整个构建共用的加密工作线程数（0 表示可用核数）
+     */
+    @Parameter(property = "byteguard.threads", defaultValue = "0")
+    private int threads;
+    
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         if (skip) {
@@ -84,6 +162,12 @@ public class EncryptMojo extends AbstractMojo {
                 throw new MojoFailureException("Input JAR not found: " + inputJar);
             }
             
+            // 只预览加密范围
+            if (dryRun) {
+                printPreview(JarEncryptor.preview(inputJar.toPath(), createSelector()));
+                return;
+            }
+            
             // 2. 确定输出文件
             File outputJar = determineOutputJar(inputJar);
             
@@ -107,18 +191,39 @@ public class EncryptMojo extends AbstractMojo {
                 getLog().info("  Excludes: " + String.join(", ", excludes));
             }
             
-            // 4. 调用加密逻辑（TODO: 实现）
-            encryptJar(inputJar, outputJar);
+            // 4. 与上次的记录比较：输入和配置都没变时跳过
+            Path stateDir = new File(project.getBuild().getDirectory(), "byteguard").toPath();
+            Path stateFile = stateDir.resolve(outputJar.getName() + ".state");
+            Path manifestFile = stateDir.resolve(outputJar.getName() + ".manifest");
+            BuildState last = force ? null : BuildState.read(stateFile);
+            String inputDigest = BuildState.digest(inputJar.toPath());
+            String config = BuildState.digest(describeConfiguration());
+            // 替换模式下上次的输出就在输入的位置
+            Path lastOutput = (replace ? inputJar : outputJar).toPath();
+            EncryptionSession shared = EncryptionSession.of(session,
+                threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+            KeyEnvelope.Keyring keyring = shared.keyring(password);
+            boolean lastUsable = last != null && last.config.equals(config) && Files.isRegularFile(lastOutput)
+                && (replace ? inputDigest : BuildState.digest(lastOutput)).equals(last.output);
+            if (lastUsable && (replace || inputDigest.equals(last.input)) && unlocks(lastOutput, keyring)) {
+                getLog().info("ByteGuard encryption is up to date: " + lastOutput);
+                return;
+            }
+            
+            // 5. 加密（非替换模式下可沿用上次的输出增量加密）
+            boolean incremental = lastUsable && !replace && Files.isRegularFile(manifestFile);
+            encryptJar(inputJar, outputJar, incremental ? manifestFile : null, manifestFile, shared, keyring);
             
-            // 5. 替换原始文件（如果配置）
+            // 6. 替换原始文件（如果配置）
             if (replace) {
                 Files.delete(inputJar.toPath());
                 Files.move(outputJar.toPath(), inputJar.toPath());
                 getLog().info("Replaced original JAR with encrypted version");
             }
+            new BuildState(inputDigest, config, BuildState.digest(lastOutput)).write(stateFile);
             
             getLog().info("ByteGuard encryption completed successfully");
-            
+        
         } catch (MojoFailureException e) {
             throw e;
         } catch (Exception e) {
@@ -155,28 +260,109 @@ public class EncryptMojo extends AbstractMojo {
     }
     
     /**
-     * 执行加密
+     * 执行加密（与 CLI 共用 byteguard-core 的 {@link JarEncryptor}）
      * 
-     * TODO: 集成 byteguard-core 加密逻辑
+     * @param previousManifest 上次输出的清单，非 null 时以 output 为上次的输出增量加密
+     * @param manifestFile 本次清单的写入位置
+     * @param shared 构建共用的工作线程池
+     * @param keyring 构建共用的密钥环
      */
-    private void encryptJar(File input, File output) throws Exception {
-        getLog().warn("Encryption logic not yet implemented - copying file as placeholder");
-        
-        // TODO: 替换为实际加密逻辑
-        // ClassEncryptor encryptor = new ClassEncryptor(password);
-        // if (packages != null) {
-        //     for (String pkg : packages) {
-        //         encryptor.addPackage(pkg);
-        //     }
-        // }
-        // if (excludes != null) {
-        //     for (String exclude : excludes) {
-        //         encryptor.addExclude(exclude);
-        //     }
-        // }
-        // encryptor.encrypt(input, output);
-        
-        // 临时实现：复制文件
-        Files.copy(input.toPath(), output.toPath());
+    private void encryptJar(File input, File output, Path previousManifest, Path manifestFile,
+            EncryptionSession shared, KeyEnvelope.Keyring keyring) throws Exception {
+        JarEncryptor.Builder builder = JarEncryptor.builder()
+            .keyring(keyring)
+            .workers(shared.workers())
+            .selector(createSelector())
+            .compressionLevel(compressionLevel)
+            .hashManifest(true);
+        JarEncryptor.Result result;
+        if (previousManifest != null) {
+            try {
+                result = builder.previous(output.toPath(), HashManifest.read(previousManifest)).build()
+                    .encrypt(input.toPath(), output.toPath());
+            } catch (CryptoException e) {
+                // 密码已更换，解不开上次的密钥槽
+                getLog().info("  Previous output cannot be reused (" + e.getMessage() + "), encrypting all classes");
+                result = builder.previous(null, null).build().encrypt(input.toPath(), output.toPath());
+            }
+        } else {
+            result = builder.build().encrypt(input.toPath(), output.toPath());
+        }
+        Files.createDirectories(manifestFile.getParent());
+        result.getManifest().write(manifestFile);
+        getLog().info("  Classes encrypted: " + result.getEncryptedCount()
+            + (previousManifest != null ? ", reused: " + result.getReusedCount() : "")
+            + " (" + result.getElapsedMillis() + " ms)");
+    }
+    
+    /**
+     * 影响加密输出的配置（不含密码，密码由 {@link #unlocks} 校验）
+     */
+    private String describeConfiguration() {
+        return String.join("\n",
+            "version=" + EncryptMojo.class.getPackage().getImplementationVersion(),
+            "packages=" + packages,
+            "excludes=" + excludes,
+            "annotations=" + annotations,
+            "excludeAnnotations=" + excludeAnnotations,
+            "minClassSize=" + minClassSize,
+            "maxClassSize=" + maxClassSize,
+            "compressionLevel=" + compressionLevel,
+            "replace=" + replace);
+    }
+    
+    /**
+     * 当前密码能否解开加密 JAR 的密钥槽（同一盐值在整个构建中只派生一次）
+     */
+    private boolean unlocks(Path jar, KeyEnvelope.Keyring keyring) throws IOException {
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            ZipEntry entry = zip.getEntry(EncryptionMetadata.METADATA_PATH);
+            if (entry == null) {
+                return false;
+            }
+            try (InputStream in = zip.getInputStream(entry)) {
+                EncryptionMetadata metadata = new EncryptionMetadataSerializer()
+                    .fromJson(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                keyring.open(metadata);
+                return true;
+            }
+        } catch (CryptoException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * 加密范围（更具体的包规则优先；excludes 中的路径模式编译进同一个自动机）
+     */
+    private EntrySelector createSelector() {
+        List<String> excludePackages = new ArrayList<>();
+        List<String> excludePatterns = new ArrayList<>();
+        if (excludes != null) {
+            for (String exclude : excludes) {
+                boolean pattern = exclude.indexOf('/') >= 0 || exclude.indexOf('*') >= 0 || exclude.indexOf('?') >= 0;
+                (pattern ? excludePatterns : excludePackages).add(exclude);
+            }
+        }
+        return SelectionRules.builder()
+            .includePackages(packages)
+            .excludePackages(excludePackages)
+            .exclude(excludePatterns)
+            .includeAnnotations(annotations)
+            .excludeAnnotations(excludeAnnotations)
+            .minClassSize(minClassSize)
+            .maxClassSize(maxClassSize)
+            .build();
+    }
+    
+    private void printPreview(JarEncryptor.Preview preview) {
+        getLog().info("ByteGuard dry run (nothing written)");
+        for (Map.Entry<String, Long> entry : preview.getEncrypted().entrySet()) {
+            getLog().info("  + " + entry.getKey() + " (" + entry.getValue() + " bytes)");
+        }
+        for (String name : preview.getSkipped()) {
+            getLog().info("  - " + name);
+        }
+        getLog().info("  Classes to encrypt: " + preview.getEncrypted().size() + " of "
+            + (preview.getEncrypted().size() + preview.getSkipped().size()));
     }
 }
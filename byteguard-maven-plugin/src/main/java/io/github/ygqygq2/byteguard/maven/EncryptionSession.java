@@ -0,0 +1,87 @@
+package io.github.ygqygy2.byteguard.maven;
+
+import io.github.ygqygq2.byteguard.core.crypto.KeyEnvelope;
+import org.apache.maven.execution.MavenSession;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一次 Maven 构建（整个 reactor）共用的加密会话
+ * 
+ * <p>多模块并行构建（-T）时各模块的 {@link EncryptMojo} 在不同线程上执行，共用：
+ * <ul>
+ *   <li>每个密码一个 {@link KeyEnvelope.Keyring}：同一密码、套件和 KDF 参数只派生一次 KEK，
+ *       检查上次输出时解开同一批次写出的密钥槽也不再重复 KDF</li>
+ *   <li>一个有界的工作线程池：总线程数不随模块数增加，不会与 Maven 的构建线程一起占满 CPU</li>
+ * </ul>
+ * 
+ * <p>会话按构建请求区分（并行构建时各模块的 MavenSession 是同一请求的副本），构建结束后随请求回收；
+ * 工作线程空闲一段时间后自动退出，常驻的构建守护进程（如 mvnd）中也不会累积线程。
+ * 
+ * @author ygqygq2
+ */
+final class EncryptionSession {
+    
+    /** 工作线程空闲多久后退出（秒） */
+    private static final long IDLE_SECONDS = 30;
+    
+    private static final Map<Object, EncryptionSession> SESSIONS = new WeakHashMap<>();
+    
+    private final ThreadPoolExecutor workers;
+    private final ConcurrentHashMap<String, KeyEnvelope.Keyring> keyrings = new ConcurrentHashMap<>();
+    
+    private EncryptionSession(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, IDLE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "byteguard-encrypt-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        workers.allowCoreThreadTimeOut(true);
+    }
+    
+    /**
+     * 当前构建的会话
+     * 
+     * @param session Maven 会话（null 时返回独立的会话，如在 Maven 之外调用）
+     * @param threads 工作线程数，多个模块配置不同时取最大值
+     * @return 会话
+     */
+    static synchronized EncryptionSession of(MavenSession session, int threads) {
+        if (session == null) {
+            return new EncryptionSession(threads);
+        }
+        EncryptionSession shared = SESSIONS.computeIfAbsent(session.getRequest(), key -> new EncryptionSession(threads));
+        shared.grow(threads);
+        return shared;
+    }
+    
+    /**
+     * 共用的工作线程池（不要关闭）
+     */
+    ExecutorService workers() {
+        return workers;
+    }
+    
+    /**
+     * 密码对应的密钥环
+     */
+    KeyEnvelope.Keyring keyring(String password) {
+        return keyrings.computeIfAbsent(password, KeyEnvelope.Keyring::new);
+    }
+    
+    private void grow(int threads) {
+        if (threads > workers.getMaximumPoolSize()) {
+            workers.setMaximumPoolSize(threads);
+            workers.setCorePoolSize(threads);
+        }
+    }
+}
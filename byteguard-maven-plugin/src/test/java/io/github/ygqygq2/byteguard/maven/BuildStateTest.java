@@ -0,0 +1,54 @@
+package io.github.ygqygy2.byteguard.maven;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BuildState 测试
+ * 
+ * @author ygqygq2
+ */
+class BuildStateTest {
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void testRoundTrip() throws Exception {
+        Path file = dir.resolve("byteguard/app.jar.state");
+        new BuildState("in", "cfg", "out").write(file);
+        
+        BuildState state = BuildState.read(file);
+        
+        assertEquals("in", state.input);
+        assertEquals("cfg", state.config);
+        assertEquals("out", state.output);
+    }
+    
+    @Test
+    void testMissingOrMalformedIsFirstBuild() throws Exception {
+        Path file = dir.resolve("app.jar.state");
+        assertNull(BuildState.read(file));
+        
+        Files.writeString(file, "byteguard-state 0\ninput a\nconfig b\noutput c\n");
+        assertNull(BuildState.read(file));
+        
+        Files.writeString(file, "byteguard-state 1\ninput a\nconfig b\n");
+        assertNull(BuildState.read(file));
+    }
+    
+    @Test
+    void testDigest() throws Exception {
+        Path file = dir.resolve("a.txt");
+        Files.writeString(file, "abc");
+        
+        String expected = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+        assertEquals(expected, BuildState.digest(file));
+        assertEquals(expected, BuildState.digest("abc"));
+    }
+}
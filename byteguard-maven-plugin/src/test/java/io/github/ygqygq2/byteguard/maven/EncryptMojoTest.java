@@ -0,0 +1,190 @@
+package io.github.ygqygy2.byteguard.maven;
+
+import io.github.ygqygq2.byteguard.core.crypto.CryptoException;
+import io.github.ygqygq2.byteguard.core.crypto.KeyEnvelope;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadata;
+import io.github.ygqygq2.byteguard.core.model.EncryptionMetadataSerializer;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EncryptMojo 增量构建测试（跳过、增量、全量的判断）
+ * 
+ * @author ygqygq2
+ */
+class EncryptMojoTest {
+    
+    @TempDir
+    Path dir;
+    
+    private Path input;
+    private Path output;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        input = dir.resolve("app.jar");
+        output = dir.resolve("app-encrypted.jar");
+        writeJar(input, "App", "Util");
+    }
+    
+    @Test
+    void testUnchangedInputIsUpToDate() throws Exception {
+        assertFalse(run(mojo("secret")).contains("up to date"));
+        byte[] encrypted = Files.readAllBytes(output);
+        
+        String log = run(mojo("secret"));
+        
+        assertTrue(log.contains("up to date"), () -> log);
+        assertArrayEquals(encrypted, Files.readAllBytes(output));
+    }
+    
+    @Test
+    void testChangedConfigurationEncryptsAll() throws Exception {
+        run(mojo("secret"));
+        
+        EncryptMojo mojo = mojo("secret");
+        set(mojo, "compressionLevel", 9);
+        String log = run(mojo);
+        
+        assertFalse(log.contains("up to date"), () -> log);
+        assertFalse(log.contains("reused"), () -> log);
+    }
+    
+    @Test
+    void testChangedInputEncryptsIncrementally() throws Exception {
+        run(mojo("secret"));
+        
+        writeJar(input, "App v2", "Util");
+        String log = run(mojo("secret"));
+        
+        assertTrue(log.contains("reused: 1"), () -> log);
+        assertTrue(unlocks(output, "secret"));
+    }
+    
+    @Test
+    void testChangedPasswordFallsBackToFullEncryption() throws Exception {
+        run(mojo("secret"));
+        
+        // 输入没变，但新密码解不开上次的输出：不能跳过，也不能沿用上次的密钥槽
+        String log = run(mojo("changed"));
+        
+        assertFalse(log.contains("up to date"), () -> log);
+        assertTrue(log.contains("cannot be reused"), () -> log);
+        assertTrue(unlocks(output, "changed"));
+        assertFalse(unlocks(output, "secret"));
+    }
+    
+    @Test
+    void testForceIgnoresLastBuild() throws Exception {
+        run(mojo("secret"));
+        
+        EncryptMojo mojo = mojo("secret");
+        set(mojo, "force", true);
+        String log = run(mojo);
+        
+        assertFalse(log.contains("up to date"), () -> log);
+        assertFalse(log.contains("reused"), () -> log);
+    }
+    
+    @Test
+    void testReplaceModeComparesAgainstReplacedJar() throws Exception {
+        EncryptMojo first = mojo("secret");
+        set(first, "replace", true);
+        run(first);
+        assertTrue(unlocks(input, "secret"));
+        assertFalse(Files.exists(output));
+        byte[] encrypted = Files.readAllBytes(input);
+        
+        // 重复执行（没有重新打包）：输入就是上次的输出
+        EncryptMojo again = mojo("secret");
+        set(again, "replace", true);
+        assertTrue(run(again).contains("up to date"));
+        assertArrayEquals(encrypted, Files.readAllBytes(input));
+        
+        // 重新打包出明文 JAR：重新加密并替换
+        writeJar(input, "App v2", "Util");
+        EncryptMojo rebuilt = mojo("secret");
+        set(rebuilt, "replace", true);
+        String log = run(rebuilt);
+        assertFalse(log.contains("up to date"), () -> log);
+        assertTrue(unlocks(input, "secret"));
+        assertFalse(Files.exists(output));
+    }
+    
+    private EncryptMojo mojo(String password) throws Exception {
+        MavenProject project = new MavenProject();
+        project.getBuild().setDirectory(dir.toString());
+        project.getBuild().setFinalName("app");
+        EncryptMojo mojo = new EncryptMojo();
+        set(mojo, "project", project);
+        set(mojo, "password", password);
+        set(mojo, "compressionLevel", 6);
+        set(mojo, "maxClassSize", Integer.MAX_VALUE);
+        set(mojo, "threads", 2);
+        return mojo;
+    }
+    
+    /**
+     * 执行并返回 info 日志（拼成一段便于查找）
+     */
+    private static String run(EncryptMojo mojo) throws Exception {
+        List<String> lines = new ArrayList<>();
+        mojo.setLog(new SystemStreamLog() {
+            @Override
+            public void info(CharSequence content) {
+                lines.add(content.toString());
+            }
+        });
+        mojo.execute();
+        return String.join("\n", lines);
+    }
+    
+    private static void set(EncryptMojo mojo, String name, Object value) throws Exception {
+        Field field = EncryptMojo.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(mojo, value);
+    }
+    
+    private static boolean unlocks(Path jar, String password) throws IOException {
+        try (ZipFile zip = new ZipFile(jar.toFile());
+             InputStream in = zip.getInputStream(zip.getEntry(EncryptionMetadata.METADATA_PATH))) {
+            EncryptionMetadata metadata = new EncryptionMetadataSerializer()
+                .fromJson(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            new KeyEnvelope.Keyring(password).open(metadata);
+            return true;
+        } catch (CryptoException e) {
+            return false;
+        }
+    }
+    
+    private static void writeJar(Path jar, String app, String util) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+            put(zip, "com/example/App.class", app);
+            put(zip, "com/example/util/Util.class", util);
+            put(zip, "app.properties", "key=value");
+        }
+    }
+    
+    private static void put(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(("Êþº¾ class " + content).getBytes(StandardCharsets.ISO_8859_1));
+        zip.closeEntry();
+    }
+}
@@ -2,8 +2,10 @@ rootProject.name = "byteguard"
 
 include(
     "byteguard-core",
+    "byteguard-agent",
     "byteguard-cli",
-    "byteguard-maven-plugin"
+    "byteguard-maven-plugin",
+    "byteguard-gradle-plugin"
 )
 
 // Test fixtures